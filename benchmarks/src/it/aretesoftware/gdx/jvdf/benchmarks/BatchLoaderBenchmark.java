@@ -0,0 +1,82 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+import it.aretesoftware.gdx.jvdf.GdxVDFBatchLoader;
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link GdxVDFBatchLoader} loading 64 generated files of items, one after another and on virtual threads.
+ * The files are written to a temporary directory, deleted once the benchmark is over.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BatchLoaderBenchmark {
+
+    private FileHandle directory;
+    private FileHandle[] files;
+    private final GdxVDFBatchLoader sequential = new GdxVDFBatchLoader(), parallel = new GdxVDFBatchLoader();
+
+    @Setup
+    public void setup() throws IOException {
+        directory = new FileHandle(Files.createTempDirectory("gdx-jvdf").toFile());
+        GdxVDFGenerator generator = new GdxVDFGenerator(42);
+        files = new FileHandle[64];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = directory.child(i + ".txt");
+            files[i].writeString(generator.generate(GdxVDFGenerator.Shape.items, 500), false);
+        }
+        sequential.setExecutor(null);
+        parallel.setExecutor(GdxVDFBatchLoader.virtualThreads());
+    }
+
+    @TearDown
+    public void tearDown() {
+        directory.deleteDirectory();
+    }
+
+    @Benchmark
+    public GdxVDFBatchLoader.Result sequential() {
+        return sequential.load(files);
+    }
+
+    @Benchmark
+    public GdxVDFBatchLoader.Result parallel() {
+        return parallel.load(files);
+    }
+
+}
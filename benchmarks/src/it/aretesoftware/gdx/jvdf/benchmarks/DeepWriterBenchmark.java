@@ -0,0 +1,64 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator;
+import it.aretesoftware.gdx.jvdf.GdxVDFNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import it.aretesoftware.gdx.jvdf.GdxVDFWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing documents nested far deeper than any recursion would survive, with a {@link GdxVDFWriter} which
+ * does not indent, so that the time is linear in the depth.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DeepWriterBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int depth;
+
+    private GdxVDFNode root;
+
+    @Setup
+    public void setup() {
+        root = new GdxVDFParser().parse(new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.deep, depth));
+    }
+
+    @Benchmark
+    public String writeNode() {
+        return new GdxVDFWriter(false).writeNode(root.child).toVDF();
+    }
+
+}
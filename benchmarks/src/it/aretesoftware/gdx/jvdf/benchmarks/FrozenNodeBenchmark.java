@@ -0,0 +1,108 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFFrozenNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import it.aretesoftware.gdx.jvdf.GdxVDFPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the persistent updates of {@link GdxVDFFrozenNode}. The items shape updates an item nested in a wide node,
+ * the wide shape updates the children of a wide root directly: every update copies the children of the nodes along
+ * its path, so both cost time proportional to the width, and the lookup benchmarks add the cost of the name index.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FrozenNodeBenchmark {
+
+    @Param({"items", "wide"})
+    public GdxVDFGenerator.Shape shape;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private GdxVDFFrozenNode root;
+    private GdxVDFPath parent, leaf;
+    private String name, other;
+
+    @Setup
+    public void setup() {
+        GdxVDFFrozenNode document = new GdxVDFParser().parse(new GdxVDFGenerator(42).generate(shape, size)).freeze();
+        if (shape == GdxVDFGenerator.Shape.wide) {
+            root = document.get("wide");
+            parent = GdxVDFPath.ROOT;
+            name = "key_" + size / 2;
+            other = "key_" + (size / 2 - 1);
+            leaf = GdxVDFPath.of(name);
+        }
+        else {
+            root = document;
+            parent = GdxVDFPath.of("items_game", "items");
+            name = String.valueOf(size / 2);
+            other = String.valueOf(size / 2 - 1);
+            leaf = GdxVDFPath.of("items_game", "items", name, "name");
+        }
+        // Builds the name indexes along the paths, as a document which is read before being updated
+        root.set(leaf, "warm");
+    }
+
+    @Benchmark
+    public GdxVDFFrozenNode set() {
+        return root.set(leaf, "changed");
+    }
+
+    @Benchmark
+    public GdxVDFFrozenNode append() {
+        return root.add(parent, "added", "1");
+    }
+
+    @Benchmark
+    public GdxVDFFrozenNode remove() {
+        return root.remove(parent.child(name));
+    }
+
+    @Benchmark
+    public GdxVDFFrozenNode appendThenLookup() {
+        GdxVDFFrozenNode added = root.add(parent, "added", "1");
+        return added.set(parent.child(name), "changed");
+    }
+
+    @Benchmark
+    public GdxVDFFrozenNode removeThenLookup() {
+        GdxVDFFrozenNode removed = root.remove(parent.child(name));
+        return removed.set(parent.child(other), "changed");
+    }
+
+}
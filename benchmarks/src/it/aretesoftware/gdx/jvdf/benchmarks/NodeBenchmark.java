@@ -0,0 +1,114 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator;
+import it.aretesoftware.gdx.jvdf.GdxVDFNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups and typed accessors of {@link GdxVDFNode}, on wide nodes and on the items of a huge document.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NodeBenchmark {
+
+    private GdxVDFNode wide, multimap, item, items;
+
+    @Setup
+    public void setup() {
+        GdxVDFParser parser = new GdxVDFParser();
+        GdxVDFGenerator generator = new GdxVDFGenerator(42);
+        wide = parser.parse(generator.generate(GdxVDFGenerator.Shape.wide, 100000)).get("wide");
+        multimap = parser.parse(generator.generate(GdxVDFGenerator.Shape.multimap, 10000)).get("multimap");
+        items = parser.parse(generator.generate(GdxVDFGenerator.Shape.items, 20000)).get("items_game").get("items");
+        item = items.get("10000");
+    }
+
+    @Benchmark
+    public GdxVDFNode namedLookupFirst() {
+        return wide.get("key_0");
+    }
+
+    @Benchmark
+    public GdxVDFNode namedLookupMiddle() {
+        return wide.get("key_50000");
+    }
+
+    @Benchmark
+    public GdxVDFNode namedLookupMissing() {
+        return wide.get("missing");
+    }
+
+    @Benchmark
+    public GdxVDFNode indexedLookupMiddle() {
+        return wide.get(50000);
+    }
+
+    @Benchmark
+    public GdxVDFNode multimapLookup() {
+        return multimap.get("tag", 1000);
+    }
+
+    @Benchmark
+    public void typedAccessors(Blackhole blackhole) {
+        blackhole.consume(item.getString("name"));
+        blackhole.consume(item.getInt("item_slot"));
+        blackhole.consume(item.getFloat("weight"));
+        blackhole.consume(item.getBoolean("tradable"));
+        blackhole.consume(item.getColor("color"));
+        blackhole.consume(item.getVector2("offset"));
+    }
+
+    @Benchmark
+    public void typedAccessorsWithDefaults(Blackhole blackhole) {
+        blackhole.consume(item.getString("missing", null));
+        blackhole.consume(item.getInt("missing", 0));
+        blackhole.consume(item.getFloat("name", 0));
+        blackhole.consume(item.getColor("missing", Color.WHITE));
+        blackhole.consume(item.getVector2("missing", Vector2.Zero));
+    }
+
+    @Benchmark
+    public int iterateItems() {
+        int slots = 0;
+        for (GdxVDFNode node = items.child; node != null; node = node.next) {
+            slots += node.getInt("item_slot", 0);
+        }
+        return slots;
+    }
+
+}
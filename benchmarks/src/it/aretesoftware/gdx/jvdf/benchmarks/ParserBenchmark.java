@@ -0,0 +1,83 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator;
+import it.aretesoftware.gdx.jvdf.GdxVDFNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import it.aretesoftware.gdx.jvdf.GdxVDFPreprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures preprocessing and parsing, for every shape of {@link GdxVDFGenerator} at growing sizes, from a single entry
+ * to about 36 MB of items, so the results draw how time and allocations scale with the size of the input. Parsing is
+ * also measured with statistics collected, which shows their overhead.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+    @Param({"wide", "deep", "multimap", "escaped", "comments", "items"})
+    public GdxVDFGenerator.Shape shape;
+
+    @Param({"1", "100", "10000", "100000"})
+    public int size;
+
+    private String vdf;
+    private final GdxVDFPreprocessor preprocessor = new GdxVDFPreprocessor();
+    private final GdxVDFParser parser = new GdxVDFParser();
+    private final GdxVDFParser collectingParser = new GdxVDFParser();
+
+    @Setup
+    public void setup() {
+        vdf = new GdxVDFGenerator(42).generate(shape, size);
+        collectingParser.setCollectStats(true);
+    }
+
+    @Benchmark
+    public String process() {
+        return preprocessor.process(vdf);
+    }
+
+    @Benchmark
+    public GdxVDFNode parse() {
+        return parser.parse(vdf);
+    }
+
+    /** Parses while collecting statistics, to compare against {@link #parse()}. */
+    @Benchmark
+    public GdxVDFNode parseWithStats() {
+        return collectingParser.parse(vdf);
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator;
+import it.aretesoftware.gdx.jvdf.GdxVDFNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import it.aretesoftware.gdx.jvdf.GdxVDFTraversal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures bulk passes of {@link GdxVDFTraversal} over more than a million nodes of items, with a pool of growing
+ * parallelism, so the results show how they scale with cores.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TraversalBenchmark {
+
+    /** The parallelism of the pool, 0 to walk the tree on the calling thread. */
+    @Param({"0", "1", "2", "4", "8"})
+    public int threads;
+
+    private GdxVDFNode root;
+    private ForkJoinPool pool;
+    private final GdxVDFTraversal traversal = new GdxVDFTraversal();
+
+    @Setup
+    public void setup() {
+        root = new GdxVDFParser().parse(new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.items, 100000));
+        pool = threads == 0 ? null : new ForkJoinPool(threads);
+        traversal.setPool(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    /** Rewrites every weight, parsing and formatting it. */
+    @Benchmark
+    public int map() {
+        return traversal.map(root, "weight", weight -> Float.toString(Float.parseFloat(weight)));
+    }
+
+    @Benchmark
+    public List<GdxVDFNode> filter() {
+        return traversal.filter(root, node -> node.name.equalsIgnoreCase("color"));
+    }
+
+}
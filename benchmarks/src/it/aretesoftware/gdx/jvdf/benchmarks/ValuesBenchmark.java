@@ -0,0 +1,98 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import it.aretesoftware.gdx.jvdf.GdxVDFValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions of {@link GdxVDFValues}.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ValuesBenchmark {
+
+    private final GdxVDFValues values = new GdxVDFValues();
+    private final Color color = new Color(0.25f, 0.5f, 0.75f, 1f);
+
+    // Not final, so the JIT cannot fold the inputs
+    public String integer = "123456", decimal = "3.14159", bool = "true", colorString = "0.25 0.5 0.75 1.0",
+            vector2 = "1.5 2.5", vector3 = "1.5 2.5 3.5", text = "item_name";
+
+    @Benchmark
+    public Number toNumberInteger() {
+        return values.toNumber(integer);
+    }
+
+    @Benchmark
+    public Number toNumberDecimal() {
+        return values.toNumber(decimal);
+    }
+
+    @Benchmark
+    public boolean isNumberText() {
+        return values.isNumber(text);
+    }
+
+    @Benchmark
+    public boolean toBoolean() {
+        return values.toBoolean(bool);
+    }
+
+    @Benchmark
+    public Color toColor() {
+        return values.toColor(colorString);
+    }
+
+    @Benchmark
+    public Vector2 toVector2() {
+        return values.toVector2(vector2);
+    }
+
+    @Benchmark
+    public Vector3 toVector3() {
+        return values.toVector3(vector3);
+    }
+
+    @Benchmark
+    public Object toObject() {
+        return values.toObject(colorString);
+    }
+
+    @Benchmark
+    public String colorToString() {
+        return values.toString(color);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.benchmarks;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator;
+import it.aretesoftware.gdx.jvdf.GdxVDFNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import it.aretesoftware.gdx.jvdf.GdxVDFWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing documents, with {@link GdxVDFWriter} and with {@link GdxVDFNode#toVDF()}.
+ * @author Arete */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WriterBenchmark {
+
+    @Param({"wide", "deep", "multimap", "escaped", "comments", "items"})
+    public GdxVDFGenerator.Shape shape;
+
+    // Writing does not recurse, but toVDF indents every level so its output grows with the square of the depth: deeper
+    // documents are measured without indentation by DeepWriterBenchmark
+    @Param({"1", "10000"})
+    public int size;
+
+    private GdxVDFNode root;
+    private final Color color = new Color(0.25f, 0.5f, 0.75f, 1f);
+    private final Vector2 offset = new Vector2(10, 20);
+
+    @Setup
+    public void setup() {
+        root = new GdxVDFParser().parse(new GdxVDFGenerator(42).generate(shape, size));
+    }
+
+    @Benchmark
+    public String toVDF() {
+        return root.toVDF();
+    }
+
+    @Benchmark
+    public String writeNode() {
+        GdxVDFWriter writer = new GdxVDFWriter();
+        for (GdxVDFNode child = root.child; child != null; child = child.next) {
+            writer.writeNode(child);
+        }
+        return writer.toVDF();
+    }
+
+    @Benchmark
+    public String writeValues() {
+        GdxVDFWriter writer = new GdxVDFWriter().writeNodeStart("items");
+        for (int i = 0; i < 1000; i++) {
+            writer.writeNodeStart("item")
+                    .writeValue("name", "item_name")
+                    .writeValue("item_slot", i)
+                    .writeValue("weight", i * 0.5f)
+                    .writeValue("tradable", true)
+                    .writeValue("color", color)
+                    .writeValue("offset", offset)
+                    .writeMultimapValue("tag", "first", "second")
+                    .writeNodeEnd();
+        }
+        return writer.writeNodeEnd().toVDF();
+    }
+
+}
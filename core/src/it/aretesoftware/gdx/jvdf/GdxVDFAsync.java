@@ -0,0 +1,214 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads and writes VDF files without blocking the calling thread, completing a {@link CompletableFuture} instead.
+ * <p>
+ * Files are streamed: reading parses the file one line at a time with {@link GdxVDFParser#parse(Reader)}, and writing
+ * walks the tree into a buffered writer, so large files are never held in memory as text. Reading applies the
+ * configuration of the parser of the instance: its preprocessor, conditionals, maximum depth and size, statistics and
+ * the {@link GdxVDFMonitor}. The blocking I/O runs on the executor of the instance, by default a virtual thread per
+ * operation on Java 21 and later, and a pool of daemon threads on earlier versions.
+ * </p>
+ * Futures fail with a {@link GdxVDFParseException} for malformed documents, and an {@link UncheckedIOException} when
+ * a file cannot be read or written.
+ *
+ * <pre>
+ * GdxVDFAsync async = new GdxVDFAsync();
+ * async.parseAsync(Paths.get("items.txt"))
+ * 		.thenApply(root -&gt; root.get("items"))
+ * 		.thenAccept(items -&gt; ...);
+ * </pre>
+ * @author Arete */
+public class GdxVDFAsync {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final GdxVDFParser parser;
+    private final Executor executor;
+
+    /**
+     * Initializes the facade with a specific parser and executor.
+     * @param parser the parser to parse files with
+     * @param executor the executor running the I/O
+     */
+    public GdxVDFAsync(GdxVDFParser parser, Executor executor) {
+        if (parser == null) throw new IllegalArgumentException("parser cannot be null.");
+        if (executor == null) throw new IllegalArgumentException("executor cannot be null.");
+        this.parser = parser;
+        this.executor = executor;
+    }
+
+    /**
+     * Initializes the facade with a specific parser and the default executor.
+     * @param parser the parser to parse files with
+     */
+    public GdxVDFAsync(GdxVDFParser parser) {
+        this(parser, DefaultExecutor.EXECUTOR);
+    }
+
+    /**
+     * Initializes the facade with the default parser and a specific executor.
+     * @param executor the executor running the I/O
+     */
+    public GdxVDFAsync(Executor executor) {
+        this(new GdxVDFParser(), executor);
+    }
+
+    /**
+     * Initializes the facade with the default parser and executor: virtual threads when available, daemon threads
+     * otherwise.
+     */
+    public GdxVDFAsync() {
+        this(new GdxVDFParser());
+    }
+
+    public GdxVDFParser getParser() {
+        return parser;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Reads and parses a file, as UTF-8.
+     * @param path the file to parse
+     * @return a future completed with the root of the document
+     */
+    public CompletableFuture<GdxVDFNode> parseAsync(Path path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Error reading file: " + path, e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Reads and parses a file of any type, such as an internal or classpath file, as UTF-8.
+     * @param file the file to parse
+     * @return a future completed with the root of the document
+     */
+    public CompletableFuture<GdxVDFNode> parseAsync(FileHandle file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(file.reader("UTF-8"));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Error reading file: " + file.path(), e);
+            }
+        }, executor);
+    }
+
+    private GdxVDFNode read(Reader input) throws IOException {
+        try (Reader reader = input instanceof BufferedReader ? input : new BufferedReader(input, BUFFER_SIZE)) {
+            return parser.parse(reader);
+        }
+    }
+
+    /**
+     * Writes a tree to a file as UTF-8, in the format of {@link GdxVDFNode#toVDF()}. The tree must not be modified until
+     * the future completes. The file is replaced once it has been written completely, so readers never see half of it
+     * where the file system supports atomic moves.
+     * @param node the node to write
+     * @param path the file to write
+     * @return a future completed once the file is written
+     */
+    public CompletableFuture<Void> writeAsync(GdxVDFNode node, Path path) {
+        return CompletableFuture.runAsync(() -> {
+            Path absolute = path.toAbsolutePath();
+            Path temporary = null;
+            try {
+                temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    node.toVDF(writer);
+                }
+                move(temporary, absolute);
+            }
+            catch (IOException e) {
+                try {
+                    if (temporary != null) Files.deleteIfExists(temporary);
+                }
+                catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw new UncheckedIOException("Error writing file: " + path, e);
+            }
+        }, executor);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task, on Java 21 and later.
+     * @return May be null, if virtual threads are not available.
+     */
+    static Executor newVirtualThreadExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /** Creates the default executor lazily, on first use. */
+    private static final class DefaultExecutor {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            Executor executor = newVirtualThreadExecutor();
+            if (executor != null) return executor;
+            ExecutorService threads = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "GdxVDFAsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            return threads;
+        }
+    }
+
+}
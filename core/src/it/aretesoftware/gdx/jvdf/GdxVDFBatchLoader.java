@@ -0,0 +1,311 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Loads many VDF files at once, reading and parsing them concurrently, into a registry keyed by file or a single
+ * merged root.
+ * <p>
+ * Every file is read and parsed as its own task on the {@link #setExecutor(Executor) executor}, by default the common
+ * {@link ForkJoinPool}, so loading time goes down with the number of cores. A file which cannot be read or parsed does
+ * not stop the batch: its error, including a {@link StackOverflowError} raised by a recursive preprocessor or
+ * conditional, is reported in the {@link Result} along with the timings of every file. Directives such as "#base" are
+ * not resolved, see {@link GdxVDFIncludeLoader} for that.
+ * </p>
+ *
+ * <pre>
+ * GdxVDFBatchLoader loader = new GdxVDFBatchLoader();
+ * GdxVDFBatchLoader.Result scripts = loader.loadDirectory(Gdx.files.internal("scripts"), ".txt", false);
+ * GdxVDFNode items = scripts.get("scripts/items.txt");
+ * </pre>
+ *
+ * @author Arete */
+public class GdxVDFBatchLoader {
+
+    private final GdxVDFParser parser;
+    private Executor executor = ForkJoinPool.commonPool();
+    private Function<FileHandle, String> keys = FileHandle::path;
+
+    /**
+     * Initializes the loader with a specific parser, which is shared by every task.
+     * @param parser the parser to parse files with
+     */
+    public GdxVDFBatchLoader(GdxVDFParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Initializes the loader with the default parser.
+     */
+    public GdxVDFBatchLoader() {
+        this(new GdxVDFParser());
+    }
+
+    /**
+     * Sets the executor reading and parsing the files, such as {@link #virtualThreads()}.
+     * @param executor May be null, to load files one after another on the calling thread.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /** @return May be null. */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets how the registry of a {@link Result} is keyed, by default by the path of each file.
+     * @param keys returns the key of a file, such as {@code FileHandle::nameWithoutExtension}
+     */
+    public void setKeys(Function<FileHandle, String> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task on Java 21 and later, which suits files read from slow
+     * storage. On earlier versions, returns the common {@link ForkJoinPool}.
+     */
+    public static Executor virtualThreads() {
+        return VirtualThreads.EXECUTOR;
+    }
+
+    /**
+     * Loads the files of a directory.
+     * @param directory the directory to load
+     * @param suffix the suffix of the files to load, such as ".txt", or null for every file
+     * @param recursive whether the files of subdirectories are loaded too
+     * @return the loaded files, sorted by path
+     */
+    public Result loadDirectory(FileHandle directory, String suffix, boolean recursive) {
+        if (!directory.isDirectory()) throw new IllegalArgumentException("Not a directory: " + directory.path());
+        List<FileHandle> files = new ArrayList<>();
+        collect(directory, suffix, recursive, files);
+        files.sort(Comparator.comparing(FileHandle::path));
+        return load(files);
+    }
+
+    private static void collect(FileHandle directory, String suffix, boolean recursive, List<FileHandle> files) {
+        for (FileHandle file : directory.list()) {
+            if (file.isDirectory()) {
+                if (recursive) collect(file, suffix, true, files);
+            }
+            else if (suffix == null || file.name().endsWith(suffix)) {
+                files.add(file);
+            }
+        }
+    }
+
+    /**
+     * Loads several files.
+     * @param files the files to load
+     * @return the loaded files, in the same order
+     */
+    public Result load(FileHandle... files) {
+        return load(Arrays.asList(files));
+    }
+
+    /**
+     * Loads several files.
+     * @param files the files to load
+     * @return the loaded files, in the same order
+     */
+    public Result load(List<FileHandle> files) {
+        long start = System.nanoTime();
+        FileResult[] results = new FileResult[files.size()];
+        Executor executor = this.executor;
+        if (executor == null || files.size() == 1) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = loadFile(files.get(i));
+            }
+        }
+        else {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[results.length];
+            for (int i = 0; i < results.length; i++) {
+                int index = i;
+                futures[i] = CompletableFuture.runAsync(() -> results[index] = loadFile(files.get(index)), executor);
+            }
+            // Tasks catch their own failures, so joining only waits
+            CompletableFuture.allOf(futures).join();
+        }
+        return new Result(Arrays.asList(results), keys, System.nanoTime() - start);
+    }
+
+    private FileResult loadFile(FileHandle file) {
+        long start = System.nanoTime(), read = start;
+        try {
+            String vdf = file.readString("UTF-8");
+            read = System.nanoTime();
+            GdxVDFNode root = parser.parse(vdf);
+            return new FileResult(file, root, null, read - start, System.nanoTime() - read);
+        }
+        catch (RuntimeException | StackOverflowError e) {
+            // The stack is unwound by now, and other tasks are not affected
+            long end = System.nanoTime();
+            return read == start ? new FileResult(file, null, e, end - start, 0)
+                    : new FileResult(file, null, e, read - start, end - read);
+        }
+    }
+
+    /** The outcome of a batch. */
+    public static final class Result {
+        private final List<FileResult> files;
+        private final Map<String, GdxVDFNode> registry = new LinkedHashMap<>();
+        private final long nanos;
+
+        Result(List<FileResult> files, Function<FileHandle, String> keys, long nanos) {
+            this.files = Collections.unmodifiableList(files);
+            this.nanos = nanos;
+            for (FileResult file : files) {
+                if (file.root != null) registry.put(keys.apply(file.file), file.root);
+            }
+        }
+
+        /** Returns the outcome of every file, in the order they were given or found. */
+        public List<FileResult> getFiles() {
+            return files;
+        }
+
+        /** Returns the files which could not be read or parsed. */
+        public List<FileResult> getFailures() {
+            List<FileResult> failures = new ArrayList<>();
+            for (FileResult file : files) {
+                if (file.error != null) failures.add(file);
+            }
+            return failures;
+        }
+
+        /** Returns whether every file was loaded. */
+        public boolean isSuccessful() {
+            for (FileResult file : files) {
+                if (file.error != null) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the roots of the loaded files by key. When several files have the same key, the last one wins.
+         * @return an unmodifiable view of the registry
+         */
+        public Map<String, GdxVDFNode> getRegistry() {
+            return Collections.unmodifiableMap(registry);
+        }
+
+        /**
+         * Returns the root of a loaded file.
+         * @return May be null, if no file with this key was loaded. */
+        public GdxVDFNode get(String key) {
+            return registry.get(key);
+        }
+
+        /**
+         * Merges the loaded files into a single document, appending copies of the children of every root in file
+         * order. The roots of the registry are left untouched.
+         * @return a new root node
+         */
+        public GdxVDFNode merge() {
+            GdxVDFNode merged = new GdxVDFNode(), last = null;
+            for (FileResult file : files) {
+                if (file.root == null) continue;
+                for (GdxVDFNode child = file.root.child; child != null; child = child.next) {
+                    GdxVDFNode copy = child.copy();
+                    merged.addChildAfter(last, copy.name, copy);
+                    last = copy;
+                }
+            }
+            return merged;
+        }
+
+        /** Returns the time the whole batch took, in nanoseconds. */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /** The outcome of a single file. */
+    public static final class FileResult {
+        private final FileHandle file;
+        private final GdxVDFNode root;
+        private final Throwable error;
+        private final long readNanos, parseNanos;
+
+        FileResult(FileHandle file, GdxVDFNode root, Throwable error, long readNanos, long parseNanos) {
+            this.file = file;
+            this.root = root;
+            this.error = error;
+            this.readNanos = readNanos;
+            this.parseNanos = parseNanos;
+        }
+
+        public FileHandle file() {
+            return file;
+        }
+
+        /** @return May be null, if the file could not be loaded. */
+        public GdxVDFNode root() {
+            return root;
+        }
+
+        /** Returns the exception, or the stack overflow, which stopped loading the file.
+         * @return May be null, if the file was loaded. */
+        public Throwable error() {
+            return error;
+        }
+
+        /** Returns the time spent reading the file, in nanoseconds. */
+        public long readNanos() {
+            return readNanos;
+        }
+
+        /** Returns the time spent parsing the file, in nanoseconds. */
+        public long parseNanos() {
+            return parseNanos;
+        }
+
+        @Override
+        public String toString() {
+            return file.path() + ": " + (error != null ? error.toString() : "read in " + (readNanos / 1000000f)
+                    + " ms, parsed in " + (parseNanos / 1000000f) + " ms");
+        }
+    }
+
+    /** Creates the virtual thread executor lazily, on first use. */
+    private static final class VirtualThreads {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            Executor executor = GdxVDFAsync.newVirtualThreadExecutor();
+            return executor != null ? executor : ForkJoinPool.commonPool();
+        }
+    }
+
+}
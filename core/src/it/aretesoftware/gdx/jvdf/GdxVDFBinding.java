@@ -0,0 +1,54 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+/**
+ * Reads and writes objects of a class without reflection. Implementations are generated at compile time for the
+ * classes annotated with {@link GdxVDFType}, and are available as the INSTANCE field of the generated class.
+ *
+ * <pre>
+ * Item item = ItemGdxVDFBinding.INSTANCE.read(node);
+ * </pre>
+ * @author Arete */
+public interface GdxVDFBinding<T> {
+
+    /**
+     * Creates an object and binds the children of a node to its fields.
+     * @param node the node whose children are bound
+     * @return the new object
+     * @throws IllegalArgumentException if a required key is missing
+     */
+    T read(GdxVDFNode node);
+
+    /**
+     * Binds the children of a node to the fields of an existing object.
+     * @param node the node whose children are bound
+     * @param object the object to bind to
+     * @return the same object, for chaining
+     * @throws IllegalArgumentException if a required key is missing
+     */
+    T read(GdxVDFNode node, T object);
+
+    /**
+     * Writes the fields of an object as the key/values of the current node of a writer. Null fields are skipped.
+     * @param writer the writer to write to
+     * @param object the object to write
+     * @return the same writer, for chaining
+     */
+    GdxVDFWriter write(GdxVDFWriter writer, T object);
+
+}
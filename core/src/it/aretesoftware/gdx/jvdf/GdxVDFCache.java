@@ -0,0 +1,306 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches parsed VDF documents in front of a {@link GdxVDFParser}, so that the same text is only parsed once.
+ * <p>
+ * Strings are keyed by their content, looked up through a 64-bit content hash, files are keyed by their path and last
+ * modification time. Cached strings are retained along with their trees, so that a colliding hash never returns the
+ * tree of another document. Entries are evicted in least-recently-used order once either the maximum number of entries or the maximum
+ * amount of retained bytes is exceeded. Trees are cached as {@link GdxVDFFrozenNode} snapshots: {@code parseFrozen}
+ * shares the snapshot itself, which makes a hit a single map lookup, while {@code parse} returns a mutable deep copy
+ * that callers are free to modify.
+ * </p>
+ * All methods are thread-safe.
+ * @author Arete */
+public class GdxVDFCache {
+
+    /** Rough size of a {@link GdxVDFFrozenNode} with its object header, fields and children array, in bytes. */
+    static final int NODE_BYTES = 40;
+    /** Rough size of one child reference in a children array, in bytes. */
+    static final int REFERENCE_BYTES = 4;
+    /** Rough size of an empty String with its backing array, in bytes. */
+    static final int STRING_BYTES = 40;
+
+    private final GdxVDFParser parser;
+    private final int maxEntries;
+    private final long maxRetainedBytes;
+
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long retainedBytes;
+    private long hits, misses, evictions;
+
+    /**
+     * Initializes the cache with a specific parser.
+     * @param parser the parser used on a cache miss
+     * @param maxEntries the maximum number of cached documents, or 0 for no limit
+     * @param maxRetainedBytes the maximum estimated size of all cached documents, or 0 for no limit
+     */
+    public GdxVDFCache(GdxVDFParser parser, int maxEntries, long maxRetainedBytes) {
+        if (maxEntries < 0) throw new IllegalArgumentException("maxEntries cannot be negative: " + maxEntries);
+        if (maxRetainedBytes < 0) throw new IllegalArgumentException("maxRetainedBytes cannot be negative: " + maxRetainedBytes);
+        this.parser = parser;
+        this.maxEntries = maxEntries;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Initializes the cache with the default parser.
+     * @param maxEntries the maximum number of cached documents, or 0 for no limit
+     */
+    public GdxVDFCache(int maxEntries) {
+        this(new GdxVDFParser(), maxEntries, 0);
+    }
+
+    /**
+     * Parses a VDF document, or returns a copy of the cached tree if the same text was parsed before.
+     * @param vdf the VDF document to parse
+     * @return a VDFNode which represents the root of the VDF document
+     */
+    public GdxVDFNode parse(String vdf) {
+        return parseFrozen(vdf).thaw();
+    }
+
+    /**
+     * Parses a VDF document, or returns the cached snapshot if the same text was parsed before.
+     * @param vdf the VDF document to parse
+     * @return an immutable snapshot of the root of the VDF document, shared with other callers
+     */
+    public GdxVDFFrozenNode parseFrozen(String vdf) {
+        ContentKey key = new ContentKey(vdf);
+        GdxVDFFrozenNode cached = lookup(key, 0);
+        monitor(null, cached != null);
+        if (cached != null) {
+            return cached;
+        }
+        GdxVDFFrozenNode root = parser.parse(vdf).freeze();
+        store(key, 0, root);
+        return root;
+    }
+
+    /**
+     * Parses a VDF file, or returns a copy of the cached tree if the file was parsed before and has not been modified
+     * since.
+     * @param file the VDF file to parse
+     * @return a VDFNode which represents the root of the VDF document
+     */
+    public GdxVDFNode parse(FileHandle file) {
+        return parseFrozen(file).thaw();
+    }
+
+    /**
+     * Parses a VDF file, or returns the cached snapshot if the file was parsed before and has not been modified since.
+     * @param file the VDF file to parse
+     * @return an immutable snapshot of the root of the VDF document, shared with other callers
+     */
+    public GdxVDFFrozenNode parseFrozen(FileHandle file) {
+        String key = file.path();
+        long lastModified = file.lastModified();
+        GdxVDFFrozenNode cached = lookup(key, lastModified);
+        monitor(key, cached != null);
+        if (cached != null) {
+            return cached;
+        }
+        GdxVDFFrozenNode root = parser.parse(file.readString("UTF-8")).freeze();
+        store(key, lastModified, root);
+        return root;
+    }
+
+    /**
+     * Removes the cached tree of a file, if present.
+     * @param file the file whose tree should be discarded
+     * @return whether a tree was removed
+     */
+    public synchronized boolean invalidate(FileHandle file) {
+        Entry entry = entries.remove(file.path());
+        if (entry == null) return false;
+        retainedBytes -= entry.bytes;
+        return true;
+    }
+
+    /** Removes every cached tree. Statistics are left untouched. */
+    public synchronized void clear() {
+        entries.clear();
+        retainedBytes = 0;
+    }
+
+    /** Returns the number of cached documents. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Returns the estimated size of all cached documents, in bytes. */
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /** Returns how many lookups were answered from the cache. */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Returns how many lookups had to parse their document. */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Returns how many documents were evicted to respect the configured limits. */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Returns the fraction of lookups answered from the cache, between 0 and 1. */
+    public synchronized float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    private synchronized GdxVDFFrozenNode lookup(Object key, long version) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            hits++;
+            return entry.root;
+        }
+        misses++;
+        return null;
+    }
+
+    private static void monitor(String path, boolean hit) {
+        GdxVDFMonitor monitor = GdxVDFMonitor.get();
+        if (monitor != null) monitor.cacheLookup(path, hit);
+    }
+
+    private synchronized void store(Object key, long version, GdxVDFFrozenNode root) {
+        long bytes = estimateBytes(root);
+        if (key instanceof ContentKey) bytes += estimateBytes(((ContentKey) key).text);
+        Entry previous = entries.put(key, new Entry(root, version, bytes));
+        if (previous != null) {
+            retainedBytes -= previous.bytes;
+        }
+        retainedBytes += bytes;
+        evict();
+    }
+
+    /** Evicts least recently used entries until both limits are respected. The newest entry is always kept. */
+    private void evict() {
+        Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > 1 && isOverLimit()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            retainedBytes -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    private boolean isOverLimit() {
+        return (maxEntries > 0 && entries.size() > maxEntries)
+                || (maxRetainedBytes > 0 && retainedBytes > maxRetainedBytes);
+    }
+
+    /**
+     * Estimates the memory retained by a tree, counting every node with its name and value.
+     * @param root the tree to measure
+     * @return the estimated size, in bytes
+     */
+    static long estimateBytes(GdxVDFFrozenNode root) {
+        // Nodes left to measure, in any order, so that trees of any depth are measured without recursion
+        GdxVDFFrozenNode[] stack = new GdxVDFFrozenNode[16];
+        int size = 0;
+        stack[size++] = root;
+        long bytes = 0;
+        while (size > 0) {
+            GdxVDFFrozenNode node = stack[--size];
+            bytes += NODE_BYTES + estimateBytes(node.name()) + estimateBytes(node.asString());
+            bytes += (long) REFERENCE_BYTES * node.size();
+            if (size + node.size() > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + node.size()));
+            }
+            for (GdxVDFFrozenNode child : node) {
+                stack[size++] = child;
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(String string) {
+        return string == null ? 0 : STRING_BYTES + 2L * string.length();
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of a character sequence.
+     * @param chars the characters to hash
+     * @return the hash of the characters
+     */
+    static long hash(CharSequence chars) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, length = chars.length(); i < length; i++) {
+            hash ^= chars.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** Identifies a document by its content. The hash only speeds up lookups, keys with equal hashes compare their
+     * text, so crafted collisions cannot make different documents share an entry. */
+    static final class ContentKey {
+        private final String text;
+        private final long hash;
+
+        ContentKey(String text) {
+            this(text, hash(text));
+        }
+
+        ContentKey(String text, long hash) {
+            this.text = text;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) return true;
+            if (!(object instanceof ContentKey)) return false;
+            ContentKey other = (ContentKey) object;
+            return hash == other.hash && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private static final class Entry {
+        final GdxVDFFrozenNode root;
+        final long version;
+        final long bytes;
+
+        Entry(GdxVDFFrozenNode root, long version, long bytes) {
+            this.root = root;
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+
+}
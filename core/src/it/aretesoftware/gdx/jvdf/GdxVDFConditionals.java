@@ -0,0 +1,201 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Evaluates the conditional tags of Valve KeyValues files, such as {@code [$WIN32]} or {@code [!$X360 && !$PS3]}.
+ * <p>
+ * A conditional follows a key/value, or the key of a block, and the entry is only kept when the conditional is true.
+ * Symbols are true when defined, ignoring case and the leading '$', and can be combined with {@code !}, {@code &&},
+ * {@code ||} and parentheses; {@code &&} binds tighter than {@code ||}. Pass an instance to
+ * {@link GdxVDFParser#GdxVDFParser(GdxVDFConditionals)} to filter entries while parsing.
+ * </p>
+ * Symbols should not be changed while a parser is using the instance.
+ * @author Arete */
+public class GdxVDFConditionals {
+
+    private final Set<String> symbols = new HashSet<>();
+
+    /**
+     * Initializes the conditionals with a set of defined symbols.
+     * @param symbols the defined symbols, with or without the leading '$'
+     */
+    public GdxVDFConditionals(String... symbols) {
+        for (String symbol : symbols) {
+            define(symbol);
+        }
+    }
+
+    /**
+     * Returns conditionals defining the symbols of the operating system the application is running on: WINDOWS and
+     * WIN32 on Windows, OSX and POSIX on macOS, LINUX and POSIX on Linux.
+     */
+    public static GdxVDFConditionals forCurrentPlatform() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        if (os.contains("win")) return new GdxVDFConditionals("WINDOWS", "WIN32");
+        if (os.contains("mac")) return new GdxVDFConditionals("OSX", "POSIX");
+        if (os.contains("linux")) return new GdxVDFConditionals("LINUX", "POSIX");
+        return new GdxVDFConditionals();
+    }
+
+    /** Defines a symbol, with or without the leading '$'. */
+    public GdxVDFConditionals define(String symbol) {
+        symbols.add(normalize(symbol));
+        return this;
+    }
+
+    /** Undefines a symbol, with or without the leading '$'. */
+    public GdxVDFConditionals undefine(String symbol) {
+        symbols.remove(normalize(symbol));
+        return this;
+    }
+
+    /** Returns true if the symbol is defined, with or without the leading '$'. */
+    public boolean isDefined(String symbol) {
+        return symbols.contains(normalize(symbol));
+    }
+
+    /** Returns the defined symbols, in upper case and without the leading '$'. */
+    public Set<String> getSymbols() {
+        return Collections.unmodifiableSet(symbols);
+    }
+
+    private static String normalize(String symbol) {
+        symbol = symbol.trim();
+        if (symbol.startsWith("$")) symbol = symbol.substring(1);
+        return symbol.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Evaluates a conditional.
+     * @param expression the conditional, with or without the enclosing brackets
+     * @return whether the entry of the conditional should be kept
+     * @throws GdxVDFParseException if the conditional is malformed
+     */
+    public boolean evaluate(CharSequence expression) {
+        String text = expression.toString().trim();
+        if (text.startsWith("[") && text.endsWith("]")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        Evaluation evaluation = new Evaluation(text);
+        boolean result = evaluation.evaluate();
+        evaluation.skipWhitespace();
+        if (evaluation.position < text.length()) {
+            throw evaluation.error("Unexpected character '" + text.charAt(evaluation.position) + "'");
+        }
+        return result;
+    }
+
+    /**
+     * The evaluation of a single conditional, where '&&' binds tighter than '||'. Parentheses are kept on explicit
+     * stacks rather than by recursion, so untrusted conditionals of any nesting cannot overflow the call stack.
+     */
+    private class Evaluation {
+        private final String text;
+        private int position;
+
+        /**
+         * For the whole conditional at depth 0 and each open parenthesis: the '||' of the terms so far, the '&&' of the
+         * current term, and whether the parenthesis is negated.
+         */
+        private boolean[] ors = new boolean[4], ands = new boolean[4], negated = new boolean[4];
+        private int depth;
+
+        Evaluation(String text) {
+            this.text = text;
+        }
+
+        boolean evaluate() {
+            ands[0] = true;
+            for (;;) {
+                // An operand: any number of '!', then an opening parenthesis or a symbol
+                boolean negate = false;
+                while (consume("!")) negate = !negate;
+                if (consume("(")) {
+                    open(negate);
+                    continue;
+                }
+                boolean value = symbol() ^ negate;
+                // The operators following it, closing parentheses along the way
+                for (;;) {
+                    ands[depth] &= value;
+                    if (consume("&&")) break;
+                    if (consume("||")) {
+                        // Both sides are always evaluated, so malformed conditionals are reported consistently
+                        ors[depth] |= ands[depth];
+                        ands[depth] = true;
+                        break;
+                    }
+                    if (depth == 0) return ors[0] | ands[0];
+                    if (!consume(")")) throw error("Missing ')'");
+                    value = (ors[depth] | ands[depth]) ^ negated[depth];
+                    depth--;
+                }
+            }
+        }
+
+        private void open(boolean negate) {
+            if (++depth == ors.length) {
+                ors = Arrays.copyOf(ors, depth * 2);
+                ands = Arrays.copyOf(ands, depth * 2);
+                negated = Arrays.copyOf(negated, depth * 2);
+            }
+            ors[depth] = false;
+            ands[depth] = true;
+            negated[depth] = negate;
+        }
+
+        private boolean symbol() {
+            skipWhitespace();
+            int start = position;
+            if (position < text.length() && text.charAt(position) == '$') position++;
+            while (position < text.length() && isSymbolCharacter(text.charAt(position))) position++;
+            if (position == start || (position == start + 1 && text.charAt(start) == '$')) {
+                throw error("Missing symbol");
+            }
+            return isDefined(text.substring(start, position));
+        }
+
+        boolean consume(String token) {
+            skipWhitespace();
+            if (text.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+        }
+
+        private boolean isSymbolCharacter(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        GdxVDFParseException error(String message) {
+            return new GdxVDFParseException(message + " at position " + position + " of conditional [" + text + "].");
+        }
+    }
+
+}
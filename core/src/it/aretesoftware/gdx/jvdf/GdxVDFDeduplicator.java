@@ -0,0 +1,221 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Shrinks repetitive VDF documents by sharing structurally identical subtrees and strings (hash-consing).
+ * <p>
+ * {@link #deduplicate(GdxVDFFrozenNode)} walks a frozen tree bottom-up and replaces every subtree with the first
+ * structurally equal subtree it has seen, which is safe because frozen nodes are immutable and do not know their parent.
+ * {@link #deduplicate(GdxVDFNode)} cannot share nodes of a mutable tree, but still shares their names and values.
+ * </p>
+ * The tables are kept between calls, so several documents deduplicated by the same instance share their common parts
+ * too. The counters report how much memory was saved, using the same estimates as {@link GdxVDFCache}. Instances are
+ * not thread-safe.
+ * @author Arete */
+public class GdxVDFDeduplicator {
+
+    private final Map<GdxVDFFrozenNode, GdxVDFFrozenNode> nodes = new HashMap<>();
+    private final Map<String, String> strings = new HashMap<>();
+
+    private long nodesVisited, nodesShared, stringsShared;
+    private long bytesBefore, bytesAfter;
+
+    /**
+     * Returns a tree equal to the specified one, in which identical subtrees and strings are shared.
+     * @param root the tree to deduplicate, which is left untouched
+     * @return the deduplicated tree
+     */
+    public GdxVDFFrozenNode deduplicate(GdxVDFFrozenNode root) {
+        bytesBefore += estimateUniqueBytes(root, new IdentityHashMap<>());
+        return canonical(root);
+    }
+
+    /**
+     * Shares identical names and values of a mutable tree, in place.
+     * @param root the tree to deduplicate
+     * @return the same root, for chaining
+     */
+    public GdxVDFNode deduplicate(GdxVDFNode root) {
+        Map<Object, Boolean> seen = new IdentityHashMap<>();
+        intern(root, seen);
+        return root;
+    }
+
+    /** Returns the shared subtree equal to a node, visiting its children before it with an explicit stack. */
+    private GdxVDFFrozenNode canonical(GdxVDFFrozenNode root) {
+        ArrayDeque<Visit> stack = new ArrayDeque<>();
+        stack.push(visit(root));
+        GdxVDFFrozenNode result = null;
+        for (;;) {
+            Visit current = stack.peek();
+            if (result != null) {
+                // The canonical version of the last child visited
+                current.children[current.next - 1] = result;
+                current.unchanged &= result == current.node.get(current.next - 1);
+                result = null;
+            }
+            if (current.next < current.children.length) {
+                stack.push(visit(current.node.get(current.next++)));
+                continue;
+            }
+            stack.pop();
+            result = share(current);
+            if (stack.isEmpty()) return result;
+        }
+    }
+
+    /** Starts visiting a node, interning its strings before those of its children. */
+    private Visit visit(GdxVDFFrozenNode node) {
+        nodesVisited++;
+        Visit visit = new Visit(node, intern(node.name()), intern(node.asString()));
+        visit.unchanged = visit.name == node.name() && visit.value == node.asString();
+        return visit;
+    }
+
+    /** Ends visiting a node, whose children are all canonical. */
+    private GdxVDFFrozenNode share(Visit visit) {
+        GdxVDFFrozenNode node = visit.node;
+        GdxVDFFrozenNode[] children = visit.children;
+        // Canonical children have the same names as the originals, so the name index can be reused
+        GdxVDFFrozenNode candidate = visit.unchanged ? node
+                : new GdxVDFFrozenNode(visit.name, visit.value, children, node.index());
+        GdxVDFFrozenNode existing = nodes.get(candidate);
+        if (existing != null) {
+            nodesShared++;
+            return existing;
+        }
+        nodes.put(candidate, candidate);
+        bytesAfter += GdxVDFCache.NODE_BYTES + (long) GdxVDFCache.REFERENCE_BYTES * children.length;
+        return candidate;
+    }
+
+    /** Interns the strings of a node and its descendants, walking the links without recursion. */
+    private void intern(GdxVDFNode root, Map<Object, Boolean> seen) {
+        GdxVDFNode node = root;
+        while (node != null) {
+            nodesVisited++;
+            bytesBefore += GdxVDFCache.NODE_BYTES;
+            bytesAfter += GdxVDFCache.NODE_BYTES;
+            bytesBefore += estimateUniqueBytes(node.name, seen) + estimateUniqueBytes(node.asString(), seen);
+            node.name = intern(node.name);
+            String value = node.asString();
+            String interned = intern(value);
+            if (interned != value) {
+                node.set(interned);
+            }
+            if (node.child != null) {
+                node = node.child;
+                continue;
+            }
+            while (node != root && node.next == null) node = node.parent;
+            node = node == root ? null : node.next;
+        }
+    }
+
+    private String intern(String string) {
+        if (string == null) return null;
+        String existing = strings.putIfAbsent(string, string);
+        if (existing != null) {
+            if (existing != string) stringsShared++;
+            return existing;
+        }
+        bytesAfter += GdxVDFCache.STRING_BYTES + 2L * string.length();
+        return string;
+    }
+
+    private static long estimateUniqueBytes(GdxVDFFrozenNode root, Map<Object, Boolean> seen) {
+        long bytes = 0;
+        ArrayDeque<GdxVDFFrozenNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            GdxVDFFrozenNode node = stack.pop();
+            if (seen.put(node, Boolean.TRUE) != null) continue;
+            bytes += GdxVDFCache.NODE_BYTES + (long) GdxVDFCache.REFERENCE_BYTES * node.size();
+            bytes += estimateUniqueBytes(node.name(), seen) + estimateUniqueBytes(node.asString(), seen);
+            for (GdxVDFFrozenNode child : node) {
+                stack.push(child);
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateUniqueBytes(String string, Map<Object, Boolean> seen) {
+        if (string == null || seen.put(string, Boolean.TRUE) != null) return 0;
+        return GdxVDFCache.STRING_BYTES + 2L * string.length();
+    }
+
+    /** Forgets every shared subtree and string, and resets the counters. */
+    public void clear() {
+        nodes.clear();
+        strings.clear();
+        nodesVisited = nodesShared = stringsShared = 0;
+        bytesBefore = bytesAfter = 0;
+    }
+
+    /** Returns how many nodes were visited. */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /** Returns how many subtrees were replaced by an identical, shared subtree. */
+    public long getNodesShared() {
+        return nodesShared;
+    }
+
+    /** Returns how many strings were replaced by an identical, shared string. */
+    public long getStringsShared() {
+        return stringsShared;
+    }
+
+    /** Returns the estimated size of the deduplicated documents before deduplication, in bytes. */
+    public long getBytesBefore() {
+        return bytesBefore;
+    }
+
+    /** Returns the estimated size of the deduplicated documents after deduplication, in bytes. */
+    public long getBytesAfter() {
+        return bytesAfter;
+    }
+
+    /** Returns the estimated amount of memory saved by deduplication, in bytes. */
+    public long getBytesSaved() {
+        return bytesBefore - bytesAfter;
+    }
+
+    /** A node whose children are being made canonical, and the next child to visit. */
+    private static final class Visit {
+        final GdxVDFFrozenNode node;
+        final String name, value;
+        final GdxVDFFrozenNode[] children;
+        int next;
+        boolean unchanged;
+
+        Visit(GdxVDFFrozenNode node, String name, String value) {
+            this.node = node;
+            this.name = name;
+            this.value = value;
+            this.children = new GdxVDFFrozenNode[node.size()];
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customizes how {@link GdxVDFMapper} binds a field. Fields without this annotation are bound by name convention: the
+ * key is the name of the field, or its snake_case form, ignoring case.
+ * @author Arete */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface GdxVDFField {
+
+    /** The key of the field, or an empty string to use the name convention. */
+    String value() default "";
+
+    /** Whether mapping fails with an {@link IllegalArgumentException} when the key is missing. */
+    boolean required() default false;
+
+    /** Whether the field is left untouched. */
+    boolean ignore() default false;
+
+}
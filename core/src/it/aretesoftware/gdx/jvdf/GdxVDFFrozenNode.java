@@ -0,0 +1,798 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/** Immutable snapshot of a {@link GdxVDFNode}, created with {@link GdxVDFNode#freeze()}.
+ * <p>
+ * Every field but a lazily computed hash and name index is final, and nothing is modified after construction, so a
+ * frozen tree can be published to, and read from, any number of threads without synchronization. Children are stored
+ * in an array instead of a linked list, and nodes with many children also get a name index on their first named
+ * lookup, so both indexed and named lookups avoid walking the siblings.
+ * Frozen nodes do not know their parent, which allows the same subtree to be shared by several trees.
+ * </p>
+ * <p>
+ * Frozen trees are also persistent: {@link #set(GdxVDFPath, String)}, {@link #add(GdxVDFPath, GdxVDFFrozenNode)} and
+ * {@link #remove(GdxVDFPath)} leave the tree untouched and return a new version of it. Only the nodes along the
+ * modified path are copied, every other subtree is shared with the previous version, so many variants of a large
+ * document cost memory proportional to their differences. Copying a node still copies its array of children, so a new
+ * version costs time proportional to the number of children of the nodes along the path: the name index is shared
+ * along the path, extended when a child is appended, and otherwise only rebuilt by the next named lookup of the node.
+ * </p>
+ *
+ * <pre>
+ * GdxVDFFrozenNode config = parser.parse(text).freeze();
+ * // Safe from any thread:
+ * float damage = config.get("weapon").getFloat("damage", 0);
+ * </pre>
+ *
+ * @author Arete */
+public final class GdxVDFFrozenNode implements Iterable<GdxVDFFrozenNode> {
+
+    private static final GdxVDFValues values = new GdxVDFValues();
+    private static final GdxVDFFrozenNode[] EMPTY = new GdxVDFFrozenNode[0];
+
+    /** Nodes with more children than this get a name index, smaller ones are scanned linearly. */
+    static final int INDEX_THRESHOLD = 8;
+
+    /** May be null. */
+    private final String name;
+    /** May be null. */
+    private final String value;
+    private final GdxVDFFrozenNode[] children;
+    /**
+     * Maps lower case names to the positions of the children with that name, built on first use. Null until then, and
+     * for nodes with few children. A racing thread builds an equal index, and the volatile field publishes it whole.
+     */
+    private volatile Map<String, int[]> index;
+    /** Structural hash, computed on first use. Racing threads compute the same value, like {@link String#hashCode()}. */
+    private int hash;
+
+    GdxVDFFrozenNode(String name, String value, GdxVDFFrozenNode[] children) {
+        this(name, value, children, null);
+    }
+
+    /**
+     * Creates a frozen node sharing the name index of a node whose children have the same names in the same order.
+     * @param index may be null, to build it on first use
+     */
+    GdxVDFFrozenNode(String name, String value, GdxVDFFrozenNode[] children, Map<String, int[]> index) {
+        this.name = name;
+        this.value = value;
+        this.children = children.length == 0 ? EMPTY : children;
+        this.index = index;
+    }
+
+    /**
+     * Creates a frozen node holding a value.
+     * @param name the name of the node, may be null for a root
+     * @param value the value of the node, may be null
+     * @return the frozen node
+     */
+    public static GdxVDFFrozenNode of(String name, String value) {
+        return new GdxVDFFrozenNode(name, value, EMPTY);
+    }
+
+    /**
+     * Creates a frozen node holding the specified children, which are shared and not copied.
+     * @param name the name of the node, may be null for a root
+     * @param children the children of the node, each of which requires a name
+     * @return the frozen node
+     */
+    public static GdxVDFFrozenNode of(String name, GdxVDFFrozenNode... children) {
+        for (GdxVDFFrozenNode child : children) {
+            checkName(child);
+        }
+        return new GdxVDFFrozenNode(name, null, children.clone());
+    }
+
+    /**
+     * Creates an immutable snapshot of a node and all of its children. The tree is walked without recursion, so a tree
+     * of any depth can be frozen.
+     * @param node the node to freeze
+     * @return the frozen node
+     */
+    public static GdxVDFFrozenNode freeze(GdxVDFNode node) {
+        // The nodes being frozen from the root down, with their children frozen so far
+        GdxVDFNode[] nodes = new GdxVDFNode[16];
+        GdxVDFFrozenNode[][] children = new GdxVDFFrozenNode[16][];
+        int[] counts = new int[16];
+        int depth = 0;
+        nodes[0] = node;
+        children[0] = new GdxVDFFrozenNode[node.size];
+        GdxVDFNode current = node.child;
+        for (;;) {
+            GdxVDFFrozenNode frozen;
+            if (current != null) {
+                if (current.child != null) {
+                    if (++depth == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, depth * 2);
+                        children = Arrays.copyOf(children, depth * 2);
+                        counts = Arrays.copyOf(counts, depth * 2);
+                    }
+                    nodes[depth] = current;
+                    children[depth] = new GdxVDFFrozenNode[current.size];
+                    counts[depth] = 0;
+                    current = current.child;
+                    continue;
+                }
+                frozen = new GdxVDFFrozenNode(current.name, current.asString(), EMPTY);
+                current = current.next;
+            }
+            else {
+                // Every child of the top node is frozen
+                GdxVDFNode done = nodes[depth];
+                GdxVDFFrozenNode[] array = children[depth];
+                if (counts[depth] != array.length) array = Arrays.copyOf(array, counts[depth]);
+                frozen = new GdxVDFFrozenNode(done.name, done.asString(), array);
+                nodes[depth] = null;
+                children[depth] = null;
+                if (depth-- == 0) return frozen;
+                current = done.next;
+            }
+            if (counts[depth] == children[depth].length) {
+                children[depth] = Arrays.copyOf(children[depth], counts[depth] * 2 + 1);
+            }
+            children[depth][counts[depth]++] = frozen;
+        }
+    }
+
+    private static Map<String, int[]> buildIndex(GdxVDFFrozenNode[] children) {
+        Map<String, int[]> index = new HashMap<>(children.length * 2);
+        for (int i = 0; i < children.length; i++) {
+            if (children[i].name != null) addPosition(index, children[i].name, i);
+        }
+        return index;
+    }
+
+    /** Adds the position of a child after the positions of the children with the same name, in a new array. */
+    private static void addPosition(Map<String, int[]> index, String name, int position) {
+        String key = name.toLowerCase(Locale.ROOT);
+        int[] positions = index.get(key);
+        if (positions == null) {
+            positions = new int[] { position };
+        }
+        else {
+            positions = Arrays.copyOf(positions, positions.length + 1);
+            positions[positions.length - 1] = position;
+        }
+        index.put(key, positions);
+    }
+
+    /**
+     * Creates a mutable deep copy of this frozen node. The tree is walked without recursion, so a tree of any depth can
+     * be thawed.
+     * @return a new {@link GdxVDFNode} without a parent
+     */
+    public GdxVDFNode thaw() {
+        GdxVDFNode root = new GdxVDFNode(value);
+        root.name = name;
+        // The frozen nodes being copied, their copies, and the last copied child and next child index of each
+        GdxVDFFrozenNode[] frozen = new GdxVDFFrozenNode[16];
+        GdxVDFNode[] nodes = new GdxVDFNode[16], lasts = new GdxVDFNode[16];
+        int[] next = new int[16];
+        int depth = 0;
+        frozen[0] = this;
+        nodes[0] = root;
+        while (depth >= 0) {
+            GdxVDFFrozenNode parent = frozen[depth];
+            if (next[depth] == parent.children.length) {
+                frozen[depth] = null;
+                nodes[depth] = lasts[depth] = null;
+                depth--;
+                continue;
+            }
+            GdxVDFFrozenNode child = parent.children[next[depth]++];
+            GdxVDFNode node = new GdxVDFNode(child.value);
+            nodes[depth].addChildAfter(lasts[depth], child.name, node);
+            lasts[depth] = node;
+            if (child.children.length > 0) {
+                if (++depth == frozen.length) {
+                    frozen = Arrays.copyOf(frozen, depth * 2);
+                    nodes = Arrays.copyOf(nodes, depth * 2);
+                    lasts = Arrays.copyOf(lasts, depth * 2);
+                    next = Arrays.copyOf(next, depth * 2);
+                }
+                frozen[depth] = child;
+                nodes[depth] = node;
+                lasts[depth] = null;
+                next[depth] = 0;
+            }
+        }
+        return root;
+    }
+
+    /** Returns the child at the specified index.
+     * @return May be null. */
+    public GdxVDFFrozenNode get(int index) {
+        return index >= 0 && index < children.length ? children[index] : null;
+    }
+
+    /** Returns the first child with the specified name.
+     * @return May be null. */
+    public GdxVDFFrozenNode get(String name) {
+        return get(name, 0);
+    }
+
+    /** Returns the child with the specified name & index.
+     * @return May be null. */
+    public GdxVDFFrozenNode get(String name, int namedIndex) {
+        if (name == null || namedIndex < 0) return null;
+        int position = positionOf(name, namedIndex);
+        return position < 0 ? null : children[position];
+    }
+
+    /** Returns the child at the specified index.
+     * @throws IllegalArgumentException if the child was not found. */
+    public GdxVDFFrozenNode require(int index) {
+        GdxVDFFrozenNode child = get(index);
+        if (child == null) throw new IllegalArgumentException("Child not found with index: " + index);
+        return child;
+    }
+
+    /** Returns the child with the specified name.
+     * @throws IllegalArgumentException if the child was not found. */
+    public GdxVDFFrozenNode require(String name) {
+        GdxVDFFrozenNode child = get(name);
+        if (child == null) throw new IllegalArgumentException("Child not found with name: " + name);
+        return child;
+    }
+
+    /** Returns true if a child with the specified name exists. */
+    public boolean has(String name) {
+        return get(name) != null;
+    }
+
+    /** Returns the number of children with the specified name. */
+    public int sizeOf(String name) {
+        Map<String, int[]> index = nameIndex();
+        if (index != null) {
+            int[] positions = index.get(name.toLowerCase(Locale.ROOT));
+            return positions == null ? 0 : positions.length;
+        }
+        int count = 0;
+        for (GdxVDFFrozenNode child : children) {
+            if (name.equalsIgnoreCase(child.name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Returns every child with the specified name, in document order. */
+    public List<GdxVDFFrozenNode> getAll(String name) {
+        int count = sizeOf(name);
+        List<GdxVDFFrozenNode> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(get(name, i));
+        }
+        return list;
+    }
+
+    /** Returns the number of children. */
+    public int size() {
+        return children.length;
+    }
+
+    /** Returns true if there are one or more children. */
+    public boolean notEmpty() {
+        return children.length > 0;
+    }
+
+    /** Returns true if there are no children. */
+    public boolean isEmpty() {
+        return children.length == 0;
+    }
+
+    /** Returns the name of this node.
+     * @return May be null. */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return whether the value of this node is null. */
+    public boolean isNull() {
+        return value == null;
+    }
+
+    /** Returns this value as a string.
+     * @return May be null if this value is null. */
+    public String asString() {
+        return value;
+    }
+
+    public String asString(String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    public float asFloat() {
+        checkNullValue("float");
+        return Float.parseFloat(value);
+    }
+
+    public double asDouble() {
+        checkNullValue("double");
+        return Double.parseDouble(value);
+    }
+
+    public long asLong() {
+        checkNullValue("long");
+        return Long.parseLong(value);
+    }
+
+    public int asInt() {
+        checkNullValue("int");
+        return Integer.parseInt(value);
+    }
+
+    public boolean asBoolean() {
+        checkNullValue("boolean");
+        return Boolean.parseBoolean(value);
+    }
+
+    public Color asColor() {
+        checkNullValue("Color");
+        return values.toColor(value);
+    }
+
+    public Vector3 asVector3() {
+        checkNullValue("Vector3");
+        return values.toVector3(value);
+    }
+
+    public Vector2 asVector2() {
+        checkNullValue("Vector2");
+        return values.toVector2(value);
+    }
+
+    public <T extends Enum<T>> T asEnum(Class<T> enumClass) {
+        checkNullValue(enumClass.getSimpleName());
+        return values.toEnum(value, enumClass);
+    }
+
+    /**
+     * @throws IllegalStateException if this node's value is null. */
+    private void checkNullValue(String type) {
+        if (value == null) {
+            throw new IllegalStateException("Value cannot be converted to " + type);
+        }
+    }
+
+    /** Finds the child with the specified name and returns it as a string. Returns defaultValue if not found.
+     * @param defaultValue May be null. */
+    public String getString(String name, String defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asString();
+    }
+
+    /** Finds the child with the specified name and returns it as a float. Returns defaultValue if not found. */
+    public float getFloat(String name, float defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asFloat();
+    }
+
+    /** Finds the child with the specified name and returns it as a double. Returns defaultValue if not found. */
+    public double getDouble(String name, double defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asDouble();
+    }
+
+    /** Finds the child with the specified name and returns it as a long. Returns defaultValue if not found. */
+    public long getLong(String name, long defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asLong();
+    }
+
+    /** Finds the child with the specified name and returns it as an int. Returns defaultValue if not found. */
+    public int getInt(String name, int defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asInt();
+    }
+
+    /** Finds the child with the specified name and returns it as a boolean. Returns defaultValue if not found. */
+    public boolean getBoolean(String name, boolean defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asBoolean();
+    }
+
+    /** Finds the child with the specified name and returns it as a Color. Returns defaultValue if not found. */
+    public Color getColor(String name, Color defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asColor();
+    }
+
+    /** Finds the child with the specified name and returns it as a Vector3. Returns defaultValue if not found. */
+    public Vector3 getVector3(String name, Vector3 defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asVector3();
+    }
+
+    /** Finds the child with the specified name and returns it as a Vector2. Returns defaultValue if not found. */
+    public Vector2 getVector2(String name, Vector2 defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : child.asVector2();
+    }
+
+    /** Finds the child with the specified name and returns it as an Enum. Returns defaultValue if not found. */
+    public <T extends Enum<T>> T getEnum(String name, T defaultValue) {
+        GdxVDFFrozenNode child = get(name);
+        return (child == null || child.isNull()) ? defaultValue : values.toEnum(child.asString(), defaultValue);
+    }
+
+    /** Finds the child with the specified name and returns it as a string.
+     * @throws IllegalArgumentException if the child was not found. */
+    public String getString(String name) {
+        return require(name).asString();
+    }
+
+    /** Finds the child with the specified name and returns it as a float.
+     * @throws IllegalArgumentException if the child was not found. */
+    public float getFloat(String name) {
+        return require(name).asFloat();
+    }
+
+    /** Finds the child with the specified name and returns it as a double.
+     * @throws IllegalArgumentException if the child was not found. */
+    public double getDouble(String name) {
+        return require(name).asDouble();
+    }
+
+    /** Finds the child with the specified name and returns it as a long.
+     * @throws IllegalArgumentException if the child was not found. */
+    public long getLong(String name) {
+        return require(name).asLong();
+    }
+
+    /** Finds the child with the specified name and returns it as an int.
+     * @throws IllegalArgumentException if the child was not found. */
+    public int getInt(String name) {
+        return require(name).asInt();
+    }
+
+    /** Finds the child with the specified name and returns it as a boolean.
+     * @throws IllegalArgumentException if the child was not found. */
+    public boolean getBoolean(String name) {
+        return require(name).asBoolean();
+    }
+
+    /** Finds the child with the specified name and returns it as a Color.
+     * @throws IllegalArgumentException if the child was not found. */
+    public Color getColor(String name) {
+        return require(name).asColor();
+    }
+
+    /** Finds the child with the specified name and returns it as a Vector3.
+     * @throws IllegalArgumentException if the child was not found. */
+    public Vector3 getVector3(String name) {
+        return require(name).asVector3();
+    }
+
+    /** Finds the child with the specified name and returns it as a Vector2.
+     * @throws IllegalArgumentException if the child was not found. */
+    public Vector2 getVector2(String name) {
+        return require(name).asVector2();
+    }
+
+    /** Finds the child with the specified name and returns it as an Enum.
+     * @throws IllegalArgumentException if the child was not found. */
+    public <T extends Enum<T>> T getEnum(String name, Class<T> enumClass) {
+        return require(name).asEnum(enumClass);
+    }
+
+    /**
+     * Returns a new version of this tree in which the node at the specified path holds the specified value. Its
+     * children, if any, are kept.
+     * @param path the path of the node to change, relative to this node
+     * @param value the new value, may be null
+     * @return the new version of this tree
+     * @throws IllegalArgumentException if no node exists at the path. */
+    public GdxVDFFrozenNode set(GdxVDFPath path, String value) {
+        return update(path, node -> Objects.equals(node.value, value)
+                ? node : new GdxVDFFrozenNode(node.name, value, node.children, node.index));
+    }
+
+    /**
+     * Returns a new version of this tree in which the node at the specified path is replaced by another node. The
+     * replacement keeps its own name.
+     * @param path the path of the node to replace, relative to this node
+     * @param replacement the node to put at the path
+     * @return the new version of this tree
+     * @throws IllegalArgumentException if no node exists at the path. */
+    public GdxVDFFrozenNode set(GdxVDFPath path, GdxVDFFrozenNode replacement) {
+        if (!path.isRoot()) checkName(replacement);
+        return update(path, node -> replacement);
+    }
+
+    /**
+     * Returns a new version of this tree in which a child is added after the last child of the node at the specified
+     * path.
+     * @param path the path of the parent node, relative to this node
+     * @param child the node to add, which requires a name
+     * @return the new version of this tree
+     * @throws IllegalArgumentException if no node exists at the path. */
+    public GdxVDFFrozenNode add(GdxVDFPath path, GdxVDFFrozenNode child) {
+        checkName(child);
+        return update(path, node -> {
+            GdxVDFFrozenNode[] children = Arrays.copyOf(node.children, node.children.length + 1);
+            children[children.length - 1] = child;
+            // An index already built is extended with the new position, rather than rebuilt from every name
+            Map<String, int[]> index = node.index;
+            if (index != null) {
+                index = new HashMap<>(index);
+                addPosition(index, child.name, node.children.length);
+            }
+            return new GdxVDFFrozenNode(node.name, node.value, children, index);
+        });
+    }
+
+    /**
+     * Returns a new version of this tree in which a child is inserted at a position among the children of the node at
+     * the specified path.
+     * @param path the path of the parent node, relative to this node
+     * @param index the position of the new child, between 0 and the number of children
+     * @param child the node to add, which requires a name
+     * @return the new version of this tree
+     * @throws IllegalArgumentException if no node exists at the path, or the position is out of bounds. */
+    public GdxVDFFrozenNode add(GdxVDFPath path, int index, GdxVDFFrozenNode child) {
+        checkName(child);
+        return update(path, node -> {
+            checkPosition(index, node.children.length + 1, path);
+            GdxVDFFrozenNode[] children = new GdxVDFFrozenNode[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            children[index] = child;
+            System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+            return new GdxVDFFrozenNode(node.name, node.value, children);
+        });
+    }
+
+    /**
+     * Returns a new version of this tree in which a child of the node at the specified path is moved to another
+     * position.
+     * @param path the path of the parent node, relative to this node
+     * @param from the position of the child to move
+     * @param to the new position of the child, once it has been taken out of its current one
+     * @return the new version of this tree
+     * @throws IllegalArgumentException if no node exists at the path, or a position is out of bounds. */
+    public GdxVDFFrozenNode move(GdxVDFPath path, int from, int to) {
+        return update(path, node -> {
+            checkPosition(from, node.children.length, path);
+            checkPosition(to, node.children.length, path);
+            if (from == to) return node;
+            GdxVDFFrozenNode[] children = node.children.clone();
+            GdxVDFFrozenNode child = children[from];
+            if (from < to) System.arraycopy(children, from + 1, children, from, to - from);
+            else System.arraycopy(children, to, children, to + 1, from - to);
+            children[to] = child;
+            return new GdxVDFFrozenNode(node.name, node.value, children);
+        });
+    }
+
+    /**
+     * Returns a new version of this tree in which a value is added after the last child of the node at the specified
+     * path.
+     * @param path the path of the parent node, relative to this node
+     * @param name the name of the new value
+     * @param value the new value, may be null
+     * @return the new version of this tree
+     * @throws IllegalArgumentException if no node exists at the path. */
+    public GdxVDFFrozenNode add(GdxVDFPath path, String name, String value) {
+        return add(path, of(name, value));
+    }
+
+    /**
+     * Returns a new version of this tree without the node at the specified path.
+     * @param path the path of the node to remove, relative to this node
+     * @return the new version of this tree
+     * @throws IllegalArgumentException if no node exists at the path, or the path is the root. */
+    public GdxVDFFrozenNode remove(GdxVDFPath path) {
+        if (path.isRoot()) throw new IllegalArgumentException("The root cannot be removed.");
+        String childName = path.lastName();
+        int namedIndex = path.lastIndex();
+        return update(path.parent(), node -> {
+            int position = node.positionOf(childName, namedIndex);
+            if (position < 0) throw new IllegalArgumentException("Child not found at path: " + path);
+            GdxVDFFrozenNode[] children = new GdxVDFFrozenNode[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, position);
+            System.arraycopy(node.children, position + 1, children, position, children.length - position);
+            return new GdxVDFFrozenNode(node.name, node.value, children);
+        });
+    }
+
+    /**
+     * Copies the nodes from this node down to the end of the path, applying an operation to the last one. Siblings
+     * along the way are shared, and the name index is reused whenever the names of the children did not change. The
+     * path is walked down and back up without recursion, so it can be of any length.
+     */
+    private GdxVDFFrozenNode update(GdxVDFPath path, UnaryOperator<GdxVDFFrozenNode> operation) {
+        int length = path.length();
+        GdxVDFFrozenNode[] nodes = new GdxVDFFrozenNode[length + 1];
+        int[] positions = new int[length];
+        nodes[0] = this;
+        for (int depth = 0; depth < length; depth++) {
+            int position = nodes[depth].positionOf(path.name(depth), path.index(depth));
+            if (position < 0) throw new IllegalArgumentException("Child not found at path: " + path);
+            positions[depth] = position;
+            nodes[depth + 1] = nodes[depth].children[position];
+        }
+        GdxVDFFrozenNode newChild = operation.apply(nodes[length]);
+        for (int depth = length - 1; depth >= 0; depth--) {
+            GdxVDFFrozenNode node = nodes[depth], oldChild = nodes[depth + 1];
+            if (newChild == oldChild) return this;
+            GdxVDFFrozenNode[] children = node.children.clone();
+            children[positions[depth]] = newChild;
+            newChild = Objects.equals(oldChild.name, newChild.name)
+                    ? new GdxVDFFrozenNode(node.name, node.value, children, node.index)
+                    : new GdxVDFFrozenNode(node.name, node.value, children);
+        }
+        return newChild;
+    }
+
+    /** Returns the name index of this node, which can be reused by a node whose children have the same names.
+     * @return May be null, if it was not built yet. */
+    Map<String, int[]> index() {
+        return index;
+    }
+
+    /** Returns the name index of this node, building it if the node has enough children to need one.
+     * @return May be null. */
+    private Map<String, int[]> nameIndex() {
+        Map<String, int[]> index = this.index;
+        if (index == null && children.length > INDEX_THRESHOLD) {
+            this.index = index = buildIndex(children);
+        }
+        return index;
+    }
+
+    /** Returns the position in the children array of the child with the specified name & index, or -1. */
+    private int positionOf(String name, int namedIndex) {
+        Map<String, int[]> index = nameIndex();
+        if (index != null) {
+            int[] positions = index.get(name.toLowerCase(Locale.ROOT));
+            return positions != null && namedIndex < positions.length ? positions[namedIndex] : -1;
+        }
+        for (int i = 0; i < children.length; i++) {
+            if (name.equalsIgnoreCase(children[i].name) && namedIndex-- == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void checkName(GdxVDFFrozenNode child) {
+        if (child.name == null) throw new IllegalArgumentException("A child requires a name.");
+    }
+
+    private static void checkPosition(int position, int bound, GdxVDFPath path) {
+        if (position < 0 || position >= bound) {
+            throw new IllegalArgumentException("Position " + position + " out of bounds at path: " + path);
+        }
+    }
+
+    /** Returns an iterator over the children of this node. The iterator does not support removal. */
+    @Override
+    public Iterator<GdxVDFFrozenNode> iterator() {
+        return new Iterator<GdxVDFFrozenNode>() {
+            int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < children.length;
+            }
+
+            @Override
+            public GdxVDFFrozenNode next() {
+                if (next >= children.length) throw new NoSuchElementException();
+                return children[next++];
+            }
+        };
+    }
+
+    /** Returns true if the specified object is a frozen node with the same name, value and children, recursively.
+     * The trees are compared without recursion, so trees of any depth can be compared. */
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof GdxVDFFrozenNode)) return false;
+        // Pairs of nodes left to compare
+        GdxVDFFrozenNode[] stack = new GdxVDFFrozenNode[32];
+        int size = 0;
+        stack[size++] = this;
+        stack[size++] = (GdxVDFFrozenNode) object;
+        while (size > 0) {
+            GdxVDFFrozenNode other = stack[--size], node = stack[--size];
+            if (node == other) continue;
+            if (node.hashCode() != other.hashCode() || node.children.length != other.children.length) return false;
+            if (!Objects.equals(node.name, other.name) || !Objects.equals(node.value, other.value)) return false;
+            int length = node.children.length;
+            if (size + 2 * length > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + 2 * length));
+            }
+            for (int i = 0; i < length; i++) {
+                stack[size++] = node.children[i];
+                stack[size++] = other.children[i];
+            }
+        }
+        return true;
+    }
+
+    /** Returns a structural hash of the name, value and children of this node, computed once. The hashes of the
+     * subtrees are computed and cached bottom up without recursion, so trees of any depth can be hashed. */
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+        if (hash != 0) return hash;
+        // The nodes being hashed from this one down, the next child of each to add, and their hash so far
+        GdxVDFFrozenNode[] nodes = new GdxVDFFrozenNode[16];
+        int[] next = new int[16], hashes = new int[16];
+        int depth = 0;
+        nodes[0] = this;
+        hashes[0] = Objects.hashCode(name) * 31 + Objects.hashCode(value);
+        for (;;) {
+            GdxVDFFrozenNode node = nodes[depth];
+            if (next[depth] < node.children.length) {
+                GdxVDFFrozenNode child = node.children[next[depth]];
+                if (child.hash != 0) {
+                    hashes[depth] = hashes[depth] * 31 + child.hash;
+                    next[depth]++;
+                    continue;
+                }
+                if (++depth == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, depth * 2);
+                    next = Arrays.copyOf(next, depth * 2);
+                    hashes = Arrays.copyOf(hashes, depth * 2);
+                }
+                nodes[depth] = child;
+                next[depth] = 0;
+                hashes[depth] = Objects.hashCode(child.name) * 31 + Objects.hashCode(child.value);
+                continue;
+            }
+            hash = hashes[depth];
+            if (hash == 0) hash = 1;
+            node.hash = hash;
+            nodes[depth] = null;
+            if (depth-- == 0) return hash;
+            hashes[depth] = hashes[depth] * 31 + hash;
+            next[depth]++;
+        }
+    }
+
+    /** Returns this node as a VDF document, in the same format as {@link GdxVDFNode#toVDF()}. */
+    public String toVDF() {
+        return thaw().toVDF();
+    }
+
+    @Override
+    public String toString() {
+        return thaw().toString();
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic VDF documents of controlled shape and size, for benchmarks and stress tests.
+ * <p>
+ * Documents are written with {@link GdxVDFWriter} and only depend on the seed of the generator, their shape and their
+ * size, so measurements can be reproduced across runs and machines. The size is the number of entries of the shape,
+ * which is roughly proportional to the length of the document, see {@link Shape}.
+ * </p>
+ *
+ * <pre>
+ * String vdf = new GdxVDFGenerator(42).generate(Shape.wide, 400000); // about 10 MB
+ * </pre>
+ * @author Arete */
+public class GdxVDFGenerator {
+
+    /** The shapes of generated documents. */
+    public enum Shape {
+        /** A single node with a key/value per entry, of about 27 characters. */
+        wide,
+        /** A chain of nested nodes, one level per entry, written without indentation. */
+        deep,
+        /** A single node where every entry is a value of one of a few repeated keys. */
+        multimap,
+        /** A single node with a long string per entry, full of escaped quotes, backslashes and line breaks. */
+        escaped,
+        /** Items with a comment before every key/value, and commented out entries. */
+        comments,
+        /** Items shaped like the ones of items_game.txt, of about 360 characters each. */
+        items
+    }
+
+    private static final String[] WORDS = {"weapon", "armor", "primary", "secondary", "melee", "rare", "common",
+            "damage", "speed", "range", "quality", "team", "red", "blue", "loot", "crate", "key", "paint"};
+    private static final String[] MULTIMAP_KEYS = {"tag", "attribute", "prefab", "used_by_classes"};
+
+    private final long seed;
+
+    /**
+     * Initializes the generator.
+     * @param seed the seed of every generated document
+     */
+    public GdxVDFGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** Returns the seed of every generated document. */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Generates a document. The same shape and size always generate the same document.
+     * @param shape the shape of the document
+     * @param size the number of entries of the document
+     * @return the VDF document
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public String generate(Shape shape, int size) {
+        if (size < 0) throw new IllegalArgumentException("Size cannot be negative: " + size);
+        Random random = new Random(seed ^ shape.ordinal());
+        GdxVDFWriter writer = new GdxVDFWriter(shape != Shape.deep);
+        switch (shape) {
+            case wide:
+                writer.writeNodeStart("wide");
+                for (int i = 0; i < size; i++) {
+                    writer.writeValue("key_" + i, random.nextInt(1000000));
+                }
+                writer.writeNodeEnd();
+                break;
+            case deep:
+                for (int i = 0; i < size; i++) {
+                    writer.writeNodeStart("level_" + i).writeValue("depth", i);
+                }
+                for (int i = 0; i < size; i++) {
+                    writer.writeNodeEnd();
+                }
+                break;
+            case multimap:
+                writer.writeNodeStart("multimap");
+                for (int i = 0; i < size; i++) {
+                    writer.writeValue(MULTIMAP_KEYS[random.nextInt(MULTIMAP_KEYS.length)], word(random) + "_" + i);
+                }
+                writer.writeNodeEnd();
+                break;
+            case escaped:
+                writer.writeNodeStart("strings");
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < size; i++) {
+                    text.setLength(0);
+                    for (int length = 200 + random.nextInt(800); text.length() < length; ) {
+                        switch (random.nextInt(6)) {
+                            case 0: text.append("\\\""); break;
+                            case 1: text.append("\\\\"); break;
+                            case 2: text.append("\\n"); break;
+                            case 3: text.append("{ } [ ]"); break;
+                            default: text.append(word(random));
+                        }
+                        text.append(' ');
+                    }
+                    writer.writeValue("text_" + i, text.toString());
+                }
+                writer.writeNodeEnd();
+                break;
+            case comments:
+                writer.writeComment("Generated with seed " + seed).writeNodeStart("items");
+                for (int i = 0; i < size; i++) {
+                    writer.writeComment("Item " + i + ", " + word(random) + " " + word(random) + " // nested \"quotes\" {");
+                    writer.writeNodeStart(String.valueOf(i));
+                    writer.writeComment("The name, shown in the inventory").writeValue("name", word(random) + "_" + i);
+                    writer.writeComment("\"slot\" \"0\"").writeValue("item_slot", random.nextInt(8));
+                    writer.writeComment("/* block style markers are line comments too").writeValue("weight", random.nextFloat() * 10);
+                    writer.writeNodeEnd();
+                }
+                writer.writeNodeEnd();
+                break;
+            case items:
+                writer.writeNodeStart("items_game").writeNodeStart("items");
+                for (int i = 0; i < size; i++) {
+                    item(writer, random, i);
+                }
+                writer.writeNodeEnd().writeNodeEnd();
+                break;
+        }
+        return writer.toVDF();
+    }
+
+    /** Writes an item shaped like the ones of items_game.txt. */
+    private static void item(GdxVDFWriter writer, Random random, int id) {
+        writer.writeNodeStart(String.valueOf(id))
+                .writeValue("name", word(random) + "_" + id)
+                .writeValue("prefab", word(random) + "_base")
+                .writeValue("item_slot", random.nextInt(8))
+                .writeValue("weight", random.nextFloat() * 10)
+                .writeValue("tradable", random.nextBoolean())
+                .writeValue("color", new Color(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1f))
+                .writeValue("offset", new Vector2(random.nextInt(100), random.nextInt(100)));
+        for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+            writer.writeValue("tag", word(random));
+        }
+        writer.writeNodeStart("attributes");
+        for (int i = 0, n = random.nextInt(6); i < n; i++) {
+            writer.writeValue(word(random) + "_" + i, random.nextInt(1000));
+        }
+        writer.writeNodeEnd().writeNodeEnd();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+}
@@ -0,0 +1,366 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches VDF files and reloads them when they change, re-parsing only the top-level blocks whose text changed.
+ * <p>
+ * The text of a file is split into top-level blocks, each identified by the hash of its text. A file made of a single
+ * top-level node, as most Valve files are, is split into the blocks of its children instead. When a file is modified,
+ * blocks with the same hash as before are reused as they are, and only the others are parsed. The new version of the
+ * document is a {@link GdxVDFFrozenNode} sharing every unchanged block with the previous version, and replaces it
+ * atomically: readers of {@link #getRoot(FileHandle)} always see a complete version, without locking.
+ * </p>
+ * <p>
+ * Listeners are notified after each reload with a {@link GdxVDFPatch} of the paths that changed, which only visits the
+ * changed blocks since unchanged ones are shared. Files are checked by {@link #poll()}, called by the application or
+ * periodically by {@link #start(ScheduledExecutorService, long, TimeUnit)}; a file is considered modified when its
+ * modification time or length changes, which works with every kind of {@link FileHandle}. Directives such as "#base"
+ * are not resolved.
+ * </p>
+ * @author Arete */
+public class GdxVDFHotReloader {
+
+    /** Receives the changes of reloaded files. */
+    public interface Listener {
+        /**
+         * Called after a file has been reloaded, on the thread which reloaded it.
+         * @param file the reloaded file
+         * @param root the new version of the document
+         * @param changes the changes from the previous version, never empty
+         */
+        void reloaded(FileHandle file, GdxVDFFrozenNode root, GdxVDFPatch changes);
+
+        /**
+         * Called when a modified file could not be parsed. The previous version of the document is kept.
+         * @param file the modified file
+         * @param exception the reason of the failure
+         */
+        default void failed(FileHandle file, RuntimeException exception) {
+        }
+    }
+
+    private final GdxVDFParser parser;
+    private final Map<String, Watched> watched = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledFuture<?> task;
+
+    private final AtomicLong blocksParsed = new AtomicLong(), blocksReused = new AtomicLong();
+
+    /**
+     * Initializes the reloader with a specific parser.
+     * @param parser the parser to parse changed blocks with
+     */
+    public GdxVDFHotReloader(GdxVDFParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Initializes the reloader with the default parser.
+     */
+    public GdxVDFHotReloader() {
+        this(new GdxVDFParser());
+    }
+
+    /**
+     * Loads a file and starts watching it.
+     * @param file the file to watch
+     * @return the current version of the document
+     * @throws GdxVDFParseException if the file cannot be parsed
+     */
+    public GdxVDFFrozenNode watch(FileHandle file) {
+        Watched entry = watched.get(file.path());
+        if (entry != null) return entry.root;
+        entry = new Watched(file);
+        synchronized (entry) {
+            entry.load(file.readString("UTF-8"));
+        }
+        Watched existing = watched.putIfAbsent(file.path(), entry);
+        return existing != null ? existing.root : entry.root;
+    }
+
+    /**
+     * Stops watching a file.
+     * @return true if the file was watched
+     */
+    public boolean unwatch(FileHandle file) {
+        return watched.remove(file.path()) != null;
+    }
+
+    /**
+     * Returns the current version of a watched document.
+     * @return May be null, if the file is not watched.
+     */
+    public GdxVDFFrozenNode getRoot(FileHandle file) {
+        Watched entry = watched.get(file.path());
+        return entry == null ? null : entry.root;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reloads every watched file which was modified since it was last loaded.
+     * @return the number of documents which changed
+     */
+    public int poll() {
+        int changed = 0;
+        for (Watched entry : watched.values()) {
+            if (entry.isModified() && reload(entry)) changed++;
+        }
+        return changed;
+    }
+
+    /**
+     * Reloads a watched file, even if it does not look modified.
+     * @return true if the document changed
+     * @throws IllegalArgumentException if the file is not watched
+     */
+    public boolean reload(FileHandle file) {
+        Watched entry = watched.get(file.path());
+        if (entry == null) throw new IllegalArgumentException("File not watched: " + file.path());
+        return reload(entry);
+    }
+
+    private boolean reload(Watched entry) {
+        // Reloads of a file are serialized, so listeners receive its changes in order
+        synchronized (entry) {
+            GdxVDFFrozenNode previous = entry.root;
+            try {
+                entry.load(entry.file.readString("UTF-8"));
+            }
+            catch (RuntimeException e) {
+                // Keep the last good version, and try again on the next change
+                for (Listener listener : listeners) {
+                    listener.failed(entry.file, e);
+                }
+                return false;
+            }
+            GdxVDFPatch changes = GdxVDFPatch.diff(previous, entry.root);
+            if (changes.isEmpty()) return false;
+            for (Listener listener : listeners) {
+                listener.reloaded(entry.file, entry.root, changes);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Polls the watched files periodically.
+     * @param executor the executor to poll on
+     * @param period the time between two polls
+     * @param unit the unit of the period
+     */
+    public synchronized void start(ScheduledExecutorService executor, long period, TimeUnit unit) {
+        stop();
+        task = executor.scheduleWithFixedDelay(this::poll, period, period, unit);
+    }
+
+    /** Stops polling the watched files. */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /** Returns how many top-level blocks have been parsed. */
+    public long getBlocksParsed() {
+        return blocksParsed.get();
+    }
+
+    /** Returns how many top-level blocks have been reused, because their text did not change. */
+    public long getBlocksReused() {
+        return blocksReused.get();
+    }
+
+    /**
+     * Splits a VDF document into its top-level blocks, each ending after the '}' closing a top-level node and the
+     * conditional following it, if any. Key/values between top-level nodes belong to the following block.
+     * @param vdf the VDF document
+     * @return the blocks, which together are the whole document
+     */
+    static List<String> split(String vdf) {
+        List<String> blocks = new ArrayList<>();
+        int length = vdf.length(), start = 0, depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < length; i++) {
+            char c = vdf.charAt(i);
+            if (quoted) {
+                if (c == '\\') i++;
+                else if (c == '"') quoted = false;
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == '/' && i + 1 < length && (vdf.charAt(i + 1) == '/' || vdf.charAt(i + 1) == '*')) {
+                // Comments take up the rest of the line
+                int end = vdf.indexOf('\n', i);
+                i = end == -1 ? length : end;
+            }
+            else if (c == '{') {
+                depth++;
+            }
+            else if (c == '}' && depth > 0 && --depth == 0) {
+                int end = i + 1;
+                int next = end;
+                while (next < length && (vdf.charAt(next) == ' ' || vdf.charAt(next) == '\t')) next++;
+                if (next < length && vdf.charAt(next) == '[') {
+                    int close = vdf.indexOf(']', next);
+                    int line = vdf.indexOf('\n', next);
+                    if (close != -1 && (line == -1 || close < line)) end = close + 1;
+                }
+                blocks.add(vdf.substring(start, end));
+                start = end;
+                i = end - 1;
+            }
+        }
+        if (start < length && !vdf.substring(start).trim().isEmpty()) {
+            blocks.add(vdf.substring(start));
+        }
+        return blocks;
+    }
+
+    /**
+     * Finds the node of a block, skipping quoted strings and comments like {@link #split(String)}.
+     * @param block a top-level block
+     * @return the positions of the '{' opening the first node of the block and of the '}' closing it. May be null, if
+     * the block holds no complete node.
+     */
+    static int[] body(String block) {
+        int length = block.length(), open = -1, depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < length; i++) {
+            char c = block.charAt(i);
+            if (quoted) {
+                if (c == '\\') i++;
+                else if (c == '"') quoted = false;
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == '/' && i + 1 < length && (block.charAt(i + 1) == '/' || block.charAt(i + 1) == '*')) {
+                int end = block.indexOf('\n', i);
+                i = end == -1 ? length : end;
+            }
+            else if (c == '{') {
+                if (depth++ == 0) open = i;
+            }
+            else if (c == '}' && depth > 0 && --depth == 0) {
+                return new int[] {open, i};
+            }
+        }
+        return null;
+    }
+
+    /** A watched file, and the blocks of its current version. */
+    private final class Watched {
+        final FileHandle file;
+        volatile GdxVDFFrozenNode root;
+        volatile long lastModified, length;
+        Map<GdxVDFCache.ContentKey, List<GdxVDFFrozenNode[]>> blocks = new HashMap<>();
+        /** The text of the single top-level node without its children, and that node parsed, or null. */
+        String shellText;
+        GdxVDFFrozenNode shell;
+
+        Watched(FileHandle file) {
+            this.file = file;
+        }
+
+        boolean isModified() {
+            return file.lastModified() != lastModified || file.length() != length;
+        }
+
+        /** Parses the changed blocks of a new version of the file, and swaps it in. */
+        void load(String vdf) {
+            lastModified = file.lastModified();
+            length = file.length();
+            Map<GdxVDFCache.ContentKey, List<GdxVDFFrozenNode[]>> newBlocks = new HashMap<>();
+            List<GdxVDFFrozenNode> children = new ArrayList<>();
+            long parsed = 0, reused = 0;
+            List<String> texts = split(vdf);
+            // A single top-level node is split into its children, around an empty copy of the node
+            int[] body = texts.size() == 1 ? body(texts.get(0)) : null;
+            String shellText = null;
+            GdxVDFFrozenNode shell = null;
+            if (body != null) {
+                String block = texts.get(0);
+                shellText = block.substring(0, body[0] + 1) + block.substring(body[1]);
+                shell = shellText.equals(this.shellText) ? this.shell : parser.parse(shellText).freeze();
+                if (shell.size() == 1 && shell.get(0).size() == 0) {
+                    texts = split(block.substring(body[0] + 1, body[1]));
+                }
+                else {
+                    // Entries or directives around the node, or a conditional dropping it: the block is parsed whole
+                    shellText = null;
+                    shell = null;
+                }
+            }
+            for (String text : texts) {
+                GdxVDFCache.ContentKey key = new GdxVDFCache.ContentKey(text);
+                // Identical blocks can appear several times, each previous occurrence is reused once
+                List<GdxVDFFrozenNode[]> previous = blocks.get(key);
+                GdxVDFFrozenNode[] nodes;
+                if (previous != null && !previous.isEmpty()) {
+                    nodes = previous.remove(0);
+                    reused++;
+                }
+                else {
+                    GdxVDFFrozenNode block = parser.parse(text).freeze();
+                    nodes = new GdxVDFFrozenNode[block.size()];
+                    for (int i = 0; i < nodes.length; i++) {
+                        nodes[i] = block.get(i);
+                    }
+                    parsed++;
+                }
+                newBlocks.computeIfAbsent(key, k -> new ArrayList<>()).add(nodes);
+                for (GdxVDFFrozenNode node : nodes) {
+                    children.add(node);
+                }
+            }
+            blocks = newBlocks;
+            this.shellText = shellText;
+            this.shell = shell;
+            blocksParsed.addAndGet(parsed);
+            blocksReused.addAndGet(reused);
+            GdxVDFFrozenNode[] nodes = children.toArray(new GdxVDFFrozenNode[0]);
+            if (shell != null) {
+                nodes = new GdxVDFFrozenNode[] {new GdxVDFFrozenNode(shell.get(0).name(), null, nodes)};
+            }
+            root = new GdxVDFFrozenNode(null, null, nodes);
+        }
+    }
+
+}
@@ -0,0 +1,325 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Loads VDF files and resolves their "#base" and "#include" directives, the way Valve KeyValues files do.
+ * <p>
+ * Directives are top-level key/values whose value is the path of another file, relative to the including file by
+ * default. An "#include" appends the content of the other file, while a "#base" merges it without overriding the keys
+ * of the including file, recursively. Directives are removed from the loaded document.
+ * </p>
+ * <p>
+ * Every call to {@link #load(FileHandle)} or {@link #loadAll(FileHandle...)} is a session: each file is read and
+ * parsed once, however many files include it, and include cycles are reported instead of looping forever. With an
+ * {@link #setExecutor(Executor) executor}, the files of a session are read and parsed concurrently, one level of
+ * includes at a time; their directives are always resolved afterwards, on the calling thread.
+ * </p>
+ *
+ * <pre>
+ * GdxVDFIncludeLoader loader = new GdxVDFIncludeLoader();
+ * loader.setExecutor(ForkJoinPool.commonPool());
+ * GdxVDFNode root = loader.load(Gdx.files.internal("scripts/items.txt"));
+ * </pre>
+ *
+ * @author Arete */
+public class GdxVDFIncludeLoader {
+
+    /** The directive merging another file without overriding existing keys. */
+    public static final String BASE = "#base";
+    /** The directive appending the content of another file. */
+    public static final String INCLUDE = "#include";
+
+    /** Resolves the path found in a directive to a file. */
+    public interface Resolver {
+        /**
+         * @param from the file containing the directive
+         * @param path the path of the directive
+         * @return the included file
+         */
+        FileHandle resolve(FileHandle from, String path);
+    }
+
+    /** Resolves paths relative to the directory of the including file. */
+    public static final Resolver RELATIVE = (from, path) -> from.parent().child(path);
+
+    private final GdxVDFParser parser;
+    private final Resolver resolver;
+    private Executor executor;
+
+    /**
+     * Initializes the loader with a specific parser and resolver.
+     * @param parser the parser to parse files with
+     * @param resolver the resolver to find included files with
+     */
+    public GdxVDFIncludeLoader(GdxVDFParser parser, Resolver resolver) {
+        this.parser = parser;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Initializes the loader with the default parser, resolving paths relative to the including file.
+     */
+    public GdxVDFIncludeLoader() {
+        this(new GdxVDFParser(), RELATIVE);
+    }
+
+    /**
+     * Sets the executor used to read and parse the files of a session concurrently.
+     * @param executor May be null, to load files on the calling thread.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /** @return May be null. */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Loads a file and every file it includes.
+     * @param file the file to load
+     * @return the root of the document, with its directives resolved
+     * @throws GdxVDFParseException if a file cannot be parsed or found, or files include each other in a cycle
+     */
+    public GdxVDFNode load(FileHandle file) {
+        return loadAll(file).get(0);
+    }
+
+    /**
+     * Loads several files in a single session, so the files they have in common are only parsed once.
+     * @param files the files to load
+     * @return the roots of the documents, in the same order as the files
+     * @throws GdxVDFParseException if a file cannot be parsed or found, or files include each other in a cycle
+     */
+    public List<GdxVDFNode> loadAll(FileHandle... files) {
+        Session session = new Session();
+        session.parseAll(files);
+        List<GdxVDFNode> roots = new ArrayList<>(files.length);
+        for (FileHandle file : files) {
+            // Resolved documents are shared by the session, so every caller gets its own copy
+            roots.add(session.resolve(file, new ArrayList<>()).copy());
+        }
+        return roots;
+    }
+
+    /**
+     * Returns the paths of the directives of a parsed document, in document order.
+     * @param root the root of the document
+     * @return the paths, exactly as written in the document
+     */
+    public static List<String> getIncludes(GdxVDFNode root) {
+        List<String> includes = new ArrayList<>();
+        for (GdxVDFNode child = root.child; child != null; child = child.next) {
+            if (isDirective(child) && !child.isNull()) {
+                includes.add(child.asString());
+            }
+        }
+        return includes;
+    }
+
+    /**
+     * Removes the directives of a parsed document, appending or merging the documents they refer to.
+     * @param root the root of the document, modified in place
+     * @param documents returns the resolved document of the path of a directive, which is only copied from
+     */
+    static void resolveDirectives(GdxVDFNode root, Function<String, GdxVDFNode> documents) {
+        List<GdxVDFNode> bases = new ArrayList<>();
+        for (GdxVDFNode child = root.child; child != null; ) {
+            GdxVDFNode next = child.next;
+            if (isDirective(child)) {
+                child.remove();
+                if (!child.isNull()) {
+                    GdxVDFNode included = documents.apply(child.asString());
+                    if (BASE.equalsIgnoreCase(child.name)) {
+                        bases.add(included);
+                    }
+                    else {
+                        for (GdxVDFNode includedChild = included.child; includedChild != null; includedChild = includedChild.next) {
+                            root.addChild(includedChild.copy());
+                        }
+                    }
+                }
+            }
+            child = next;
+        }
+        // Bases never override, so they are merged once everything else is in place
+        for (GdxVDFNode base : bases) {
+            mergeBase(root, base);
+        }
+    }
+
+    private static boolean isDirective(GdxVDFNode node) {
+        return BASE.equalsIgnoreCase(node.name) || INCLUDE.equalsIgnoreCase(node.name);
+    }
+
+    /**
+     * Merges the children of a base document into a node, without overriding the children it already has. Nodes
+     * present on both sides are merged in turn from a queue rather than by recursion, and the children of each node are
+     * looked up by name once, so that deep and wide documents are merged in linear time.
+     */
+    private static void mergeBase(GdxVDFNode root, GdxVDFNode rootBase) {
+        // Pairs of a node and the base node merged into it, first in first out so that bases merged into the same node
+        // are merged in order
+        ArrayDeque<GdxVDFNode> nodes = new ArrayDeque<>(), bases = new ArrayDeque<>();
+        nodes.add(root);
+        bases.add(rootBase);
+        Map<String, GdxVDFNode> existing = new HashMap<>();
+        while (!nodes.isEmpty()) {
+            GdxVDFNode node = nodes.poll(), base = bases.poll();
+            existing.clear();
+            GdxVDFNode last = null;
+            for (GdxVDFNode child = node.child; child != null; child = child.next) {
+                existing.putIfAbsent(child.name.toLowerCase(Locale.ROOT), child);
+                last = child;
+            }
+            for (GdxVDFNode baseChild = base.child; baseChild != null; baseChild = baseChild.next) {
+                String key = baseChild.name.toLowerCase(Locale.ROOT);
+                GdxVDFNode match = existing.get(key);
+                if (match == null) {
+                    GdxVDFNode copy = baseChild.copy();
+                    node.addChildAfter(last, baseChild.name, copy);
+                    existing.put(key, copy);
+                    last = copy;
+                }
+                else if (match.isNull() && baseChild.isNull()) {
+                    nodes.add(match);
+                    bases.add(baseChild);
+                }
+            }
+        }
+    }
+
+    /** Normalizes "." and ".." segments, so the same file reached through different paths is only parsed once. */
+    static String key(FileHandle file) {
+        return key(file.path());
+    }
+
+    static String key(String path) {
+        String[] segments = path.replace('\\', '/').split("/");
+        List<String> normalized = new ArrayList<>(segments.length);
+        for (String segment : segments) {
+            if (segment.equals(".") || (segment.isEmpty() && !normalized.isEmpty())) continue;
+            if (segment.equals("..") && !normalized.isEmpty() && !normalized.get(normalized.size() - 1).equals("..")) {
+                normalized.remove(normalized.size() - 1);
+                continue;
+            }
+            normalized.add(segment);
+        }
+        return String.join("/", normalized);
+    }
+
+    /** The files read and resolved by one load. */
+    private class Session {
+        /** The parsed documents, before their directives are resolved. */
+        private final Map<String, GdxVDFNode> parsed = new HashMap<>();
+        /** The documents whose directives have been resolved. */
+        private final Map<String, GdxVDFNode> resolved = new HashMap<>();
+
+        /** Parses the files and everything they include, one level of includes at a time. */
+        void parseAll(FileHandle[] files) {
+            Map<String, FileHandle> wave = new LinkedHashMap<>();
+            for (FileHandle file : files) {
+                wave.putIfAbsent(key(file), file);
+            }
+            while (!wave.isEmpty()) {
+                List<FileHandle> pending = new ArrayList<>(wave.values());
+                List<GdxVDFNode> roots = parse(pending);
+                Map<String, FileHandle> next = new LinkedHashMap<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    FileHandle file = pending.get(i);
+                    GdxVDFNode root = roots.get(i);
+                    parsed.put(key(file), root);
+                    for (String path : getIncludes(root)) {
+                        FileHandle include = resolver.resolve(file, path);
+                        String key = key(include);
+                        if (!parsed.containsKey(key) && !wave.containsKey(key)) {
+                            next.putIfAbsent(key, include);
+                        }
+                    }
+                }
+                wave = next;
+            }
+        }
+
+        private List<GdxVDFNode> parse(List<FileHandle> files) {
+            List<GdxVDFNode> roots = new ArrayList<>(files.size());
+            if (executor == null || files.size() == 1) {
+                for (FileHandle file : files) {
+                    roots.add(parseFile(file));
+                }
+                return roots;
+            }
+            List<CompletableFuture<GdxVDFNode>> futures = new ArrayList<>(files.size());
+            for (FileHandle file : files) {
+                futures.add(CompletableFuture.supplyAsync(() -> parseFile(file), executor));
+            }
+            try {
+                for (CompletableFuture<GdxVDFNode> future : futures) {
+                    roots.add(future.join());
+                }
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+            return roots;
+        }
+
+        private GdxVDFNode parseFile(FileHandle file) {
+            if (!file.exists()) throw new GdxVDFParseException("File not found: " + file.path());
+            return parser.parse(file.readString("UTF-8"));
+        }
+
+        /** Resolves the directives of a parsed file, after the files it includes. */
+        GdxVDFNode resolve(FileHandle file, List<String> chain) {
+            String key = key(file);
+            GdxVDFNode root = resolved.get(key);
+            if (root != null) return root;
+            if (chain.contains(key)) {
+                chain.add(key);
+                throw new GdxVDFParseException("Include cycle detected: " + String.join(" -> ", chain));
+            }
+            root = parsed.get(key);
+            chain.add(key);
+            GdxVDFMonitor monitor = GdxVDFMonitor.get();
+            Object context = monitor == null ? null : monitor.beginInclude(file.path());
+            int includes = context == null ? 0 : getIncludes(root).size();
+            resolveDirectives(root, path -> resolve(resolver.resolve(file, path), chain));
+            if (context != null) monitor.endInclude(context, file.path(), includes);
+            chain.remove(chain.size() - 1);
+            resolved.put(key, root);
+            return root;
+        }
+    }
+
+}
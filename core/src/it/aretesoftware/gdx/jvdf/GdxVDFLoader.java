@@ -0,0 +1,222 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link AsynchronousAssetLoader} for VDF documents, loaded as {@link GdxVDFNode} roots.
+ * <p>
+ * Files are read and parsed in {@link #getDependencies(String, FileHandle, GdxVDFParameter)} and
+ * {@link #loadAsync(AssetManager, String, FileHandle, GdxVDFParameter)}, which the {@link AssetManager} runs on its
+ * executor, so the rendering thread never waits for a parse. The "#base" and "#include" directives of a document, relative
+ * to its file, are declared as dependencies: every included file is loaded once as an asset of its own, shared by all
+ * the documents including it, and resolved like {@link GdxVDFIncludeLoader} does. Include cycles fail the load instead
+ * of loading forever.
+ * </p>
+ *
+ * <pre>
+ * assetManager.setLoader(GdxVDFNode.class, new GdxVDFLoader(new InternalFileHandleResolver()));
+ * GdxVDFLoader.GdxVDFParameter parameter = new GdxVDFLoader.GdxVDFParameter();
+ * parameter.conditionals = GdxVDFConditionals.forCurrentPlatform();
+ * assetManager.load("scripts/items_game.txt", GdxVDFNode.class, parameter);
+ * </pre>
+ *
+ * @author Arete */
+public class GdxVDFLoader extends AsynchronousAssetLoader<GdxVDFNode, GdxVDFLoader.GdxVDFParameter> {
+
+    private static final GdxVDFParameter DEFAULT_PARAMETER = new GdxVDFParameter();
+
+    /** Documents parsed while their dependencies are loaded, by normalized asset name. */
+    private final Map<String, GdxVDFNode> parsed = new ConcurrentHashMap<>();
+    /** Documents loaded asynchronously, waiting for {@link #loadSync(AssetManager, String, FileHandle, GdxVDFParameter)},
+     * by normalized asset name. */
+    private final Map<String, GdxVDFNode> loaded = new ConcurrentHashMap<>();
+    /** The includes of the documents being loaded, by normalized asset name, used to detect cycles. */
+    private final Map<String, List<String>> includes = new ConcurrentHashMap<>();
+
+    public GdxVDFLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, GdxVDFParameter parameter) {
+        if (parameter == null) parameter = DEFAULT_PARAMETER;
+        if (!parameter.resolveIncludes) return null;
+
+        GdxVDFNode root = parse(file, parameter);
+        String key = GdxVDFIncludeLoader.key(fileName);
+        parsed.put(key, root);
+        try {
+            List<String> paths = GdxVDFIncludeLoader.getIncludes(root);
+            if (paths.isEmpty()) return null;
+
+            List<String> names = new ArrayList<>(paths.size());
+            Array<AssetDescriptor> dependencies = new Array<>(paths.size());
+            GdxVDFParameter dependencyParameter = parameter.forDependency();
+            for (String path : paths) {
+                String name = includeName(fileName, path);
+                if (names.contains(name)) continue;
+                names.add(name);
+                dependencies.add(new AssetDescriptor<>(name, GdxVDFNode.class, dependencyParameter));
+            }
+            includes.put(key, names);
+            List<String> cycle = findCycle(key);
+            if (cycle != null) {
+                // Every document of the cycle fails to load
+                for (String document : cycle) {
+                    forget(document);
+                }
+                throw new GdxVDFParseException("Include cycle detected: " + String.join(" -> ", cycle));
+            }
+            return dependencies;
+        }
+        catch (RuntimeException e) {
+            forget(key);
+            throw e;
+        }
+    }
+
+    @Override
+    public void loadAsync(AssetManager manager, String fileName, FileHandle file, GdxVDFParameter parameter) {
+        if (parameter == null) parameter = DEFAULT_PARAMETER;
+        String key = GdxVDFIncludeLoader.key(fileName);
+        try {
+            GdxVDFNode root = parsed.remove(key);
+            if (root == null) root = parse(file, parameter);
+            if (parameter.resolveIncludes) {
+                // Dependencies are loaded before this document, and only copied from
+                GdxVDFIncludeLoader.resolveDirectives(root,
+                        path -> manager.get(includeName(fileName, path), GdxVDFNode.class));
+            }
+            if (parameter.paths != null) {
+                root = filter(root, parameter.paths);
+            }
+            loaded.put(key, root);
+        }
+        finally {
+            includes.remove(key);
+        }
+    }
+
+    @Override
+    public GdxVDFNode loadSync(AssetManager manager, String fileName, FileHandle file, GdxVDFParameter parameter) {
+        return loaded.remove(GdxVDFIncludeLoader.key(fileName));
+    }
+
+    /** Called by the {@link AssetManager} when a document is unloaded while it is being loaded. */
+    @Override
+    public void unloadAsync(AssetManager manager, String fileName, FileHandle file, GdxVDFParameter parameter) {
+        forget(GdxVDFIncludeLoader.key(fileName));
+    }
+
+    /** Discards everything kept about a document being loaded. The state of documents whose dependencies failed to load
+     * is kept until the document is loaded again, since the {@link AssetManager} does not notify their loader. */
+    private void forget(String key) {
+        parsed.remove(key);
+        loaded.remove(key);
+        includes.remove(key);
+    }
+
+    /** Returns true if no document is being loaded. */
+    boolean isIdle() {
+        return parsed.isEmpty() && loaded.isEmpty() && includes.isEmpty();
+    }
+
+    private GdxVDFNode parse(FileHandle file, GdxVDFParameter parameter) {
+        return new GdxVDFParser(parameter.conditionals).parse(file.readString("UTF-8"));
+    }
+
+    /** Returns the asset name of an included file, relative to the asset name of the including file, so that it is
+     * resolved by the {@link FileHandleResolver} like the including file was. */
+    private static String includeName(String fileName, String path) {
+        int slash = fileName.replace('\\', '/').lastIndexOf('/');
+        return GdxVDFIncludeLoader.key(fileName.substring(0, slash + 1) + path);
+    }
+
+    /** Returns the chain of includes leading from a document back to itself.
+     * @return May be null. */
+    private List<String> findCycle(String start) {
+        List<String> chain = new ArrayList<>();
+        chain.add(start);
+        return reaches(start, start, chain, new ArrayList<>()) ? chain : null;
+    }
+
+    private boolean reaches(String from, String target, List<String> chain, List<String> visited) {
+        for (String include : includes.getOrDefault(from, Collections.emptyList())) {
+            chain.add(include);
+            if (include.equals(target)) return true;
+            if (!visited.contains(include)) {
+                visited.add(include);
+                if (reaches(include, target, chain, visited)) return true;
+            }
+            chain.remove(chain.size() - 1);
+        }
+        return false;
+    }
+
+    /** Keeps the nodes found at the specified paths, with their ancestors, and drops everything else. */
+    private static GdxVDFNode filter(GdxVDFNode root, String[] paths) {
+        GdxVDFNode filtered = new GdxVDFNode();
+        for (String string : paths) {
+            GdxVDFPath path = GdxVDFPath.parse(string);
+            GdxVDFNode node = path.resolve(root);
+            if (node == null || path.isRoot()) continue;
+            GdxVDFNode parent = filtered;
+            for (int i = 0; i < path.length() - 1; i++) {
+                GdxVDFNode existing = parent.get(path.name(i));
+                if (existing == null) {
+                    existing = new GdxVDFNode();
+                    parent.addChild(path.name(i), existing);
+                }
+                parent = existing;
+            }
+            parent.addChild(node.copy());
+        }
+        return filtered;
+    }
+
+    /** Parameters of {@link GdxVDFLoader}. */
+    static public class GdxVDFParameter extends AssetLoaderParameters<GdxVDFNode> {
+        /** The evaluator of conditional tags, or null to keep every entry regardless of its conditional. */
+        public GdxVDFConditionals conditionals = null;
+        /** Whether to load and resolve the "#base" and "#include" directives. */
+        public boolean resolveIncludes = true;
+        /** The paths to keep, in the format of {@link GdxVDFPath#parse(String)}, or null to keep the whole document.
+         * Included documents are always loaded whole. */
+        public String[] paths = null;
+
+        GdxVDFParameter forDependency() {
+            GdxVDFParameter parameter = new GdxVDFParameter();
+            parameter.conditionals = conditionals;
+            return parameter;
+        }
+    }
+
+}
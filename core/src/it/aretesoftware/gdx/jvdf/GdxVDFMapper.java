@@ -0,0 +1,595 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Field;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds VDF nodes to Java objects.
+ * <p>
+ * Every non-static, non-transient field of a class, including inherited ones, is bound to the child with the same
+ * name, or with its snake_case form ("itemSlot" is also found as "item_slot"), ignoring case. {@link GdxVDFField}
+ * changes the key of a field, makes it required, or excludes it. Fields can be primitives and their wrappers,
+ * {@link String}, {@link Color}, {@link Vector2}, {@link Vector3}, enums, {@link List}s of those, bound to every child
+ * with the key (multimaps), and other classes with a no-argument constructor, bound in turn without recursion, so that
+ * self-referential classes bind documents of any depth. Fields of other types are ignored unless annotated, in which
+ * case they are reported. Missing keys leave fields untouched.
+ * </p>
+ * <p>
+ * The binding plan of a class is computed once and cached. On the JVM, fields are set through method handles adapted
+ * to the exact type of each field, so primitives are never boxed; where method handles are not available, the plan
+ * falls back to libGDX {@link ClassReflection}. The method handles are confined to a separate class, which GWT builds
+ * can replace through super-source to use reflection only. Mappers are thread-safe.
+ * </p>
+ * <p>
+ * Objects can also be read straight from a {@link GdxVDFReader} with {@link #read(GdxVDFReader, Class)}: the plan then
+ * assigns fields as the tokens arrive, without building the tree, and skips the nodes it has no field for. Repeated
+ * keys bind their first occurrence, unless the field is a {@link List}.
+ * </p>
+ *
+ * <pre>
+ * public class Item {
+ *     public String name;
+ *     public int itemSlot;
+ *     &#64;GdxVDFField(value = "attribute", required = true)
+ *     public List&lt;Attribute&gt; attributes;
+ * }
+ *
+ * Item item = new GdxVDFMapper().map(node, Item.class);
+ * </pre>
+ * @author Arete */
+public class GdxVDFMapper {
+
+    private final boolean useMethodHandles;
+    private final Map<Class<?>, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Initializes the mapper, choosing whether to set fields through method handles.
+     * @param useMethodHandles whether to use method handles when they are available, rather than libGDX reflection
+     */
+    public GdxVDFMapper(boolean useMethodHandles) {
+        this.useMethodHandles = useMethodHandles && GdxVDFMethodHandles.AVAILABLE;
+    }
+
+    /**
+     * Initializes the mapper, setting fields through method handles when they are available.
+     */
+    public GdxVDFMapper() {
+        this(true);
+    }
+
+    /**
+     * Creates an object of the specified class and binds the children of a node to its fields.
+     * @param node the node whose children are bound
+     * @param type the class of the object, which requires a no-argument constructor
+     * @return the new object
+     * @throws IllegalArgumentException if the class cannot be instantiated, or a required key is missing
+     */
+    public <T> T map(GdxVDFNode node, Class<T> type) {
+        Plan plan = plan(type);
+        T object = type.cast(plan.instantiate());
+        plan.bind(this, object, node);
+        return object;
+    }
+
+    /**
+     * Binds the children of a node to the fields of an existing object.
+     * @param node the node whose children are bound
+     * @param object the object to bind to
+     * @return the same object, for chaining
+     * @throws IllegalArgumentException if a required key is missing
+     */
+    public <T> T map(GdxVDFNode node, T object) {
+        plan(object.getClass()).bind(this, object, node);
+        return object;
+    }
+
+    /**
+     * Creates an object of the specified class for every child of a node.
+     * @param node the node whose children are mapped, usually a list of items
+     * @param type the class of the objects
+     * @return the objects, in the order of the children
+     * @throws IllegalArgumentException if the class cannot be instantiated, or a required key is missing
+     */
+    public <T> List<T> mapAll(GdxVDFNode node, Class<T> type) {
+        List<T> objects = new ArrayList<>(node.size);
+        for (GdxVDFNode child = node.child; child != null; child = child.next) {
+            objects.add(map(child, type));
+        }
+        return objects;
+    }
+
+    /**
+     * Creates an object of the specified class and binds the entries of the current node of a reader to its fields, as
+     * they are read. The reader must have just returned {@link GdxVDFReader.Token#nodeStart}, and is left after the
+     * end of the node; if no token was read yet, the whole document is bound.
+     * @param reader the reader to read from
+     * @param type the class of the object, which requires a no-argument constructor
+     * @return the new object
+     * @throws IllegalArgumentException if the class cannot be instantiated, or a required key is missing
+     * @throws GdxVDFParseException if the document is malformed
+     */
+    public <T> T read(GdxVDFReader reader, Class<T> type) {
+        Plan plan = plan(type);
+        T object = type.cast(plan.instantiate());
+        plan.read(this, object, reader, new GdxVDFNode());
+        return object;
+    }
+
+    /**
+     * Creates an object of the specified class for every child node of the current node of a reader, like
+     * {@link #mapAll(GdxVDFNode, Class)}. Key/values of the current node are skipped. The reader must have just returned
+     * {@link GdxVDFReader.Token#nodeStart}, or no token yet to read the top level of the document.
+     * @param reader the reader to read from
+     * @param type the class of the objects
+     * @return the objects, in the order of the children
+     * @throws IllegalArgumentException if the class cannot be instantiated, or a required key is missing
+     * @throws GdxVDFParseException if the document is malformed
+     */
+    public <T> List<T> readAll(GdxVDFReader reader, Class<T> type) {
+        Plan plan = plan(type);
+        GdxVDFNode scratch = new GdxVDFNode();
+        List<T> objects = new ArrayList<>();
+        for (GdxVDFReader.Token token = reader.next(); token == GdxVDFReader.Token.key; token = reader.next()) {
+            if (reader.next() == GdxVDFReader.Token.nodeStart) {
+                T object = type.cast(plan.instantiate());
+                plan.read(this, object, reader, scratch);
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
+    private Plan plan(Class<?> type) {
+        Plan plan = plans.get(type);
+        if (plan == null) {
+            plan = createPlan(type);
+            Plan existing = plans.putIfAbsent(type, plan);
+            if (existing != null) plan = existing;
+        }
+        return plan;
+    }
+
+    private Plan createPlan(Class<?> type) {
+        List<Binding> bindings = new ArrayList<>();
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        for (Class<?> current : hierarchy) {
+            for (Field field : ClassReflection.getDeclaredFields(current)) {
+                if (field.isStatic() || field.isTransient() || field.isSynthetic()) continue;
+                GdxVDFField annotation = null;
+                if (field.isAnnotationPresent(GdxVDFField.class)) {
+                    annotation = field.getDeclaredAnnotation(GdxVDFField.class).getAnnotation(GdxVDFField.class);
+                    if (annotation.ignore()) continue;
+                }
+                if (field.isFinal()) {
+                    if (annotation != null) throw new IllegalArgumentException("Final fields cannot be bound: " + field.getName());
+                    continue;
+                }
+                Converter converter = converter(field.getType(), field);
+                if (converter == null) {
+                    if (annotation != null) throw new IllegalArgumentException("Unsupported type of field " + field.getName() + ": " + field.getType().getName());
+                    continue;
+                }
+                String key = field.getName();
+                String alternateKey = toSnakeCase(key);
+                if (annotation != null && !annotation.value().isEmpty()) {
+                    key = annotation.value();
+                    alternateKey = null;
+                }
+                Setter setter = useMethodHandles ? GdxVDFMethodHandles.setter(field, converter)
+                        : reflectionSetter(field, converter);
+                // Lists and nested objects are built by the plan when reading from a reader, and set as they are
+                Class<?> fieldType = field.getType();
+                boolean list = fieldType == List.class || fieldType == ArrayList.class;
+                Class<?> valueType = list ? field.getElementType(0) : fieldType;
+                ValueSetter valueSetter = null;
+                if (list || isNested(valueType)) {
+                    valueSetter = useMethodHandles ? GdxVDFMethodHandles.valueSetter(field)
+                            : reflectionValueSetter(field);
+                }
+                bindings.add(new Binding(key, alternateKey, annotation != null && annotation.required(), setter, list,
+                        isNested(valueType) ? valueType : null, list ? converter(valueType, null) : null, valueSetter));
+            }
+        }
+        Instantiator instantiator = useMethodHandles ? GdxVDFMethodHandles.instantiator(type) : () -> {
+            try {
+                return ClassReflection.newInstance(type);
+            }
+            catch (ReflectionException e) {
+                throw new IllegalArgumentException("Class cannot be instantiated: " + type.getName(), e);
+            }
+        };
+        return new Plan(instantiator, bindings.toArray(new Binding[0]));
+    }
+
+    /** Returns how a node is converted to a value of a type.
+     * @return May be null, if the type is not supported. */
+    private Converter converter(Class<?> type, Field field) {
+        if (type == String.class) return (mapper, node) -> node.asString();
+        if (type == int.class || type == Integer.class) return (mapper, node) -> node.asInt();
+        if (type == float.class || type == Float.class) return (mapper, node) -> node.asFloat();
+        if (type == long.class || type == Long.class) return (mapper, node) -> node.asLong();
+        if (type == double.class || type == Double.class) return (mapper, node) -> node.asDouble();
+        if (type == boolean.class || type == Boolean.class) return (mapper, node) -> node.asBoolean();
+        if (type == short.class || type == Short.class) return (mapper, node) -> node.asShort();
+        if (type == byte.class || type == Byte.class) return (mapper, node) -> node.asByte();
+        if (type == char.class || type == Character.class) return (mapper, node) -> node.asChar();
+        if (type == Color.class) return (mapper, node) -> node.asColor();
+        if (type == Vector2.class) return (mapper, node) -> node.asVector2();
+        if (type == Vector3.class) return (mapper, node) -> node.asVector3();
+        if (type.isEnum()) return enumConverter(type);
+        if (type == List.class || type == ArrayList.class) {
+            Class<?> elementType = field == null ? null : field.getElementType(0);
+            if (elementType == null || elementType == List.class) return null;
+            Converter element = converter(elementType, null);
+            return element == null ? null : new ListConverter(element);
+        }
+        if (!isNested(type)) return null;
+        return (mapper, node) -> mapper.map(node, type);
+    }
+
+    /** Returns whether values of a type are objects bound recursively. */
+    private static boolean isNested(Class<?> type) {
+        return !(type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum() || type == Color.class
+                || type == Vector2.class || type == Vector3.class || type.getName().startsWith("java."));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Converter enumConverter(Class<?> type) {
+        Class<Enum> enumClass = (Class<Enum>) type;
+        return (mapper, node) -> node.asEnum(enumClass);
+    }
+
+    static Setter reflectionSetter(Field field, Converter converter) {
+        field.setAccessible(true);
+        return (mapper, target, node) -> {
+            try {
+                field.set(target, converter.convert(mapper, node));
+            }
+            catch (ReflectionException e) {
+                throw new IllegalArgumentException("Field cannot be set: " + field.getName(), e);
+            }
+        };
+    }
+
+    static ValueSetter reflectionValueSetter(Field field) {
+        field.setAccessible(true);
+        return (target, value) -> {
+            try {
+                field.set(target, value);
+            }
+            catch (ReflectionException e) {
+                throw new IllegalArgumentException("Field cannot be set: " + field.getName(), e);
+            }
+        };
+    }
+
+    /** Returns the snake_case form of a camelCase name.
+     * @return May be null, if the name has no upper case letters. */
+    static String toSnakeCase(String name) {
+        StringBuilder builder = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                if (builder == null) builder = new StringBuilder(name.length() + 4).append(name, 0, i);
+                builder.append('_').append(Character.toLowerCase(c));
+            }
+            else if (builder != null) {
+                builder.append(c);
+            }
+        }
+        return builder == null ? null : builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /** Converts a node to the value of a field. */
+    interface Converter {
+        Object convert(GdxVDFMapper mapper, GdxVDFNode node);
+    }
+
+    /** Converts a node and the following children with the same name to a list. */
+    private static final class ListConverter implements Converter {
+        private final Converter element;
+
+        ListConverter(Converter element) {
+            this.element = element;
+        }
+
+        @Override
+        public Object convert(GdxVDFMapper mapper, GdxVDFNode first) {
+            List<Object> list = new ArrayList<>();
+            for (GdxVDFNode node = first; node != null; node = node.next) {
+                if (node.name.equalsIgnoreCase(first.name)) {
+                    list.add(element.convert(mapper, node));
+                }
+            }
+            return list;
+        }
+    }
+
+    /** Sets a field of an object from a node. */
+    interface Setter {
+        void set(GdxVDFMapper mapper, Object target, GdxVDFNode node) throws Throwable;
+    }
+
+    /** Sets a field of an object to a value which is already converted. */
+    interface ValueSetter {
+        void set(Object target, Object value) throws Throwable;
+    }
+
+    /** Creates objects of a class. */
+    interface Instantiator {
+        Object instantiate() throws Throwable;
+    }
+
+    /** The binding of a single field. */
+    private static final class Binding {
+        final String key, alternateKey;
+        final boolean required, list;
+        final Setter setter;
+        /** The class of the nested objects of the field or of its elements, null if they are values. */
+        final Class<?> nested;
+        /** Converts the elements of a list field, null for other fields. */
+        final Converter element;
+        /** Sets lists and nested objects, null for other fields. */
+        final ValueSetter valueSetter;
+
+        Binding(String key, String alternateKey, boolean required, Setter setter, boolean list, Class<?> nested,
+                Converter element, ValueSetter valueSetter) {
+            this.key = key;
+            this.alternateKey = alternateKey;
+            this.required = required;
+            this.setter = setter;
+            this.list = list;
+            this.nested = nested;
+            this.element = element;
+            this.valueSetter = valueSetter;
+        }
+
+        boolean matches(String name) {
+            return key.equalsIgnoreCase(name) || (alternateKey != null && alternateKey.equalsIgnoreCase(name));
+        }
+    }
+
+    /** How objects of a class are created and bound, computed once per class. */
+    private static final class Plan {
+        final Instantiator instantiator;
+        final Binding[] bindings;
+
+        Plan(Instantiator instantiator, Binding[] bindings) {
+            this.instantiator = instantiator;
+            this.bindings = bindings;
+        }
+
+        Object instantiate() {
+            try {
+                return instantiator.instantiate();
+            }
+            catch (RuntimeException | Error e) {
+                throw e;
+            }
+            catch (Throwable t) {
+                throw new IllegalArgumentException("Class cannot be instantiated.", t);
+            }
+        }
+
+        /**
+         * Binds the children of a node to the fields of an object. Nested objects are created and set right away, and
+         * bound from an explicit stack, so that self-referential classes bind trees of any depth.
+         */
+        void bind(GdxVDFMapper mapper, Object object, GdxVDFNode node) {
+            ArrayDeque<Plan> plans = new ArrayDeque<>();
+            ArrayDeque<Object> objects = new ArrayDeque<>();
+            ArrayDeque<GdxVDFNode> nodes = new ArrayDeque<>();
+            plans.push(this);
+            objects.push(object);
+            nodes.push(node);
+            while (!plans.isEmpty()) {
+                plans.pop().bindFields(mapper, objects.pop(), nodes.pop(), plans, objects, nodes);
+            }
+        }
+
+        /** Binds the children of a node to the fields of an object, pushing the nested objects left to bind. */
+        private void bindFields(GdxVDFMapper mapper, Object object, GdxVDFNode node, ArrayDeque<Plan> plans,
+                                ArrayDeque<Object> objects, ArrayDeque<GdxVDFNode> nodes) {
+            for (Binding binding : bindings) {
+                GdxVDFNode child = node.get(binding.key);
+                if (child == null && binding.alternateKey != null) child = node.get(binding.alternateKey);
+                if (child == null) {
+                    if (binding.required) throw new IllegalArgumentException("Named value not found: " + binding.key);
+                    continue;
+                }
+                try {
+                    if (binding.nested == null) {
+                        binding.setter.set(mapper, object, child);
+                        continue;
+                    }
+                    Plan plan = mapper.plan(binding.nested);
+                    if (binding.list) {
+                        // Every child with the key, like ListConverter
+                        List<Object> list = new ArrayList<>();
+                        for (GdxVDFNode element = child; element != null; element = element.next) {
+                            if (!element.name.equalsIgnoreCase(child.name)) continue;
+                            Object value = plan.instantiate();
+                            list.add(value);
+                            plans.push(plan);
+                            objects.push(value);
+                            nodes.push(element);
+                        }
+                        binding.valueSetter.set(object, list);
+                    }
+                    else {
+                        Object value = plan.instantiate();
+                        binding.valueSetter.set(object, value);
+                        plans.push(plan);
+                        objects.push(value);
+                        nodes.push(child);
+                    }
+                }
+                catch (RuntimeException | Error e) {
+                    throw e;
+                }
+                catch (Throwable t) {
+                    throw new IllegalArgumentException("Field cannot be set: " + binding.key, t);
+                }
+            }
+        }
+
+        /**
+         * Binds the entries of the current node of a reader as they are read, up to the end of the node. Nested objects
+         * are read from an explicit stack, so that self-referential classes read documents of any depth.
+         * @param scratch a node reused to convert values, so converters work on them without building nodes
+         */
+        void read(GdxVDFMapper mapper, Object object, GdxVDFReader reader, GdxVDFNode scratch) {
+            ArrayDeque<Reading> stack = new ArrayDeque<>();
+            Reading current = new Reading(this, object);
+            for (;;) {
+                Reading nested = current.read(mapper, reader, scratch);
+                if (nested != null) {
+                    stack.push(current);
+                    current = nested;
+                    continue;
+                }
+                current.checkRequired();
+                if (stack.isEmpty()) return;
+                current = stack.pop();
+            }
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < bindings.length; i++) {
+                if (bindings[i].matches(key)) return i;
+            }
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Object>[] newLists(int size) {
+            return new List[size];
+        }
+    }
+
+    /** An object whose fields are being read from a reader, with the bindings already set. */
+    private static final class Reading {
+        final Plan plan;
+        final Object object;
+        // Bindings already set, to keep the first occurrence of repeated keys like the tree does
+        long seen;
+        final long[] seenMore;
+        List<Object>[] lists;
+
+        Reading(Plan plan, Object object) {
+            this.plan = plan;
+            this.object = object;
+            seenMore = plan.bindings.length > 64 ? new long[(plan.bindings.length - 1) >> 6] : null;
+        }
+
+        /**
+         * Binds the entries of the node as they are read, up to the end of the node or the start of a nested object,
+         * which is set before its fields are read.
+         * @return the nested object to read before going on with this one. May be null, at the end of the node.
+         */
+        Reading read(GdxVDFMapper mapper, GdxVDFReader reader, GdxVDFNode scratch) {
+            Binding[] bindings = plan.bindings;
+            for (GdxVDFReader.Token token = reader.next(); token == GdxVDFReader.Token.key; token = reader.next()) {
+                String key = reader.getString();
+                int index = plan.indexOf(key);
+                if (index == -1) {
+                    reader.skipValue();
+                    continue;
+                }
+                Binding binding = bindings[index];
+                if (isSet(index) && !binding.list) {
+                    reader.skipValue();
+                    continue;
+                }
+                GdxVDFReader.Token valueToken = reader.next();
+                if (valueToken != GdxVDFReader.Token.value && valueToken != GdxVDFReader.Token.nodeStart) break;
+                Reading nested = null;
+                try {
+                    Object value = null;
+                    if (binding.nested != null) {
+                        Plan nestedPlan = mapper.plan(binding.nested);
+                        value = nestedPlan.instantiate();
+                        if (valueToken == GdxVDFReader.Token.nodeStart) nested = new Reading(nestedPlan, value);
+                    }
+                    else if (valueToken == GdxVDFReader.Token.nodeStart) {
+                        // Values cannot be read from nodes
+                        reader.skipNode();
+                        continue;
+                    }
+                    else {
+                        scratch.name = key;
+                        scratch.set(reader.getString());
+                        if (binding.list) value = binding.element.convert(mapper, scratch);
+                        else binding.setter.set(mapper, object, scratch);
+                    }
+                    if (binding.list) {
+                        if (lists == null) lists = Plan.newLists(bindings.length);
+                        if (lists[index] == null) {
+                            lists[index] = new ArrayList<>();
+                            binding.valueSetter.set(object, lists[index]);
+                        }
+                        lists[index].add(value);
+                    }
+                    else if (binding.nested != null) {
+                        binding.valueSetter.set(object, value);
+                    }
+                }
+                catch (RuntimeException | Error e) {
+                    throw e;
+                }
+                catch (Throwable t) {
+                    throw new IllegalArgumentException("Field cannot be set: " + binding.key, t);
+                }
+                // Only once a value was set, so a node found for a value leaves a required field unbound
+                if (index < 64) seen |= 1L << index;
+                else seenMore[(index >> 6) - 1] |= 1L << index;
+                if (nested != null) return nested;
+            }
+            return null;
+        }
+
+        private boolean isSet(int index) {
+            return index < 64 ? (seen & (1L << index)) != 0 : (seenMore[(index >> 6) - 1] & (1L << index)) != 0;
+        }
+
+        void checkRequired() {
+            Binding[] bindings = plan.bindings;
+            for (int i = 0; i < bindings.length; i++) {
+                if (!isSet(i) && bindings[i].required) {
+                    throw new IllegalArgumentException("Named value not found: " + bindings[i].key);
+                }
+            }
+        }
+    }
+
+}
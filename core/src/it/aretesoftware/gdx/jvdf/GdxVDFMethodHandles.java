@@ -0,0 +1,136 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.utils.reflect.Field;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * The accessors of {@link GdxVDFMapper} based on method handles, which set fields adapted to their exact type so that
+ * primitives are never boxed. Everything the mapper needs from java.lang.invoke is kept in this class, so that
+ * platforms without it, such as GWT, can replace it through super-source with one whose {@link #AVAILABLE} is false,
+ * and the mapper then only uses libGDX reflection.
+ * @author Arete */
+final class GdxVDFMethodHandles {
+
+    /** Whether method handles are available, which they are not on older Android versions. */
+    static final boolean AVAILABLE = isAvailable();
+
+    private static final MethodHandles.Lookup LOOKUP = AVAILABLE ? MethodHandles.lookup() : null;
+
+    static GdxVDFMapper.Setter setter(Field field, GdxVDFMapper.Converter converter) {
+        MethodHandle handle;
+        try {
+            java.lang.reflect.Field javaField = field.getDeclaringClass().getDeclaredField(field.getName());
+            javaField.setAccessible(true);
+            handle = LOOKUP.unreflectSetter(javaField);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            // Inaccessible fields, such as in modules which are not open, still work through reflection
+            return GdxVDFMapper.reflectionSetter(field, converter);
+        }
+        // Primitives are converted and set without boxing
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, int.class));
+            return (mapper, target, node) -> {
+                setter.invokeExact(target, node.asInt());
+            };
+        }
+        if (type == float.class) {
+            MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, float.class));
+            return (mapper, target, node) -> {
+                setter.invokeExact(target, node.asFloat());
+            };
+        }
+        if (type == long.class) {
+            MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, long.class));
+            return (mapper, target, node) -> {
+                setter.invokeExact(target, node.asLong());
+            };
+        }
+        if (type == double.class) {
+            MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, double.class));
+            return (mapper, target, node) -> {
+                setter.invokeExact(target, node.asDouble());
+            };
+        }
+        if (type == boolean.class) {
+            MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+            return (mapper, target, node) -> {
+                setter.invokeExact(target, node.asBoolean());
+            };
+        }
+        if (type == String.class) {
+            MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, String.class));
+            return (mapper, target, node) -> {
+                setter.invokeExact(target, node.asString());
+            };
+        }
+        MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (mapper, target, node) -> {
+            setter.invokeExact(target, converter.convert(mapper, node));
+        };
+    }
+
+    static GdxVDFMapper.ValueSetter valueSetter(Field field) {
+        MethodHandle handle;
+        try {
+            java.lang.reflect.Field javaField = field.getDeclaringClass().getDeclaredField(field.getName());
+            javaField.setAccessible(true);
+            handle = LOOKUP.unreflectSetter(javaField)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return GdxVDFMapper.reflectionValueSetter(field);
+        }
+        return (target, value) -> {
+            handle.invokeExact(target, value);
+        };
+    }
+
+    static GdxVDFMapper.Instantiator instantiator(Class<?> type) {
+        MethodHandle constructor;
+        try {
+            java.lang.reflect.Constructor<?> javaConstructor = type.getDeclaredConstructor();
+            javaConstructor.setAccessible(true);
+            constructor = LOOKUP.unreflectConstructor(javaConstructor).asType(MethodType.methodType(Object.class));
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return () -> {
+                throw new IllegalArgumentException("Class cannot be instantiated: " + type.getName(), e);
+            };
+        }
+        return () -> (Object) constructor.invokeExact();
+    }
+    private static boolean isAvailable() {
+        try {
+            Class.forName("java.lang.invoke.MethodHandles");
+            return true;
+        }
+        catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private GdxVDFMethodHandles() {
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf;
+
+/**
+ * Observes parsing, writing, cache lookups and include resolution, for profilers and other tooling.
+ * <p>
+ * A single monitor is installed for the whole application with {@link #install(GdxVDFMonitor)}. Timed operations call a
+ * {@code begin} method before their work and the matching {@code end} method after it, with the object returned by
+ * {@code begin}: returning null skips the {@code end} call and every measurement it needs, so a monitor that is not
+ * interested costs a field read and a call per operation. Without an installed monitor, only the field read is left.
+ * Operations which fail do not call their {@code end} method.
+ * </p>
+ * Every method does nothing by default, and may be called from any thread.
+ * @author Arete */
+public abstract class GdxVDFMonitor {
+
+    private static volatile GdxVDFMonitor installed;
+
+    /**
+     * Installs the monitor of the application, replacing the previous one.
+     * @param monitor the monitor, or null to remove the installed one
+     */
+    public static void install(GdxVDFMonitor monitor) {
+        installed = monitor;
+    }
+
+    /**
+     * Returns the monitor of the application.
+     * @return May be null. */
+    public static GdxVDFMonitor get() {
+        return installed;
+    }
+
+    /**
+     * Called before a document is parsed by a {@link GdxVDFParser}.
+     * @return an object passed to {@link #endParse(Object, GdxVDFParseStats)}, or null to ignore this parse
+     */
+    public Object beginParse() {
+        return null;
+    }
+
+    /**
+     * Called after a document has been parsed.
+     * @param context the object returned by {@link #beginParse()}
+     * @param stats the statistics of the parse
+     */
+    public void endParse(Object context, GdxVDFParseStats stats) {
+    }
+
+    /**
+     * Called before a tree is written by {@link GdxVDFNode#toVDF()}, {@link GdxVDFNode#toVDF(java.io.Writer)} or
+     * {@link GdxVDFWriter#writeNode(GdxVDFNode)}.
+     * @return an object passed to {@link #endWrite(Object, int)}, or null to ignore this write
+     */
+    public Object beginWrite() {
+        return null;
+    }
+
+    /**
+     * Called after a tree has been written.
+     * @param context the object returned by {@link #beginWrite()}
+     * @param chars the length of the written document, or of the text appended by the writer
+     */
+    public void endWrite(Object context, int chars) {
+    }
+
+    /**
+     * Called after a {@link GdxVDFCache} looked up a document. A miss is followed by the parse of the document.
+     * @param path the path of the file, or null for a document parsed from a String
+     * @param hit whether the document was found in the cache
+     */
+    public void cacheLookup(String path, boolean hit) {
+    }
+
+    /**
+     * Called before a {@link GdxVDFIncludeLoader} resolves the directives of a file, which nests the resolution of the
+     * files it includes.
+     * @param path the path of the file
+     * @return an object passed to {@link #endInclude(Object, String, int)}, or null to ignore this resolution
+     */
+    public Object beginInclude(String path) {
+        return null;
+    }
+
+    /**
+     * Called after the directives of a file have been resolved.
+     * @param context the object returned by {@link #beginInclude(String)}
+     * @param path the path of the file
+     * @param includes the number of directives of the file
+     */
+    public void endInclude(Object context, String path, int includes) {
+    }
+
+}
@@ -19,11 +19,19 @@ package it.aretesoftware.gdx.jvdf;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Pool;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /** Container for a VDFNode.
@@ -43,7 +51,7 @@ import java.util.NoSuchElementException;
  * </pre>
  *
  * @author Nathan Sweet */
-public class GdxVDFNode {
+public class GdxVDFNode implements Pool.Poolable {
 
     private static final GdxVDFValues values = new GdxVDFValues();
 
@@ -1148,6 +1156,20 @@ public class GdxVDFNode {
         }
     }
 
+    /** Adds the specified value after the last child in constant time, for callers which keep track of it.
+     * @param last the current last child, or null if there are no children */
+    void addChildAfter (GdxVDFNode last, String name, GdxVDFNode value) {
+        value.name = name;
+        value.parent = this;
+        size++;
+        if (last == null)
+            child = value;
+        else {
+            last.next = value;
+            value.prev = last;
+        }
+    }
+
     /** Returns the next sibling of this value.
      * @return May be null. */
     public GdxVDFNode next () {
@@ -1169,6 +1191,67 @@ public class GdxVDFNode {
         return new GdxVDFIterator();
     }
 
+    /** Returns a sequential stream of the children of this value, in order. The stream is sized, and a parallel stream
+     * splits the children in halves. The children must not be added or removed while the stream is used. */
+    public Stream<GdxVDFNode> children () {
+        return StreamSupport.stream(new ChildSpliterator(child, size, null), false);
+    }
+
+    /** Returns a sequential stream of the children with the specified name, in order, without allocating a list like
+     * {@link #asArray(String)}. The children must not be added or removed while the stream is used. */
+    public Stream<GdxVDFNode> children (String name) {
+        return StreamSupport.stream(new ChildSpliterator(child, size, name), false);
+    }
+
+    /** Returns a sequential stream of every descendant of this value, not the value itself, in document order: each
+     * node comes before its children. The nodes must not be added or removed while the stream is used. */
+    public Stream<GdxVDFNode> descendants () {
+        return StreamSupport.stream(new DescendantSpliterator(child, size), false);
+    }
+
+    /** Clears the value, name, links and size of this node, so that a {@link GdxVDFNodePool} can hand it out again.
+     * Children are left untouched, use {@link GdxVDFNodePool#free(GdxVDFNode)} to return whole subtrees. */
+    @Override
+    public void reset () {
+        value = null;
+        name = null;
+        child = parent = next = prev = null;
+        size = 0;
+    }
+
+    /** Returns a deep copy of this value and its children. The copy has no parent. The tree is walked without
+     * recursion, so a tree of any depth can be copied. */
+    public GdxVDFNode copy () {
+        GdxVDFNode copy = new GdxVDFNode(value);
+        copy.name = name;
+        GdxVDFNode source = child, parent = copy, last = null;
+        while (source != null) {
+            GdxVDFNode node = new GdxVDFNode(source.value);
+            parent.addChildAfter(last, source.name, node);
+            if (source.child != null) {
+                source = source.child;
+                parent = node;
+                last = null;
+                continue;
+            }
+            last = node;
+            // Go back up past the nodes whose children are all copied
+            while (source.next == null && parent != copy) {
+                source = source.parent;
+                last = parent;
+                parent = parent.parent;
+            }
+            source = source.next;
+        }
+        return copy;
+    }
+
+    /** Returns an immutable snapshot of this value and its children, which can be read from any thread without
+     * synchronization. Later changes to this value are not reflected in the snapshot. */
+    public GdxVDFFrozenNode freeze () {
+        return GdxVDFFrozenNode.freeze(this);
+    }
+
     @Override
     public String toString() {
         if (isEmpty()) {
@@ -1187,11 +1270,44 @@ public class GdxVDFNode {
      * Returns a human readable string representing the path from the root of the VDF object graph to this value.
      */
     public String toVDF() {
-        return toVDF(this, new StringBuilder(), new StringBuilder());
+        GdxVDFMonitor monitor = GdxVDFMonitor.get();
+        Object context = monitor == null ? null : monitor.beginWrite();
+        StringBuilder builder = new StringBuilder();
+        try {
+            toVDF(this, new StringBuilder(), builder);
+        }
+        catch (IOException e) {
+            // A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        String vdf = builder.toString();
+        if (context != null) monitor.endWrite(context, vdf.length());
+        return vdf;
     }
 
-    private String toVDF(GdxVDFNode root, StringBuilder whitespace, StringBuilder builder) {
+    /**
+     * Writes the same text as {@link #toVDF()} to a writer, as the tree is walked, without holding the whole text.
+     * @param writer the writer to write to, which is neither flushed nor closed
+     * @throws IOException if the writer fails
+     */
+    public void toVDF(Writer writer) throws IOException {
+        GdxVDFMonitor monitor = GdxVDFMonitor.get();
+        Object context = monitor == null ? null : monitor.beginWrite();
+        if (context == null) {
+            toVDF(this, new StringBuilder(), writer);
+            return;
+        }
+        // The text is not held, so its length is counted as it is written
+        CountingAppendable counting = new CountingAppendable(writer);
+        toVDF(this, new StringBuilder(), counting);
+        monitor.endWrite(context, (int) Math.min(counting.chars, Integer.MAX_VALUE));
+    }
+
+    /** Writes a node and its next siblings, or the children of a root, walking the tree without recursion so that
+     * trees of any depth can be written. */
+    private void toVDF(GdxVDFNode root, StringBuilder whitespace, Appendable builder) throws IOException {
         GdxVDFNode current = root.parent != null ? root : root.child;
+        int depth = 0;
         while (current != null) {
             builder.append(whitespace);
             builder.append("\"").append(current.name).append("\"");
@@ -1200,27 +1316,31 @@ public class GdxVDFNode {
                 builder.append("\"").append(current.value).append("\"");
             }
             else {
-                GdxVDFNode child = current.child;
                 builder.append("\n");
                 builder.append(whitespace);
                 builder.append("{");
-                if (child != null) {
-                    builder.append("\n");
+                builder.append("\n");
+                if (current.child != null) {
                     whitespace.append("    ");
-                    toVDF(current.child, whitespace, builder);
-                    whitespace.setLength(whitespace.length() - 4);
-                    builder.append(whitespace);
-                }
-                else {
-                    builder.append("\n");
-                    builder.append(whitespace);
+                    current = current.child;
+                    depth++;
+                    continue;
                 }
+                builder.append(whitespace);
                 builder.append("}");
             }
             builder.append("\n");
+            // Close the nodes whose children are all written
+            while (current.next == null && depth > 0) {
+                current = current.parent;
+                depth--;
+                whitespace.setLength(whitespace.length() - 4);
+                builder.append(whitespace);
+                builder.append("}");
+                builder.append("\n");
+            }
             current = current.next;
         }
-        return builder.toString();
     }
 
 
@@ -1259,4 +1379,170 @@ public class GdxVDFNode {
         }
     }
 
+    /** Counts the characters appended to a writer. */
+    private static final class CountingAppendable implements Appendable {
+        private final Appendable out;
+        long chars;
+
+        CountingAppendable(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence sequence) throws IOException {
+            if (sequence == null) sequence = "null";
+            out.append(sequence);
+            chars += sequence.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence sequence, int start, int end) throws IOException {
+            out.append(sequence, start, end);
+            chars += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            chars++;
+            return this;
+        }
+    }
+
+    /** Spliterates a range of siblings, optionally only the ones with a name. Splits walk half of the range. */
+    private static final class ChildSpliterator implements Spliterator<GdxVDFNode> {
+        private GdxVDFNode node;
+        private int remaining;
+        private final String name;
+
+        ChildSpliterator (GdxVDFNode first, int count, String name) {
+            this.node = first;
+            this.remaining = count;
+            this.name = name;
+        }
+
+        @Override
+        public boolean tryAdvance (Consumer<? super GdxVDFNode> action) {
+            while (remaining > 0 && node != null) {
+                GdxVDFNode current = node;
+                node = node.next;
+                remaining--;
+                if (name == null || name.equalsIgnoreCase(current.name)) {
+                    action.accept(current);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining (Consumer<? super GdxVDFNode> action) {
+            GdxVDFNode current = node;
+            int count = remaining;
+            node = null;
+            remaining = 0;
+            for (; count > 0 && current != null; count--, current = current.next) {
+                if (name == null || name.equalsIgnoreCase(current.name)) action.accept(current);
+            }
+        }
+
+        @Override
+        public Spliterator<GdxVDFNode> trySplit () {
+            if (remaining < 2) return null;
+            int half = remaining / 2;
+            GdxVDFNode first = node;
+            for (int i = 0; i < half; i++) node = node.next;
+            remaining -= half;
+            return new ChildSpliterator(first, half, name);
+        }
+
+        /** Exact without a name, an upper bound otherwise. */
+        @Override
+        public long estimateSize () {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics () {
+            return name == null ? ORDERED | NONNULL | SIZED | SUBSIZED : ORDERED | NONNULL;
+        }
+    }
+
+    /** Spliterates a range of siblings and their descendants in document order, walking down and up the links. */
+    private static final class DescendantSpliterator implements Spliterator<GdxVDFNode> {
+        private GdxVDFNode node;
+        private int remaining, depth;
+
+        DescendantSpliterator (GdxVDFNode first, int count) {
+            this.node = first;
+            this.remaining = count;
+        }
+
+        @Override
+        public boolean tryAdvance (Consumer<? super GdxVDFNode> action) {
+            if (remaining == 0 || node == null) return false;
+            GdxVDFNode current = node;
+            advance();
+            action.accept(current);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining (Consumer<? super GdxVDFNode> action) {
+            while (remaining > 0 && node != null) {
+                GdxVDFNode current = node;
+                advance();
+                action.accept(current);
+            }
+        }
+
+        /** Moves to the next node in document order, counting the siblings of the range left. */
+        private void advance () {
+            if (node.child != null) {
+                node = node.child;
+                depth++;
+                return;
+            }
+            while (depth > 0 && node.next == null) {
+                node = node.parent;
+                depth--;
+            }
+            if (depth == 0 && --remaining == 0) node = null;
+            else node = node.next;
+        }
+
+        /** Splits between siblings of the range, or between its single node and the children of that node, and only
+         * before the walk goes down into them. */
+        @Override
+        public Spliterator<GdxVDFNode> trySplit () {
+            if (depth > 0 || node == null) return null;
+            if (remaining >= 2) {
+                int half = remaining / 2;
+                GdxVDFNode first = node;
+                for (int i = 0; i < half; i++) node = node.next;
+                remaining -= half;
+                return new DescendantSpliterator(first, half);
+            }
+            if (node.child == null) return null;
+            GdxVDFNode first = node;
+            node = first.child;
+            remaining = first.size;
+            return new ChildSpliterator(first, 1, null);
+        }
+
+        /** Guesses that the siblings of the range have as many children as the next one, ignoring deeper levels. */
+        @Override
+        public long estimateSize () {
+            if (node == null) return 0;
+            return depth > 0 ? remaining + (long)node.size : remaining * (1L + node.size);
+        }
+
+        @Override
+        public int characteristics () {
+            return ORDERED | NONNULL;
+        }
+    }
+
 }
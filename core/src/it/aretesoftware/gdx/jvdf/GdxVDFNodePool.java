@@ -0,0 +1,122 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A pool of {@link GdxVDFNode}, for applications parsing and discarding many short-lived trees.
+ * <p>
+ * A parser given a pool with {@link GdxVDFParser#setPool(GdxVDFNodePool)} obtains the nodes of its trees from it, and
+ * {@link #free(GdxVDFNode)} returns a whole tree once it is no longer used. Nodes of a freed tree must not be used
+ * anymore, while the strings read from them stay valid.
+ * </p>
+ * Like every libGDX pool, a pool is not thread-safe: it belongs to the thread which created it, and obtaining or freeing
+ * nodes from another thread fails with an {@link IllegalStateException}. A parser shared by several threads only uses
+ * the pool on its owner thread, and allocates nodes as usual on the others.
+ * @author Arete */
+public class GdxVDFNodePool extends Pool<GdxVDFNode> {
+
+    private final Thread owner = Thread.currentThread();
+
+    /**
+     * Initializes the pool, owned by the current thread.
+     * @param initialCapacity the initial number of free nodes the pool can hold without growing
+     * @param max the maximum number of free nodes, further freed nodes are left to the garbage collector
+     */
+    public GdxVDFNodePool(int initialCapacity, int max) {
+        super(initialCapacity, max);
+    }
+
+    /**
+     * Initializes the pool without a maximum number of free nodes, owned by the current thread.
+     */
+    public GdxVDFNodePool() {
+        this(64, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected GdxVDFNode newObject() {
+        return new GdxVDFNode();
+    }
+
+    /** Returns the thread this pool belongs to. */
+    public Thread getOwner() {
+        return owner;
+    }
+
+    /** Returns whether the current thread is the one this pool belongs to. */
+    public boolean isOwner() {
+        return Thread.currentThread() == owner;
+    }
+
+    @Override
+    public GdxVDFNode obtain() {
+        checkOwner();
+        return super.obtain();
+    }
+
+    /**
+     * Returns a node and all of its descendants to the pool, removing it from its parent first. Deep trees are freed
+     * without recursion.
+     * @param node the root of the subtree to free
+     */
+    @Override
+    public void free(GdxVDFNode node) {
+        if (node == null) throw new IllegalArgumentException("node cannot be null.");
+        checkOwner();
+        if (node.parent != null) node.remove();
+        node.parent = node.next = node.prev = null;
+
+        // Frees every node after its children, climbing back through the parent of the last freed child
+        GdxVDFNode current = node;
+        while (true) {
+            while (current.child != null) {
+                current = current.child;
+            }
+            GdxVDFNode next = current.next, parent = current.parent;
+            super.free(current);
+            if (current == node) return;
+            if (next != null) {
+                current = next;
+            }
+            else {
+                parent.child = null;
+                current = parent;
+            }
+        }
+    }
+
+    /**
+     * Returns several subtrees to the pool, like {@link #free(GdxVDFNode)}.
+     */
+    @Override
+    public void freeAll(Array<GdxVDFNode> nodes) {
+        for (int i = 0; i < nodes.size; i++) {
+            free(nodes.get(i));
+        }
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner)
+            throw new IllegalStateException("The pool belongs to thread " + owner.getName() + ", not to "
+                    + Thread.currentThread().getName());
+    }
+
+}
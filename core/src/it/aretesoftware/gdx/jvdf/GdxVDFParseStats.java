@@ -0,0 +1,164 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf;
+
+/**
+ * Statistics about one or more parses of a {@link GdxVDFParser}.
+ * <p>
+ * Statistics are only collected when asked for, either per parse with
+ * {@link GdxVDFParser#parse(String, GdxVDFParseStats)} or for every parse of a parser with
+ * {@link GdxVDFParser#setCollectStats(boolean)}. When neither is used, the parser only checks a flag per parse and per
+ * entry. Tokenizing and building the tree happen in the same pass over the document, so they are timed together.
+ * Entries are counted as they are parsed, including the ones dropped by conditional tags.
+ * </p>
+ * Byte sizes are estimates, based on the same rough object sizes used by {@link GdxVDFCache}. Instances are not
+ * thread-safe; the statistics returned by {@link GdxVDFParser#getStats()} are a snapshot.
+ * @author Arete */
+public class GdxVDFParseStats {
+
+    long parses;
+    long preprocessNanos, parseNanos;
+    long chars, processedChars;
+    long nodes, values;
+    int maxDepth, widestNode;
+    long duplicateKeys;
+    long retainedBytes, temporaryBytes;
+
+    /** Returns how many documents these statistics cover. */
+    public long getParses() {
+        return parses;
+    }
+
+    /** Returns the time spent splitting documents into lines and stripping comments and whitespaces. */
+    public long getPreprocessNanos() {
+        return preprocessNanos;
+    }
+
+    /** Returns the time spent tokenizing the preprocessed documents and building their trees. */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /** Returns the total time spent parsing. */
+    public long getTotalNanos() {
+        return preprocessNanos + parseNanos;
+    }
+
+    /** Returns the number of characters of the input documents. */
+    public long getChars() {
+        return chars;
+    }
+
+    /** Returns the number of characters left after preprocessing, which were tokenized. */
+    public long getProcessedChars() {
+        return processedChars;
+    }
+
+    /** Returns the number of subnodes, not counting the roots. */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /** Returns the number of key/values. */
+    public long getValues() {
+        return values;
+    }
+
+    /** Returns the deepest nesting of subnodes, 0 for documents with only key/values. */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** Returns the largest number of children of a single node, roots included. */
+    public int getWidestNode() {
+        return widestNode;
+    }
+
+    /** Returns how many keys repeat, ignoring case, a key of a previous sibling. */
+    public long getDuplicateKeys() {
+        return duplicateKeys;
+    }
+
+    /** Returns the estimated size of the parsed trees, in bytes. */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /** Returns the estimated size of the lines, buffers and strings thrown away while parsing, in bytes. */
+    public long getTemporaryBytes() {
+        return temporaryBytes;
+    }
+
+    /**
+     * Adds other statistics to these: counts and times are summed, depth and width keep their maximum.
+     * @return this, for chaining
+     */
+    public GdxVDFParseStats add(GdxVDFParseStats other) {
+        parses += other.parses;
+        preprocessNanos += other.preprocessNanos;
+        parseNanos += other.parseNanos;
+        chars += other.chars;
+        processedChars += other.processedChars;
+        nodes += other.nodes;
+        values += other.values;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        widestNode = Math.max(widestNode, other.widestNode);
+        duplicateKeys += other.duplicateKeys;
+        retainedBytes += other.retainedBytes;
+        temporaryBytes += other.temporaryBytes;
+        return this;
+    }
+
+    /** Clears every statistic, so the instance can be reused. */
+    public void reset() {
+        parses = preprocessNanos = parseNanos = chars = processedChars = nodes = values = duplicateKeys = 0;
+        retainedBytes = temporaryBytes = 0;
+        maxDepth = widestNode = 0;
+    }
+
+    /** Counts a key/value added to the tree. */
+    void value(String key, String value) {
+        values++;
+        retainedBytes += GdxVDFCache.NODE_BYTES + bytes(key) + bytes(value);
+    }
+
+    /** Counts a subnode added to the tree, at a depth starting from 1. */
+    void node(String key, int depth) {
+        nodes++;
+        retainedBytes += GdxVDFCache.NODE_BYTES + bytes(key);
+        if (depth > maxDepth) maxDepth = depth;
+    }
+
+    /** Measures a node whose children are complete. */
+    void closed(GdxVDFNode node) {
+        if (node.size > widestNode) widestNode = node.size;
+    }
+
+    static long bytes(String string) {
+        return GdxVDFCache.STRING_BYTES + 2L * string.length();
+    }
+
+    @Override
+    public String toString() {
+        return parses + " parses, " + (preprocessNanos / 1000000f) + " ms preprocessing, " + (parseNanos / 1000000f)
+                + " ms parsing, " + chars + " chars (" + processedChars + " processed), " + nodes + " nodes, " + values
+                + " values, max depth " + maxDepth + ", widest node " + widestNode + ", " + duplicateKeys
+                + " duplicate keys, ~" + retainedBytes + " bytes retained, ~" + temporaryBytes + " bytes temporary";
+    }
+
+}
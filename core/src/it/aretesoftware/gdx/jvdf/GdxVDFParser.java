@@ -16,19 +16,67 @@ limitations under the License.
 
 package it.aretesoftware.gdx.jvdf;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
 /**
  * Parses VDF documents into iterable tree structures.
+ * <p>
+ * A parser can be shared by any number of threads, as long as its conditionals are not modified meanwhile. Each
+ * thread reuses its own parser state and buffers, so parsing a small document allocates little more than its tree:
+ * documents up to {@link #SEQUENTIAL_CHARS} characters are preprocessed into a reused buffer on the calling thread,
+ * longer ones and arrays of lines are preprocessed by {@link GdxVDFPreprocessor#process(String[])}, and documents read
+ * from a {@link Reader} are preprocessed and parsed one line at a time. The reused buffer is only used with
+ * {@link GdxVDFPreprocessor} itself: subclasses have {@link GdxVDFPreprocessor#process(String)} and
+ * {@link GdxVDFPreprocessor#process(String[])} called as usual, and readers go through
+ * {@link GdxVDFPreprocessor#processLine(String)}.
+ * </p>
+ * <p>
+ * Parsing does not recurse, so documents nested tens of thousands of levels deep parse like any other. To ingest
+ * untrusted documents, {@link #setMaxDepth(int)} and {@link #setMaxSize(int)} bound the trees they can build.
+ * </p>
  * @author Brendan Heinonen */
 public class GdxVDFParser {
 
+    /** The length up to which documents are preprocessed on the calling thread into reused buffers, in characters. */
+    public static final int SEQUENTIAL_CHARS = 1 << 16;
+
     private final GdxVDFPreprocessor preprocessor;
+    private final GdxVDFConditionals conditionals;
+
+    private volatile boolean collectStats;
+    private final GdxVDFParseStats stats = new GdxVDFParseStats();
+
+    private volatile GdxVDFNodePool pool;
+    private volatile int maxDepth, maxSize;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Initializes the VDFParser with a specific preprocessor and evaluator of conditional tags
+     * @param preprocessor the preprocessor to process input strings with
+     * @param conditionals the evaluator of conditional tags, or null to keep every entry regardless of its conditional
+     */
+    public GdxVDFParser(GdxVDFPreprocessor preprocessor, GdxVDFConditionals conditionals) {
+        this.preprocessor = preprocessor;
+        this.conditionals = conditionals;
+    }
 
     /**
      * Initializes the VDFParser with a specific preprocessor
      * @param preprocessor the preprocessor to process input strings with
      */
     public GdxVDFParser(GdxVDFPreprocessor preprocessor) {
-        this.preprocessor = preprocessor;
+        this(preprocessor, null);
+    }
+
+    /**
+     * Initializes the VDFParser with the default preprocessor (VDFPreprocessor), dropping the entries whose
+     * conditional tags evaluate to false
+     * @param conditionals the evaluator of conditional tags
+     */
+    public GdxVDFParser(GdxVDFConditionals conditionals) {
+        this(new GdxVDFPreprocessor(), conditionals);
     }
 
     /**
@@ -38,13 +86,36 @@ public class GdxVDFParser {
         this(new GdxVDFPreprocessor());
     }
 
+    /**
+     * Returns the evaluator of conditional tags used by this parser.
+     * @return May be null. */
+    public GdxVDFConditionals getConditionals() {
+        return conditionals;
+    }
+
     /**
      * Parses a VDF document.
      * @param vdf the VDF document to parse
      * @return a VDFNode which represents the root of the VDF document
      */
     public GdxVDFNode parse(String vdf) {
-        return parse(vdf.split("\\n"));
+        return parse(vdf, null);
+    }
+
+    /**
+     * Parses a VDF document, adding statistics about the parse to the given ones.
+     * @param vdf the VDF document to parse
+     * @param stats the statistics to add to, or null
+     * @return a VDFNode which represents the root of the VDF document
+     */
+    public GdxVDFNode parse(String vdf, GdxVDFParseStats stats) {
+        GdxVDFMonitor monitor = GdxVDFMonitor.get();
+        Object context = monitor == null ? null : monitor.beginParse();
+        if (stats == null && !collectStats && context == null) return parse(vdf, null, null, 0);
+        long start = System.nanoTime();
+        GdxVDFParseStats parse = new GdxVDFParseStats();
+        parse.chars = vdf.length();
+        return parse(vdf, null, parse, start, stats, monitor, context);
     }
 
     /**
@@ -53,11 +124,221 @@ public class GdxVDFParser {
      * @return a VDFNode which represents the node of the VDF document
      */
     public GdxVDFNode parse(String[] vdf) {
-        String processed = preprocessor.process(vdf);
-        GdxVDFParserState state = new GdxVDFParserState();
+        return parse(vdf, null);
+    }
 
-        char[] arr = processed.toCharArray();
-        for(char c : arr) {
+    /**
+     * Parses a VDF document, adding statistics about the parse to the given ones.
+     * @param vdf an array of lines representing a VDF document to parse
+     * @param stats the statistics to add to, or null
+     * @return a VDFNode which represents the node of the VDF document
+     */
+    public GdxVDFNode parse(String[] vdf, GdxVDFParseStats stats) {
+        GdxVDFMonitor monitor = GdxVDFMonitor.get();
+        Object context = monitor == null ? null : monitor.beginParse();
+        if (stats == null && !collectStats && context == null) return parse(null, vdf, null, 0);
+        long start = System.nanoTime();
+        GdxVDFParseStats parse = new GdxVDFParseStats();
+        parse.chars = Math.max(vdf.length - 1, 0);
+        for (String line : vdf) {
+            parse.chars += line.length();
+        }
+        return parse(null, vdf, parse, start, stats, monitor, context);
+    }
+
+    /**
+     * Parses a VDF document read from a reader, which is not closed.
+     * @param reader the VDF document to parse
+     * @return a VDFNode which represents the root of the VDF document
+     * @throws IOException if the reader fails
+     */
+    public GdxVDFNode parse(Reader reader) throws IOException {
+        return parse(reader, null);
+    }
+
+    /**
+     * Parses a VDF document read from a reader, which is not closed, adding statistics about the parse to the given
+     * ones. The document is read, preprocessed and parsed one line at a time, so its text is never held in full; the
+     * maximum size is checked as lines are read.
+     * @param reader the VDF document to parse
+     * @param stats the statistics to add to, or null
+     * @return a VDFNode which represents the root of the VDF document
+     * @throws IOException if the reader fails
+     */
+    public GdxVDFNode parse(Reader reader, GdxVDFParseStats stats) throws IOException {
+        GdxVDFMonitor monitor = GdxVDFMonitor.get();
+        Object context = monitor == null ? null : monitor.beginParse();
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        if (stats == null && !collectStats && context == null) return parse(lines, null);
+        GdxVDFParseStats parse = new GdxVDFParseStats();
+        GdxVDFNode root = parse(lines, parse);
+        report(parse, stats, monitor, context);
+        return root;
+    }
+
+    /**
+     * Parses a VDF document collecting its statistics, then hands them to the given statistics, to the ones of this
+     * parser if enabled, and to the monitor if it observes this parse.
+     */
+    private GdxVDFNode parse(String vdf, String[] lines, GdxVDFParseStats parse, long start, GdxVDFParseStats stats,
+                             GdxVDFMonitor monitor, Object context) {
+        GdxVDFNode root = parse(vdf, lines, parse, start);
+        report(parse, stats, monitor, context);
+        return root;
+    }
+
+    /** Hands the statistics of a parse to the given statistics, to the ones of this parser and to the monitor. */
+    private void report(GdxVDFParseStats parse, GdxVDFParseStats stats, GdxVDFMonitor monitor, Object context) {
+        parse.parses = 1;
+        if (stats != null) stats.add(parse);
+        if (collectStats) {
+            synchronized (this.stats) {
+                this.stats.add(parse);
+            }
+        }
+        if (context != null) monitor.endParse(context, parse);
+    }
+
+    /**
+     * Parses a VDF document, given either as a String or as lines, filling the statistics of this parse if they are
+     * not null.
+     */
+    private GdxVDFNode parse(String vdf, String[] lines, GdxVDFParseStats stats, long start) {
+        checkSize(vdf, lines);
+        Buffers buffers = this.buffers.get();
+        // A parse started by a monitor or a conditional while this thread is parsing gets its own buffers
+        if (buffers.busy) buffers = new Buffers();
+        buffers.busy = true;
+        GdxVDFParserState state = buffers.state;
+        try {
+            char[] chars;
+            int length;
+            // The reused buffer is filled by GdxVDFPreprocessor itself, subclasses see their overrides called as before
+            boolean reuse = lines == null && vdf.length() <= SEQUENTIAL_CHARS
+                    && preprocessor.getClass() == GdxVDFPreprocessor.class;
+            if (reuse) {
+                StringBuilder processed = buffers.processed;
+                processed.setLength(0);
+                preprocessor.process(vdf, processed);
+                length = processed.length();
+                if (buffers.chars.length < length) buffers.chars = new char[Math.max(length, buffers.chars.length * 2)];
+                chars = buffers.chars;
+                processed.getChars(0, length, chars, 0);
+            }
+            else {
+                chars = (lines == null ? preprocessor.process(vdf) : preprocessor.process(lines)).toCharArray();
+                length = chars.length;
+            }
+
+            GdxVDFNodePool pool = this.pool;
+            if (pool != null && !pool.isOwner()) pool = null;
+            state.reset(pool == null ? new GdxVDFNode() : pool.obtain(), conditionals, pool, maxDepth);
+            long tokenize = 0;
+            if (stats != null) {
+                tokenize = System.nanoTime();
+                stats.preprocessNanos = tokenize - start;
+                state.collectStats(stats);
+            }
+
+            feed(state, chars, 0, length);
+            state.endParse();
+
+            if (stats != null) {
+                stats.parseNanos = System.nanoTime() - tokenize;
+                stats.processedChars = length;
+                // Short documents reuse the buffers of the thread, long ones go through lines, a String and an array
+                long lineCount = lines != null ? lines.length : 1;
+                for (int i = 0; lines == null && !reuse && i < vdf.length(); i++) {
+                    if (vdf.charAt(i) == '\n') lineCount++;
+                }
+                stats.temporaryBytes = reuse ? 0 : lineCount * (GdxVDFCache.REFERENCE_BYTES
+                        + 2L * GdxVDFCache.STRING_BYTES) + 2 * stats.chars + 8 * stats.processedChars;
+                stats.retainedBytes += GdxVDFCache.NODE_BYTES;
+            }
+            return state.root();
+        }
+        finally {
+            state.release();
+            buffers.release();
+        }
+    }
+
+    /**
+     * Parses a VDF document line by line, filling the statistics of this parse if they are not null. Processed lines
+     * are separated by a space, as {@link GdxVDFPreprocessor#process(String[])} joins them.
+     */
+    private GdxVDFNode parse(BufferedReader reader, GdxVDFParseStats stats) throws IOException {
+        int maxSize = this.maxSize;
+        Buffers buffers = this.buffers.get();
+        if (buffers.busy) buffers = new Buffers();
+        buffers.busy = true;
+        GdxVDFParserState state = buffers.state;
+        try {
+            GdxVDFNodePool pool = this.pool;
+            if (pool != null && !pool.isOwner()) pool = null;
+            state.reset(pool == null ? new GdxVDFNode() : pool.obtain(), conditionals, pool, maxDepth);
+            if (stats != null) state.collectStats(stats);
+
+            long chars = -1, processedChars = 0, lineCount = 0, time = stats == null ? 0 : System.nanoTime();
+            boolean separate = false;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                chars += line.length() + 1;
+                lineCount++;
+                if (maxSize > 0 && chars > maxSize) {
+                    throw new GdxVDFParseException("The document is longer than " + maxSize + " characters.");
+                }
+                String processed = preprocessor.processLine(line);
+                long now = 0;
+                if (stats != null) {
+                    now = System.nanoTime();
+                    stats.preprocessNanos += now - time;
+                }
+                if (processed != null && processed.length() > 0) {
+                    int length = processed.length() + 1;
+                    if (buffers.chars.length < length) {
+                        buffers.chars = new char[Math.max(length, buffers.chars.length * 2)];
+                    }
+                    char[] buffer = buffers.chars;
+                    int start = separate ? 0 : 1;
+                    buffer[0] = ' ';
+                    processed.getChars(0, length - 1, buffer, 1);
+                    feed(state, buffer, start, length);
+                    processedChars += length - start;
+                    separate = true;
+                }
+                if (stats != null) {
+                    time = System.nanoTime();
+                    stats.parseNanos += time - now;
+                }
+            }
+            state.endParse();
+
+            if (stats != null) {
+                stats.chars = Math.max(chars, 0);
+                stats.processedChars = processedChars;
+                // Each line is read into a String, then preprocessed into another one
+                stats.temporaryBytes = lineCount * 2L * GdxVDFCache.STRING_BYTES + 2 * stats.chars + 2 * processedChars;
+                stats.retainedBytes += GdxVDFCache.NODE_BYTES;
+            }
+            return state.root();
+        }
+        finally {
+            state.release();
+            buffers.release();
+        }
+    }
+
+    /** Hands the characters of a preprocessed document to the parser state. */
+    private static void feed(GdxVDFParserState state, char[] chars, int start, int end) {
+        for(int i = start; i < end; i++) {
+            char c = chars[i];
+            if(state.inCondition()) {
+                if(c == ']')
+                    state.endCondition();
+                else
+                    state.conditionCharacter(c);
+                continue;
+            }
             switch (c) {
                 case '"':
                     state.quote();
@@ -74,15 +355,141 @@ public class GdxVDFParser {
                 case '}':
                     state.endSubNode();
                     break;
+                case '[':
+                    state.beginCondition();
+                    break;
                 default:
                     state.character(c);
                     break;
             }
         }
-        state.endParse();
+    }
+
+    /** Rejects a document longer than the maximum size, before anything is allocated for it. */
+    private void checkSize(String vdf, String[] lines) {
+        int maxSize = this.maxSize;
+        if (maxSize <= 0) return;
+        long length;
+        if (lines == null) {
+            length = vdf.length();
+        }
+        else {
+            length = Math.max(lines.length - 1, 0);
+            for (int i = 0; i < lines.length && length <= maxSize; i++) {
+                length += lines[i].length();
+            }
+        }
+        if (length > maxSize) {
+            throw new GdxVDFParseException("The document is longer than " + maxSize + " characters.");
+        }
+    }
+
+    /**
+     * Sets the deepest nesting of subnodes a document may have, so that untrusted documents cannot build arbitrarily
+     * deep trees. Deeper documents fail with a {@link GdxVDFParseException}. There is no limit by default.
+     * @param maxDepth the number of levels below the root, or 0 for no limit
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0) throw new IllegalArgumentException("maxDepth cannot be negative: " + maxDepth);
+        this.maxDepth = maxDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets the length a document may have, so that untrusted documents cannot use arbitrary amounts of memory. Longer
+     * documents fail with a {@link GdxVDFParseException} before they are preprocessed. There is no limit by default.
+     * @param maxSize the number of characters, counting line breaks between lines, or 0 for no limit
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize cannot be negative: " + maxSize);
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the pool the nodes of parsed trees are obtained from, on the thread owning the pool. Other threads allocate
+     * nodes as usual. Trees are returned to the pool with {@link #free(GdxVDFNode)}.
+     * <p>
+     * While a pool is set, short keys and values equal to recently parsed ones share the same String, so that parsing
+     * similar small documents in a loop allocates almost nothing once the pool is warm.
+     * </p>
+     * @param pool the pool, or null to allocate nodes
+     */
+    public void setPool(GdxVDFNodePool pool) {
+        this.pool = pool;
+    }
+
+    /** @return May be null. */
+    public GdxVDFNodePool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns a tree to the pool of this parser, when the current thread owns it. Does nothing otherwise, leaving the
+     * tree to the garbage collector. The tree must not be used anymore.
+     * @param tree the root of a parsed tree, or any of its subnodes
+     */
+    public void free(GdxVDFNode tree) {
+        GdxVDFNodePool pool = this.pool;
+        if (pool != null && pool.isOwner()) pool.free(tree);
+    }
+
+    /**
+     * Sets whether every parse adds its statistics to the ones of this parser, returned by {@link #getStats()}.
+     * Collecting statistics is disabled by default.
+     */
+    public void setCollectStats(boolean collectStats) {
+        this.collectStats = collectStats;
+    }
+
+    public boolean isCollectStats() {
+        return collectStats;
+    }
+
+    /**
+     * Returns the statistics of every parse since they were collected or reset.
+     * @return a snapshot, which is not updated by later parses
+     */
+    public GdxVDFParseStats getStats() {
+        synchronized (stats) {
+            return new GdxVDFParseStats().add(stats);
+        }
+    }
 
-        return state.root();
+    /** Clears the statistics collected by this parser. */
+    public void resetStats() {
+        synchronized (stats) {
+            stats.reset();
+        }
     }
 
+    /** The parser state and buffers reused by the parses of a thread. */
+    private static final class Buffers {
+        final GdxVDFParserState state = new GdxVDFParserState();
+        StringBuilder processed = new StringBuilder(256);
+        char[] chars = new char[256];
+        boolean busy;
+
+        /**
+         * Ends a parse, shrinking the buffers grown by a long document or line, so that the thread does not keep them.
+         * Buffers are shrunk to {@link GdxVDFParserState#MAX_RETAINED_BUFFER} rather than their initial size, which
+         * holds any document short enough to be preprocessed on the calling thread.
+         */
+        void release() {
+            if (chars.length > GdxVDFParserState.MAX_RETAINED_BUFFER) {
+                chars = new char[GdxVDFParserState.MAX_RETAINED_BUFFER];
+            }
+            if (processed.capacity() > GdxVDFParserState.MAX_RETAINED_BUFFER) {
+                processed = new StringBuilder(GdxVDFParserState.MAX_RETAINED_BUFFER);
+            }
+            busy = false;
+        }
+    }
 
 }
@@ -16,7 +16,11 @@ limitations under the License.
 
 package it.aretesoftware.gdx.jvdf;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * Holds the internal state of the VDF parser.
@@ -24,18 +28,43 @@ import java.util.Stack;
  * modified by Arete */
 public class GdxVDFParserState {
 
+    /**
+     * The largest token buffer kept by a state which is reused, in characters.
+     */
+    static final int MAX_RETAINED_BUFFER = 1 << 16;
+
+    /**
+     * The longest token shared between entries when nodes are pooled, in characters.
+     */
+    static final int MAX_SHARED_LENGTH = 32;
+
     /**
      * The root node is the base of the VDF document.  All subnodes are children of the root node.
      */
-    private final GdxVDFNode rootNode;
+    private GdxVDFNode rootNode;
 
     /**
      * Since a VDF document can have a virtually unlimited amount of subnodes, we use a stack datastructure to represent
      * the level of subnodes the parser state is currently at. When we enter a subnode, a new VDFNode is pushed to the
      * top of the stack.  As we leave subnodes, the stack is popped.  The bottom of the stack should always point to
-     * the root node.
+     * the root node. The stack is an array indexed by depth, so that pushing and popping needs no synchronization.
+     */
+    private GdxVDFNode[] childStack = new GdxVDFNode[16];
+
+    /**
+     * The last child of each node on the stack, so that children are appended without walking their siblings.
+     */
+    private GdxVDFNode[] lastChildren = new GdxVDFNode[16];
+
+    /**
+     * The index of the top of the stack.
+     */
+    private int depth;
+
+    /**
+     * The deepest nesting of subnodes allowed, or 0 for no limit.
      */
-    private final Stack<GdxVDFNode> childStack = new Stack<>();
+    private int maxDepth;
 
     /**
      * This flag represents if the parser is currently iterating over a character preceded with an open quote. Since
@@ -69,13 +98,67 @@ public class GdxVDFParserState {
      */
     private final StringBuilder currentString = new StringBuilder();
 
+    /**
+     * The evaluator of conditional tags, or null to keep every entry regardless of its conditional.
+     */
+    private GdxVDFConditionals conditionals;
+
+    /**
+     * This flag represents if the parser is currently inside a conditional tag, such as [$WIN32].
+     */
+    private boolean conditionState = false;
+
+    /**
+     * Buffer holding the expression of the current conditional tag.
+     */
+    private final StringBuilder currentCondition = new StringBuilder();
+
+    /**
+     * The last key/value or subnode completed at the current level, which a following conditional applies to.
+     */
+    private GdxVDFNode lastEntry;
+
+    /**
+     * This flag represents if the next value or subnode was rejected by a conditional, and must not be added to the tree.
+     */
+    private boolean discardEntry = false;
+
+    /**
+     * The statistics filled while parsing, or null when they are not collected.
+     */
+    private GdxVDFParseStats stats;
+
+    /**
+     * When collecting statistics, the lowercase keys seen so far at each level of the stack, to count duplicate keys.
+     */
+    private ArrayList<Set<String>> levelKeys;
+
+    /**
+     * The pool nodes are obtained from, or null to allocate them.
+     */
+    private GdxVDFNodePool pool;
+
+    /**
+     * When nodes are pooled, the last short tokens seen by this state indexed by their hash, so that keys and values
+     * repeated across entries and documents share a single String. Kept between parses.
+     */
+    private String[] tokens;
+
+    /**
+     * Initializes the parser state with a starting root node and an evaluator of conditional tags.
+     * @param root an existing root node
+     * @param conditionals the evaluator of conditional tags, or null to keep every entry
+     */
+    public GdxVDFParserState(GdxVDFNode root, GdxVDFConditionals conditionals) {
+        reset(root, conditionals, null, 0);
+    }
+
     /**
      * Initializes the parser state with a starting root node.
      * @param root an existing root node
      */
     public GdxVDFParserState(GdxVDFNode root) {
-        this.rootNode = root;
-        this.childStack.push(root);
+        this(root, null);
     }
 
     /**
@@ -86,6 +169,67 @@ public class GdxVDFParserState {
     }
 
 
+    /**
+     * Prepares the state to parse another document, keeping the buffers it has already grown.
+     * @param root an existing root node
+     * @param conditionals the evaluator of conditional tags, or null to keep every entry
+     * @param pool the pool to obtain nodes from and free dropped nodes to, or null to allocate them
+     * @param maxDepth the deepest nesting of subnodes allowed, or 0 for no limit
+     */
+    void reset(GdxVDFNode root, GdxVDFConditionals conditionals, GdxVDFNodePool pool, int maxDepth) {
+        this.rootNode = root;
+        this.conditionals = conditionals;
+        this.pool = pool;
+        this.maxDepth = maxDepth;
+        if (pool != null && tokens == null) tokens = new String[256];
+        GdxVDFNode last = root.child;
+        while (last != null && last.next != null) last = last.next;
+        childStack[0] = root;
+        lastChildren[0] = last;
+        depth = 0;
+        quoteState = escapePending = valuePending = nullString = conditionState = discardEntry = false;
+        keyName = "";
+        currentString.setLength(0);
+        currentCondition.setLength(0);
+        lastEntry = null;
+        stats = null;
+        levelKeys = null;
+    }
+
+    /**
+     * Drops every reference to the parsed document, so that a reused state does not retain it, and shrinks buffers
+     * grown by an unusually long token or deep document.
+     */
+    void release() {
+        if (childStack.length > MAX_RETAINED_BUFFER) {
+            childStack = new GdxVDFNode[16];
+            lastChildren = new GdxVDFNode[16];
+        }
+        else {
+            Arrays.fill(childStack, 0, depth + 1, null);
+            Arrays.fill(lastChildren, 0, depth + 1, null);
+        }
+        rootNode = null;
+        lastEntry = null;
+        pool = null;
+        stats = null;
+        levelKeys = null;
+        if (currentString.capacity() > MAX_RETAINED_BUFFER) {
+            currentString.setLength(0);
+            currentString.trimToSize();
+        }
+    }
+
+    /**
+     * Starts collecting statistics about the entries added to the tree.
+     * @param stats the statistics to fill
+     */
+    void collectStats(GdxVDFParseStats stats) {
+        this.stats = stats;
+        this.levelKeys = new ArrayList<>();
+        this.levelKeys.add(new HashSet<>());
+    }
+
     /**
      * Returns the root VDFNode for this parser state.
      * @return the VDFNode representing the root of the VDF document
@@ -99,7 +243,7 @@ public class GdxVDFParserState {
      * @return the VDFNode that the parser is currently writing key/values to
      */
     public GdxVDFNode current() {
-        return childStack.peek();
+        return childStack[depth];
     }
 
     /**
@@ -146,12 +290,23 @@ public class GdxVDFParserState {
             // If valuePending was toggled to false, the last
             if(valuePending) {
                 // Store the key name
-                keyName = currentString.toString();
+                keyName = token();
                 //System.out.println(keyName);
             } else {
-                // add a child
-                GdxVDFNode node = new GdxVDFNode(currentString.toString());
-                current().addChild(keyName, node);
+                // add a child, unless a conditional between the key and the value rejected it
+                String value = token();
+                if (discardEntry) {
+                    discardEntry = false;
+                    lastEntry = null;
+                } else {
+                    GdxVDFNode node = newNode(value);
+                    append(node);
+                    lastEntry = node;
+                }
+                if (stats != null) {
+                    stats.value(keyName, value);
+                    countKey();
+                }
             }
 
             resetString();
@@ -197,13 +352,27 @@ public class GdxVDFParserState {
             character('{');
         } else {
             // Create new subnode
-            GdxVDFNode node = new GdxVDFNode();
+            GdxVDFNode node = newNode(null);
 
-            // Set the current node's value
-            current().addChild(keyName, node);
+            // Set the current node's value, unless a conditional rejected it: its content is then parsed and dropped
+            if (discardEntry) {
+                node.name = keyName;
+                discardEntry = false;
+            } else {
+                append(node);
+            }
+            if (stats != null) {
+                stats.node(keyName, depth + 1);
+                countKey();
+            }
+            lastEntry = null;
 
             // Push node onto child node stack
-            childStack.push(node);
+            push(node);
+            if (stats != null) {
+                if (levelKeys.size() <= depth) levelKeys.add(new HashSet<>());
+                else levelKeys.get(depth).clear();
+            }
 
             resetKV();
         }
@@ -220,9 +389,68 @@ public class GdxVDFParserState {
             resetKV();
 
             // Popping the root node means there were more ended subnodes than subnodes that existed
-            if (rootNode == childStack.pop()) {
+            if (depth == 0) {
                 throw new GdxVDFParseException("The root node was popped. There was a subnode mismatch (misplaced '}'?).");
             }
+            GdxVDFNode node = childStack[depth];
+            childStack[depth] = null;
+            lastChildren[depth--] = null;
+            lastEntry = node.parent == current() ? node : null;
+            if (stats != null) stats.closed(node);
+            // A subnode rejected by a conditional was never attached
+            if (node.parent == null && pool != null) pool.free(node);
+        }
+    }
+
+    /**
+     * Returns whether the parser is inside a conditional tag, where every character belongs to the conditional.
+     * @return true between a '[' and the matching ']'
+     */
+    public boolean inCondition() {
+        return conditionState;
+    }
+
+    /**
+     * Start a conditional tag.
+     */
+    public void beginCondition() {
+        if(escapePending || quoteState) {
+            character('[');
+        } else {
+            // Commit an unquoted token directly followed by the conditional
+            if(currentString.length() > 0)
+                space();
+
+            conditionState = true;
+            currentCondition.setLength(0);
+        }
+    }
+
+    /**
+     * Handle a character of a conditional tag.
+     * @param c a character between '[' and ']'
+     */
+    public void conditionCharacter(char c) {
+        currentCondition.append(c);
+    }
+
+    /**
+     * End a conditional tag, and drop the entry it applies to if it evaluates to false.
+     */
+    public void endCondition() {
+        conditionState = false;
+        if(conditionals == null || conditionals.evaluate(currentCondition))
+            return;
+
+        if(valuePending) {
+            // The conditional follows the key of a subnode, such as "key" [$X360] { ... }, or of a value
+            discardEntry = true;
+        } else if(lastEntry != null) {
+            // The conditional follows a key/value or a closed subnode
+            if (lastChildren[depth] == lastEntry) lastChildren[depth] = lastEntry.prev;
+            if (pool != null) pool.free(lastEntry);
+            else lastEntry.remove();
+            lastEntry = null;
         }
     }
 
@@ -234,12 +462,72 @@ public class GdxVDFParserState {
         // Call space to commit the current KV pair
         space();
 
-        if(childStack.peek() != rootNode) {
+        if(depth != 0) {
             throw new GdxVDFParseException("The root node was not at the top of the stack at the end of parsing. " +
                     "There was a subnode mismatch (misplaced '{'?)");
         }
+        if (stats != null) stats.closed(rootNode);
     }
 
+    /**
+     * Counts the key just added to the current node if a previous sibling has the same key.
+     */
+    private void countKey() {
+        if (!levelKeys.get(depth).add(keyName.toLowerCase(Locale.ROOT)))
+            stats.duplicateKeys++;
+    }
+
+
+    /**
+     * Appends a node to the current node, under the pending key.
+     */
+    private void append(GdxVDFNode node) {
+        childStack[depth].addChildAfter(lastChildren[depth], keyName, node);
+        lastChildren[depth] = node;
+    }
+
+    /**
+     * Creates a node, or obtains it from the pool.
+     */
+    private GdxVDFNode newNode(String value) {
+        if (pool == null) return new GdxVDFNode(value);
+        GdxVDFNode node = pool.obtain();
+        node.set(value);
+        return node;
+    }
+
+    /**
+     * Returns the current string. When nodes are pooled, a short token equal to a recent one returns the same String.
+     */
+    private String token() {
+        int length = currentString.length();
+        if (pool == null || length > MAX_SHARED_LENGTH) return currentString.toString();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + currentString.charAt(i);
+        }
+        int index = (hash ^ hash >>> 16) & (tokens.length - 1);
+        String token = tokens[index];
+        if (token == null || token.length() != length || !token.contentEquals(currentString)) {
+            token = tokens[index] = currentString.toString();
+        }
+        return token;
+    }
+
+    /**
+     * Pushes a node onto the stack, growing it if needed.
+     */
+    private void push(GdxVDFNode node) {
+        if (maxDepth > 0 && depth == maxDepth) {
+            throw new GdxVDFParseException("The document nests subnodes deeper than " + maxDepth + " levels.");
+        }
+        if (++depth == childStack.length) {
+            childStack = Arrays.copyOf(childStack, depth * 2);
+            lastChildren = Arrays.copyOf(lastChildren, depth * 2);
+        }
+        childStack[depth] = node;
+        lastChildren[depth] = null;
+    }
 
     /**
      * Clears the string buffer.
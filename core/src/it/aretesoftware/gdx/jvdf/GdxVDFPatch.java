@@ -0,0 +1,622 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An edit script which turns one VDF document into another, created with {@link #diff(GdxVDFNode, GdxVDFNode)}.
+ * <p>
+ * A patch is a list of operations, each addressed by a {@link GdxVDFPath}: {@code change} replaces the name, value and
+ * children of an existing node, {@code remove} deletes a node, {@code add} inserts a child at a position of a node and
+ * {@code move} moves a child of a node to another position. Applying a patch returned by {@code diff} reproduces the
+ * target document exactly, including the order of every child, multimap entries included. Names are matched ignoring
+ * case, but a change of case is a change.
+ * </p>
+ * <p>
+ * Children are matched between the documents by content first, so entries which were inserted, removed or reordered
+ * cost one operation each, and the entries around them none; the remaining children are matched by name, in order,
+ * and diffed. The size of a patch therefore depends on the size of the change, not of the document. When diffing two
+ * versions of a persistent {@link GdxVDFFrozenNode} tree, subtrees shared between the versions are recognized by
+ * reference and never descended into.
+ * </p>
+ * Patches are immutable and can be written to, and read back from, VDF with {@link #write(GdxVDFWriter)} and
+ * {@link #parse(GdxVDFNode)}.
+ * @author Arete */
+public final class GdxVDFPatch {
+
+    private static final String PATCH = "patch";
+    private static final String PATH = "path";
+    private static final String NAME = "name";
+    private static final String VALUE = "value";
+    private static final String NODE = "node";
+    private static final String INDEX = "index";
+    private static final String FROM = "from";
+
+    private final List<Operation> operations;
+
+    private GdxVDFPatch(List<Operation> operations) {
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Computes the operations needed to turn a document into another.
+     * @param from the original document
+     * @param to the modified document
+     * @return the patch which turns {@code from} into {@code to}
+     */
+    public static GdxVDFPatch diff(GdxVDFNode from, GdxVDFNode to) {
+        return diff(from.freeze(), to.freeze());
+    }
+
+    /**
+     * Computes the operations needed to turn a document into another. Subtrees shared by both documents are skipped.
+     * @param from the original document
+     * @param to the modified document
+     * @return the patch which turns {@code from} into {@code to}
+     */
+    public static GdxVDFPatch diff(GdxVDFFrozenNode from, GdxVDFFrozenNode to) {
+        List<Operation> operations = new ArrayList<>();
+        if (!Objects.equals(from.asString(), to.asString())) {
+            operations.add(new Operation(Type.change, GdxVDFPath.ROOT, to));
+        }
+        else {
+            diffChildren(from, to, operations);
+        }
+        return new GdxVDFPatch(operations);
+    }
+
+    /**
+     * Adds the operations turning the children of a node into the children of another. The content of the matched
+     * children is diffed first, while the paths of this level still address the original children, then children are
+     * removed, and finally moved and added from the last position to the first. Levels are walked with an explicit
+     * stack, so documents of any depth can be diffed.
+     */
+    private static void diffChildren(GdxVDFFrozenNode from, GdxVDFFrozenNode to, List<Operation> operations) {
+        if (from == to) return;
+        ArrayDeque<Level> stack = new ArrayDeque<>();
+        stack.push(new Level(from, to, null, null, 0));
+        while (!stack.isEmpty()) {
+            Level level = stack.peek();
+            Level child = level.nextChild(operations);
+            if (child != null) {
+                stack.push(child);
+                continue;
+            }
+            // Removing the last children first keeps the named indexes of the remaining ones valid
+            for (int i = level.newOf.length - 1; i >= 0; i--) {
+                if (level.newOf[i] >= 0) continue;
+                operations.add(new Operation(Type.remove, level.path().child(level.from.get(i).name(),
+                        level.namedIndexes[i]), null));
+            }
+            order(level, operations);
+            stack.pop();
+        }
+    }
+
+    /**
+     * Adds the moves and additions putting the children in their new order. The longest run of kept children which
+     * are already in their new order stays put, every other kept child is moved and every new one added.
+     * <p>
+     * Positions are counted with a Fenwick tree over the final position of every child, interleaved with gaps holding
+     * the children waiting to be moved, in their old order after the staying child which precedes them.
+     * </p>
+     */
+    private static void order(Level level, List<Operation> operations) {
+        int[] oldOf = level.oldOf, newOf = level.newOf;
+        int oldSize = newOf.length, newSize = oldOf.length;
+        boolean[] stays = stayingChildren(newOf);
+
+        // The gap of a moved child follows the last staying child before it, the first gap precedes every position
+        int[] gapOf = new int[oldSize], gapSizes = new int[newSize + 1];
+        int previous = -1;
+        for (int i = 0; i < oldSize; i++) {
+            if (newOf[i] < 0) continue;
+            if (stays[i]) {
+                previous = newOf[i];
+            }
+            else {
+                gapOf[i] = previous + 1;
+                gapSizes[previous + 1]++;
+            }
+        }
+        int[] slots = new int[newSize], gapStarts = new int[newSize + 1];
+        int coordinate = gapSizes[0];
+        for (int j = 0; j < newSize; j++) {
+            slots[j] = coordinate;
+            gapStarts[j + 1] = coordinate + 1;
+            coordinate += 1 + gapSizes[j + 1];
+        }
+        int[] tree = new int[coordinate + 1];
+        int[] waiting = new int[oldSize];
+        for (int i = 0; i < oldSize; i++) {
+            if (newOf[i] < 0) continue;
+            if (stays[i]) {
+                add(tree, slots[newOf[i]], 1);
+            }
+            else {
+                waiting[i] = gapStarts[gapOf[i]]++;
+                add(tree, waiting[i], 1);
+            }
+        }
+
+        for (int j = newSize - 1; j >= 0; j--) {
+            int i = oldOf[j];
+            if (i >= 0 && stays[i]) continue;
+            if (i < 0) {
+                operations.add(new Operation(Type.add, level.path(), level.to.get(j), count(tree, slots[j]), -1));
+            }
+            else {
+                int position = count(tree, waiting[i]);
+                add(tree, waiting[i], -1);
+                operations.add(new Operation(Type.move, level.path(), null, count(tree, slots[j]), position));
+            }
+            add(tree, slots[j], 1);
+        }
+    }
+
+    /** Marks the kept children forming the longest run already in their new order. */
+    private static boolean[] stayingChildren(int[] newOf) {
+        int[] kept = new int[newOf.length];
+        int size = 0;
+        for (int i = 0; i < newOf.length; i++) {
+            if (newOf[i] >= 0) kept[size++] = i;
+        }
+        // Patience sorting: the last element of the shortest run ending with each length, and the element before each
+        int[] tails = new int[size], previous = new int[size];
+        int length = 0;
+        for (int k = 0; k < size; k++) {
+            int position = newOf[kept[k]], low = 0, high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (newOf[kept[tails[middle]]] < position) low = middle + 1;
+                else high = middle;
+            }
+            tails[low] = k;
+            previous[k] = low > 0 ? tails[low - 1] : -1;
+            if (low == length) length++;
+        }
+        boolean[] stays = new boolean[newOf.length];
+        for (int k = length > 0 ? tails[length - 1] : -1; k >= 0; k = previous[k]) {
+            stays[kept[k]] = true;
+        }
+        return stays;
+    }
+
+    /** Returns how many positions before the coordinate are taken. */
+    private static int count(int[] tree, int coordinate) {
+        int count = 0;
+        for (int i = coordinate; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    private static void add(int[] tree, int coordinate, int delta) {
+        for (int i = coordinate + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /** Returns the named index of every child of a node. */
+    private static int[] namedIndexes(GdxVDFFrozenNode node) {
+        Map<String, Integer> counts = new HashMap<>();
+        int[] namedIndexes = new int[node.size()];
+        for (int i = 0; i < namedIndexes.length; i++) {
+            Integer count = counts.get(key(node.get(i)));
+            namedIndexes[i] = count == null ? 0 : count;
+            counts.put(key(node.get(i)), namedIndexes[i] + 1);
+        }
+        return namedIndexes;
+    }
+
+    private static String key(GdxVDFFrozenNode node) {
+        return node.name().toLowerCase(Locale.ROOT);
+    }
+
+    /** A pair of nodes whose children are being diffed, with the matching of their children. */
+    private static final class Level {
+        final GdxVDFFrozenNode from, to;
+        final Level parent;
+        final String name;
+        final int namedIndex;
+        /** The old child matched with each new child, and the new child matched with each old child, or -1. */
+        final int[] oldOf, newOf;
+        final int[] namedIndexes;
+        /** The next old child whose content is looked at. */
+        int next;
+        private GdxVDFPath path;
+
+        Level(GdxVDFFrozenNode from, GdxVDFFrozenNode to, Level parent, String name, int namedIndex) {
+            this.from = from;
+            this.to = to;
+            this.parent = parent;
+            this.name = name;
+            this.namedIndex = namedIndex;
+            int oldSize = from.size(), newSize = to.size();
+            oldOf = new int[newSize];
+            newOf = new int[oldSize];
+            Arrays.fill(oldOf, -1);
+            Arrays.fill(newOf, -1);
+
+            // Equal subtrees first, so that entries which were only inserted before or moved are kept as they are
+            Map<GdxVDFFrozenNode, ArrayDeque<Integer>> equal = new HashMap<>();
+            for (int i = 0; i < oldSize; i++) {
+                equal.computeIfAbsent(from.get(i), key -> new ArrayDeque<>()).add(i);
+            }
+            for (int j = 0; j < newSize; j++) {
+                ArrayDeque<Integer> candidates = equal.get(to.get(j));
+                if (candidates != null && !candidates.isEmpty()) {
+                    int i = candidates.poll();
+                    oldOf[j] = i;
+                    newOf[i] = j;
+                }
+            }
+            // Then the remaining children by name, in order
+            Map<String, ArrayDeque<Integer>> named = new HashMap<>();
+            for (int i = 0; i < oldSize; i++) {
+                if (newOf[i] < 0) named.computeIfAbsent(key(from.get(i)), key -> new ArrayDeque<>()).add(i);
+            }
+            for (int j = 0; j < newSize; j++) {
+                if (oldOf[j] >= 0) continue;
+                ArrayDeque<Integer> candidates = named.get(key(to.get(j)));
+                if (candidates != null && !candidates.isEmpty()) {
+                    int i = candidates.poll();
+                    oldOf[j] = i;
+                    newOf[i] = j;
+                }
+            }
+            namedIndexes = namedIndexes(from);
+        }
+
+        /**
+         * Adds the changes of the next matched children, up to the first one whose children must be diffed.
+         * @return May be null, once every matched child has been looked at.
+         */
+        Level nextChild(List<Operation> operations) {
+            while (next < newOf.length) {
+                int i = next++;
+                if (newOf[i] < 0) continue;
+                GdxVDFFrozenNode oldChild = from.get(i), newChild = to.get(newOf[i]);
+                if (oldChild == newChild || oldChild.equals(newChild)) continue;
+                if (oldChild.name().equals(newChild.name()) && Objects.equals(oldChild.asString(), newChild.asString())) {
+                    return new Level(oldChild, newChild, this, oldChild.name(), namedIndexes[i]);
+                }
+                operations.add(new Operation(Type.change, path().child(oldChild.name(), namedIndexes[i]), newChild));
+            }
+            return null;
+        }
+
+        /** Returns the path of the old node, built on first use so that levels without operations cost nothing. */
+        GdxVDFPath path() {
+            if (parent == null) return GdxVDFPath.ROOT;
+            if (path == null) {
+                int length = 0;
+                for (Level level = this; level.parent != null; level = level.parent) length++;
+                String[] names = new String[length];
+                int[] indexes = new int[length];
+                for (Level level = this; level.parent != null; level = level.parent) {
+                    names[--length] = level.name;
+                    indexes[length] = level.namedIndex;
+                }
+                path = GdxVDFPath.of(names, indexes);
+            }
+            return path;
+        }
+    }
+
+    /**
+     * Applies this patch to a mutable document.
+     * @param root the root of the document to modify
+     * @return the same root, for chaining
+     * @throws IllegalArgumentException if a path or position of this patch does not exist in the document
+     */
+    public GdxVDFNode apply(GdxVDFNode root) {
+        for (Operation operation : operations) {
+            GdxVDFNode target = operation.path.resolve(root);
+            if (target == null) throw new IllegalArgumentException("Node not found at path: " + operation.path);
+            switch (operation.type) {
+                case change:
+                    replace(target, operation.node.thaw(), !operation.path.isRoot());
+                    break;
+                case remove:
+                    target.remove();
+                    break;
+                case add:
+                    if (operation.index < 0) target.addChild(operation.node.thaw());
+                    else insert(target, operation.index, operation.node.thaw());
+                    break;
+                case move:
+                    if (operation.from < 0 || operation.from >= target.size) {
+                        throw new IllegalArgumentException("Position " + operation.from + " out of bounds at path: "
+                                + operation.path);
+                    }
+                    GdxVDFNode moved = target.remove(operation.from);
+                    moved.prev = moved.next = null;
+                    insert(target, operation.index, moved);
+                    break;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Applies this patch to an immutable document, sharing every subtree this patch does not touch.
+     * @param root the root of the document to start from
+     * @return the root of the new version of the document
+     * @throws IllegalArgumentException if a path or position of this patch does not exist in the document
+     */
+    public GdxVDFFrozenNode apply(GdxVDFFrozenNode root) {
+        for (Operation operation : operations) {
+            switch (operation.type) {
+                case change:
+                    root = root.set(operation.path, operation.node);
+                    break;
+                case remove:
+                    root = root.remove(operation.path);
+                    break;
+                case add:
+                    root = operation.index < 0 ? root.add(operation.path, operation.node)
+                            : root.add(operation.path, operation.index, operation.node);
+                    break;
+                case move:
+                    root = root.move(operation.path, operation.from, operation.index);
+                    break;
+            }
+        }
+        return root;
+    }
+
+    /** Moves the name, unless the target is the root, value and children of a node into the target node, which keeps
+     * its position. */
+    private static void replace(GdxVDFNode target, GdxVDFNode source, boolean rename) {
+        if (rename) target.name = source.name;
+        target.set(source.asString());
+        target.child = source.child;
+        target.size = source.size;
+        for (GdxVDFNode child = target.child; child != null; child = child.next) {
+            child.parent = target;
+        }
+    }
+
+    /** Inserts a child at a position among the children of a node. */
+    private static void insert(GdxVDFNode parent, int index, GdxVDFNode child) {
+        if (index < 0 || index > parent.size) {
+            throw new IllegalArgumentException("Position " + index + " out of bounds, size: " + parent.size);
+        }
+        if (index == parent.size) {
+            parent.addChild(child);
+            return;
+        }
+        GdxVDFNode next = parent.get(index);
+        child.parent = parent;
+        child.next = next;
+        child.prev = next.prev;
+        if (next.prev == null) parent.child = child;
+        else next.prev.next = child;
+        next.prev = child;
+        parent.size++;
+    }
+
+    /** Returns the operations of this patch, in the order they are applied. */
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    /** Returns true if this patch has no operations. */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /** Returns the number of operations in this patch. */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Writes this patch as a "patch" node.
+     * @param writer the writer to write to
+     * @return the same writer, for chaining
+     */
+    public GdxVDFWriter write(GdxVDFWriter writer) {
+        writer.writeNodeStart(PATCH);
+        for (Operation operation : operations) {
+            writer.writeNodeStart(operation.type.name());
+            writer.writeNodeStart(PATH);
+            for (int i = 0; i < operation.path.length(); i++) {
+                writer.writeValue(operation.path.name(i), operation.path.index(i));
+            }
+            writer.writeNodeEnd();
+            if (operation.index >= 0) writer.writeValue(INDEX, operation.index);
+            if (operation.from >= 0) writer.writeValue(FROM, operation.from);
+            if (operation.node != null) {
+                GdxVDFNode node = operation.node.thaw();
+                // The root has no name
+                if (node.name != null) writer.writeValue(NAME, node.name);
+                if (!node.isNull()) {
+                    writer.writeValue(VALUE, node.asString());
+                }
+                if (node.notEmpty() || node.isNull()) {
+                    node.name = NODE;
+                    writer.writeNode(node);
+                }
+            }
+            writer.writeNodeEnd();
+        }
+        return writer.writeNodeEnd();
+    }
+
+    /** Returns this patch as a VDF document. */
+    public String toVDF() {
+        return write(new GdxVDFWriter()).toVDF();
+    }
+
+    /**
+     * Parses a patch from a VDF document written by {@link #toVDF()}.
+     * @param vdf the VDF document
+     * @return the patch
+     * @throws GdxVDFParseException if the document is not a valid patch
+     */
+    public static GdxVDFPatch parse(String vdf) {
+        return parse(new GdxVDFParser().parse(vdf));
+    }
+
+    /**
+     * Reads a patch from a parsed VDF document written by {@link #write(GdxVDFWriter)}.
+     * @param root the root of the parsed document, which contains the "patch" node
+     * @return the patch
+     * @throws GdxVDFParseException if the document is not a valid patch
+     */
+    public static GdxVDFPatch parse(GdxVDFNode root) {
+        GdxVDFNode patch = root.get(PATCH);
+        if (patch == null) throw new GdxVDFParseException("The document does not contain a '" + PATCH + "' node.");
+        List<Operation> operations = new ArrayList<>(patch.size);
+        for (GdxVDFNode entry = patch.child; entry != null; entry = entry.next) {
+            Type type;
+            try {
+                type = Type.valueOf(entry.name);
+            }
+            catch (IllegalArgumentException e) {
+                throw new GdxVDFParseException("Unknown patch operation: " + entry.name);
+            }
+            GdxVDFNode pathNode = entry.get(PATH);
+            if (pathNode == null) throw new GdxVDFParseException("The '" + type + "' operation has no path.");
+            GdxVDFPath path = GdxVDFPath.ROOT;
+            for (GdxVDFNode segment = pathNode.child; segment != null; segment = segment.next) {
+                try {
+                    path = path.child(segment.name, segment.asInt());
+                }
+                catch (RuntimeException e) {
+                    throw new GdxVDFParseException("Invalid path segment: " + segment);
+                }
+            }
+            int index, from;
+            try {
+                index = entry.getInt(INDEX, -1);
+                from = entry.getInt(FROM, -1);
+            }
+            catch (RuntimeException e) {
+                throw new GdxVDFParseException("Invalid position in the '" + type + "' operation at: " + path);
+            }
+            if (type == Type.move && (index < 0 || from < 0)) {
+                throw new GdxVDFParseException("The '" + type + "' operation requires an index and a from position.");
+            }
+            GdxVDFFrozenNode node = null;
+            if (type == Type.change || type == Type.add) {
+                GdxVDFNode content = entry.get(NODE);
+                GdxVDFNode value = new GdxVDFNode(entry.getString(VALUE, null));
+                if (content != null) {
+                    value.child = content.child;
+                    value.size = content.size;
+                }
+                value.name = entry.getString(NAME, null);
+                if (value.name == null && !(type == Type.change && path.isRoot())) {
+                    throw new GdxVDFParseException("The '" + type + "' operation has no name.");
+                }
+                node = value.freeze();
+            }
+            operations.add(new Operation(type, path, node, index, from));
+        }
+        return new GdxVDFPatch(operations);
+    }
+
+    @Override
+    public String toString() {
+        return operations.toString();
+    }
+
+    /** The kinds of operation in a {@link GdxVDFPatch}. */
+    public enum Type {
+        /** Replaces the name, value and children of the node at the path. The root keeps its name. */
+        change,
+        /** Removes the node at the path. */
+        remove,
+        /** Inserts a child at a position among the children of the node at the path, or after the last one. */
+        add,
+        /** Moves a child of the node at the path from a position to another. */
+        move
+    }
+
+    /** A single step of a {@link GdxVDFPatch}. */
+    public static final class Operation {
+        private final Type type;
+        private final GdxVDFPath path;
+        private final GdxVDFFrozenNode node;
+        private final int index, from;
+
+        Operation(Type type, GdxVDFPath path, GdxVDFFrozenNode node) {
+            this(type, path, node, -1, -1);
+        }
+
+        Operation(Type type, GdxVDFPath path, GdxVDFFrozenNode node, int index, int from) {
+            this.type = type;
+            this.path = path;
+            this.node = node;
+            this.index = index;
+            this.from = from;
+        }
+
+        /** Returns the kind of this operation. */
+        public Type type() {
+            return type;
+        }
+
+        /** Returns the path of the changed or removed node, or of the parent of an added or moved node. */
+        public GdxVDFPath path() {
+            return path;
+        }
+
+        /** Returns the new content of a changed node, or the added child.
+         * @return May be null. */
+        public GdxVDFFrozenNode node() {
+            return node;
+        }
+
+        /** Returns the position an added child is inserted at, or a moved child is moved to, once the moved child has
+         * been taken out. An added child without a position, -1, is added after the last child. */
+        public int index() {
+            return index;
+        }
+
+        /** Returns the position a moved child is taken from, or -1 for other operations. */
+        public int from() {
+            return from;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case add:
+                    String position = index < 0 ? "" : "[" + index + "]";
+                    return type + " " + path + position + " " + node.name() + "=" + node.asString();
+                case move:
+                    return type + " " + path + "[" + from + "->" + index + "]";
+                default:
+                    return type + " " + path + (node == null ? "" : " " + node.name() + "=" + node.asString());
+            }
+        }
+    }
+
+}
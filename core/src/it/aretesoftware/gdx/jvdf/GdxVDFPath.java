@@ -0,0 +1,220 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.util.Arrays;
+
+/**
+ * Immutable location of a node inside a VDF document, expressed as a list of segments from the root.
+ * <p>
+ * Each segment is a child name together with a named index, which selects between children sharing the same name in
+ * a multimap, exactly like {@link GdxVDFNode#get(String, int)}. Names are matched ignoring case.
+ * </p>
+ *
+ * <pre>
+ * GdxVDFPath path = GdxVDFPath.of("root_node", "sub_node").child("key", 1);
+ * path.toString(); // root_node/sub_node/key[1]
+ * </pre>
+ *
+ * @author Arete */
+public final class GdxVDFPath {
+
+    /** The path of the root node itself. */
+    public static final GdxVDFPath ROOT = new GdxVDFPath(new String[0], new int[0]);
+
+    private final String[] names;
+    private final int[] indexes;
+
+    private GdxVDFPath(String[] names, int[] indexes) {
+        this.names = names;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Creates a path in which every segment selects the first child with the given name.
+     * @param names the names of the segments, starting from the root
+     * @return the new path
+     */
+    public static GdxVDFPath of(String... names) {
+        GdxVDFPath path = ROOT;
+        for (String name : names) {
+            path = path.child(name);
+        }
+        return path;
+    }
+
+    /**
+     * Creates a path from all of its segments at once, which costs a single copy of each array.
+     * @param names the names of the segments, starting from the root
+     * @param indexes the named index of each segment
+     * @return the new path
+     */
+    static GdxVDFPath of(String[] names, int[] indexes) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) throw new IllegalArgumentException("name cannot be null.");
+            if (indexes[i] < 0) throw new IllegalArgumentException("namedIndex cannot be negative: " + indexes[i]);
+        }
+        return new GdxVDFPath(names.clone(), indexes.clone());
+    }
+
+    /**
+     * Parses a path written as segments separated by '/', each optionally followed by a named index between square
+     * brackets, such as {@code root_node/sub_node[1]/key}. Names containing '/' or '[' can only be expressed with
+     * {@link #child(String, int)}.
+     * @param path the path to parse, where an empty string is the root
+     * @return the parsed path
+     * @throws IllegalArgumentException if a named index is malformed
+     */
+    public static GdxVDFPath parse(String path) {
+        GdxVDFPath result = ROOT;
+        if (path.isEmpty()) return result;
+        for (String segment : path.split("/", -1)) {
+            int bracket = segment.indexOf('[');
+            if (bracket < 0) {
+                result = result.child(segment);
+                continue;
+            }
+            if (!segment.endsWith("]")) {
+                throw new IllegalArgumentException("Malformed path segment: " + segment);
+            }
+            try {
+                int index = Integer.parseInt(segment.substring(bracket + 1, segment.length() - 1));
+                result = result.child(segment.substring(0, bracket), index);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed path segment: " + segment);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new path which selects the first child with the given name below this path.
+     * @param name the name of the child
+     * @return the new path
+     */
+    public GdxVDFPath child(String name) {
+        return child(name, 0);
+    }
+
+    /**
+     * Returns a new path which selects a child with the given name and named index below this path.
+     * @param name the name of the child
+     * @param namedIndex the index among the children sharing the same name
+     * @return the new path
+     */
+    public GdxVDFPath child(String name, int namedIndex) {
+        if (name == null) throw new IllegalArgumentException("name cannot be null.");
+        if (namedIndex < 0) throw new IllegalArgumentException("namedIndex cannot be negative: " + namedIndex);
+        String[] names = Arrays.copyOf(this.names, this.names.length + 1);
+        int[] indexes = Arrays.copyOf(this.indexes, this.indexes.length + 1);
+        names[names.length - 1] = name;
+        indexes[indexes.length - 1] = namedIndex;
+        return new GdxVDFPath(names, indexes);
+    }
+
+    /**
+     * Returns the path of the parent node.
+     * @throws IllegalStateException if this is the root path. */
+    public GdxVDFPath parent() {
+        if (isRoot()) throw new IllegalStateException("The root path has no parent.");
+        return new GdxVDFPath(Arrays.copyOf(names, names.length - 1), Arrays.copyOf(indexes, indexes.length - 1));
+    }
+
+    /** Returns whether this path points at the root node. */
+    public boolean isRoot() {
+        return names.length == 0;
+    }
+
+    /** Returns the number of segments in this path. */
+    public int length() {
+        return names.length;
+    }
+
+    /** Returns the name of the segment at the specified depth. */
+    public String name(int depth) {
+        return names[depth];
+    }
+
+    /** Returns the named index of the segment at the specified depth. */
+    public int index(int depth) {
+        return indexes[depth];
+    }
+
+    /** Returns the name of the last segment.
+     * @throws IllegalStateException if this is the root path. */
+    public String lastName() {
+        if (isRoot()) throw new IllegalStateException("The root path has no name.");
+        return names[names.length - 1];
+    }
+
+    /** Returns the named index of the last segment.
+     * @throws IllegalStateException if this is the root path. */
+    public int lastIndex() {
+        if (isRoot()) throw new IllegalStateException("The root path has no index.");
+        return indexes[indexes.length - 1];
+    }
+
+    /**
+     * Finds the node this path points at.
+     * @param root the root the path starts from
+     * @return May be null. */
+    public GdxVDFNode resolve(GdxVDFNode root) {
+        GdxVDFNode current = root;
+        for (int i = 0; i < names.length && current != null; i++) {
+            current = current.get(names[i], indexes[i]);
+        }
+        return current;
+    }
+
+    /**
+     * Finds the node this path points at.
+     * @param root the root the path starts from
+     * @return May be null. */
+    public GdxVDFFrozenNode resolve(GdxVDFFrozenNode root) {
+        GdxVDFFrozenNode current = root;
+        for (int i = 0; i < names.length && current != null; i++) {
+            current = current.get(names[i], indexes[i]);
+        }
+        return current;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof GdxVDFPath)) return false;
+        GdxVDFPath other = (GdxVDFPath) object;
+        return Arrays.equals(names, other.names) && Arrays.equals(indexes, other.indexes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(names) * 31 + Arrays.hashCode(indexes);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) builder.append('/');
+            builder.append(names[i]);
+            if (indexes[i] > 0) builder.append('[').append(indexes[i]).append(']');
+        }
+        return builder.toString();
+    }
+
+}
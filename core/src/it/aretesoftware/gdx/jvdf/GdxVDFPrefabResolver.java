@@ -0,0 +1,188 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Resolves "prefab" inheritance in item-schema style documents, such as the items_game.txt of Source engine games.
+ * <p>
+ * Nodes inherit from the prefabs listed, space-separated, in their "prefab" value, and prefabs can inherit from other
+ * prefabs. A node takes precedence over its prefabs, and prefabs listed first take precedence over the ones listed after
+ * them. A prefab reached more than once, such as a common base, only counts once and after every prefab inheriting
+ * from it, so it never overrides them. Each prefab chain is
+ * resolved once and memoized, and cycles are reported instead of looping forever.
+ * </p>
+ * <p>
+ * Resolution never copies nodes: results are {@link GdxVDFPrefabView}s layered over the original nodes, which
+ * therefore must not be modified while views are in use. The resolver is thread-safe, and
+ * {@link #resolveAll(GdxVDFNode, boolean)} can resolve every item in parallel.
+ * </p>
+ *
+ * <pre>
+ * GdxVDFNode itemsGame = parser.parse(text).get("items_game");
+ * GdxVDFPrefabResolver resolver = new GdxVDFPrefabResolver(itemsGame.get("prefabs"));
+ * GdxVDFPrefabView item = resolver.resolve(itemsGame.get("items").get("5"));
+ * String slot = item.getString("item_slot", null);
+ * </pre>
+ *
+ * @author Arete */
+public class GdxVDFPrefabResolver {
+
+    /** The key listing the prefabs of a node, in items_game.txt. */
+    public static final String PREFAB_KEY = "prefab";
+
+    private final GdxVDFNode prefabs;
+    private final String prefabKey;
+    /** Memoized layers of every resolved prefab, keyed by lower case name. */
+    private final Map<String, GdxVDFNode[]> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Initializes the resolver with a specific key listing the prefabs of a node.
+     * @param prefabs the node holding every prefab as a named child
+     * @param prefabKey the key listing the prefabs of a node
+     */
+    public GdxVDFPrefabResolver(GdxVDFNode prefabs, String prefabKey) {
+        this.prefabs = prefabs;
+        this.prefabKey = prefabKey;
+    }
+
+    /**
+     * Initializes the resolver with the default "prefab" key.
+     * @param prefabs the node holding every prefab as a named child
+     */
+    public GdxVDFPrefabResolver(GdxVDFNode prefabs) {
+        this(prefabs, PREFAB_KEY);
+    }
+
+    /**
+     * Resolves the inheritance of a node.
+     * @param node the node to resolve, usually an item
+     * @return a view of the node merged with every prefab it inherits from
+     * @throws IllegalArgumentException if an inherited prefab does not exist
+     * @throws IllegalStateException if the prefabs inherit from each other in a cycle
+     */
+    public GdxVDFPrefabView resolve(GdxVDFNode node) {
+        return new GdxVDFPrefabView(layers(node, new ArrayList<>()));
+    }
+
+    /**
+     * Resolves the inheritance of a prefab.
+     * @param name the name of the prefab
+     * @return a view of the prefab merged with every prefab it inherits from
+     * @throws IllegalArgumentException if the prefab, or one it inherits from, does not exist
+     * @throws IllegalStateException if the prefabs inherit from each other in a cycle
+     */
+    public GdxVDFPrefabView resolvePrefab(String name) {
+        return new GdxVDFPrefabView(prefabLayers(name, new ArrayList<>()));
+    }
+
+    /**
+     * Resolves the inheritance of every child of a node.
+     * @param items the node holding the nodes to resolve, usually "items"
+     * @param parallel whether to resolve the children on multiple threads
+     * @return the views of the children keyed by their name, in document order
+     * @throws IllegalArgumentException if an inherited prefab does not exist
+     * @throws IllegalStateException if the prefabs inherit from each other in a cycle
+     */
+    public Map<String, GdxVDFPrefabView> resolveAll(GdxVDFNode items, boolean parallel) {
+        List<GdxVDFNode> children = new ArrayList<>(items.size);
+        for (GdxVDFNode child = items.child; child != null; child = child.next) {
+            children.add(child);
+        }
+        List<GdxVDFPrefabView> views = StreamSupport.stream(children.spliterator(), parallel)
+                .map(this::resolve)
+                .collect(Collectors.toList());
+        Map<String, GdxVDFPrefabView> result = new LinkedHashMap<>();
+        for (int i = 0; i < children.size(); i++) {
+            result.putIfAbsent(children.get(i).name, views.get(i));
+        }
+        return result;
+    }
+
+    /** Returns how many prefabs have been resolved and memoized. */
+    public int getResolvedCount() {
+        return resolved.size();
+    }
+
+    /** Returns the node followed by the layers of its prefabs, without duplicates. */
+    private GdxVDFNode[] layers(GdxVDFNode node, List<String> chain) {
+        String prefabList = node.getString(prefabKey, null);
+        if (prefabList == null || prefabList.trim().isEmpty()) {
+            return new GdxVDFNode[] { node };
+        }
+        List<GdxVDFNode> all = new ArrayList<>();
+        all.add(node);
+        for (String prefab : prefabList.trim().split("\\s+")) {
+            for (GdxVDFNode layer : prefabLayers(prefab, chain)) {
+                all.add(layer);
+            }
+        }
+        // Keeping the last occurrence puts shared prefabs below everything that inherits from them
+        List<GdxVDFNode> layers = new ArrayList<>(all.size());
+        for (int i = 0; i < all.size(); i++) {
+            if (!containsLayer(all, all.get(i), i + 1)) {
+                layers.add(all.get(i));
+            }
+        }
+        return layers.toArray(new GdxVDFNode[0]);
+    }
+
+    private GdxVDFNode[] prefabLayers(String name, List<String> chain) {
+        String key = name.toLowerCase(Locale.ROOT);
+        GdxVDFNode[] layers = resolved.get(key);
+        if (layers != null) {
+            return layers;
+        }
+        if (chain.contains(key)) {
+            chain.add(key);
+            throw new IllegalStateException("Prefab cycle detected: " + String.join(" -> ", chain));
+        }
+        GdxVDFNode prefab = prefabs.get(name);
+        if (prefab == null) {
+            throw new IllegalArgumentException("Prefab not found: " + name
+                    + (chain.isEmpty() ? "" : " (inherited by " + chain.get(chain.size() - 1) + ")"));
+        }
+        chain.add(key);
+        layers = layers(prefab, chain);
+        chain.remove(chain.size() - 1);
+        // Threads racing on the same prefab compute equal layers, keep whichever was stored first
+        GdxVDFNode[] existing = resolved.putIfAbsent(key, layers);
+        return existing != null ? existing : layers;
+    }
+
+    private static boolean containsLayer(List<GdxVDFNode> layers, GdxVDFNode layer, int from) {
+        for (int i = from; i < layers.size(); i++) {
+            if (layers.get(i) == layer) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "GdxVDFPrefabResolver" + Arrays.toString(resolved.keySet().toArray());
+    }
+
+}
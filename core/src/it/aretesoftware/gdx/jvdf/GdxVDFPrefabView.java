@@ -0,0 +1,287 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read-only view of a node merged with the nodes it inherits from, created by {@link GdxVDFPrefabResolver}.
+ * <p>
+ * A view is a list of layers, ordered from the highest to the lowest precedence. Values are taken from the first
+ * layer which has them, and nodes present in several layers are merged recursively, again as a view. Nothing is copied:
+ * every lookup walks the original nodes, so views are cheap to create and always reflect the current content of the
+ * layers. Use {@link #toNode()} when a real, merged {@link GdxVDFNode} is needed.
+ * </p>
+ * @author Arete */
+public final class GdxVDFPrefabView {
+
+    private final GdxVDFNode[] layers;
+
+    GdxVDFPrefabView(GdxVDFNode[] layers) {
+        this.layers = layers;
+    }
+
+    /** Returns the name of the node in the highest precedence layer.
+     * @return May be null. */
+    public String name() {
+        return layers[0].name;
+    }
+
+    /** Returns the layers of this view, from the highest to the lowest precedence. */
+    public List<GdxVDFNode> getLayers() {
+        List<GdxVDFNode> list = new ArrayList<>(layers.length);
+        for (GdxVDFNode layer : layers) {
+            list.add(layer);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the merged child with the specified name. A value in a layer hides any child with the same name in the
+     * layers below it, while nodes with children are merged with the nodes of the same name below them. Only the first
+     * child with the name is considered in each layer.
+     * @return May be null. */
+    public GdxVDFPrefabView get(String name) {
+        GdxVDFNode[] found = null;
+        int count = 0;
+        for (GdxVDFNode layer : layers) {
+            GdxVDFNode child = layer.get(name);
+            if (child == null) continue;
+            boolean value = !child.isNull();
+            if (value && count > 0) break;
+            if (found == null) found = new GdxVDFNode[layers.length];
+            found[count++] = child;
+            if (value) break;
+        }
+        if (count == 0) return null;
+        GdxVDFNode[] children = new GdxVDFNode[count];
+        System.arraycopy(found, 0, children, 0, count);
+        return new GdxVDFPrefabView(children);
+    }
+
+    /** Returns true if any layer has a child with the specified name. */
+    public boolean has(String name) {
+        for (GdxVDFNode layer : layers) {
+            if (layer.has(name)) return true;
+        }
+        return false;
+    }
+
+    /** Returns the names of the merged children, in the order of the highest precedence layer that has them. */
+    public List<String> names() {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (GdxVDFNode layer : layers) {
+            for (GdxVDFNode child = layer.child; child != null; child = child.next) {
+                names.putIfAbsent(child.name.toLowerCase(Locale.ROOT), child.name);
+            }
+        }
+        return new ArrayList<>(names.values());
+    }
+
+    /** Returns the value of the highest precedence layer.
+     * @return May be null. */
+    public String asString() {
+        return layers[0].asString();
+    }
+
+    /** Returns true if the highest precedence layer has no value. */
+    public boolean isNull() {
+        return layers[0].isNull();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a string. Returns defaultValue if not found.
+     * @param defaultValue May be null. */
+    public String getString(String name, String defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asString();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a float. Returns defaultValue if not found. */
+    public float getFloat(String name, float defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asFloat();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a double. Returns defaultValue if not found. */
+    public double getDouble(String name, double defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asDouble();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a long. Returns defaultValue if not found. */
+    public long getLong(String name, long defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asLong();
+    }
+
+    /** Finds the merged child with the specified name and returns it as an int. Returns defaultValue if not found. */
+    public int getInt(String name, int defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asInt();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a boolean. Returns defaultValue if not found. */
+    public boolean getBoolean(String name, boolean defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asBoolean();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a Color. Returns defaultValue if not found. */
+    public Color getColor(String name, Color defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asColor();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a Vector3. Returns defaultValue if not found. */
+    public Vector3 getVector3(String name, Vector3 defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asVector3();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a Vector2. Returns defaultValue if not found. */
+    public Vector2 getVector2(String name, Vector2 defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asVector2();
+    }
+
+    /** Finds the merged child with the specified name and returns it as an Enum. Returns defaultValue if not found. */
+    public <T extends Enum<T>> T getEnum(String name, T defaultValue) {
+        GdxVDFNode child = getValue(name);
+        return child == null ? defaultValue : child.asEnum(defaultValue);
+    }
+
+    /** Finds the merged child with the specified name and returns it as a string.
+     * @throws IllegalArgumentException if the child was not found. */
+    public String getString(String name) {
+        return requireValue(name).asString();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a float.
+     * @throws IllegalArgumentException if the child was not found. */
+    public float getFloat(String name) {
+        return requireValue(name).asFloat();
+    }
+
+    /** Finds the merged child with the specified name and returns it as an int.
+     * @throws IllegalArgumentException if the child was not found. */
+    public int getInt(String name) {
+        return requireValue(name).asInt();
+    }
+
+    /** Finds the merged child with the specified name and returns it as a boolean.
+     * @throws IllegalArgumentException if the child was not found. */
+    public boolean getBoolean(String name) {
+        return requireValue(name).asBoolean();
+    }
+
+    /** Returns the first value with the specified name, without creating a view.
+     * @return May be null. */
+    private GdxVDFNode getValue(String name) {
+        for (GdxVDFNode layer : layers) {
+            GdxVDFNode child = layer.get(name);
+            if (child != null) {
+                return child.isNull() ? null : child;
+            }
+        }
+        return null;
+    }
+
+    private GdxVDFNode requireValue(String name) {
+        GdxVDFNode child = getValue(name);
+        if (child == null) throw new IllegalArgumentException("Named value not found: " + name);
+        return child;
+    }
+
+    /**
+     * Creates a merged deep copy of this view. The views are walked with an explicit stack, and the children of each
+     * layer are looked up by name once, so that views of any depth and width are copied in linear time.
+     * @return a new {@link GdxVDFNode} without a parent
+     */
+    public GdxVDFNode toNode() {
+        GdxVDFNode root = new GdxVDFNode(asString());
+        root.name = name();
+        ArrayDeque<GdxVDFPrefabView> views = new ArrayDeque<>();
+        ArrayDeque<GdxVDFNode> nodes = new ArrayDeque<>();
+        views.push(this);
+        nodes.push(root);
+        while (!views.isEmpty()) {
+            GdxVDFPrefabView view = views.pop();
+            GdxVDFNode node = nodes.pop();
+            if (!view.isNull()) continue;
+            GdxVDFNode[] layers = view.layers;
+            // The children of each layer by name, and the names in the order of the highest precedence layer
+            List<Map<String, List<GdxVDFNode>>> named = new ArrayList<>(layers.length);
+            Map<String, Boolean> names = new LinkedHashMap<>();
+            for (GdxVDFNode layer : layers) {
+                Map<String, List<GdxVDFNode>> children = new HashMap<>();
+                for (GdxVDFNode child = layer.child; child != null; child = child.next) {
+                    String key = child.name.toLowerCase(Locale.ROOT);
+                    names.putIfAbsent(key, Boolean.TRUE);
+                    children.computeIfAbsent(key, k -> new ArrayList<>(1)).add(child);
+                }
+                named.add(children);
+            }
+            GdxVDFNode last = null;
+            GdxVDFNode[] found = new GdxVDFNode[layers.length];
+            for (String key : names.keySet()) {
+                // Merged like get(String)
+                int count = 0;
+                List<GdxVDFNode> winner = null;
+                for (Map<String, List<GdxVDFNode>> children : named) {
+                    List<GdxVDFNode> entries = children.get(key);
+                    if (entries == null) continue;
+                    GdxVDFNode first = entries.get(0);
+                    boolean value = !first.isNull();
+                    if (value && count > 0) break;
+                    if (count == 0) winner = entries;
+                    found[count++] = first;
+                    if (value) break;
+                }
+                GdxVDFPrefabView child = new GdxVDFPrefabView(Arrays.copyOf(found, count));
+                GdxVDFNode childNode = new GdxVDFNode(child.asString());
+                node.addChildAfter(last, child.name(), childNode);
+                last = childNode;
+                views.push(child);
+                nodes.push(childNode);
+                // Further entries of a multimap are taken as they are from the layer which won the first one
+                for (int i = 1; i < winner.size(); i++) {
+                    GdxVDFNode copy = winner.get(i).copy();
+                    node.addChildAfter(last, copy.name, copy);
+                    last = copy;
+                }
+            }
+        }
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return toNode().toString();
+    }
+
+}
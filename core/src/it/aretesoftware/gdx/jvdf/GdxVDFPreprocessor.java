@@ -25,6 +25,12 @@ import java.util.stream.IntStream;
  * @author Brendan Heinonen */
 public class GdxVDFPreprocessor {
 
+    /**
+     * The number of lines from which {@link #processLines(String[])} processes lines in parallel. Below it, handing the
+     * lines to other threads costs more than processing them.
+     */
+    static final int PARALLEL_THRESHOLD = 4096;
+
     /**
      * Preprocesses a VDF document into a minified, less-than-humanly readable, but still valid VDF document with
      * comments and unnecessary whitepsaces removed..
@@ -59,11 +65,42 @@ public class GdxVDFPreprocessor {
         return builder.toString();
     }
 
+    /**
+     * Preprocesses a VDF document into a builder, line by line on the calling thread and without splitting the document
+     * into lines first. The appended text is the same as the result of {@link #process(String)} for this class; the
+     * overrides of subclasses are not called, which is why {@link GdxVDFParser} only uses this method with an instance
+     * of this class.
+     * @param vdf the VDF document to process
+     * @param builder the builder to append the processed document to
+     */
+    public void process(String vdf, StringBuilder builder) {
+        // Trailing line breaks do not make lines, like with String.split
+        int limit = vdf.length();
+        while (limit > 0 && vdf.charAt(limit - 1) == '\n') limit--;
+        int start = 0;
+        do {
+            int end = vdf.indexOf('\n', start);
+            if (end == -1 || end > limit) end = limit;
+            int length = builder.length();
+            processLine(vdf, start, end, builder);
+            if (builder.length() > length && end < limit)
+                builder.append(" ");
+            start = end + 1;
+        } while (start < limit);
+    }
+
     /**
      * Preprocesses an array of lines in a VDF document, and stores the resultant processed lines back into the array.
+     * Documents with many lines are processed in parallel.
      * @param lines the lines to process
      */
     public void processLines(String[] lines) {
+        if (lines.length < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = processLine(lines[i]);
+            }
+            return;
+        }
         IntStream.range(0, lines.length)
                 .parallel()
                 .forEach(i -> lines[i] = processLine(lines[i]));
@@ -75,20 +112,29 @@ public class GdxVDFPreprocessor {
      * @return the line after it has been processed
      */
     public String processLine(final String line) {
-        /*
-         * I understand that this is control-flow spaghetti. This was originally written far cleaner, but was
-         * significantly changed to a single iteration for performance reasons.
-         */
+        // If the first characters of a line are a comment, we can immediately discard it
+        if(line.length() >= 2 && isComment(line, 0)) {
+            return null;
+        }
 
         // Pre-warm StringBuilder with the original line length for fewer allocations
         StringBuilder sb = new StringBuilder(line.length());
+        processLine(line, 0, line.length(), sb);
+        return sb.toString();
+    }
 
-        char[] charArray = line.toCharArray();
-
-        // If the first characters of a line are a comment, we can immediately discard it
-        if(charArray.length >= 2 && isComment(charArray, 0)) {
-            return null;
-        }
+    /**
+     * Preprocesses a single line in a VDF document, appending the processed line to a builder.
+     * @param text the text containing the line
+     * @param start the index of the first character of the line
+     * @param end the index after the last character of the line, excluding the line break
+     * @param sb the builder to append to
+     */
+    private void processLine(final String text, final int start, final int end, final StringBuilder sb) {
+        /*
+         * I understand that this is control-flow spaghetti. This was originally written far cleaner, but was
+         * significantly changed to a single iteration for performance reasons.
+         */
 
         // Whether a word character has been hit yet in this loop
         boolean hitWord = false;
@@ -96,19 +142,19 @@ public class GdxVDFPreprocessor {
         // Whether the line currently has unclosed quotes
         boolean openQuotes = false;
 
-        // Iterate character array
-        for (int i = 0, charArrayLength = charArray.length; i < charArrayLength; i++) {
-            char c = charArray[i];
+        // Iterate the characters of the line
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
             char n = 0;
             char p = 0;
-            boolean hasNext = i < charArrayLength - 1;
-            boolean hasPrevious = i > 0;
+            boolean hasNext = i < end - 1;
+            boolean hasPrevious = i > start;
 
             if(c == '\n' || c == '\r')
                 continue;
 
             if(hasPrevious)
-                p = charArray[i - 1];
+                p = text.charAt(i - 1);
 
 
             // Toggle open quote flag if we've encountered an unescaped quote
@@ -118,17 +164,29 @@ public class GdxVDFPreprocessor {
 
             // Strip C-style comments
             if(hasNext) {
-                n = charArray[i + 1];
+                n = text.charAt(i + 1);
 
                 // If we're not in quotes and this is a comment, immediately return from this line
-                if (!openQuotes && isComment(charArray, i)) {
-                    return sb.toString();
+                if (!openQuotes && isComment(text, i)) {
+                    return;
                 }
             }
 
-            // Strip conditional statement
-            if(!openQuotes && c == '[')
-                return sb.toString();
+            // Keep conditional statements as a single token, they are evaluated by the parser
+            if(!openQuotes && c == '[') {
+                int close = text.indexOf(']', i);
+
+                // An unterminated conditional discards the rest of the line
+                if(close == -1 || close >= end)
+                    return;
+
+                for(int j = i; j <= close; j++)
+                    sb.append(isWhitespace(text.charAt(j)) ? ' ' : text.charAt(j));
+
+                hitWord = true;
+                i = close;
+                continue;
+            }
 
             // Strip whitespace
             if(isWhitespace(c)) {
@@ -148,9 +206,9 @@ public class GdxVDFPreprocessor {
                     boolean brk = false;
 
                     // Iterate the rest of the line. If it hits a non-whitespace character, it will break.
-                    for(int j = i; j < charArrayLength && isWhitespace(charArray[j]); j++) {
+                    for(int j = i; j < end && isWhitespace(text.charAt(j)); j++) {
                         // If we've made it to the end, that means the rest of the line is whitespace
-                        if(j == charArrayLength - 1)
+                        if(j == end - 1)
                             brk = true;
                     }
 
@@ -167,21 +225,19 @@ public class GdxVDFPreprocessor {
             }
 
         }
-
-        return sb.toString();
     }
 
     /**
      * Determines whether or not a character sequence is a VDF comment.  VDF comments are C-style comments, except that
      * the comment will always take up the entire rest of the line. For that reason, block termination does not need to
      * be checked.
-     * @param arr the first character to test
-     * @param index the second character to test, which must be immediately after f
+     * @param text the text to test
+     * @param index the index of the first character to test, which must be followed by another character
      * @return if the two characters represent a VDF, C-style comment
      */
-    private boolean isComment(char[] arr, int index) {
-        char f = arr[index];
-        char s = arr[index + 1];
+    private boolean isComment(String text, int index) {
+        char f = text.charAt(index);
+        char s = text.charAt(index + 1);
 
         return f == '/' && (s == '*' || s == '/');
     }
@@ -0,0 +1,395 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Reads a VDF document one token at a time, without building a tree of {@link GdxVDFNode}s.
+ * <p>
+ * Each call to {@link #next()} returns the next key, value, start or end of a node, reading the input through a fixed
+ * buffer; the only objects created are the strings of keys and values. A node which is not needed can be skipped with
+ * {@link #skipNode()}, which only matches braces and allocates nothing. Comments and conditional tags are skipped,
+ * so every entry is returned, like {@link GdxVDFParser} does without {@link GdxVDFConditionals}.
+ * </p>
+ *
+ * <pre>
+ * try (GdxVDFReader reader = new GdxVDFReader(file.reader("UTF-8"))) {
+ * 	for (Token token = reader.next(); token != Token.end; token = reader.next()) {
+ * 		if (token == Token.key) System.out.println(reader.getString());
+ * 	}
+ * }
+ * </pre>
+ * @author Arete */
+public class GdxVDFReader implements Closeable {
+
+    /** The kinds of tokens of a VDF document. */
+    public enum Token {
+        /** A key, followed by a value or the start of a node. */
+        key,
+        /** The value of the previous key. */
+        value,
+        /** The start of the node named by the previous key. */
+        nodeStart,
+        /** The end of the current node. */
+        nodeEnd,
+        /** The end of the document. */
+        end
+    }
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position, limit;
+    private boolean eof;
+
+    private final StringBuilder text = new StringBuilder();
+    private Token token;
+    private String string;
+    private boolean valuePending;
+    private int depth, line = 1;
+
+    /**
+     * Initializes the reader with a specific buffer size.
+     * @param reader the input, which is closed by {@link #close()}
+     * @param bufferSize the number of characters read from the input at once
+     */
+    public GdxVDFReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Initializes the reader.
+     * @param reader the input, which is closed by {@link #close()}
+     */
+    public GdxVDFReader(Reader reader) {
+        this(reader, 8192);
+    }
+
+    /**
+     * Initializes the reader over a VDF document in memory.
+     * @param vdf the VDF document
+     */
+    public GdxVDFReader(String vdf) {
+        this(new StringReader(vdf), Math.max(16, Math.min(vdf.length(), 8192)));
+    }
+
+    /**
+     * Reads the next token.
+     * @return the next token, {@link Token#end} at the end of the document
+     * @throws GdxVDFParseException if the braces of the document do not match
+     */
+    public Token next() {
+        for (;;) {
+            int c = skipWhitespace();
+            switch (c) {
+                case -1:
+                    if (depth > 0) {
+                        throw new GdxVDFParseException("The document ended inside a node at line " + line +
+                                ". There was a subnode mismatch (misplaced '{'?)");
+                    }
+                    string = null;
+                    valuePending = false;
+                    return token = Token.end;
+                case '{':
+                    position++;
+                    if (!valuePending) throw new GdxVDFParseException("Node without a key at line " + line + ".");
+                    valuePending = false;
+                    depth++;
+                    return token = Token.nodeStart;
+                case '}':
+                    position++;
+                    if (depth == 0) {
+                        throw new GdxVDFParseException("Unexpected '}' at line " + line +
+                                ". There was a subnode mismatch (misplaced '}'?).");
+                    }
+                    // A key without a value is dropped, as the parser does
+                    valuePending = false;
+                    depth--;
+                    string = null;
+                    return token = Token.nodeEnd;
+                case '[':
+                    skipCondition();
+                    break;
+                default:
+                    string = c == '"' ? readQuoted() : readUnquoted();
+                    valuePending = !valuePending;
+                    return token = valuePending ? Token.key : Token.value;
+            }
+        }
+    }
+
+    /**
+     * Skips the rest of the current node, after {@link Token#nodeStart} or inside it, up to its end. Only braces,
+     * quotes and comments are looked at, so nothing is allocated.
+     * @throws IllegalStateException if the reader is not inside a node
+     * @throws GdxVDFParseException if the document ends before the node
+     */
+    public void skipNode() {
+        if (depth == 0) throw new IllegalStateException("Not inside a node.");
+        int target = depth - 1;
+        boolean quoted = false, escaped = false;
+        for (;;) {
+            if (position == limit && !fill()) {
+                throw new GdxVDFParseException("The document ended inside a node at line " + line +
+                        ". There was a subnode mismatch (misplaced '{'?)");
+            }
+            char c = buffer[position++];
+            if (c == '\n') line++;
+            if (quoted) {
+                if (escaped) escaped = false;
+                else if (c == '\\') escaped = true;
+                else if (c == '"') quoted = false;
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == '/' && isComment()) {
+                skipLine();
+            }
+            else if (c == '{') {
+                depth++;
+            }
+            else if (c == '}' && --depth == target) {
+                valuePending = false;
+                string = null;
+                token = Token.nodeEnd;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips the value or node of the current key. Does nothing if the last token was not a key.
+     */
+    public void skipValue() {
+        if (token != Token.key) return;
+        if (next() == Token.nodeStart) skipNode();
+    }
+
+    /**
+     * Reads the entries up to the end of the current node, or of the document at the top level, into a tree. The tree
+     * is built while the input is read, so the text of the document is never held in full. Conditional tags are
+     * skipped, so every entry is kept.
+     * @return a new node holding the entries, whose name is null
+     * @throws GdxVDFParseException if the braces of the document do not match
+     */
+    public GdxVDFNode readTree() {
+        GdxVDFNode root = new GdxVDFNode(), current = root, last = null;
+        String key = null;
+        for (Token token = next(); token != Token.end; token = next()) {
+            switch (token) {
+                case key:
+                    key = string;
+                    break;
+                case value:
+                    GdxVDFNode value = new GdxVDFNode(string);
+                    current.addChildAfter(last, key, value);
+                    last = value;
+                    break;
+                case nodeStart:
+                    GdxVDFNode node = new GdxVDFNode();
+                    current.addChildAfter(last, key, node);
+                    current = node;
+                    last = null;
+                    break;
+                case nodeEnd:
+                    if (current == root) return root;
+                    last = current;
+                    current = current.parent;
+                    break;
+            }
+        }
+        return root;
+    }
+
+    /** Returns the last token read.
+     * @return May be null, if no token was read yet. */
+    public Token getToken() {
+        return token;
+    }
+
+    /** Returns the text of the last key or value. The name of a node is the text of the key before its start.
+     * @return May be null, if the last token was not a key or a value. */
+    public String getString() {
+        return string;
+    }
+
+    /** Returns how many nodes the reader is inside of, 0 at the top level of the document. */
+    public int getDepth() {
+        return depth;
+    }
+
+    /** Returns the line of the input the reader is at, starting from 1. */
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /** Skips whitespace and comments.
+     * @return the next character, which is not consumed, or -1 at the end of the input */
+    private int skipWhitespace() {
+        for (;;) {
+            if (position == limit && !fill()) return -1;
+            char c = buffer[position];
+            if (c == ' ' || c == '\t' || c == '\r' || c == 0x0B) {
+                position++;
+            }
+            else if (c == '\n') {
+                position++;
+                line++;
+            }
+            else if (c == '/' && peekComment()) {
+                position++;
+                skipLine();
+            }
+            else {
+                return c;
+            }
+        }
+    }
+
+    private String readQuoted() {
+        position++;
+        text.setLength(0);
+        for (;;) {
+            if (position == limit && !fill()) {
+                throw new GdxVDFParseException("Unterminated quoted string at line " + line + ".");
+            }
+            // Copy the characters up to the next quote or escape at once
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\' || c == '\n' || c == '\r') break;
+                position++;
+            }
+            text.append(buffer, start, position - start);
+            if (position == limit) continue;
+            char c = buffer[position++];
+            if (c == '"') return text.toString();
+            if (c == '\\') {
+                if (position == limit && !fill()) continue;
+                char escaped = buffer[position++];
+                text.append(escaped == 'n' ? '\n' : escaped);
+            }
+            else if (c == '\n') {
+                // Lines are joined with a space, as the preprocessor does
+                line++;
+                text.append(' ');
+            }
+        }
+    }
+
+    private String readUnquoted() {
+        text.setLength(0);
+        for (;;) {
+            if (position == limit && !fill()) return text.toString();
+            char c = buffer[position];
+            switch (c) {
+                case ' ': case '\t': case '\r': case '\n': case 0x0B:
+                case '"': case '{': case '}': case '[':
+                    return text.toString();
+                case '/':
+                    if (peekComment()) return text.toString();
+                    break;
+                case '\\':
+                    position++;
+                    if (position == limit && !fill()) return text.toString();
+                    c = buffer[position] == 'n' ? '\n' : buffer[position];
+                    break;
+            }
+            text.append(c);
+            position++;
+        }
+    }
+
+    /** Skips a conditional tag, or the rest of the line if the tag is not closed on it. */
+    private void skipCondition() {
+        for (;;) {
+            if (position == limit && !fill()) return;
+            char c = buffer[position];
+            if (c == '\n') return;
+            position++;
+            if (c == ']') return;
+        }
+    }
+
+    /** Skips the rest of the line, comments always take it up entirely. The line break is not consumed. */
+    private void skipLine() {
+        for (;;) {
+            if (position == limit && !fill()) return;
+            if (buffer[position] == '\n') return;
+            position++;
+        }
+    }
+
+    /** Returns whether the character at the position, a '/', starts a comment. */
+    private boolean peekComment() {
+        if (position + 1 >= limit) {
+            // Keep the '/' in the buffer while reading the next character
+            if (!fill(1)) return false;
+        }
+        char n = buffer[position + 1];
+        return n == '/' || n == '*';
+    }
+
+    /** Returns whether the character before the position, a consumed '/', starts a comment. */
+    private boolean isComment() {
+        if (position == limit && !fill()) return false;
+        char n = buffer[position];
+        return n == '/' || n == '*';
+    }
+
+    private boolean fill() {
+        return fill(0);
+    }
+
+    /**
+     * Reads more characters from the input.
+     * @param keep the number of characters from the position to keep in the buffer
+     * @return false if the input has no more characters
+     */
+    private boolean fill(int keep) {
+        if (eof) return false;
+        if (keep > 0) System.arraycopy(buffer, position, buffer, 0, keep);
+        position = 0;
+        limit = keep;
+        try {
+            while (limit < buffer.length) {
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read == -1) {
+                    eof = true;
+                    break;
+                }
+                limit += read;
+                if (limit > keep) break;
+            }
+        }
+        catch (IOException e) {
+            throw new GdxVDFParseException("The document cannot be read: " + e.getMessage());
+        }
+        return limit > keep;
+    }
+
+}
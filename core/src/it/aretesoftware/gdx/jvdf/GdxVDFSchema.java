@@ -0,0 +1,654 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Validates VDF documents against their expected structure.
+ * <p>
+ * A schema is itself a VDF document, describing the root of the documents it validates. Each rule is either just a
+ * type, or a node with the following attributes, all optional:
+ * </p>
+ * <ul>
+ * <li>"type": string, int, long, float, double, boolean, color, vector2, vector3, enum, block, or any. Defaults to
+ * block if the rule has keys or allows additional ones, string otherwise.</li>
+ * <li>"required": "true" if the key must appear, the same as a "min_count" of 1.</li>
+ * <li>"min_count" and "max_count": how many times the key can appear in a multimap, 0 and 1 by default. A "max_count"
+ * of "*" has no limit.</li>
+ * <li>"min" and "max": the range of numbers, inclusive.</li>
+ * <li>"values": the values of an enum, separated by spaces.</li>
+ * <li>"pattern": a regular expression strings must match.</li>
+ * <li>"keys": the rules of the children of a block. The rule with the key "*" applies to every child without a rule
+ * of its own, without count limits.</li>
+ * <li>"additional": "true" if a block can have children without a rule, which are not validated.</li>
+ * </ul>
+ *
+ * <pre>
+ * "keys"
+ * {
+ *     "items"
+ *     {
+ *         "required" "true"
+ *         "keys"
+ *         {
+ *             "*"
+ *             {
+ *                 "keys"
+ *                 {
+ *                     "name"      { "required" "true" }
+ *                     "item_slot" { "type" "enum" "values" "primary secondary melee" }
+ *                     "weight"    { "type" "float" "min" "0" }
+ *                     "tag"       { "max_count" "*" }
+ *                 }
+ *             }
+ *         }
+ *     }
+ * }
+ * </pre>
+ * <p>
+ * The schema is compiled once into a tree of rules, with keys looked up in sorted maps, and validates a document in a
+ * single pass, either from a tree of {@link GdxVDFNode}s or straight from a {@link GdxVDFReader} without building one.
+ * Every violation is collected with its {@link GdxVDFPath}, rather than stopping at the first. Schemas are immutable,
+ * so a single schema can validate many documents concurrently, see {@link #validateAll(Collection, boolean)}.
+ * </p>
+ * @author Arete */
+public final class GdxVDFSchema {
+
+    private static final GdxVDFValues values = new GdxVDFValues();
+
+    private final Rule root;
+
+    private GdxVDFSchema(Rule root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles a schema written in VDF.
+     * @param schema the VDF document of the schema
+     * @return the compiled schema
+     * @throws IllegalArgumentException if the schema is malformed
+     */
+    public static GdxVDFSchema compile(String schema) {
+        return compile(new GdxVDFParser().parse(schema));
+    }
+
+    /**
+     * Compiles a schema.
+     * @param schema the rule of the root of the documents, whose children are the attributes of the rule
+     * @return the compiled schema
+     * @throws IllegalArgumentException if the schema is malformed
+     */
+    public static GdxVDFSchema compile(GdxVDFNode schema) {
+        return new GdxVDFSchema(compileRules(schema));
+    }
+
+    /**
+     * Validates a tree.
+     * @param root the root of the document
+     * @return the violations, in the order of the document, empty if the document is valid
+     */
+    public List<Violation> validate(GdxVDFNode root) {
+        List<Violation> violations = new ArrayList<>();
+        validate(this.root, new TreeEntries(root), violations);
+        return violations;
+    }
+
+    /**
+     * Validates the rest of a document as it is read, without building a tree. A malformed document is reported as a
+     * violation, after the ones found before the error.
+     * @param reader the reader of the document, which has not read any token yet
+     * @return the violations, in the order of the document, empty if the document is valid
+     */
+    public List<Violation> validate(GdxVDFReader reader) {
+        List<Violation> violations = new ArrayList<>();
+        ReaderEntries entries = new ReaderEntries(reader);
+        try {
+            validate(root, entries, violations);
+        }
+        catch (GdxVDFParseException e) {
+            violations.add(new Violation(GdxVDFPath.ROOT, e.getMessage()));
+        }
+        return violations;
+    }
+
+    /**
+     * Validates a file as it is read, without building a tree.
+     * @param file the VDF file, in UTF-8
+     * @return the violations, in the order of the document, empty if the document is valid
+     */
+    public List<Violation> validate(FileHandle file) {
+        try (GdxVDFReader reader = new GdxVDFReader(file.reader("UTF-8"))) {
+            return validate(reader);
+        }
+        catch (IOException e) {
+            return Collections.singletonList(new Violation(GdxVDFPath.ROOT, "The document cannot be read: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Validates many files, optionally in parallel on the common fork/join pool.
+     * @param files the VDF files, in UTF-8
+     * @param parallel whether to validate the files in parallel
+     * @return the violations of every file, in the order of the files
+     */
+    public Map<FileHandle, List<Violation>> validateAll(Collection<FileHandle> files, boolean parallel) {
+        List<FileHandle> list = new ArrayList<>(files);
+        List<List<Violation>> violations = StreamSupport.stream(list.spliterator(), parallel)
+                .map(this::validate)
+                .collect(Collectors.toList());
+        Map<FileHandle, List<Violation>> result = new LinkedHashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            result.put(list.get(i), violations.get(i));
+        }
+        return result;
+    }
+
+    /** Returns whether a tree has no violations. */
+    public boolean isValid(GdxVDFNode root) {
+        return validate(root).isEmpty();
+    }
+
+    /** Validates the entries of a document, keeping the blocks being validated on a stack rather than recursing, so
+     * that documents and schemas of any depth are validated. */
+    private static void validate(Rule root, Entries entries, List<Violation> violations) {
+        Deque<Block> stack = new ArrayDeque<>();
+        Block block = new Block(root, null, null, 0);
+        while (block != null) {
+            if (!entries.next()) {
+                block.end(violations);
+                block = stack.poll();
+                continue;
+            }
+            String name = entries.name();
+            Rule rule = block.rule, child = null;
+            int namedIndex = 0;
+            Integer index = rule.index.get(name);
+            if (index != null) {
+                namedIndex = block.counts[index]++;
+                if (namedIndex < rule.children[index].maxCount) child = rule.children[index];
+            }
+            else if (rule.wildcard != null || !rule.additional) {
+                // Named indexes of the children without a rule of their own, counted only if a path needs them
+                if (block.others == null) block.others = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                int[] count = block.others.computeIfAbsent(name, key -> new int[1]);
+                namedIndex = count[0]++;
+                if (rule.wildcard != null) child = rule.wildcard;
+                else violations.add(new Violation(block.path().child(name, namedIndex), "Unknown key"));
+            }
+            if (child == null || child.type == Type.any) {
+                // Entries beyond the maximum count are reported once all are counted, and not validated
+                if (entries.isBlock()) entries.skip();
+            }
+            else if (child.type == Type.block) {
+                if (entries.isBlock()) {
+                    entries.enter();
+                    stack.push(block);
+                    block = new Block(child, block, name, namedIndex);
+                }
+                else {
+                    violations.add(new Violation(block.path().child(name, namedIndex), "Expected a block, found a value"));
+                }
+            }
+            else if (entries.isBlock()) {
+                entries.skip();
+                violations.add(new Violation(block.path().child(name, namedIndex),
+                        "Expected a value of type " + child.type + ", found a block"));
+            }
+            else {
+                String message = child.check(entries.value());
+                if (message != null) violations.add(new Violation(block.path().child(name, namedIndex), message));
+            }
+        }
+    }
+
+    /** Compiles the rules of a schema, keeping the rules whose keys are left to compile on a stack rather than
+     * recursing, so that schemas of any depth are compiled. */
+    private static Rule compileRules(GdxVDFNode schema) {
+        Rule root = compileRule(schema, null, "block");
+        Deque<Rule> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Rule rule = pending.pop();
+            List<Rule> children = new ArrayList<>();
+            if (rule.keys != null) {
+                for (GdxVDFNode key = rule.keys.child; key != null; key = key.next) {
+                    Rule child = compileRule(key, rule, "string");
+                    if (key.name.equals("*")) {
+                        rule.wildcard = child;
+                    }
+                    else {
+                        if (rule.index.containsKey(key.name)) throw new IllegalArgumentException("Duplicate key: " + child.path());
+                        rule.index.put(key.name, children.size());
+                        children.add(child);
+                    }
+                    pending.push(child);
+                }
+                rule.keys = null;
+            }
+            rule.children = children.toArray(new Rule[0]);
+        }
+        return root;
+    }
+
+    /** Compiles the attributes of a rule. Its keys are compiled by {@link #compileRules(GdxVDFNode)}. */
+    private static Rule compileRule(GdxVDFNode node, Rule parent, String defaultType) {
+        Rule rule = new Rule();
+        rule.key = parent == null ? "" : node.name;
+        rule.parent = parent;
+        if (node.asString() != null) {
+            rule.type = type(node.asString(), rule);
+            return rule;
+        }
+        GdxVDFNode keys = null;
+        boolean additional = false;
+        for (GdxVDFNode attribute = node.child; attribute != null; attribute = attribute.next) {
+            String name = attribute.name.toLowerCase(Locale.ROOT);
+            if (name.equals("keys")) {
+                if (attribute.asString() != null) throw new IllegalArgumentException("Keys must be a block: " + rule.path());
+                keys = attribute;
+                continue;
+            }
+            String value = attribute.asString();
+            if (value == null) throw new IllegalArgumentException("Attribute " + name + " must be a value: " + rule.path());
+            switch (name) {
+                case "type": rule.type = type(value, rule); break;
+                case "required": if (bool(value, rule)) rule.minCount = Math.max(rule.minCount, 1); break;
+                case "min_count": rule.minCount = count(value, rule); break;
+                case "max_count": rule.maxCount = value.equals("*") ? Integer.MAX_VALUE : count(value, rule); break;
+                case "min": rule.min = number(value, rule); break;
+                case "max": rule.max = number(value, rule); break;
+                case "values": rule.allowed = new LinkedHashSet<>(Arrays.asList(value.trim().split("\\s+"))); break;
+                case "pattern":
+                    try {
+                        rule.pattern = Pattern.compile(value);
+                    }
+                    catch (PatternSyntaxException e) {
+                        throw new IllegalArgumentException("Malformed pattern at " + rule.path() + ": " + e.getMessage());
+                    }
+                    break;
+                case "additional": rule.additional = bool(value, rule); additional = true; break;
+                default: throw new IllegalArgumentException("Unknown schema attribute " + name + ": " + rule.path());
+            }
+        }
+        if (rule.type == null) rule.type = keys != null || additional ? Type.block : type(defaultType, rule);
+        if ((keys != null || additional) && rule.type != Type.block) throw new IllegalArgumentException("Only blocks can have keys: " + rule.path());
+        if (rule.type == Type.enumeration && rule.allowed == null) throw new IllegalArgumentException("Enums require values: " + rule.path());
+        if (rule.minCount > rule.maxCount) throw new IllegalArgumentException("Minimum count above the maximum count: " + rule.path());
+        rule.keys = keys;
+        return rule;
+    }
+
+    private static Type type(String name, Rule rule) {
+        Type type = Type.byName(name);
+        if (type == null) throw new IllegalArgumentException("Unknown type " + name + ": " + rule.path());
+        return type;
+    }
+
+    private static boolean bool(String value, Rule rule) {
+        if (!values.isBoolean(value)) throw new IllegalArgumentException("Expected true or false at " + rule.path() + ": " + value);
+        return values.toBoolean(value);
+    }
+
+    private static int count(String value, Rule rule) {
+        try {
+            int count = Integer.parseInt(value.trim());
+            if (count >= 0) return count;
+        }
+        catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Expected a count at " + rule.path() + ": " + value);
+    }
+
+    private static Double number(String value, Rule rule) {
+        try {
+            return Double.parseDouble(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number at " + rule.path() + ": " + value);
+        }
+    }
+
+    /** The types of values, named in schemas by their lower case name. */
+    private enum Type {
+        any("any"), block("block"), string("string"), integer("int"), longInteger("long"), floating("float"),
+        doubleFloating("double"), bool("boolean"), color("color"), vector2("vector2"), vector3("vector3"),
+        enumeration("enum");
+
+        private static final Map<String, Type> byName = new HashMap<>();
+
+        static {
+            for (Type type : values()) {
+                byName.put(type.name, type);
+            }
+        }
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        /** @return May be null. */
+        static Type byName(String name) {
+            return byName.get(name.trim().toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /** A compiled rule, immutable once compiled. */
+    private static final class Rule {
+        String key;
+        /** May be null, for the rule of the root. */
+        Rule parent;
+        /** The keys of the schema left to compile, null once compiled. */
+        GdxVDFNode keys;
+        Type type;
+        int minCount = 0, maxCount = 1;
+        Double min, max;
+        Set<String> allowed;
+        Pattern pattern;
+        boolean additional;
+        /** Indexes of the rules of the children, by case-insensitive key. */
+        final Map<String, Integer> index = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Rule[] children;
+        /** May be null. */
+        Rule wildcard;
+
+        /** Returns the path of this rule in the schema, built only for error messages. */
+        GdxVDFPath path() {
+            int length = 0;
+            for (Rule rule = this; rule.parent != null; rule = rule.parent) length++;
+            String[] names = new String[length];
+            for (Rule rule = this; rule.parent != null; rule = rule.parent) names[--length] = rule.key;
+            return GdxVDFPath.of(names, new int[names.length]);
+        }
+
+        /** Checks a value against this rule.
+         * @return May be null, if the value is valid, otherwise the reason it is not. */
+        String check(String value) {
+            double number = 0;
+            switch (type) {
+                case string:
+                    if (pattern != null && !pattern.matcher(value).matches()) return "Expected a value matching " + pattern + ": " + value;
+                    return null;
+                case integer:
+                case longInteger:
+                    try {
+                        number = type == Type.integer ? Integer.parseInt(value) : Long.parseLong(value);
+                    }
+                    catch (NumberFormatException e) {
+                        return "Expected " + type + ": " + value;
+                    }
+                    break;
+                case floating:
+                case doubleFloating:
+                    try {
+                        number = type == Type.floating ? Float.parseFloat(value) : Double.parseDouble(value);
+                    }
+                    catch (NumberFormatException e) {
+                        return "Expected " + type + ": " + value;
+                    }
+                    break;
+                case bool:
+                    return values.isBoolean(value) ? null : "Expected boolean: " + value;
+                case color:
+                    return values.isColor(value) ? null : "Expected color: " + value;
+                case vector2:
+                    return values.isVector2(value) ? null : "Expected vector2: " + value;
+                case vector3:
+                    return values.isVector3(value) ? null : "Expected vector3: " + value;
+                case enumeration:
+                    return allowed.contains(value) ? null : "Expected one of " + allowed + ": " + value;
+                default:
+                    return null;
+            }
+            if ((min != null && number < min) || (max != null && number > max)) {
+                return "Value out of range [" + (min == null ? "" : min) + ", " + (max == null ? "" : max) + "]: " + value;
+            }
+            return null;
+        }
+    }
+
+    /** A block being validated, with the occurrences of its keys so far. */
+    private static final class Block {
+        final Rule rule;
+        /** May be null, for the root. */
+        final Block parent;
+        final String name;
+        final int namedIndex;
+        final int[] counts;
+        /** Named indexes of the children without a rule of their own. May be null. */
+        Map<String, int[]> others;
+        /** Built when a violation needs it, since building the path of every block is quadratic in the depth. */
+        private GdxVDFPath path;
+
+        Block(Rule rule, Block parent, String name, int namedIndex) {
+            this.rule = rule;
+            this.parent = parent;
+            this.name = name;
+            this.namedIndex = namedIndex;
+            this.counts = new int[rule.children.length];
+        }
+
+        GdxVDFPath path() {
+            if (path == null) {
+                int length = 0;
+                for (Block block = this; block.parent != null; block = block.parent) length++;
+                String[] names = new String[length];
+                int[] indexes = new int[length];
+                for (Block block = this; block.parent != null; block = block.parent) {
+                    names[--length] = block.name;
+                    indexes[length] = block.namedIndex;
+                }
+                path = GdxVDFPath.of(names, indexes);
+            }
+            return path;
+        }
+
+        /** Reports the keys which appeared too few or too many times, once the block is over. */
+        void end(List<Violation> violations) {
+            for (int i = 0; i < counts.length; i++) {
+                Rule child = rule.children[i];
+                if (counts[i] < child.minCount) {
+                    violations.add(new Violation(path().child(child.key), child.minCount == 1 ? "Missing required key"
+                            : "Expected at least " + child.minCount + " occurrences, found " + counts[i]));
+                }
+                else if (counts[i] > child.maxCount) {
+                    violations.add(new Violation(path().child(child.key, child.maxCount),
+                            "Expected at most " + child.maxCount + " occurrences, found " + counts[i]));
+                }
+            }
+        }
+    }
+
+    /** A violation of a schema by a document. */
+    public static final class Violation {
+        private final GdxVDFPath path;
+        private final String message;
+
+        Violation(GdxVDFPath path, String message) {
+            this.path = path;
+            this.message = message;
+        }
+
+        /** Returns the path of the invalid node, or of the missing one. */
+        public GdxVDFPath path() {
+            return path;
+        }
+
+        /** Returns why the node is invalid. */
+        public String message() {
+            return message;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Violation)) return false;
+            Violation other = (Violation) o;
+            return path.equals(other.path) && message.equals(other.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + message.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return path + ": " + message;
+        }
+    }
+
+    /** The entries of a document, walked depth-first: a tree, or the tokens of a reader. */
+    private interface Entries {
+        /** Moves to the next entry of the current block.
+         * @return false at the end of the block, after which the entries continue after the block in its parent */
+        boolean next();
+
+        String name();
+
+        /** @return May be null, for blocks. */
+        String value();
+
+        boolean isBlock();
+
+        /** Makes the current entry, a block, the current block. */
+        void enter();
+
+        /** Skips the current entry, a block which is not entered. */
+        void skip();
+    }
+
+    private static final class TreeEntries implements Entries {
+        private final Deque<GdxVDFNode> stack = new ArrayDeque<>();
+        private GdxVDFNode block, current;
+
+        TreeEntries(GdxVDFNode root) {
+            this.block = root;
+        }
+
+        @Override
+        public boolean next() {
+            current = current == null ? block.child : current.next;
+            if (current != null) return true;
+            if (!stack.isEmpty()) {
+                current = stack.pop();
+                block = current.parent;
+            }
+            return false;
+        }
+
+        @Override
+        public String name() {
+            return current.name;
+        }
+
+        @Override
+        public String value() {
+            return current.asString();
+        }
+
+        @Override
+        public boolean isBlock() {
+            return current.asString() == null;
+        }
+
+        @Override
+        public void enter() {
+            stack.push(current);
+            block = current;
+            current = null;
+        }
+
+        @Override
+        public void skip() {
+        }
+    }
+
+    private static final class ReaderEntries implements Entries {
+        private final GdxVDFReader reader;
+        private String name, value;
+        private boolean block;
+
+        ReaderEntries(GdxVDFReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean next() {
+            if (reader.next() != GdxVDFReader.Token.key) return false;
+            name = reader.getString();
+            GdxVDFReader.Token token = reader.next();
+            // A key without a value, at the end of a block, is dropped like the parser does
+            if (token == GdxVDFReader.Token.nodeEnd || token == GdxVDFReader.Token.end) return false;
+            block = token == GdxVDFReader.Token.nodeStart;
+            value = block ? null : reader.getString();
+            return true;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String value() {
+            return value;
+        }
+
+        @Override
+        public boolean isBlock() {
+            return block;
+        }
+
+        @Override
+        public void enter() {
+        }
+
+        @Override
+        public void skip() {
+            reader.skipNode();
+        }
+    }
+
+}
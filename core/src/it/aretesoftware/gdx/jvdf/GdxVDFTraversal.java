@@ -0,0 +1,252 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs bulk operations over every node of a tree, splitting the work across the threads of a {@link ForkJoinPool}.
+ * <p>
+ * Lists of more than {@link #setThreshold(int) threshold} siblings are split in halves, and every time a task has
+ * walked that many nodes it hands the children of the next node it meets to idle threads, so wide and deep trees
+ * both keep every core busy. Trees smaller than the threshold are walked on the calling thread. The results of
+ * {@link #filter(GdxVDFNode, Predicate)} and {@link #collect(GdxVDFNode, Function)} are in document order whatever
+ * the number of threads.
+ * </p>
+ * The functions passed to a traversal are called concurrently for different nodes. They may read the tree and change
+ * the value of the node they are given, but must not add or remove nodes.
+ *
+ * <pre>
+ * GdxVDFTraversal traversal = new GdxVDFTraversal();
+ * traversal.map(root, "damage", damage -&gt; Float.toString(Float.parseFloat(damage) * 1.5f));
+ * List&lt;Color&gt; colors = traversal.collect(root, node -&gt; node.name.equals("color") ? node.asColor() : null);
+ * </pre>
+ * @author Arete */
+public class GdxVDFTraversal {
+
+    /** The default threshold, in nodes. */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    /** How many queued tasks a thread keeps for others to steal before it stops handing off subtrees. */
+    private static final int SURPLUS = 3;
+
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private int threshold = DEFAULT_THRESHOLD;
+
+    /**
+     * Sets the pool running the traversals, by default the common pool.
+     * @param pool May be null, to walk trees on the calling thread.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** @return May be null. */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets how many nodes are worth a task of their own: longer sibling lists are split, and a task walks at least
+     * as many nodes before handing off subtrees.
+     * @param threshold the threshold, in nodes
+     */
+    public void setThreshold(int threshold) {
+        if (threshold < 1) throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        this.threshold = threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Calls the visitor for every descendant of the root, not the root itself. Parents are visited before their
+     * children on the same thread, but the order across threads is undefined.
+     * @param root the root of the tree
+     * @param visitor the visitor, called concurrently
+     */
+    public void visit(GdxVDFNode root, Consumer<GdxVDFNode> visitor) {
+        run(root, node -> {
+            visitor.accept(node);
+            return null;
+        });
+    }
+
+    /**
+     * Replaces the value of every descendant of the root which holds a value and matches the filter.
+     * @param root the root of the tree
+     * @param filter selects the values to replace, called concurrently
+     * @param mapper returns the new value given the current one, called concurrently
+     * @return the number of replaced values
+     */
+    public int map(GdxVDFNode root, Predicate<GdxVDFNode> filter, UnaryOperator<String> mapper) {
+        LongAdder count = new LongAdder();
+        visit(root, node -> {
+            if (node.child == null && !node.isNull() && filter.test(node)) {
+                node.set(mapper.apply(node.asString()));
+                count.increment();
+            }
+        });
+        return count.intValue();
+    }
+
+    /**
+     * Replaces every value named as given, ignoring case, among the descendants of the root.
+     * @param root the root of the tree
+     * @param name the name of the values to replace
+     * @param mapper returns the new value given the current one, called concurrently
+     * @return the number of replaced values
+     */
+    public int map(GdxVDFNode root, String name, UnaryOperator<String> mapper) {
+        return map(root, node -> name.equalsIgnoreCase(node.name), mapper);
+    }
+
+    /**
+     * Returns the descendants of the root matching the predicate.
+     * @param root the root of the tree
+     * @param predicate selects the nodes, called concurrently
+     * @return the matching nodes in document order
+     */
+    public List<GdxVDFNode> filter(GdxVDFNode root, Predicate<GdxVDFNode> predicate) {
+        return collect(root, node -> predicate.test(node) ? node : null);
+    }
+
+    /**
+     * Maps the descendants of the root, keeping the results which are not null.
+     * @param root the root of the tree
+     * @param function returns the result for a node, or null to skip it, called concurrently
+     * @return the results in document order
+     */
+    public <T> List<T> collect(GdxVDFNode root, Function<GdxVDFNode, T> function) {
+        List<T> results = run(root, function);
+        return results == null ? new ArrayList<>() : results;
+    }
+
+    private <T> List<T> run(GdxVDFNode root, Function<GdxVDFNode, T> function) {
+        if (root.child == null) return null;
+        Task<T> task = new Task<>(root.child, root.size, function, threshold, pool != null);
+        if (pool == null || root.size <= threshold && isSmall(root)) return task.compute();
+        return pool.invoke(task);
+    }
+
+    /** Returns whether the tree has at most threshold nodes, looking at no more than that many. */
+    private boolean isSmall(GdxVDFNode root) {
+        int count = 0;
+        GdxVDFNode node = root.child;
+        while (node != null) {
+            if (++count > threshold) return false;
+            if (node.child != null) {
+                node = node.child;
+                continue;
+            }
+            while (node.next == null && node.parent != root) node = node.parent;
+            node = node.next;
+        }
+        return true;
+    }
+
+    /** Walks a range of siblings and their subtrees. Its result is null when there are none. */
+    private static final class Task<T> extends RecursiveTask<List<T>> {
+        private final GdxVDFNode first;
+        private final int count;
+        private final Function<GdxVDFNode, T> function;
+        private final int threshold;
+        private final boolean parallel;
+
+        Task(GdxVDFNode first, int count, Function<GdxVDFNode, T> function, int threshold, boolean parallel) {
+            this.first = first;
+            this.count = count;
+            this.function = function;
+            this.threshold = threshold;
+            this.parallel = parallel;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected List<T> compute() {
+            if (parallel && count > threshold) {
+                int half = count / 2;
+                GdxVDFNode middle = first;
+                for (int i = 0; i < half; i++) middle = middle.next;
+                Task<T> right = new Task<>(middle, count - half, function, threshold, true);
+                right.fork();
+                List<T> left = new Task<>(first, half, function, threshold, true).compute();
+                return concat(left, right.join());
+            }
+
+            // Results of this task and subtrees handed off, in document order
+            List<Object> parts = null;
+            List<T> results = null;
+            int walked = 0, depth = 0, remaining = count;
+            GdxVDFNode node = first;
+            while (node != null) {
+                T result = function.apply(node);
+                if (result != null) {
+                    if (results == null) results = new ArrayList<>();
+                    results.add(result);
+                }
+                walked++;
+                if (node.child != null) {
+                    if (!parallel || walked < threshold && node.size <= threshold
+                            || ForkJoinTask.getSurplusQueuedTaskCount() > SURPLUS) {
+                        node = node.child;
+                        depth++;
+                        continue;
+                    }
+                    Task<T> subtree = new Task<>(node.child, node.size, function, threshold, true);
+                    subtree.fork();
+                    if (parts == null) parts = new ArrayList<>();
+                    if (results != null) parts.add(results);
+                    results = null;
+                    parts.add(subtree);
+                    walked = 0;
+                }
+                while (depth > 0 && node.next == null) {
+                    node = node.parent;
+                    depth--;
+                }
+                if (depth == 0 && --remaining == 0) break;
+                node = node.next;
+            }
+
+            if (parts == null) return results;
+            List<T> joined = null;
+            for (Object part : parts) {
+                joined = concat(joined, part instanceof Task ? ((Task<T>) part).join() : (List<T>) part);
+            }
+            return concat(joined, results);
+        }
+
+        private static <T> List<T> concat(List<T> first, List<T> second) {
+            if (first == null) return second;
+            if (second != null) first.addAll(second);
+            return first;
+        }
+    }
+
+}
@@ -34,11 +34,22 @@ public class GdxVDFWriter {
     private static final String NODE_START = "{";
     private static final String NODE_END = "}";
 
+    private static final String COMMENT = "// ";
+
     private final StringBuilder builder, whitespace;
+    private final boolean indent;
 
     public GdxVDFWriter() {
+        this(true);
+    }
+
+    /**
+     * @param indent whether nested nodes are indented. Indentation grows with the depth of a node, so documents with
+     * very deep nesting are smaller and faster to write without it. */
+    public GdxVDFWriter(boolean indent) {
         this.builder = new StringBuilder();
         this.whitespace = new StringBuilder();
+        this.indent = indent;
     }
 
 
@@ -51,7 +62,9 @@ public class GdxVDFWriter {
                 .append(QUOTES).append(name).append(QUOTES)
                 .append(NEWLINE)
                 .append(whitespace).append(NODE_START).append(NEWLINE);
-        whitespace.append(WHITESPACE);
+        if (indent) {
+            whitespace.append(WHITESPACE);
+        }
         return this;
     }
 
@@ -356,6 +369,61 @@ public class GdxVDFWriter {
         return this;
     }
 
+    /**
+     * Writes a comment on its own line. Comments take up the rest of the line, so line breaks in the text are replaced.
+     * @param text the text of the comment
+     * @return this {@link GdxVDFWriter} for chaining */
+    public GdxVDFWriter writeComment(String text) {
+        builder.append(whitespace)
+                .append(COMMENT).append(text.replace('\n', ' ').replace('\r', ' '))
+                .append(NEWLINE);
+        return this;
+    }
+
+    /**
+     * Writes a {@link GdxVDFNode} and all of its children in the current {@link GdxVDFNode}. Nodes without children
+     * are written as values, unless their value is null, in which case they are written as empty nodes. The tree is
+     * walked without recursion, so a tree of any depth can be written.
+     * @param node the node to write, which requires a name
+     * @return this {@link GdxVDFWriter} for chaining */
+    public GdxVDFWriter writeNode(GdxVDFNode node) {
+        GdxVDFMonitor monitor = GdxVDFMonitor.get();
+        Object context = monitor == null ? null : monitor.beginWrite();
+        int start = builder.length();
+        writeTree(node);
+        if (context != null) monitor.endWrite(context, builder.length() - start);
+        return this;
+    }
+
+    private void writeTree(GdxVDFNode node) {
+        if (node.isEmpty() && !node.isNull()) {
+            writeValue(node.name, node.asString());
+            return;
+        }
+        writeNodeStart(node.name);
+        GdxVDFNode current = node.child;
+        while (current != null) {
+            if (current.isEmpty() && !current.isNull()) {
+                writeValue(current.name, current.asString());
+            }
+            else {
+                writeNodeStart(current.name);
+                if (current.child != null) {
+                    current = current.child;
+                    continue;
+                }
+                writeNodeEnd();
+            }
+            // Close the nodes whose children are all written
+            while (current.next == null && current.parent != node) {
+                current = current.parent;
+                writeNodeEnd();
+            }
+            current = current.next;
+        }
+        writeNodeEnd();
+    }
+
     /**
      * Returns the contents of the {@link StringBuilder}, in a VDF format.
      * @return the VDF document as a String. */
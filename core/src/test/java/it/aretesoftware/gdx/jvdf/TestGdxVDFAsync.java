@@ -0,0 +1,124 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
+public class TestGdxVDFAsync extends GdxBaseTest {
+
+    private final GdxVDFAsync async = new GdxVDFAsync();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        GdxVDFNode root = new GdxVDFParser().parse(getFileContents("resources/sample.txt"));
+        Path dir = Files.createTempDirectory("gdx-jvdf");
+        Path path = dir.resolve("sample.txt");
+        try {
+            async.writeAsync(root, path).join();
+            Assert.assertEquals(root.toVDF(), new String(Files.readAllBytes(path), "UTF-8"));
+
+            GdxVDFNode read = async.parseAsync(path).join();
+            Assert.assertEquals(root.toVDF(), read.toVDF());
+            read = async.parseAsync(new FileHandle(path.toFile())).join();
+            Assert.assertEquals(root.toVDF(), read.toVDF());
+
+            // Writing again replaces the file, without leaving temporary files behind
+            async.writeAsync(read.get(read.child.name), path).join();
+            Assert.assertEquals(read.get(read.child.name).toVDF(), new String(Files.readAllBytes(path), "UTF-8"));
+            Assert.assertEquals(1, dir.toFile().list().length);
+        }
+        finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testFailures() throws IOException {
+        Path dir = Files.createTempDirectory("gdx-jvdf");
+        Path path = dir.resolve("broken.txt");
+        try {
+            assertFails(UncheckedIOException.class, path);
+            Files.write(path, "\"a\" { \"b\" \"c\"".getBytes("UTF-8"));
+            assertFails(GdxVDFParseException.class, path);
+        }
+        finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testParser() throws IOException {
+        Path dir = Files.createTempDirectory("gdx-jvdf");
+        Path path = dir.resolve("conditional.txt");
+        try {
+            Files.write(path, "\"a\" { \"b\" \"1\" [$WIN32] \"b\" \"2\" [$OSX] }".getBytes("UTF-8"));
+            GdxVDFParser parser = new GdxVDFParser(new GdxVDFConditionals("$OSX"));
+            parser.setCollectStats(true);
+            GdxVDFAsync osx = new GdxVDFAsync(parser);
+            GdxVDFNode root = osx.parseAsync(path).join();
+            Assert.assertEquals(1, root.get("a").size);
+            Assert.assertEquals("2", root.get("a").getString("b"));
+            Assert.assertEquals(1, parser.getStats().getParses());
+
+            parser.setMaxDepth(1);
+            Files.write(path, "\"a\" { \"b\" { } }".getBytes("UTF-8"));
+            assertFails(osx, GdxVDFParseException.class, path);
+            parser.setMaxDepth(0);
+            parser.setMaxSize(8);
+            assertFails(osx, GdxVDFParseException.class, path);
+        }
+        finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    private void assertFails(Class<? extends Throwable> type, Path path) {
+        assertFails(async, type, path);
+    }
+
+    private void assertFails(GdxVDFAsync async, Class<? extends Throwable> type, Path path) {
+        try {
+            async.parseAsync(path).join();
+            Assert.fail();
+        }
+        catch (CompletionException e) {
+            Assert.assertTrue(type.isInstance(e.getCause()));
+        }
+    }
+
+    @Test
+    public void testWriter() throws IOException {
+        GdxVDFNode root = new GdxVDFParser().parse(getFileContents("resources/sample.txt"));
+        StringWriter writer = new StringWriter();
+        root.toVDF(writer);
+        Assert.assertEquals(root.toVDF(), writer.toString());
+    }
+
+    @Test
+    public void testReadTree() {
+        String vdf = getFileContents("resources/sample.txt");
+        GdxVDFNode root = new GdxVDFReader(vdf).readTree();
+        Assert.assertEquals(new GdxVDFParser().parse(vdf).toVDF(), root.toVDF());
+
+        // Inside a node, only its entries are read
+        GdxVDFReader reader = new GdxVDFReader("\"a\" { \"b\" \"1\" \"c\" { \"d\" \"2\" } } \"e\" \"3\"");
+        reader.next();
+        reader.next();
+        GdxVDFNode a = reader.readTree();
+        Assert.assertEquals(2, a.size);
+        Assert.assertEquals("2", a.get("c").getString("d"));
+        Assert.assertEquals(GdxVDFReader.Token.key, reader.next());
+        Assert.assertEquals("e", reader.getString());
+    }
+
+}
@@ -0,0 +1,112 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class TestGdxVDFBatchLoader extends GdxBaseTest {
+
+    private final List<FileHandle> directories = new ArrayList<>();
+
+    @Test
+    public void testLoadDirectory() throws IOException {
+        FileHandle dir = createFiles();
+        GdxVDFBatchLoader loader = new GdxVDFBatchLoader();
+        GdxVDFBatchLoader.Result result = loader.loadDirectory(dir, ".txt", false);
+        Assert.assertEquals(3, result.getFiles().size());
+        Assert.assertEquals("a.txt", result.getFiles().get(0).file().name());
+        Assert.assertFalse(result.isSuccessful());
+
+        // A broken file is reported without stopping the others
+        Assert.assertEquals(1, result.getFailures().size());
+        GdxVDFBatchLoader.FileResult broken = result.getFailures().get(0);
+        Assert.assertEquals("broken.txt", broken.file().name());
+        Assert.assertTrue(broken.error() instanceof GdxVDFParseException);
+        Assert.assertNull(broken.root());
+        Assert.assertEquals(2, result.getRegistry().size());
+        Assert.assertEquals("1", result.get(dir.child("a.txt").path()).get("a").getString("key"));
+        for (GdxVDFBatchLoader.FileResult file : result.getFiles()) {
+            Assert.assertTrue(file.readNanos() > 0);
+        }
+
+        loader.setKeys(FileHandle::nameWithoutExtension);
+        loader.setExecutor(GdxVDFBatchLoader.virtualThreads());
+        result = loader.loadDirectory(dir, ".txt", true);
+        Assert.assertEquals(4, result.getFiles().size());
+        Assert.assertEquals("3", result.get("c").get("c").getString("key"));
+
+        GdxVDFNode merged = result.merge();
+        Assert.assertEquals(4, merged.size);
+        Assert.assertEquals("a", merged.get(0).name);
+        Assert.assertEquals("shared", merged.get(2).name);
+        Assert.assertEquals("c", merged.get(3).name);
+        Assert.assertNotSame(result.get("a").get("a"), merged.get("a"));
+        Assert.assertEquals(2, result.get("b").size);
+    }
+
+    @Test
+    public void testSequential() throws IOException {
+        FileHandle dir = createFiles();
+        GdxVDFBatchLoader loader = new GdxVDFBatchLoader();
+        loader.setExecutor(null);
+        GdxVDFBatchLoader.Result result = loader.load(dir.child("b.txt"), dir.child("missing.txt"), dir.child("a.txt"));
+        Assert.assertEquals("b.txt", result.getFiles().get(0).file().name());
+        Assert.assertNotNull(result.getFiles().get(1).error());
+        Assert.assertEquals("a", result.merge().get(2).name);
+    }
+
+    @Test
+    public void testStackOverflow() throws IOException {
+        // A conditional which recurses forever fails its own file, sequentially and concurrently
+        GdxVDFConditionals recursive = new GdxVDFConditionals() {
+            @Override
+            public boolean evaluate(CharSequence expression) {
+                return evaluate(expression);
+            }
+        };
+        FileHandle dir = createFiles();
+        dir.child("conditional.txt").writeString("\"conditional\" \"1\" [$WIN32]", false);
+        GdxVDFBatchLoader loader = new GdxVDFBatchLoader(new GdxVDFParser(recursive));
+        for (Executor executor : new Executor[] {null, GdxVDFBatchLoader.virtualThreads()}) {
+            loader.setExecutor(executor);
+            GdxVDFBatchLoader.Result result = loader.loadDirectory(dir, ".txt", false);
+            Assert.assertEquals(4, result.getFiles().size());
+            Assert.assertEquals(2, result.getFailures().size());
+            Assert.assertTrue(result.getFailures().get(1).error() instanceof StackOverflowError);
+            Assert.assertEquals("1", result.get(dir.child("a.txt").path()).get("a").getString("key"));
+        }
+    }
+
+    private FileHandle createFiles() throws IOException {
+        FileHandle dir = createDirectory();
+        dir.child("a.txt").writeString("\"a\" { \"key\" \"1\" }", false);
+        dir.child("b.txt").writeString("\"b\" { \"key\" \"2\" }\n\"shared\" \"b\"", false);
+        dir.child("broken.txt").writeString("\"broken\" {", false);
+        dir.child("notes.md").writeString("not VDF", false);
+        dir.child("sub").file().mkdir();
+        dir.child("sub/c.txt").writeString("\"c\" { \"key\" \"3\" }", false);
+        return dir;
+    }
+
+    private FileHandle createDirectory() throws IOException {
+        FileHandle dir = new FileHandle(Files.createTempDirectory("gdx-jvdf").toFile());
+        directories.add(dir);
+        return dir;
+    }
+
+    @After
+    public void deleteDirectories() {
+        for (FileHandle dir : directories) {
+            dir.deleteDirectory();
+        }
+        directories.clear();
+    }
+
+}
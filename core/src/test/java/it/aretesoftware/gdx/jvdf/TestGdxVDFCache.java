@@ -0,0 +1,127 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class TestGdxVDFCache extends GdxBaseTest {
+
+    private final String sample = getFileContents("resources/sample.txt");
+    private final String sample_types = getFileContents("resources/sample_types.txt");
+    private final String sample_arrays = getFileContents("resources/sample_arrays.txt");
+
+    @Test
+    public void testHitsAndMisses() {
+        GdxVDFCache cache = new GdxVDFCache(10);
+        GdxVDFNode first = cache.parse(sample);
+        GdxVDFNode second = cache.parse(sample);
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(0.5f, cache.getHitRate(), 0f);
+        Assert.assertEquals(first.toVDF(), second.toVDF());
+    }
+
+    @Test
+    public void testDefensiveCopy() {
+        GdxVDFCache cache = new GdxVDFCache(10);
+        GdxVDFNode first = cache.parse(sample);
+        first.get("root_node").get("first_sub_node").get("first").set("changed");
+        first.get("root_node").remove("second_sub_node");
+
+        GdxVDFNode second = cache.parse(sample);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("value1", second.get("root_node").get("first_sub_node").getString("first"));
+        Assert.assertEquals(2, second.get("root_node").size);
+        Assert.assertNull(second.parent());
+    }
+
+    @Test
+    public void testFrozen() {
+        GdxVDFCache cache = new GdxVDFCache(10);
+        GdxVDFFrozenNode first = cache.parseFrozen(sample);
+        GdxVDFFrozenNode second = cache.parseFrozen(sample);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(first.toVDF(), cache.parse(sample).toVDF());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        GdxVDFCache cache = new GdxVDFCache(2);
+        cache.parse(sample);
+        cache.parse(sample_types);
+        cache.parse(sample);
+        cache.parse(sample_arrays);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictions());
+
+        // sample was used more recently than sample_types, so it must have survived
+        cache.parse(sample);
+        Assert.assertEquals(2, cache.getHits());
+        cache.parse(sample_types);
+        Assert.assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testMaxRetainedBytes() {
+        GdxVDFParser parser = new GdxVDFParser();
+        // The text of a cached string is retained along with its tree
+        long sampleBytes = GdxVDFCache.estimateBytes(parser.parse(sample).freeze())
+                + GdxVDFCache.STRING_BYTES + 2L * sample.length();
+        GdxVDFCache cache = new GdxVDFCache(parser, 0, sampleBytes);
+        cache.parse(sample);
+        Assert.assertEquals(sampleBytes, cache.getRetainedBytes());
+        cache.parse(sample_types);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertTrue(cache.getRetainedBytes() > 0);
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getRetainedBytes());
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        File file = File.createTempFile("cache", ".vdf");
+        file.deleteOnExit();
+        FileHandle handle = new FileHandle(file);
+        handle.writeString(sample, false);
+
+        GdxVDFCache cache = new GdxVDFCache(10);
+        cache.parse(handle);
+        cache.parse(handle);
+        Assert.assertEquals(1, cache.getHits());
+
+        handle.writeString(sample_types, false);
+        Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+        GdxVDFNode node = cache.parse(handle);
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertTrue(node.has("root_node"));
+        Assert.assertEquals(1, cache.size());
+
+        Assert.assertTrue(cache.invalidate(handle));
+        Assert.assertFalse(cache.invalidate(handle));
+        Assert.assertEquals(0, cache.getRetainedBytes());
+    }
+
+    @Test
+    public void testHash() {
+        Assert.assertEquals(GdxVDFCache.hash(sample), GdxVDFCache.hash(new StringBuilder(sample)));
+        Assert.assertNotEquals(GdxVDFCache.hash(sample), GdxVDFCache.hash(sample_types));
+
+        // Keys with colliding hashes are still told apart by their text
+        GdxVDFCache.ContentKey first = new GdxVDFCache.ContentKey("\"a\" \"1\"", 42);
+        GdxVDFCache.ContentKey second = new GdxVDFCache.ContentKey("\"a\" \"2\"", 42);
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        Assert.assertNotEquals(first, second);
+        Assert.assertEquals(first, new GdxVDFCache.ContentKey("\"a\" \"1\"", 42));
+        Assert.assertEquals(new GdxVDFCache.ContentKey(sample), new GdxVDFCache.ContentKey(new String(sample)));
+    }
+
+}
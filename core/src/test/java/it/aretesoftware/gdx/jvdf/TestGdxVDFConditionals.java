@@ -0,0 +1,120 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGdxVDFConditionals extends GdxBaseTest {
+
+    private static final String PLATFORMS = "\"root_node\"\n" +
+            "{\n" +
+            "    \"font\" \"Tahoma\" [$WIN32]\n" +
+            "    \"font\" \"Helvetica\" [$OSX]\n" +
+            "    \"font\" \"Verdana\" [!$WIN32 && !$OSX] // fallback\n" +
+            "    \"console\" [$X360 || $PS3]\n" +
+            "    {\n" +
+            "        \"buttons\" \"pad\"\n" +
+            "    }\n" +
+            "    \"desktop\" [!$X360]\n" +
+            "    {\n" +
+            "        \"buttons\" \"mouse\"\n" +
+            "    }\n" +
+            "    \"closed\" { \"key\" \"value\" } [$PS3]\n" +
+            "    \"after\" \"value\"\n" +
+            "}\n";
+
+    @Test
+    public void testEvaluate() {
+        GdxVDFConditionals conditionals = new GdxVDFConditionals("$WIN32", "x360");
+        Assert.assertTrue(conditionals.evaluate("$WIN32"));
+        Assert.assertTrue(conditionals.evaluate("[$win32]"));
+        Assert.assertTrue(conditionals.evaluate("$X360"));
+        Assert.assertFalse(conditionals.evaluate("$OSX"));
+        Assert.assertFalse(conditionals.evaluate("!$WIN32"));
+        Assert.assertTrue(conditionals.evaluate("!!$WIN32"));
+        Assert.assertTrue(conditionals.evaluate("$OSX || $WIN32"));
+        Assert.assertFalse(conditionals.evaluate("$OSX && $WIN32"));
+        Assert.assertTrue(conditionals.evaluate("$OSX && $PS3 || $WIN32"));
+        Assert.assertFalse(conditionals.evaluate("$OSX && ($PS3 || $WIN32)"));
+        Assert.assertTrue(conditionals.evaluate("!($OSX || $PS3) && $X360"));
+        conditionals.undefine("WIN32");
+        Assert.assertFalse(conditionals.evaluate("$WIN32"));
+        Assert.assertTrue(conditionals.define("$OSX").isDefined("osx"));
+    }
+
+    @Test
+    public void testMalformed() {
+        GdxVDFConditionals conditionals = new GdxVDFConditionals();
+        for (String expression : new String[] { "", "$", "$A &&", "($A", "$A $B", "$A & $B" }) {
+            try {
+                conditionals.evaluate(expression);
+                Assert.fail(expression);
+            }
+            catch (GdxVDFParseException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testDeepNesting() {
+        GdxVDFConditionals conditionals = new GdxVDFConditionals("$WIN32");
+        String nots = new String(new char[100001]).replace('\0', '!');
+        String opens = new String(new char[100000]).replace('\0', '(');
+        String closes = opens.replace('(', ')');
+        Assert.assertFalse(conditionals.evaluate(nots + "$WIN32"));
+        Assert.assertTrue(conditionals.evaluate(opens + "$OSX || $WIN32" + closes));
+        Assert.assertFalse(conditionals.evaluate("!" + opens + "!$WIN32 || $WIN32" + closes + " && $WIN32"));
+
+        // Unbalanced conditionals in a document are reported like any other malformed one
+        GdxVDFParser parser = new GdxVDFParser(conditionals);
+        for (String conditional : new String[] {opens + "$WIN32", nots, closes}) {
+            try {
+                parser.parse("\"key\" \"value\" [" + conditional + "]");
+                Assert.fail();
+            }
+            catch (GdxVDFParseException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testParse() {
+        GdxVDFNode root = new GdxVDFParser(new GdxVDFConditionals("WIN32")).parse(PLATFORMS).get("root_node");
+        Assert.assertEquals(1, root.sizeOf("font"));
+        Assert.assertEquals("Tahoma", root.getString("font"));
+        Assert.assertFalse(root.has("console"));
+        Assert.assertEquals("mouse", root.get("desktop").getString("buttons"));
+        Assert.assertFalse(root.has("closed"));
+        Assert.assertEquals("value", root.getString("after"));
+        Assert.assertEquals(3, root.size);
+
+        root = new GdxVDFParser(new GdxVDFConditionals("X360")).parse(PLATFORMS).get("root_node");
+        Assert.assertEquals("Verdana", root.getString("font"));
+        Assert.assertEquals("pad", root.get("console").getString("buttons"));
+        Assert.assertFalse(root.has("desktop"));
+        Assert.assertFalse(root.has("buttons"));
+        Assert.assertEquals("value", root.getString("after"));
+    }
+
+    @Test
+    public void testParseWithoutConditionals() {
+        // Without an evaluator every entry is kept, and nothing after a conditional is lost
+        GdxVDFNode root = new GdxVDFParser().parse(PLATFORMS).get("root_node");
+        Assert.assertEquals(3, root.sizeOf("font"));
+        Assert.assertTrue(root.has("console"));
+        Assert.assertTrue(root.has("desktop"));
+        Assert.assertEquals("value", root.get("closed").getString("key"));
+        Assert.assertEquals("value", root.getString("after"));
+    }
+
+    @Test
+    public void testPreprocessor() {
+        GdxVDFPreprocessor preprocessor = new GdxVDFPreprocessor();
+        Assert.assertEquals("\"key\" \"value\" [!$X360 && $WIN32] \"next\" \"value\"",
+                preprocessor.processLine("\t\"key\"  \"value\"  [!$X360\t&& $WIN32] \"next\" \"value\""));
+        Assert.assertEquals("\"key\" \"[not a conditional]\"", preprocessor.processLine("\"key\" \"[not a conditional]\""));
+        Assert.assertEquals("\"key\" \"value\" ", preprocessor.processLine("\"key\" \"value\" [$WIN32"));
+    }
+
+}
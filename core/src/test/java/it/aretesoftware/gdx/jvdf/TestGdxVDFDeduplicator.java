@@ -0,0 +1,103 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGdxVDFDeduplicator extends GdxBaseTest {
+
+    private final GdxVDFParser parser = new GdxVDFParser();
+    private final String sample_multimap = getFileContents("resources/sample_multimap.txt");
+
+    /** Builds an item schema in which every item has the same attribute and class blocks. */
+    private String repetitiveCorpus(int items) {
+        GdxVDFWriter writer = new GdxVDFWriter();
+        writer.writeNodeStart("items_game");
+        writer.writeNodeStart("items");
+        for (int i = 0; i < items; i++) {
+            writer.writeNodeStart(String.valueOf(i));
+                writer.writeValue("name", "item_" + i);
+                writer.writeValue("prefab", i % 2 == 0 ? "weapon_base" : "cosmetic_base");
+                writer.writeNodeStart("attributes");
+                    writer.writeNodeStart("damage bonus");
+                        writer.writeValue("attribute_class", "mult_dmg");
+                        writer.writeValue("value", i % 4 == 0 ? "1.5" : "1.25");
+                    writer.writeNodeEnd();
+                writer.writeNodeEnd();
+                writer.writeNodeStart("used_by_classes");
+                    writer.writeValue("scout", "1");
+                    writer.writeValue("soldier", "1");
+                    writer.writeValue("pyro", "1");
+                writer.writeNodeEnd();
+            writer.writeNodeEnd();
+        }
+        writer.writeNodeEnd();
+        writer.writeNodeEnd();
+        return writer.toVDF();
+    }
+
+    @Test
+    public void testFrozen() {
+        GdxVDFFrozenNode original = parser.parse(repetitiveCorpus(100)).freeze();
+        GdxVDFDeduplicator deduplicator = new GdxVDFDeduplicator();
+        GdxVDFFrozenNode deduplicated = deduplicator.deduplicate(original);
+
+        Assert.assertEquals(original, deduplicated);
+        Assert.assertEquals(original.toVDF(), deduplicated.toVDF());
+        GdxVDFFrozenNode items = deduplicated.get("items_game").get("items");
+        Assert.assertSame(items.get("0").get("used_by_classes"), items.get("99").get("used_by_classes"));
+        Assert.assertSame(items.get("0").get("attributes"), items.get("4").get("attributes"));
+        Assert.assertNotSame(items.get("0").get("attributes"), items.get("1").get("attributes"));
+        Assert.assertSame(items.get("0").get("prefab").asString(), items.get("2").get("prefab").asString());
+        Assert.assertTrue(deduplicator.getNodesShared() > 0);
+        Assert.assertTrue(deduplicator.getStringsShared() > 0);
+        Assert.assertTrue(deduplicator.getBytesSaved() > deduplicator.getBytesBefore() / 2);
+    }
+
+    @Test
+    public void testAcrossDocuments() {
+        GdxVDFDeduplicator deduplicator = new GdxVDFDeduplicator();
+        GdxVDFFrozenNode first = deduplicator.deduplicate(parser.parse(sample_multimap).freeze());
+        long bytesAfter = deduplicator.getBytesAfter();
+        GdxVDFFrozenNode second = deduplicator.deduplicate(parser.parse(sample_multimap).freeze());
+        Assert.assertSame(first, second);
+        Assert.assertEquals(bytesAfter, deduplicator.getBytesAfter());
+
+        deduplicator.clear();
+        Assert.assertEquals(0, deduplicator.getBytesSaved());
+        Assert.assertNotSame(first, deduplicator.deduplicate(parser.parse(sample_multimap).freeze()));
+    }
+
+    @Test
+    public void testMutable() {
+        GdxVDFNode root = parser.parse(repetitiveCorpus(10));
+        String before = root.toVDF();
+        GdxVDFDeduplicator deduplicator = new GdxVDFDeduplicator();
+        Assert.assertSame(root, deduplicator.deduplicate(root));
+        Assert.assertEquals(before, root.toVDF());
+        GdxVDFNode items = root.get("items_game").get("items");
+        Assert.assertSame(items.get("0").get("used_by_classes").get("scout").name,
+                items.get("9").get("used_by_classes").get("scout").name);
+        Assert.assertSame(items.get("0").getString("prefab"), items.get("8").getString("prefab"));
+        Assert.assertTrue(deduplicator.getStringsShared() > 0);
+        Assert.assertTrue(deduplicator.getBytesSaved() > 0);
+    }
+
+    @Test
+    public void testEquality() {
+        GdxVDFFrozenNode first = parser.parse(sample_multimap).freeze();
+        GdxVDFFrozenNode second = parser.parse(sample_multimap).freeze();
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        Assert.assertNotEquals(first, first.set(GdxVDFPath.parse("root_node/sub_node/key"), "changed"));
+    }
+
+    @Test
+    public void testRepetitiveCorpus() {
+        GdxVDFFrozenNode original = parser.parse(repetitiveCorpus(2000)).freeze();
+        GdxVDFDeduplicator deduplicator = new GdxVDFDeduplicator();
+        Assert.assertEquals(original, deduplicator.deduplicate(original));
+        Assert.assertTrue(deduplicator.getBytesAfter() < deduplicator.getBytesBefore());
+        Assert.assertTrue(deduplicator.getBytesSaved() > deduplicator.getBytesBefore() / 2);
+    }
+
+}
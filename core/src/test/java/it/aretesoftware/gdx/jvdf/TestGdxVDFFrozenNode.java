@@ -0,0 +1,203 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class TestGdxVDFFrozenNode extends GdxBaseTest {
+
+    private final GdxVDFParser parser = new GdxVDFParser();
+    private final GdxVDFPreprocessor preprocessor = new GdxVDFPreprocessor();
+    private final String sample = getFileContents("resources/sample.txt");
+    private final String sample_multimap = getFileContents("resources/sample_multimap.txt");
+    private final String sample_types = getFileContents("resources/sample_types.txt");
+    private final String sample_arrays = getFileContents("resources/sample_arrays.txt");
+
+    @Test
+    public void testGet() {
+        GdxVDFFrozenNode root = parser.parse(sample).freeze().get("root_node");
+        Assert.assertEquals(2, root.size());
+        Assert.assertEquals("first_sub_node", root.get(0).name());
+        Assert.assertNull(root.get(2));
+        Assert.assertNull(root.get(-1));
+        Assert.assertEquals("value1", root.get("FIRST_SUB_NODE").getString("first"));
+        Assert.assertEquals("value4", root.get("second_sub_node").get("third_sub_node").getString("fourth"));
+        Assert.assertTrue(root.has("second_sub_node"));
+        Assert.assertFalse(root.has("missing"));
+        Assert.assertEquals("fallback", root.getString("missing", "fallback"));
+        Assert.assertTrue(root.isNull());
+        Assert.assertTrue(root.notEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequire() {
+        parser.parse(sample).freeze().require("missing");
+    }
+
+    @Test
+    public void testMultimap() {
+        GdxVDFFrozenNode root = parser.parse(sample_multimap).freeze().get("root_node");
+        Assert.assertEquals(2, root.sizeOf("sub_node"));
+        Assert.assertEquals("value3", root.get("sub_node", 1).getString("key"));
+        Assert.assertEquals("value4", root.get("sub_node", 1).get("key", 1).asString());
+        Assert.assertNull(root.get("sub_node", 2));
+        List<GdxVDFFrozenNode> subNodes = root.getAll("sub_node");
+        Assert.assertEquals(2, subNodes.size());
+        Assert.assertSame(root.get(1), subNodes.get(1));
+    }
+
+    @Test
+    public void testNameIndex() {
+        GdxVDFNode node = new GdxVDFNode();
+        int count = GdxVDFFrozenNode.INDEX_THRESHOLD * 4;
+        for (int i = 0; i < count; i++) {
+            node.addChild("key" + (i % 3), new GdxVDFNode(String.valueOf(i)));
+        }
+        GdxVDFFrozenNode frozen = node.freeze();
+        Assert.assertEquals(count, frozen.size());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(node.sizeOf("key" + i), frozen.sizeOf("KEY" + i));
+            for (int j = 0; j < node.sizeOf("key" + i); j++) {
+                Assert.assertEquals(node.get("key" + i, j).asString(), frozen.get("Key" + i, j).asString());
+            }
+        }
+        Assert.assertNull(frozen.get("key3"));
+        Assert.assertEquals(0, frozen.sizeOf("key3"));
+    }
+
+    @Test
+    public void testTypes() {
+        GdxVDFFrozenNode node = parser.parse(sample_types).freeze().get("root_node");
+        GdxVDFNode original = parser.parse(sample_types).get("root_node");
+        Assert.assertEquals(original.getLong("long"), node.getLong("long"));
+        Assert.assertEquals(original.getInt("int"), node.getInt("int"));
+        Assert.assertEquals(original.getDouble("double"), node.getDouble("double"), 0);
+        Assert.assertEquals(original.getFloat("float"), node.getFloat("float"), 0);
+        Assert.assertEquals(original.getBoolean("boolean"), node.getBoolean("boolean"));
+        Assert.assertEquals(original.getColor("color"), node.getColor("color"));
+        Assert.assertEquals(original.getVector3("vec3"), node.getVector3("vec3"));
+        Assert.assertEquals(original.getVector2("vec2"), node.getVector2("vec2"));
+        Assert.assertEquals(GdxEnumTest.first, node.getEnum("enum", GdxEnumTest.class));
+        Assert.assertEquals(GdxEnumTest.fifth, node.getEnum("missing", GdxEnumTest.fifth));
+        Assert.assertEquals(Color.WHITE, node.getColor("missing", Color.WHITE));
+        Assert.assertEquals(Vector3.Zero, node.getVector3("missing", Vector3.Zero));
+        Assert.assertEquals(Vector2.Zero, node.getVector2("missing", Vector2.Zero));
+    }
+
+    @Test
+    public void testSnapshot() {
+        GdxVDFNode node = parser.parse(sample);
+        GdxVDFFrozenNode frozen = node.freeze();
+        node.get("root_node").get("first_sub_node").get("first").set("changed");
+        node.get("root_node").remove("second_sub_node");
+        Assert.assertEquals("value1", frozen.get("root_node").get("first_sub_node").getString("first"));
+        Assert.assertEquals(2, frozen.get("root_node").size());
+    }
+
+    @Test
+    public void testThaw() {
+        testThaw(sample);
+        testThaw(sample_types);
+        testThaw(sample_arrays);
+        testThaw(sample_multimap);
+    }
+
+    private void testThaw(String vdfString) {
+        GdxVDFNode node = parser.parse(vdfString);
+        GdxVDFNode thawed = node.freeze().thaw();
+        Assert.assertEquals(node.toVDF(), thawed.toVDF());
+        Assert.assertEquals(preprocessor.process(vdfString), preprocessor.process(node.freeze().toVDF()));
+        GdxVDFNode rootNode = thawed.get("root_node");
+        Assert.assertSame(thawed, rootNode.parent());
+        Assert.assertEquals(node.get("root_node").size, rootNode.size);
+    }
+
+    @Test
+    public void testConcurrentReads() {
+        GdxVDFFrozenNode frozen = parser.parse(sample_multimap).freeze();
+        AtomicInteger found = new AtomicInteger();
+        IntStream.range(0, 10000).parallel().forEach(i -> {
+            if ("value4".equals(frozen.get("root_node").get("sub_node", 1).get("key", 1).asString())) {
+                found.incrementAndGet();
+            }
+        });
+        Assert.assertEquals(10000, found.get());
+    }
+
+    @Test
+    public void testPersistentSet() {
+        GdxVDFFrozenNode v1 = parser.parse(sample).freeze();
+        GdxVDFFrozenNode v2 = v1.set(GdxVDFPath.parse("root_node/first_sub_node/first"), "changed");
+        Assert.assertEquals("value1", v1.get("root_node").get("first_sub_node").getString("first"));
+        Assert.assertEquals("changed", v2.get("root_node").get("first_sub_node").getString("first"));
+        // Untouched subtrees are shared
+        Assert.assertSame(v1.get("root_node").get("second_sub_node"), v2.get("root_node").get("second_sub_node"));
+        Assert.assertSame(v1.get("root_node").get("first_sub_node").get("second"),
+                v2.get("root_node").get("first_sub_node").get("second"));
+        // Setting the same value returns the same version
+        Assert.assertSame(v1, v1.set(GdxVDFPath.parse("root_node/first_sub_node/first"), "value1"));
+    }
+
+    @Test
+    public void testPersistentAddRemove() {
+        GdxVDFFrozenNode v1 = parser.parse(sample_multimap).freeze();
+        GdxVDFPath subNode = GdxVDFPath.of("root_node").child("sub_node", 1);
+        GdxVDFFrozenNode v2 = v1.add(subNode, "key", "value5");
+        Assert.assertEquals(2, v1.get("root_node").get("sub_node", 1).size());
+        Assert.assertEquals(3, v2.get("root_node").get("sub_node", 1).size());
+        Assert.assertEquals("value5", v2.get("root_node").get("sub_node", 1).get("key", 2).asString());
+        Assert.assertSame(v1.get("root_node").get("sub_node", 0), v2.get("root_node").get("sub_node", 0));
+
+        GdxVDFFrozenNode v3 = v2.remove(subNode.child("key", 0));
+        Assert.assertEquals("value4", v3.get("root_node").get("sub_node", 1).get("key", 0).asString());
+        Assert.assertEquals("value5", v3.get("root_node").get("sub_node", 1).get("key", 1).asString());
+
+        GdxVDFFrozenNode v4 = v3.remove(GdxVDFPath.of("root_node", "sub_node"));
+        Assert.assertEquals(1, v4.get("root_node").size());
+        Assert.assertSame(v3.get("root_node").get("sub_node", 1), v4.get("root_node").get("sub_node"));
+
+        GdxVDFFrozenNode block = GdxVDFFrozenNode.of("block", GdxVDFFrozenNode.of("a", "1"), GdxVDFFrozenNode.of("b", "2"));
+        GdxVDFFrozenNode v5 = v4.set(GdxVDFPath.of("root_node", "sub_node"), block);
+        Assert.assertEquals("2", v5.get("root_node").get("block").getString("b"));
+        Assert.assertFalse(v5.get("root_node").has("sub_node"));
+    }
+
+    @Test
+    public void testPersistentWide() {
+        GdxVDFNode node = new GdxVDFNode();
+        for (int i = 0; i < GdxVDFFrozenNode.INDEX_THRESHOLD * 4; i++) {
+            node.addChild("key" + i, new GdxVDFNode(String.valueOf(i)));
+        }
+        GdxVDFFrozenNode v1 = node.freeze();
+        GdxVDFFrozenNode v2 = v1.set(GdxVDFPath.of("key20"), "changed").remove(GdxVDFPath.of("key3"));
+        Assert.assertEquals("changed", v2.getString("key20"));
+        Assert.assertEquals("21", v2.getString("key21"));
+        Assert.assertFalse(v2.has("key3"));
+        Assert.assertEquals("20", v1.getString("key20"));
+
+        // Appending extends the index of a node already looked up by name, and keeps the positions of repeated names
+        GdxVDFFrozenNode v3 = v2.add(GdxVDFPath.of(), "key5", "second").add(GdxVDFPath.of(), "added", "1");
+        Assert.assertEquals(2, v3.sizeOf("KEY5"));
+        Assert.assertEquals("5", v3.getString("key5"));
+        Assert.assertEquals("second", v3.get("key5", 1).asString());
+        Assert.assertEquals(1, v3.getInt("added"));
+        Assert.assertSame(v3.get(v3.size() - 1), v3.get("added"));
+        // A node never looked up builds its index from every child instead
+        GdxVDFFrozenNode fresh = v2.thaw().freeze().add(GdxVDFPath.of(), "key5", "second");
+        Assert.assertEquals(v3, fresh.add(GdxVDFPath.of(), "added", "1"));
+        Assert.assertEquals("second", fresh.get("key5", 1).asString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPersistentMissing() {
+        parser.parse(sample).freeze().set(GdxVDFPath.of("root_node", "missing"), "value");
+    }
+
+}
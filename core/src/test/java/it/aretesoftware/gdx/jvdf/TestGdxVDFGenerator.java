@@ -0,0 +1,68 @@
+package it.aretesoftware.gdx.jvdf;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFGenerator.Shape;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGdxVDFGenerator extends GdxBaseTest {
+
+    private final GdxVDFParser parser = new GdxVDFParser();
+
+    @Test
+    public void testDeterministic() {
+        for (Shape shape : Shape.values()) {
+            String vdf = new GdxVDFGenerator(42).generate(shape, 100);
+            Assert.assertEquals(vdf, new GdxVDFGenerator(42).generate(shape, 100));
+            if (shape != Shape.deep) Assert.assertNotEquals(vdf, new GdxVDFGenerator(7).generate(shape, 100));
+        }
+        Assert.assertEquals("", new GdxVDFGenerator(42).generate(Shape.deep, 0));
+    }
+
+    @Test
+    public void testShapes() {
+        GdxVDFGenerator generator = new GdxVDFGenerator(42);
+        Assert.assertEquals(1000, parser.parse(generator.generate(Shape.wide, 1000)).get("wide").size);
+        Assert.assertEquals(1000, parser.parse(generator.generate(Shape.multimap, 1000)).get("multimap").size);
+
+        GdxVDFNode items = parser.parse(generator.generate(Shape.items, 100)).get("items_game").get("items");
+        Assert.assertEquals(100, items.size);
+        Assert.assertNotNull(items.get("99").getColor("color"));
+        Assert.assertTrue(items.get("99").getInt("item_slot") < 8);
+
+        GdxVDFNode commented = parser.parse(generator.generate(Shape.comments, 100)).get("items");
+        Assert.assertEquals(100, commented.size);
+        Assert.assertEquals(3, commented.get("50").size);
+
+        GdxVDFNode strings = parser.parse(generator.generate(Shape.escaped, 100)).get("strings");
+        Assert.assertEquals(100, strings.size);
+        for (GdxVDFNode string = strings.child; string != null; string = string.next) {
+            Assert.assertTrue(string.asString().length() >= 150);
+            Assert.assertFalse(string.asString().contains("\\\""));
+        }
+    }
+
+    @Test
+    public void testDeepNesting() {
+        GdxVDFNode node = parser.parse(new GdxVDFGenerator(42).generate(Shape.deep, 100000));
+        int depth = 0;
+        while (node.get("level_" + depth) != null) {
+            node = node.get("level_" + depth);
+            Assert.assertEquals(depth, node.getInt("depth"));
+            depth++;
+        }
+        Assert.assertEquals(100000, depth);
+    }
+
+    @Test
+    public void testScaling() {
+        GdxVDFGenerator generator = new GdxVDFGenerator(42);
+        for (Shape shape : new Shape[] {Shape.wide, Shape.items}) {
+            for (int size : new int[] {1000, 10000, 100000}) {
+                // Time and allocations are measured by ParserBenchmark, with the gc profiler
+                GdxVDFNode root = parser.parse(generator.generate(shape, size));
+                Assert.assertEquals(1, root.size);
+            }
+        }
+    }
+
+}
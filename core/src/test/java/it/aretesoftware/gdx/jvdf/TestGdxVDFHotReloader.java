@@ -0,0 +1,134 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestGdxVDFHotReloader extends GdxBaseTest {
+
+    private final String sample = getFileContents("resources/sample.txt");
+
+    @Test
+    public void testSplit() {
+        String vdf = "\"#base\" \"base.txt\"\n" +
+                "\"first\" { \"key\" \"}\" // comment with a }\n }\n" +
+                "\"second\" { \"nested\" { \"key\" \"value\" } } [$WIN32]\n" +
+                "\"last\" \"value\"\n";
+        List<String> blocks = GdxVDFHotReloader.split(vdf);
+        Assert.assertEquals(3, blocks.size());
+        Assert.assertEquals(vdf, String.join("", blocks));
+        Assert.assertTrue(blocks.get(0).trim().startsWith("\"#base\""));
+        Assert.assertTrue(blocks.get(1).endsWith("[$WIN32]"));
+        // A single top-level node is split into its children by the reloader
+        Assert.assertEquals(1, GdxVDFHotReloader.split(sample).size());
+        int[] body = GdxVDFHotReloader.body(sample);
+        Assert.assertEquals('{', sample.charAt(body[0]));
+        Assert.assertEquals(sample.lastIndexOf('}'), body[1]);
+        Assert.assertTrue(GdxVDFHotReloader.split(sample.substring(body[0] + 1, body[1])).size() > 1);
+    }
+
+    @Test
+    public void testSingleRoot() throws IOException {
+        String items = "\"items\"\n{\n" +
+                "\t\"1\" { \"name\" \"rifle\" \"damage\" \"10\" }\n" +
+                "\t\"2\" { \"name\" \"pistol\" \"damage\" \"5\" }\n" +
+                "\t\"3\" { \"name\" \"knife\" \"damage\" \"%s\" }\n" +
+                "}\n";
+        FileHandle file = createFile(String.format(items, "2"));
+        GdxVDFHotReloader reloader = new GdxVDFHotReloader(new GdxVDFParser(new GdxVDFConditionals("$WIN32")));
+        GdxVDFFrozenNode first = reloader.watch(file);
+        Assert.assertEquals(3, reloader.getBlocksParsed());
+
+        file.writeString(String.format(items, "3"), false);
+        Assert.assertTrue(reloader.reload(file));
+        // Only the edited item was parsed again
+        Assert.assertEquals(4, reloader.getBlocksParsed());
+        Assert.assertEquals(2, reloader.getBlocksReused());
+        GdxVDFFrozenNode second = reloader.getRoot(file);
+        Assert.assertEquals(new GdxVDFParser().parse(String.format(items, "3")).freeze(), second);
+        Assert.assertSame(first.get("items").get("1"), second.get("items").get("1"));
+        Assert.assertSame(first.get("items").get("2"), second.get("items").get("2"));
+
+        // A conditional on the root node still applies
+        file.writeString(String.format(items, "3").trim() + " [$X360]\n", false);
+        Assert.assertTrue(reloader.reload(file));
+        Assert.assertEquals(0, reloader.getRoot(file).size());
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        FileHandle file = createFile("\"weapons\" { \"rifle\" { \"damage\" \"10\" } \"pistol\" { \"damage\" \"5\" } }\n" +
+                "\"armor\" { \"vest\" { \"defense\" \"3\" } }\n" +
+                "\"misc\" \"1\"\n");
+        GdxVDFHotReloader reloader = new GdxVDFHotReloader();
+        GdxVDFFrozenNode first = reloader.watch(file);
+        Assert.assertEquals(3, reloader.getBlocksParsed());
+        Assert.assertEquals(0, reloader.poll());
+
+        List<GdxVDFPatch> changes = new ArrayList<>();
+        reloader.addListener((reloaded, root, patch) -> changes.add(patch));
+        file.writeString("\"weapons\" { \"rifle\" { \"damage\" \"12\" } \"pistol\" { \"damage\" \"5\" } }\n" +
+                "\"armor\" { \"vest\" { \"defense\" \"3\" } }\n" +
+                "\"misc\" \"1\"\n", false);
+        Assert.assertTrue(reloader.reload(file));
+
+        // Only the changed block was parsed, the others are shared with the previous version
+        Assert.assertEquals(4, reloader.getBlocksParsed());
+        Assert.assertEquals(2, reloader.getBlocksReused());
+        GdxVDFFrozenNode second = reloader.getRoot(file);
+        Assert.assertEquals(12, second.get("weapons").get("rifle").getInt("damage"));
+        Assert.assertSame(first.get("armor"), second.get("armor"));
+        Assert.assertSame(first.get("misc"), second.get("misc"));
+
+        Assert.assertEquals(1, changes.size());
+        GdxVDFPatch patch = changes.get(0);
+        Assert.assertEquals(1, patch.size());
+        Assert.assertEquals(GdxVDFPath.parse("weapons/rifle/damage"), patch.getOperations().get(0).path());
+        Assert.assertEquals(second, patch.apply(first));
+    }
+
+    @Test
+    public void testPoll() throws IOException {
+        FileHandle file = createFile("\"a\" { \"key\" \"1\" }\n");
+        GdxVDFHotReloader reloader = new GdxVDFHotReloader();
+        reloader.watch(file);
+        List<RuntimeException> failures = new ArrayList<>();
+        reloader.addListener(new GdxVDFHotReloader.Listener() {
+            @Override
+            public void reloaded(FileHandle reloaded, GdxVDFFrozenNode root, GdxVDFPatch changes) {
+            }
+
+            @Override
+            public void failed(FileHandle reloaded, RuntimeException exception) {
+                failures.add(exception);
+            }
+        });
+
+        file.writeString("\"a\" { \"key\" \"1\" }\n\"b\" { \"key\" \"2\" }\n", false);
+        Assert.assertEquals(1, reloader.poll());
+        Assert.assertEquals(2, reloader.getRoot(file).get("b").getInt("key"));
+
+        // A broken file keeps the last good version
+        file.writeString("\"a\" { \"key\" \"1\" }\n\"b\" { \"key\" \"2\" }\n\"c\" {\n", false);
+        Assert.assertEquals(0, reloader.poll());
+        Assert.assertEquals(1, failures.size());
+        Assert.assertEquals(2, reloader.getRoot(file).size());
+
+        Assert.assertTrue(reloader.unwatch(file));
+        Assert.assertNull(reloader.getRoot(file));
+    }
+
+    private FileHandle createFile(String content) throws IOException {
+        File file = File.createTempFile("gdx-jvdf", ".txt");
+        file.deleteOnExit();
+        FileHandle handle = new FileHandle(file);
+        handle.writeString(content, false);
+        return handle;
+    }
+
+}
@@ -0,0 +1,167 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestGdxVDFIncludeLoader extends GdxBaseTest {
+
+    @Test
+    public void testInclude() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "main.txt", "\"#include\" \"extra.txt\"\n\"main\" { \"key\" \"value\" }");
+        write(dir, "extra.txt", "\"extra\" { \"key\" \"extra\" }");
+
+        GdxVDFNode root = new GdxVDFIncludeLoader().load(dir.child("main.txt"));
+        Assert.assertFalse(root.has("#include"));
+        Assert.assertEquals("value", root.get("main").getString("key"));
+        Assert.assertEquals("extra", root.get("extra").getString("key"));
+        Assert.assertEquals("main", root.get(0).name);
+    }
+
+    @Test
+    public void testBase() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "main.txt", "\"#base\" \"sub/base.txt\"\n\"resource\" { \"color\" \"red\" \"nested\" { \"a\" \"main\" } }");
+        write(dir, "sub/base.txt", "\"resource\" { \"color\" \"blue\" \"size\" \"10\" \"nested\" { \"a\" \"base\" \"b\" \"base\" } }\n\"other\" \"1\"");
+
+        GdxVDFNode root = new GdxVDFIncludeLoader().load(dir.child("main.txt"));
+        GdxVDFNode resource = root.get("resource");
+        Assert.assertEquals(1, root.sizeOf("resource"));
+        Assert.assertEquals("red", resource.getString("color"));
+        Assert.assertEquals("10", resource.getString("size"));
+        Assert.assertEquals("main", resource.get("nested").getString("a"));
+        Assert.assertEquals("base", resource.get("nested").getString("b"));
+        Assert.assertEquals("1", root.getString("other"));
+    }
+
+    @Test
+    public void testSharedIncludes() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "a.txt", "\"#include\" \"b.txt\"\n\"#include\" \"c.txt\"\n\"a\" \"1\"");
+        write(dir, "b.txt", "\"#include\" \"./d.txt\"\n\"b\" \"1\"");
+        write(dir, "c.txt", "\"#include\" \"sub/../d.txt\"\n\"c\" \"1\"");
+        write(dir, "d.txt", "\"d\" \"1\"");
+
+        AtomicInteger reads = new AtomicInteger();
+        GdxVDFIncludeLoader loader = new GdxVDFIncludeLoader(new GdxVDFParser(), (from, path) -> {
+            reads.incrementAndGet();
+            return GdxVDFIncludeLoader.RELATIVE.resolve(from, path);
+        });
+        List<GdxVDFNode> roots = loader.loadAll(dir.child("a.txt"), dir.child("b.txt"));
+        GdxVDFNode a = roots.get(0);
+        Assert.assertEquals(2, a.sizeOf("d"));
+        Assert.assertEquals("1", a.getString("b"));
+        Assert.assertEquals("1", a.getString("c"));
+        Assert.assertEquals("1", roots.get(1).getString("d"));
+        // Every file is parsed once, so every directive is only resolved when discovered and when linked
+        Assert.assertEquals(8, reads.get());
+        // The documents of a session are independent copies
+        a.get("d").set("2");
+        Assert.assertEquals("1", roots.get(1).getString("d"));
+    }
+
+    @Test
+    public void testCycle() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "a.txt", "\"#include\" \"b.txt\"");
+        write(dir, "b.txt", "\"#base\" \"a.txt\"");
+        try {
+            new GdxVDFIncludeLoader().load(dir.child("a.txt"));
+            Assert.fail();
+        }
+        catch (GdxVDFParseException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("a.txt -> "));
+        }
+    }
+
+    @Test(expected = GdxVDFParseException.class)
+    public void testMissingInclude() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "a.txt", "\"#include\" \"missing.txt\"");
+        new GdxVDFIncludeLoader().load(dir.child("a.txt"));
+    }
+
+    @Test
+    public void testConcurrent() throws IOException {
+        FileHandle dir = createDirectory();
+        StringBuilder main = new StringBuilder();
+        for (int i = 0; i < 32; i++) {
+            main.append("\"#include\" \"part").append(i).append(".txt\"\n");
+            write(dir, "part" + i + ".txt", "\"#base\" \"common.txt\"\n\"part" + i + "\" { \"index\" \"" + i + "\" }");
+        }
+        write(dir, "main.txt", main.toString());
+        write(dir, "common.txt", "\"common\" \"1\"");
+
+        GdxVDFIncludeLoader loader = new GdxVDFIncludeLoader();
+        GdxVDFNode sequential = loader.load(dir.child("main.txt"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            loader.setExecutor(executor);
+            GdxVDFNode concurrent = loader.load(dir.child("main.txt"));
+            Assert.assertEquals(sequential.toVDF(), concurrent.toVDF());
+            Assert.assertEquals(31, concurrent.get("part31").getInt("index"));
+            Assert.assertEquals(32, concurrent.sizeOf("common"));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDeepAndWideBase() {
+        // Nodes present on both sides are merged at every level, and the base adds many siblings to the deepest one
+        int depth = 100000, width = 100000;
+        GdxVDFParser parser = new GdxVDFParser();
+        GdxVDFNode root = parser.parse("\"#base\" \"base.txt\"\n" + nest(depth, "\"key\" \"main\""));
+        StringBuilder leaves = new StringBuilder("\"key\" \"base\"");
+        for (int i = 0; i < width; i++) {
+            leaves.append(" \"extra").append(i).append("\" \"").append(i).append('"');
+        }
+        GdxVDFNode base = parser.parse(nest(depth, leaves.toString()));
+        GdxVDFIncludeLoader.resolveDirectives(root, path -> base);
+
+        GdxVDFNode node = root;
+        for (int i = 0; i < depth; i++) {
+            Assert.assertEquals(1, node.size());
+            node = node.get("level");
+        }
+        Assert.assertEquals(width + 1, node.size());
+        Assert.assertEquals("main", node.getString("key"));
+        Assert.assertEquals(width - 1, node.getInt("extra" + (width - 1)));
+    }
+
+    private String nest(int depth, String leaves) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append("\"level\" { ");
+        }
+        builder.append(leaves);
+        for (int i = 0; i < depth; i++) {
+            builder.append(" }");
+        }
+        return builder.toString();
+    }
+
+    private FileHandle createDirectory() throws IOException {
+        File dir = Files.createTempDirectory("gdx-jvdf").toFile();
+        dir.deleteOnExit();
+        return new FileHandle(dir);
+    }
+
+    private void write(FileHandle dir, String name, String content) {
+        FileHandle file = dir.child(name);
+        file.file().getParentFile().mkdirs();
+        file.writeString(content, false);
+        file.file().deleteOnExit();
+    }
+
+}
@@ -0,0 +1,153 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class TestGdxVDFLoader extends GdxBaseTest {
+
+    @Test
+    public void testLoad() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "main.txt", "\"#base\" \"common/base.txt\"\n\"#include\" \"common/extra.txt\"\n\"main\" { \"key\" \"value\" \"font\" \"Tahoma\" [$WIN32] }");
+        write(dir, "common/base.txt", "\"main\" { \"key\" \"base\" \"size\" \"10\" }");
+        write(dir, "common/extra.txt", "\"#base\" \"base.txt\"\n\"extra\" \"1\"");
+
+        AssetManager manager = createAssetManager();
+        String fileName = dir.child("main.txt").path();
+        manager.load(fileName, GdxVDFNode.class);
+        manager.finishLoading();
+
+        GdxVDFNode root = manager.get(fileName, GdxVDFNode.class);
+        Assert.assertEquals("value", root.get("main").getString("key"));
+        Assert.assertEquals("10", root.get("main").getString("size"));
+        Assert.assertEquals("Tahoma", root.get("main").getString("font"));
+        Assert.assertEquals("1", root.getString("extra"));
+        Assert.assertFalse(root.has("#base"));
+        // Included files are assets of their own, loaded once
+        String base = GdxVDFIncludeLoader.key(dir.child("common/base.txt"));
+        Assert.assertTrue(manager.isLoaded(base));
+        Assert.assertEquals("base", manager.get(base, GdxVDFNode.class).get("main").getString("key"));
+    }
+
+    @Test
+    public void testParameters() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "main.txt", "\"#include\" \"extra.txt\"\n\"main\" { \"font\" \"Tahoma\" [$WIN32] \"font\" \"Helvetica\" [$OSX] \"other\" \"1\" }\n\"skipped\" \"1\"");
+        write(dir, "extra.txt", "\"extra\" { \"key\" \"value\" [$OSX] }");
+
+        AssetManager manager = createAssetManager();
+        GdxVDFLoader.GdxVDFParameter parameter = new GdxVDFLoader.GdxVDFParameter();
+        parameter.conditionals = new GdxVDFConditionals("OSX");
+        parameter.paths = new String[] { "main/font", "extra" };
+        String fileName = dir.child("main.txt").path();
+        manager.load(fileName, GdxVDFNode.class, parameter);
+        manager.finishLoading();
+
+        GdxVDFNode root = manager.get(fileName, GdxVDFNode.class);
+        Assert.assertEquals(2, root.size);
+        Assert.assertEquals(1, root.get("main").size);
+        Assert.assertEquals("Helvetica", root.get("main").getString("font"));
+        Assert.assertEquals("value", root.get("extra").getString("key"));
+
+        parameter = new GdxVDFLoader.GdxVDFParameter();
+        parameter.resolveIncludes = false;
+        manager.load(dir.child("extra.txt").path(), GdxVDFNode.class, parameter);
+        manager.finishLoading();
+        Assert.assertEquals("value", manager.get(dir.child("extra.txt").path(), GdxVDFNode.class).get("extra").getString("key"));
+    }
+
+    @Test
+    public void testCycle() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "a.txt", "\"#include\" \"b.txt\"");
+        write(dir, "b.txt", "\"#include\" \"a.txt\"");
+
+        AssetManager manager = createAssetManager();
+        manager.load(dir.child("a.txt").path(), GdxVDFNode.class);
+        try {
+            manager.finishLoading();
+            Assert.fail();
+        }
+        catch (RuntimeException e) {
+            Throwable cause = e;
+            while (!(cause instanceof GdxVDFParseException) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            Assert.assertTrue(cause.getMessage(), cause.getMessage().contains("Include cycle detected"));
+        }
+    }
+
+    @Test
+    public void testResolvedNames() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "scripts/main.txt", "\"#base\" \"../common/base.txt\"\n\"main\" { \"key\" \"value\" }");
+        write(dir, "common/base.txt", "\"main\" { \"size\" \"10\" }");
+
+        // Asset names are resolved against a directory, dependencies must be named the same way
+        AssetManager manager = new AssetManager(fileName -> dir.child(fileName), false);
+        manager.setLoader(GdxVDFNode.class, new GdxVDFLoader(manager.getFileHandleResolver()));
+        manager.load("scripts/main.txt", GdxVDFNode.class);
+        manager.finishLoading();
+
+        Assert.assertEquals("10", manager.get("scripts/main.txt", GdxVDFNode.class).get("main").getString("size"));
+        Assert.assertTrue(manager.isLoaded("common/base.txt"));
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        FileHandle dir = createDirectory();
+        write(dir, "a.txt", "\"#include\" \"b.txt\"");
+        write(dir, "b.txt", "\"#include\" \"a.txt\"");
+        write(dir, "c.txt", "\"#include\" \"d.txt\"\n\"c\" \"1\"");
+        write(dir, "d.txt", "\"d\" \"1\"");
+
+        AssetManager manager = new AssetManager(fileName -> new FileHandle(fileName), false);
+        GdxVDFLoader loader = new GdxVDFLoader(manager.getFileHandleResolver());
+        manager.setLoader(GdxVDFNode.class, loader);
+        manager.load(dir.child("a.txt").path(), GdxVDFNode.class);
+        try {
+            manager.finishLoading();
+            Assert.fail();
+        }
+        catch (RuntimeException ignored) {
+        }
+        Assert.assertTrue(loader.isIdle());
+
+        GdxVDFLoader.GdxVDFParameter parameter = new GdxVDFLoader.GdxVDFParameter();
+        parameter.paths = new String[] { "c[x]" };
+        manager.load(dir.child("c.txt").path(), GdxVDFNode.class, parameter);
+        try {
+            manager.finishLoading();
+            Assert.fail();
+        }
+        catch (IllegalArgumentException ignored) {
+        }
+        Assert.assertTrue(loader.isIdle());
+    }
+
+    private AssetManager createAssetManager() {
+        AssetManager manager = new AssetManager(fileName -> new FileHandle(fileName), false);
+        manager.setLoader(GdxVDFNode.class, new GdxVDFLoader(manager.getFileHandleResolver()));
+        return manager;
+    }
+
+    private FileHandle createDirectory() throws IOException {
+        File dir = Files.createTempDirectory("gdx-jvdf").toFile();
+        dir.deleteOnExit();
+        return new FileHandle(dir);
+    }
+
+    private void write(FileHandle dir, String name, String content) {
+        FileHandle file = dir.child(name);
+        file.file().getParentFile().mkdirs();
+        file.writeString(content, false);
+        file.file().deleteOnExit();
+    }
+
+}
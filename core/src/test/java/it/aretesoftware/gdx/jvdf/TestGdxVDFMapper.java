@@ -0,0 +1,225 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestGdxVDFMapper extends GdxBaseTest {
+
+    private final GdxVDFParser parser = new GdxVDFParser();
+
+    private static final String ITEM = "\"item\"\n" +
+            "{\n" +
+            "    \"id\" \"rifle\"\n" +
+            "    \"name\" \"Rifle\"\n" +
+            "    \"item_slot\" \"2\"\n" +
+            "    \"weight\" \"3.5\"\n" +
+            "    \"tradable\" \"true\"\n" +
+            "    \"serial\" \"123456789012\"\n" +
+            "    \"color\" \"0.0 0.0 1.0 1.0\"\n" +
+            "    \"offset\" \"1 2\"\n" +
+            "    \"position\" \"1 2 3\"\n" +
+            "    \"quality\" \"third\"\n" +
+            "    \"tag\" \"first\"\n" +
+            "    \"tag\" \"second\"\n" +
+            "    \"custom_key\" \"renamed\"\n" +
+            "    \"ignored\" \"value\"\n" +
+            "    \"attribute\" { \"name\" \"damage\" \"value\" \"10\" }\n" +
+            "    \"attribute\" { \"name\" \"speed\" \"value\" \"1.5\" }\n" +
+            "    \"main\" { \"name\" \"accuracy\" \"value\" \"0.9\" }\n" +
+            "}\n";
+
+    public static class Attribute {
+        public String name;
+        public float value;
+    }
+
+    public static class BaseItem {
+        @GdxVDFField(required = true)
+        public String id;
+    }
+
+    public static class Item extends BaseItem {
+        public String name;
+        public int itemSlot;
+        public float weight;
+        public boolean tradable;
+        public long serial;
+        public Color color;
+        public Vector2 offset;
+        public Vector3 position;
+        public GdxEnumTest quality;
+        @GdxVDFField("tag")
+        public List<String> tags;
+        @GdxVDFField("attribute")
+        public List<Attribute> attributes;
+        public Attribute main;
+        @GdxVDFField("custom_key")
+        private String renamed;
+        @GdxVDFField(ignore = true)
+        public String ignored;
+        public transient String skipped = "default";
+        public Integer missing = 7;
+        public static String shared;
+    }
+
+    public static class Chain {
+        public int depth;
+        public Chain next;
+    }
+
+    @Test
+    public void testMap() {
+        testMap(new GdxVDFMapper());
+    }
+
+    @Test
+    public void testMapWithReflection() {
+        testMap(new GdxVDFMapper(false));
+    }
+
+    @Test
+    public void testRead() {
+        GdxVDFReader reader = new GdxVDFReader(ITEM);
+        Assert.assertEquals(GdxVDFReader.Token.key, reader.next());
+        Assert.assertEquals(GdxVDFReader.Token.nodeStart, reader.next());
+        assertItem(new GdxVDFMapper().read(reader, Item.class));
+        Assert.assertEquals(GdxVDFReader.Token.end, reader.next());
+
+        // Unknown nodes are skipped, and repeated keys bind their first occurrence like the tree does
+        Attribute attribute = new GdxVDFMapper(false).read(new GdxVDFReader("\"unknown\" { \"value\" \"1\" }\n" +
+                "\"value\" \"2\"\n\"value\" \"3\"\n"), Attribute.class);
+        Assert.assertEquals(2f, attribute.value, 0f);
+
+        List<Attribute> attributes = new GdxVDFMapper().readAll(new GdxVDFReader("\"1\" { \"name\" \"damage\" }\n" +
+                "\"count\" \"2\"\n\"2\" { \"name\" \"speed\" }\n"), Attribute.class);
+        Assert.assertEquals(2, attributes.size());
+        Assert.assertEquals("speed", attributes.get(1).name);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadRequired() {
+        new GdxVDFMapper().read(new GdxVDFReader("\"name\" \"Rifle\""), Item.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadRequiredNode() {
+        // A node cannot be read as the value of a required field, which stays unbound
+        new GdxVDFMapper().read(new GdxVDFReader("\"id\" { \"value\" \"rifle\" }\n\"name\" \"Rifle\""), Item.class);
+    }
+
+    @Test
+    public void testDeep() {
+        // A self-referential class binds a document of any depth, from the tree and from a reader
+        int depth = 100000;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append("\"depth\" \"").append(i).append("\" \"next\" { ");
+        }
+        for (int i = 0; i < depth; i++) {
+            builder.append('}');
+        }
+        String vdf = builder.toString();
+        assertChain(new GdxVDFMapper().map(parser.parse(vdf), Chain.class), depth);
+        assertChain(new GdxVDFMapper(false).map(parser.parse(vdf), Chain.class), depth);
+        assertChain(new GdxVDFMapper().read(new GdxVDFReader(vdf), Chain.class), depth);
+    }
+
+    private void assertChain(Chain chain, int depth) {
+        for (int i = 0; i < depth; i++) {
+            Assert.assertEquals(i, chain.depth);
+            chain = chain.next;
+        }
+        Assert.assertNotNull(chain);
+        Assert.assertNull(chain.next);
+    }
+
+    private void testMap(GdxVDFMapper mapper) {
+        assertItem(mapper.map(parser.parse(ITEM).get("item"), Item.class));
+    }
+
+    private void assertItem(Item item) {
+        Assert.assertEquals("rifle", item.id);
+        Assert.assertEquals("Rifle", item.name);
+        Assert.assertEquals(2, item.itemSlot);
+        Assert.assertEquals(3.5f, item.weight, 0f);
+        Assert.assertTrue(item.tradable);
+        Assert.assertEquals(123456789012L, item.serial);
+        Assert.assertEquals(Color.BLUE, item.color);
+        Assert.assertEquals(new Vector2(1, 2), item.offset);
+        Assert.assertEquals(new Vector3(1, 2, 3), item.position);
+        Assert.assertEquals(GdxEnumTest.third, item.quality);
+        Assert.assertEquals(2, item.tags.size());
+        Assert.assertEquals("second", item.tags.get(1));
+        Assert.assertEquals(2, item.attributes.size());
+        Assert.assertEquals("speed", item.attributes.get(1).name);
+        Assert.assertEquals(1.5f, item.attributes.get(1).value, 0f);
+        Assert.assertEquals("accuracy", item.main.name);
+        Assert.assertEquals("renamed", item.renamed);
+        Assert.assertNull(item.ignored);
+        Assert.assertEquals("default", item.skipped);
+        Assert.assertEquals(Integer.valueOf(7), item.missing);
+        Assert.assertNull(Item.shared);
+    }
+
+    @Test
+    public void testMapExisting() {
+        Attribute attribute = new Attribute();
+        attribute.name = "unchanged";
+        new GdxVDFMapper().map(parser.parse("\"value\" \"2\""), attribute);
+        Assert.assertEquals("unchanged", attribute.name);
+        Assert.assertEquals(2f, attribute.value, 0f);
+
+        GdxVDFNode list = parser.parse("\"attributes\" { \"1\" { \"name\" \"damage\" \"value\" \"10\" } \"2\" { \"name\" \"speed\" } }");
+        List<Attribute> attributes = new GdxVDFMapper().mapAll(list.get("attributes"), Attribute.class);
+        Assert.assertEquals(2, attributes.size());
+        Assert.assertEquals(10f, attributes.get(0).value, 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequired() {
+        new GdxVDFMapper().map(parser.parse("\"item\" { \"name\" \"Rifle\" }").get("item"), Item.class);
+    }
+
+    @Test
+    public void testSnakeCase() {
+        Assert.assertEquals("item_slot", GdxVDFMapper.toSnakeCase("itemSlot"));
+        Assert.assertEquals("max_hp_value", GdxVDFMapper.toSnakeCase("maxHpValue"));
+        Assert.assertNull(GdxVDFMapper.toSnakeCase("name"));
+    }
+
+    @Test
+    public void testReadAllMatchesMapAll() {
+        StringBuilder builder = new StringBuilder("\"items\" {\n");
+        for (int i = 0; i < 1000; i++) {
+            builder.append("\"").append(i).append("\" { \"id\" \"item").append(i).append("\" \"name\" \"Item ").append(i)
+                    .append("\" \"item_slot\" \"").append(i % 8).append("\" \"weight\" \"").append(i * 0.5f)
+                    .append("\" \"tradable\" \"").append(i % 2 == 0).append("\" \"serial\" \"").append(i * 1000L)
+                    .append("\" \"quality\" \"second\" \"color\" \"1.0 1.0 1.0 1.0\" }\n");
+        }
+        String vdf = builder.append("}").toString();
+        GdxVDFMapper mapper = new GdxVDFMapper();
+        List<Item> mapped = mapper.mapAll(parser.parse(vdf).get("items"), Item.class);
+        GdxVDFReader reader = new GdxVDFReader(vdf);
+        reader.next();
+        reader.next();
+        List<Item> streamed = mapper.readAll(reader, Item.class);
+        Assert.assertEquals(mapped.size(), streamed.size());
+        for (int i = 0; i < mapped.size(); i++) {
+            Item expected = mapped.get(i), actual = streamed.get(i);
+            Assert.assertEquals(expected.id, actual.id);
+            Assert.assertEquals(expected.itemSlot, actual.itemSlot);
+            Assert.assertEquals(expected.weight, actual.weight, 0f);
+            Assert.assertEquals(expected.tradable, actual.tradable);
+            Assert.assertEquals(expected.serial, actual.serial);
+            Assert.assertEquals(expected.quality, actual.quality);
+            Assert.assertEquals(expected.color, actual.color);
+        }
+        Assert.assertEquals(999 * 0.5f, streamed.get(999).weight, 0f);
+    }
+
+}
@@ -3,6 +3,11 @@ package it.aretesoftware.gdx.jvdf;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
 /**
  * @author AreteS0ftware
  */
@@ -131,6 +136,48 @@ public class TestGdxVDFNode extends GdxBaseTest {
         }
     }
 
+    @Test
+    public void testStreams() {
+        GdxVDFNode node = parser.parse(sample_multimap);
+        List<GdxVDFNode> expected = new ArrayList<>();
+        addDescendants(node, expected);
+        Assert.assertEquals(expected, node.descendants().collect(Collectors.toList()));
+        Assert.assertEquals(expected, node.descendants().parallel().collect(Collectors.toList()));
+
+        GdxVDFNode root = node.child;
+        Assert.assertEquals(root.size, root.children().count());
+        Assert.assertEquals(root.asArray(root.child.name), root.children(root.child.name.toUpperCase())
+                .collect(Collectors.toList()));
+        Assert.assertEquals(0, new GdxVDFNode().descendants().count());
+
+        // Wide nodes split into halves of known size
+        StringBuilder builder = new StringBuilder("\"wide\" {\n");
+        for (int i = 0; i < 10000; i++) {
+            builder.append("\"").append(i % 2 == 0 ? "even" : "odd").append("\" { \"value\" \"").append(i).append("\" }\n");
+        }
+        GdxVDFNode wide = parser.parse(builder.append("}").toString()).get("wide");
+        Spliterator<GdxVDFNode> spliterator = wide.children().spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        Spliterator<GdxVDFNode> prefix = spliterator.trySplit();
+        Assert.assertEquals(5000, prefix.getExactSizeIfKnown());
+        Assert.assertEquals(5000, spliterator.getExactSizeIfKnown());
+
+        List<GdxVDFNode> odd = wide.children("odd").parallel().collect(Collectors.toList());
+        Assert.assertEquals(5000, odd.size());
+        Assert.assertEquals("1", odd.get(0).getString("value"));
+        Assert.assertEquals("9999", odd.get(4999).getString("value"));
+        Assert.assertEquals(20000, wide.descendants().parallel().count());
+        Assert.assertEquals(49995000L, wide.descendants().parallel().filter(GdxVDFNode::isEmpty)
+                .mapToLong(GdxVDFNode::asLong).sum());
+    }
+
+    private void addDescendants(GdxVDFNode node, List<GdxVDFNode> nodes) {
+        for (GdxVDFNode child = node.child; child != null; child = child.next) {
+            nodes.add(child);
+            addDescendants(child, nodes);
+        }
+    }
+
     @Test
     public void testToVDF() {
         testToVDF(sample_types);
@@ -0,0 +1,86 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestGdxVDFNodePool extends GdxBaseTest {
+
+    private static final String MESSAGE = "\"message\" { \"id\" \"7\" \"position\" { \"x\" \"1\" \"y\" \"2\" } }";
+
+    @Test
+    public void testFree() {
+        GdxVDFNodePool pool = new GdxVDFNodePool();
+        GdxVDFNode root = new GdxVDFParser().parse(MESSAGE);
+        GdxVDFNode position = root.get("message").get("position");
+        pool.free(position);
+        Assert.assertEquals(3, pool.getFree());
+        Assert.assertEquals(1, root.get("message").size);
+        Assert.assertNull(position.name);
+        Assert.assertNull(position.child);
+
+        pool.free(root);
+        Assert.assertEquals(6, pool.getFree());
+
+        // Deep trees are freed without recursion
+        pool.free(new GdxVDFParser().parse(new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.deep, 100000)));
+        Assert.assertTrue(pool.getFree() > 100000);
+    }
+
+    @Test
+    public void testParse() {
+        GdxVDFNodePool pool = new GdxVDFNodePool();
+        GdxVDFParser parser = new GdxVDFParser();
+        parser.setPool(pool);
+        GdxVDFNode first = parser.parse(MESSAGE);
+        String key = first.get("message").get(0).name;
+        parser.free(first);
+        Assert.assertEquals(6, pool.getFree());
+
+        // Once warm, parsing and freeing a message reuses the same nodes and strings
+        for (int i = 0; i < 10; i++) {
+            GdxVDFNode root = parser.parse(MESSAGE);
+            Assert.assertEquals(0, pool.getFree());
+            Assert.assertEquals(2, root.get("message").get("position").getInt("y"));
+            Assert.assertSame(key, root.get("message").get(0).name);
+            parser.free(root);
+            Assert.assertEquals(6, pool.getFree());
+        }
+
+        // Entries dropped by conditionals go back to the pool while parsing
+        parser = new GdxVDFParser(new GdxVDFConditionals("$WIN32"));
+        parser.setPool(pool);
+        GdxVDFNode root = parser.parse("a 1 b 2 [$X360] c [$X360] { d 3 } e { f 4 } [$X360]");
+        Assert.assertEquals(1, root.size);
+        Assert.assertEquals(4, pool.getFree());
+    }
+
+    @Test
+    public void testOwner() throws InterruptedException {
+        GdxVDFNodePool pool = new GdxVDFNodePool();
+        pool.free(new GdxVDFNode());
+        GdxVDFParser parser = new GdxVDFParser();
+        parser.setPool(pool);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<GdxVDFNode> parsed = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            // Other threads parse without the pool, and cannot use it directly
+            parsed.set(parser.parse(MESSAGE));
+            parser.free(parsed.get());
+            try {
+                pool.obtain();
+            }
+            catch (IllegalStateException e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertNotNull(failure.get());
+        Assert.assertEquals("7", parsed.get().get("message").getString("id"));
+        Assert.assertEquals(1, pool.getFree());
+    }
+
+}
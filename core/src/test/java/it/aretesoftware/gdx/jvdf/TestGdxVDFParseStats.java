@@ -0,0 +1,75 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGdxVDFParseStats extends GdxBaseTest {
+
+    private static final String VDF = "// comment\n" +
+            "\"root\"\n" +
+            "{\n" +
+            "    \"key\" \"value\"\n" +
+            "    \"KEY\" \"again\"\n" +
+            "    \"nested\" { \"deep\" { \"key\" \"1\" } }\n" +
+            "    \"nested\" { }\n" +
+            "}\n" +
+            "\"other\" \"2\"";
+
+    @Test
+    public void testParse() {
+        GdxVDFParser parser = new GdxVDFParser();
+        GdxVDFParseStats stats = new GdxVDFParseStats();
+        parser.parse(VDF, stats);
+        Assert.assertEquals(1, stats.getParses());
+        Assert.assertEquals(VDF.length(), stats.getChars());
+        Assert.assertTrue(stats.getProcessedChars() > 0 && stats.getProcessedChars() < stats.getChars());
+        Assert.assertEquals(4, stats.getNodes());
+        Assert.assertEquals(4, stats.getValues());
+        Assert.assertEquals(3, stats.getMaxDepth());
+        Assert.assertEquals(4, stats.getWidestNode());
+        // "KEY" repeats "key" and the second "nested" repeats the first, the "key" of "deep" is on another level
+        Assert.assertEquals(2, stats.getDuplicateKeys());
+        Assert.assertTrue(stats.getRetainedBytes() > 0);
+        // A short document is preprocessed into the reused buffers of the thread
+        Assert.assertEquals(0, stats.getTemporaryBytes());
+        Assert.assertTrue(stats.getPreprocessNanos() > 0 && stats.getParseNanos() > 0);
+
+        // The same lines give the same counts, and are added to the previous ones
+        parser.parse(VDF.split("\n"), stats);
+        Assert.assertEquals(2, stats.getParses());
+        Assert.assertEquals(2L * VDF.length(), stats.getChars());
+        Assert.assertEquals(8, stats.getNodes());
+        Assert.assertEquals(3, stats.getMaxDepth());
+        Assert.assertTrue(stats.getTemporaryBytes() > 0);
+
+        // The parser itself only collects when asked to
+        Assert.assertEquals(0, parser.getStats().getParses());
+    }
+
+    @Test
+    public void testCollect() {
+        GdxVDFParser parser = new GdxVDFParser(new GdxVDFConditionals("$WIN32"));
+        parser.setCollectStats(true);
+        parser.parse("\"a\" { \"b\" \"1\" [$WIN32] \"b\" \"2\" [$X360] }");
+        parser.parse("\"c\" \"3\"");
+        GdxVDFParseStats stats = parser.getStats();
+        Assert.assertEquals(2, stats.getParses());
+        // Entries dropped by a conditional following them are counted, they were parsed
+        Assert.assertEquals(1, stats.getNodes());
+        Assert.assertEquals(3, stats.getValues());
+        Assert.assertEquals(1, stats.getDuplicateKeys());
+        Assert.assertEquals(1, stats.getMaxDepth());
+
+        // Snapshots do not change, and reset clears the statistics
+        parser.parse("\"d\" \"4\"");
+        Assert.assertEquals(2, stats.getParses());
+        Assert.assertEquals(3, parser.getStats().getParses());
+        parser.resetStats();
+        Assert.assertEquals(0, parser.getStats().getParses());
+
+        parser.setCollectStats(false);
+        parser.parse("\"e\" \"5\"");
+        Assert.assertEquals(0, parser.getStats().getValues());
+    }
+
+}
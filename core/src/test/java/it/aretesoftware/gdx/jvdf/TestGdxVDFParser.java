@@ -7,7 +7,12 @@ import com.badlogic.gdx.math.Vector3;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Brendan Heinonen
@@ -350,4 +355,196 @@ public class TestGdxVDFParser extends GdxBaseTest {
 
     }
 
+    @Test
+    public void testReuse() throws IOException {
+        // A failed parse leaves nothing behind for the next parse of the thread
+        try {
+            parser.parse("root { child { key value }");
+            Assert.fail();
+        }
+        catch (GdxVDFParseException e) {
+            Assert.assertEquals("value", parser.parse("key value").getString("key"));
+        }
+
+        // Children are appended after the last one, also when a conditional dropped it
+        GdxVDFNode root = new GdxVDFParser(new GdxVDFConditionals("$WIN32"))
+                .parse("a 1 b 2 [$X360] c 3 d { e 4 } [$X360] f 5");
+        Assert.assertEquals(3, root.size);
+        Assert.assertEquals("c", root.get(1).name);
+        Assert.assertEquals("f", root.get(2).name);
+        Assert.assertSame(root.get(1), root.get(2).prev);
+
+        // A parse started from within a parse on the same thread does not share its buffers
+        GdxVDFConditionals nested = new GdxVDFConditionals() {
+            @Override
+            public boolean evaluate(CharSequence expression) {
+                return parser.parse("nested { key " + expression + " }").get("nested").getString("key").equals("$A");
+            }
+        };
+        root = new GdxVDFParser(nested).parse("a 1 [$A] b 2 [$B] c 3");
+        Assert.assertEquals("a c", root.get(0).name + " " + root.get(1).name);
+
+        // Buffers grown by a deep document or a long line are shrunk, and the next parses still use them
+        char[] line = new char[GdxVDFParserState.MAX_RETAINED_BUFFER * 2];
+        Arrays.fill(line, 'a');
+        String deep = new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.deep, line.length);
+        String key = parser.parse(new StringReader("key " + new String(line))).getString("key");
+        Assert.assertEquals(line.length, key.length());
+        Assert.assertEquals(1, parser.parse(new StringReader(deep)).size());
+        Assert.assertEquals(1, parser.parse(deep).size());
+        String vdf = "root { child { key value } }";
+        Assert.assertEquals("value", parser.parse(new StringReader(vdf)).get("root").get("child").getString("key"));
+        Assert.assertEquals("value", parser.parse(vdf).get("root").get("child").getString("key"));
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        String large = new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.items, 2000);
+        Assert.assertTrue(large.length() > GdxVDFParser.SEQUENTIAL_CHARS);
+        String[] documents = {sample, sample_multimap, sample_types, sample_arrays, large};
+        String[] expected = new String[documents.length];
+        for (int i = 0; i < documents.length; i++) {
+            expected[i] = parser.parse(documents[i]).toVDF();
+        }
+
+        Thread[] threads = new Thread[8];
+        AtomicInteger failures = new AtomicInteger();
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    int index = (i + offset) % documents.length;
+                    if (!expected[index].equals(parser.parse(documents[index]).toVDF())) failures.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void testDeep() throws InterruptedException {
+        // Far deeper than any recursion would survive
+        GdxVDFNode root = parser.parse(new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.deep, 100000));
+        Assert.assertEquals(200000, root.descendants().count());
+        GdxVDFNode copy = root.copy();
+        Assert.assertEquals(200000, copy.descendants().count());
+        Assert.assertEquals(200000, new GdxVDFTraversal().collect(copy, node -> node).size());
+
+        GdxVDFFrozenNode frozen = root.freeze();
+        GdxVDFFrozenNode other = copy.freeze();
+        Assert.assertEquals(frozen.hashCode(), other.hashCode());
+        Assert.assertEquals(frozen, other);
+        copy.get("level_0").get("level_1").get("level_2").get("depth").set("changed");
+        Assert.assertNotEquals(frozen, copy.freeze());
+        Assert.assertEquals(200000, frozen.thaw().descendants().count());
+        Assert.assertTrue(GdxVDFCache.estimateBytes(frozen) > 200000L * GdxVDFCache.NODE_BYTES);
+
+        // Diffing and deduplicating walk the whole depth without recursing either
+        GdxVDFNode deepest = copy;
+        for (int i = 0; i < 100000; i++) {
+            deepest = deepest.get("level_" + i);
+        }
+        deepest.get("depth").set("deepest");
+        GdxVDFFrozenNode changed = copy.freeze();
+        GdxVDFPatch patch = GdxVDFPatch.diff(frozen, changed);
+        Assert.assertEquals(2, patch.size());
+        Assert.assertEquals(100001, patch.getOperations().get(1).path().length());
+        Assert.assertEquals(changed, patch.apply(frozen));
+        GdxVDFDeduplicator deduplicator = new GdxVDFDeduplicator();
+        Assert.assertEquals(changed, deduplicator.deduplicate(changed));
+        Assert.assertEquals(200001, deduplicator.getNodesVisited());
+
+        // Serializing is quadratic in the depth because of indentation, so a shallower tree is written on a small stack
+        GdxVDFNode tree = parser.parse(new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.deep, 2000));
+        String[] written = new String[2];
+        Thread thread = new Thread(null, () -> {
+            written[0] = tree.toVDF();
+            written[1] = new GdxVDFWriter().writeNode(tree.child).toVDF();
+        }, "small-stack", 64 * 1024);
+        thread.start();
+        thread.join();
+        Assert.assertNotNull(written[0]);
+        Assert.assertEquals(tree.freeze(), parser.parse(written[0]).freeze());
+        Assert.assertEquals(tree.freeze(), parser.parse(written[1]).freeze());
+    }
+
+    @Test
+    public void testLimits() {
+        GdxVDFParser limited = new GdxVDFParser();
+        limited.setMaxDepth(3);
+        limited.setMaxSize(64);
+        String nested = "\"a\" { \"b\" { \"c\" { \"d\" \"1\" } } }";
+        Assert.assertEquals("1", limited.parse(nested).get("a").get("b").get("c").getString("d"));
+        assertRejected(limited, "\"a\" { \"b\" { \"c\" { \"d\" { } } } }");
+        assertRejected(limited, nested + "\n\"padding\" \"" + new String(new char[64]).replace('\0', 'x') + "\"");
+        try {
+            limited.parse(new String[] { nested, "\"padding\" \"xxxxxxxxxxxxxxxxxxxxxxxxxxxxxx\"" });
+            Assert.fail();
+        }
+        catch (GdxVDFParseException e) {
+            // The lines are longer than allowed once joined
+        }
+
+        // The parser is still usable after a rejected document
+        Assert.assertEquals("1", limited.parse(nested).get("a").get("b").get("c").getString("d"));
+        limited.setMaxDepth(0);
+        limited.setMaxSize(0);
+        Assert.assertNotNull(limited.parse("\"a\" { \"b\" { \"c\" { \"d\" { } } } }").get("a"));
+    }
+
+    @Test
+    public void testReader() throws IOException {
+        String large = new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.items, 2000);
+        String conditional = "a 1 [$WIN32]\n// comment\nb {\n\tc \"2\" [!$WIN32]\n}\n\n\"d\" \"3\"\n";
+        for (String vdf : new String[] {sample, sample_multimap, sample_types, sample_arrays, large, conditional}) {
+            Assert.assertEquals(parser.parse(vdf).toVDF(), parser.parse(new StringReader(vdf)).toVDF());
+        }
+        GdxVDFParser windows = new GdxVDFParser(new GdxVDFConditionals("$WIN32"));
+        Assert.assertEquals(windows.parse(conditional).toVDF(), windows.parse(new StringReader(conditional)).toVDF());
+        Assert.assertEquals(0, windows.parse(new StringReader(conditional)).get("b").size);
+
+        GdxVDFParseStats stats = new GdxVDFParseStats();
+        parser.parse(new StringReader(sample), stats);
+        Assert.assertEquals(1, stats.getParses());
+        Assert.assertEquals(sample.length(), stats.getChars() + (sample.endsWith("\n") ? 1 : 0));
+        Assert.assertEquals(parser.parse(sample).descendants().count(), stats.getNodes() + stats.getValues());
+
+        GdxVDFParser limited = new GdxVDFParser();
+        limited.setMaxDepth(3);
+        limited.setMaxSize(64);
+        String nested = "\"a\" { \"b\" { \"c\" { \"d\" \"1\" } } }";
+        Assert.assertEquals("1", limited.parse(new StringReader(nested)).get("a").get("b").get("c").getString("d"));
+        assertRejected(limited, new StringReader("\"a\" { \"b\" { \"c\" { \"d\" { } } } }"));
+        assertRejected(limited, new StringReader(nested + "\n\"padding\" \"xxxxxxxxxxxxxxxxxxxxxxxxxxxxxx\""));
+    }
+
+    private void assertRejected(GdxVDFParser parser, Reader vdf) throws IOException {
+        try {
+            parser.parse(vdf);
+            Assert.fail();
+        }
+        catch (GdxVDFParseException e) {
+            // Expected
+        }
+    }
+
+    private void assertRejected(GdxVDFParser parser, String vdf) {
+        try {
+            parser.parse(vdf);
+            Assert.fail();
+        }
+        catch (GdxVDFParseException e) {
+            // Expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        new GdxVDFParser().setMaxDepth(-1);
+    }
+
 }
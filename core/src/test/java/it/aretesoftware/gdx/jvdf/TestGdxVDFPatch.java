@@ -0,0 +1,176 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGdxVDFPatch extends GdxBaseTest {
+
+    private final GdxVDFParser parser = new GdxVDFParser();
+    private final String sample = getFileContents("resources/sample.txt");
+    private final String sample_multimap = getFileContents("resources/sample_multimap.txt");
+    private final String sample_types = getFileContents("resources/sample_types.txt");
+    private final String sample_arrays = getFileContents("resources/sample_arrays.txt");
+
+    @Test
+    public void testIdentical() {
+        GdxVDFPatch patch = GdxVDFPatch.diff(parser.parse(sample), parser.parse(sample));
+        Assert.assertTrue(patch.isEmpty());
+    }
+
+    @Test
+    public void testChange() {
+        GdxVDFNode from = parser.parse(sample);
+        GdxVDFNode to = parser.parse(sample);
+        to.get("root_node").get("second_sub_node").get("third_sub_node").get("fourth").set("changed");
+        GdxVDFPatch patch = GdxVDFPatch.diff(from, to);
+        Assert.assertEquals(1, patch.size());
+        GdxVDFPatch.Operation operation = patch.getOperations().get(0);
+        Assert.assertEquals(GdxVDFPatch.Type.change, operation.type());
+        Assert.assertEquals("root_node/second_sub_node/third_sub_node/fourth", operation.path().toString());
+        Assert.assertEquals(to.toVDF(), patch.apply(from).toVDF());
+    }
+
+    @Test
+    public void testMultimap() {
+        GdxVDFNode from = parser.parse(sample_multimap);
+        GdxVDFNode to = parser.parse(sample_multimap);
+        GdxVDFNode secondSubNode = to.get("root_node").get("sub_node", 1);
+        secondSubNode.get("key", 0).remove();
+        secondSubNode.addChild("key", new GdxVDFNode("value5"));
+        secondSubNode.addChild("key", new GdxVDFNode("value6"));
+        to.get("root_node").get("sub_node", 0).remove();
+        testRoundTrip(from, to);
+    }
+
+    @Test
+    public void testStructure() {
+        GdxVDFNode from = parser.parse(sample);
+        GdxVDFNode to = parser.parse(sample);
+        GdxVDFNode rootNode = to.get("root_node");
+        // A value becomes a node, and a node becomes a value
+        GdxVDFNode first = rootNode.get("first_sub_node").get("first");
+        first.set(null);
+        first.addChild("nested", new GdxVDFNode("value"));
+        rootNode.get("second_sub_node").get("third_sub_node").set("flattened");
+        rootNode.get("second_sub_node").get("third_sub_node").remove(0);
+        rootNode.addChild("empty_node", new GdxVDFNode());
+        rootNode.addChild("empty_value", new GdxVDFNode(""));
+        testRoundTrip(from, to);
+    }
+
+    @Test
+    public void testDocuments() {
+        testRoundTrip(parser.parse(sample), parser.parse(sample_types));
+        testRoundTrip(parser.parse(sample_types), parser.parse(sample_arrays));
+        testRoundTrip(parser.parse(sample_arrays), parser.parse(sample_multimap));
+        testRoundTrip(new GdxVDFNode(), parser.parse(sample_arrays));
+        testRoundTrip(parser.parse(sample_arrays), new GdxVDFNode());
+    }
+
+    @Test
+    public void testInsert() {
+        GdxVDFNode from = parser.parse("\"a\" \"1\" \"c\" \"3\"");
+        GdxVDFNode to = parser.parse("\"a\" \"1\" \"b\" \"2\" \"c\" \"3\"");
+        GdxVDFPatch patch = GdxVDFPatch.diff(from, to);
+        Assert.assertEquals(1, patch.size());
+        GdxVDFPatch.Operation operation = patch.getOperations().get(0);
+        Assert.assertEquals(GdxVDFPatch.Type.add, operation.type());
+        Assert.assertEquals(1, operation.index());
+        testRoundTrip(from, to);
+    }
+
+    @Test
+    public void testReorder() {
+        GdxVDFNode from = parser.parse("\"a\" \"1\" \"b\" \"2\" \"c\" \"3\" \"d\" { \"e\" \"4\" }");
+        GdxVDFNode to = parser.parse("\"d\" { \"e\" \"4\" } \"a\" \"1\" \"b\" \"2\" \"c\" \"3\"");
+        GdxVDFPatch patch = GdxVDFPatch.diff(from, to);
+        Assert.assertEquals(1, patch.size());
+        GdxVDFPatch.Operation operation = patch.getOperations().get(0);
+        Assert.assertEquals(GdxVDFPatch.Type.move, operation.type());
+        Assert.assertEquals(3, operation.from());
+        Assert.assertEquals(0, operation.index());
+        testRoundTrip(from, to);
+        // Every child moves
+        testRoundTrip(parser.parse("\"a\" \"1\" \"b\" \"2\" \"c\" \"3\" \"d\" \"4\""),
+                parser.parse("\"d\" \"4\" \"c\" \"3\" \"b\" \"2\" \"a\" \"1\""));
+        // Moves mixed with changes, additions and removals
+        testRoundTrip(parser.parse("\"a\" \"1\" \"b\" { \"x\" \"1\" } \"c\" \"3\" \"d\" \"4\" \"e\" \"5\""),
+                parser.parse("\"e\" \"5\" \"f\" \"6\" \"b\" { \"x\" \"2\" } \"a\" \"1\" \"d\" \"4\""));
+    }
+
+    @Test
+    public void testMultimapPrepend() {
+        GdxVDFNode from = parser.parse("\"key\" \"1\" \"key\" \"2\" \"key\" \"3\"");
+        GdxVDFNode to = parser.parse("\"key\" \"0\" \"key\" \"1\" \"key\" \"2\" \"key\" \"3\"");
+        GdxVDFPatch patch = GdxVDFPatch.diff(from, to);
+        Assert.assertEquals(1, patch.size());
+        GdxVDFPatch.Operation operation = patch.getOperations().get(0);
+        Assert.assertEquals(GdxVDFPatch.Type.add, operation.type());
+        Assert.assertEquals(0, operation.index());
+        testRoundTrip(from, to);
+    }
+
+    @Test
+    public void testRename() {
+        GdxVDFNode from = parser.parse(sample);
+        GdxVDFNode to = parser.parse(sample);
+        to.get("root_node").get("first_sub_node").get("first").name = "First";
+        GdxVDFPatch patch = GdxVDFPatch.diff(from, to);
+        Assert.assertEquals(1, patch.size());
+        Assert.assertEquals(GdxVDFPatch.Type.change, patch.getOperations().get(0).type());
+        testRoundTrip(from, to);
+    }
+
+    @Test
+    public void testRootChange() {
+        GdxVDFNode from = parser.parse(sample);
+        GdxVDFNode to = parser.parse(sample_types);
+        to.set("value");
+        GdxVDFPatch patch = GdxVDFPatch.parse(GdxVDFPatch.diff(from, to).toVDF());
+        Assert.assertEquals(1, patch.size());
+        Assert.assertTrue(patch.getOperations().get(0).path().isRoot());
+        GdxVDFNode result = patch.apply(from);
+        Assert.assertEquals("value", result.asString());
+        Assert.assertEquals(to.toVDF(), result.toVDF());
+        Assert.assertEquals("value", patch.apply(parser.parse(sample).freeze()).asString());
+    }
+
+    private void testRoundTrip(GdxVDFNode from, GdxVDFNode to) {
+        GdxVDFPatch patch = GdxVDFPatch.diff(from, to);
+        GdxVDFPatch parsed = GdxVDFPatch.parse(patch.toVDF());
+        Assert.assertEquals(patch.size(), parsed.size());
+        Assert.assertEquals(to.toVDF(), parsed.apply(from.freeze()).toVDF());
+        Assert.assertEquals(to.toVDF(), parsed.apply(from.copy()).toVDF());
+        Assert.assertEquals(to.toVDF(), patch.apply(from).toVDF());
+    }
+
+    @Test
+    public void testSharedSubtrees() {
+        GdxVDFNode node = new GdxVDFNode();
+        for (int i = 0; i < 1000; i++) {
+            GdxVDFNode block = new GdxVDFNode();
+            block.addChild("value", new GdxVDFNode(String.valueOf(i)));
+            node.addChild("block" + i, block);
+        }
+        GdxVDFFrozenNode v1 = node.freeze();
+        GdxVDFFrozenNode v2 = v1.set(GdxVDFPath.of("block500", "value"), "changed")
+                .add(GdxVDFPath.of("block10"), "extra", "value");
+        GdxVDFPatch patch = GdxVDFPatch.diff(v1, v2);
+        Assert.assertEquals(2, patch.size());
+        Assert.assertEquals("changed", patch.apply(v1).get("block500").getString("value"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPath() {
+        GdxVDFNode from = parser.parse(sample);
+        GdxVDFNode to = parser.parse(sample);
+        to.get("root_node").get("first_sub_node").get("first").set("changed");
+        GdxVDFPatch.diff(from, to).apply(parser.parse(sample_types));
+    }
+
+    @Test(expected = GdxVDFParseException.class)
+    public void testInvalidPatch() {
+        GdxVDFPatch.parse("\"patch\" { \"rename\" { \"path\" { } } }");
+    }
+
+}
@@ -0,0 +1,43 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGdxVDFPath extends GdxBaseTest {
+
+    private final GdxVDFParser parser = new GdxVDFParser();
+    private final String sample = getFileContents("resources/sample.txt");
+    private final String sample_multimap = getFileContents("resources/sample_multimap.txt");
+
+    @Test
+    public void testParse() {
+        GdxVDFPath path = GdxVDFPath.parse("root_node/sub_node[1]/key");
+        Assert.assertEquals(3, path.length());
+        Assert.assertEquals("sub_node", path.name(1));
+        Assert.assertEquals(1, path.index(1));
+        Assert.assertEquals("key", path.lastName());
+        Assert.assertEquals(0, path.lastIndex());
+        Assert.assertEquals("root_node/sub_node[1]/key", path.toString());
+        Assert.assertEquals(GdxVDFPath.of("root_node").child("sub_node", 1).child("key"), path);
+        Assert.assertEquals(GdxVDFPath.of("root_node").child("sub_node", 1), path.parent());
+        Assert.assertTrue(GdxVDFPath.parse("").isRoot());
+        Assert.assertSame(GdxVDFPath.ROOT, GdxVDFPath.parse(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformed() {
+        GdxVDFPath.parse("root_node/sub_node[x]");
+    }
+
+    @Test
+    public void testResolve() {
+        GdxVDFNode root = parser.parse(sample_multimap);
+        GdxVDFPath path = GdxVDFPath.parse("root_node/sub_node[1]/key[1]");
+        Assert.assertEquals("value4", path.resolve(root).asString());
+        Assert.assertEquals("value4", path.resolve(root.freeze()).asString());
+        Assert.assertNull(GdxVDFPath.parse("root_node/sub_node[2]/key").resolve(root));
+        Assert.assertSame(root, GdxVDFPath.ROOT.resolve(root));
+        Assert.assertEquals("value2", GdxVDFPath.of("ROOT_NODE", "first_sub_node", "second").resolve(parser.parse(sample)).asString());
+    }
+
+}
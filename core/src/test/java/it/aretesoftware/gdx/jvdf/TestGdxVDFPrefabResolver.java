@@ -0,0 +1,162 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class TestGdxVDFPrefabResolver extends GdxBaseTest {
+
+    private final GdxVDFParser parser = new GdxVDFParser();
+
+    private static final String ITEMS_GAME = "\"items_game\"\n" +
+            "{\n" +
+            "    \"prefabs\"\n" +
+            "    {\n" +
+            "        \"base\" { \"item_slot\" \"misc\" \"quality\" \"unique\" \"attributes\" { \"damage\" \"1\" \"speed\" \"1\" } }\n" +
+            "        \"weapon\" { \"prefab\" \"base\" \"item_slot\" \"primary\" \"attributes\" { \"damage\" \"10\" } }\n" +
+            "        \"valve\" { \"prefab\" \"base\" \"quality\" \"valve\" \"attributes\" { \"glow\" \"1\" } }\n" +
+            "        \"cycle_a\" { \"prefab\" \"cycle_b\" }\n" +
+            "        \"cycle_b\" { \"prefab\" \"cycle_a\" }\n" +
+            "    }\n" +
+            "    \"items\"\n" +
+            "    {\n" +
+            "        \"1\" { \"name\" \"plain\" }\n" +
+            "        \"2\" { \"name\" \"rifle\" \"prefab\" \"weapon valve\" \"attributes\" { \"speed\" \"2\" } }\n" +
+            "        \"3\" { \"name\" \"hat\" \"prefab\" \"valve\" \"item_slot\" \"head\" }\n" +
+            "        \"4\" { \"name\" \"knife\" \"prefab\" \"WEAPON\" }\n" +
+            "    }\n" +
+            "}\n";
+
+    @Test
+    public void testResolve() {
+        GdxVDFNode itemsGame = parser.parse(ITEMS_GAME).get("items_game");
+        GdxVDFPrefabResolver resolver = new GdxVDFPrefabResolver(itemsGame.get("prefabs"));
+        GdxVDFNode items = itemsGame.get("items");
+
+        GdxVDFPrefabView plain = resolver.resolve(items.get("1"));
+        Assert.assertEquals(1, plain.getLayers().size());
+        Assert.assertEquals("plain", plain.getString("name"));
+        Assert.assertNull(plain.getString("item_slot", null));
+
+        // rifle -> weapon -> valve -> base, as base is shared by both prefabs
+        GdxVDFPrefabView rifle = resolver.resolve(items.get("2"));
+        Assert.assertEquals(4, rifle.getLayers().size());
+        Assert.assertEquals("primary", rifle.getString("item_slot"));
+        Assert.assertEquals("valve", rifle.getString("quality"));
+        GdxVDFPrefabView attributes = rifle.get("attributes");
+        Assert.assertEquals(2, attributes.getInt("speed"));
+        Assert.assertEquals(10, attributes.getInt("damage"));
+        Assert.assertEquals(1, attributes.getInt("glow"));
+        Assert.assertEquals(3, attributes.names().size());
+
+        GdxVDFPrefabView hat = resolver.resolve(items.get("3"));
+        Assert.assertEquals("head", hat.getString("item_slot"));
+        Assert.assertEquals(1, hat.get("attributes").getInt("damage"));
+        Assert.assertEquals("knife", resolver.resolve(items.get("4")).getString("name"));
+        Assert.assertEquals("primary", resolver.resolve(items.get("4")).getString("item_slot"));
+    }
+
+    @Test
+    public void testToNode() {
+        GdxVDFNode itemsGame = parser.parse(ITEMS_GAME).get("items_game");
+        GdxVDFPrefabResolver resolver = new GdxVDFPrefabResolver(itemsGame.get("prefabs"));
+        GdxVDFNode rifle = resolver.resolve(itemsGame.get("items").get("2")).toNode();
+        Assert.assertEquals("2", rifle.name);
+        Assert.assertNull(rifle.parent);
+        Assert.assertEquals("primary", rifle.getString("item_slot"));
+        Assert.assertEquals("2", rifle.get("attributes").getString("speed"));
+        Assert.assertEquals("10", rifle.get("attributes").getString("damage"));
+        rifle.get("attributes").get("damage").set("99");
+        Assert.assertEquals("10", itemsGame.get("prefabs").get("weapon").get("attributes").getString("damage"));
+    }
+
+    @Test
+    public void testMemoized() {
+        GdxVDFNode itemsGame = parser.parse(ITEMS_GAME).get("items_game");
+        GdxVDFPrefabResolver resolver = new GdxVDFPrefabResolver(itemsGame.get("prefabs"));
+        GdxVDFPrefabView first = resolver.resolvePrefab("weapon");
+        Assert.assertEquals(2, resolver.getResolvedCount());
+        GdxVDFPrefabView second = resolver.resolvePrefab("Weapon");
+        Assert.assertEquals(2, resolver.getResolvedCount());
+        Assert.assertEquals(first.getLayers(), second.getLayers());
+        Assert.assertSame(first.getLayers().get(1), second.getLayers().get(1));
+    }
+
+    @Test
+    public void testCycle() {
+        GdxVDFNode itemsGame = parser.parse(ITEMS_GAME).get("items_game");
+        GdxVDFPrefabResolver resolver = new GdxVDFPrefabResolver(itemsGame.get("prefabs"));
+        try {
+            resolver.resolvePrefab("cycle_a");
+            Assert.fail();
+        }
+        catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("cycle_a -> cycle_b -> cycle_a"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPrefab() {
+        GdxVDFNode itemsGame = parser.parse(ITEMS_GAME).get("items_game");
+        new GdxVDFPrefabResolver(itemsGame.get("prefabs")).resolvePrefab("missing");
+    }
+
+    @Test
+    public void testDeepToNode() {
+        // Both layers nest the same node, so the merged copy is built level by level without recursion
+        int depth = 100000;
+        GdxVDFNode root = parser.parse("\"prefabs\" { \"base\" { " + nest(depth, "\"key\" \"base\" \"size\" \"10\"") +
+                " } }\n\"item\" { \"prefab\" \"base\" " + nest(depth, "\"key\" \"item\"") + " }");
+        GdxVDFNode node = new GdxVDFPrefabResolver(root.get("prefabs")).resolve(root.get("item")).toNode();
+        for (int i = 0; i < depth; i++) {
+            node = node.get("level");
+        }
+        Assert.assertEquals(2, node.size());
+        Assert.assertEquals("item", node.getString("key"));
+        Assert.assertEquals(10, node.getInt("size"));
+    }
+
+    private String nest(int depth, String leaves) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append("\"level\" { ");
+        }
+        builder.append(leaves);
+        for (int i = 0; i < depth; i++) {
+            builder.append(" }");
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testResolveAllParallel() {
+        StringBuilder builder = new StringBuilder("\"prefabs\" {\n");
+        for (int i = 0; i < 50; i++) {
+            builder.append("\"p").append(i).append("\" { ");
+            if (i > 0) builder.append("\"prefab\" \"p").append(i - 1).append("\" ");
+            builder.append("\"level").append(i).append("\" \"").append(i).append("\" }\n");
+        }
+        builder.append("}\n\"items\" {\n");
+        for (int i = 0; i < 500; i++) {
+            builder.append("\"").append(i).append("\" { \"prefab\" \"p").append(i % 50).append("\" }\n");
+        }
+        builder.append("}\n");
+        GdxVDFNode root = parser.parse(builder.toString());
+
+        Map<String, GdxVDFPrefabView> sequential = new GdxVDFPrefabResolver(root.get("prefabs")).resolveAll(root.get("items"), false);
+        GdxVDFPrefabResolver resolver = new GdxVDFPrefabResolver(root.get("prefabs"));
+        Map<String, GdxVDFPrefabView> parallel = resolver.resolveAll(root.get("items"), true);
+        Assert.assertEquals(500, parallel.size());
+        Assert.assertEquals(50, resolver.getResolvedCount());
+        Assert.assertEquals(sequential.keySet().toString(), parallel.keySet().toString());
+        for (Map.Entry<String, GdxVDFPrefabView> entry : sequential.entrySet()) {
+            Assert.assertEquals(entry.getValue().getLayers(), parallel.get(entry.getKey()).getLayers());
+        }
+        GdxVDFPrefabView item = parallel.get("49");
+        Assert.assertEquals(51, item.getLayers().size());
+        Assert.assertEquals(0, item.getInt("level0"));
+        Assert.assertEquals(49, item.getInt("level49"));
+    }
+
+}
@@ -3,6 +3,9 @@ package it.aretesoftware.gdx.jvdf;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+
 /**
  * @author Brendan Heinonen
  */
@@ -42,4 +45,54 @@ public class TestGdxVDFPreprocessor extends GdxBaseTest {
         Assert.assertEquals(VDF_NEWLINE_DELIM_TEST_RESULT, preprocessor.process(VDF_NEWLINE_DELIM_TEST));
     }
 
+    @Test
+    public void testProcessIntoBuilder() {
+        String[] documents = {VDF_WHITESPACE_TEST, VDF_COMMENT_TEST, VDF_MINIFY_TEST, VDF_NEWLINE_DELIM_TEST, "",
+                "\n\nkey\n\n value\n\n", "key [$WIN32\nvalue", getFileContents("resources/sample.txt")};
+        for (String document : documents) {
+            StringBuilder builder = new StringBuilder("prefix ");
+            preprocessor.process(document, builder);
+            Assert.assertEquals("prefix " + preprocessor.process(document), builder.toString());
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < GdxVDFPreprocessor.PARALLEL_THRESHOLD * 2; i++) {
+            builder.append("  \"key").append(i).append("\"\t\"value\" // comment\n");
+        }
+        String vdf = builder.toString();
+        StringBuilder sequential = new StringBuilder();
+        preprocessor.process(vdf, sequential);
+        Assert.assertEquals(sequential.toString(), preprocessor.process(vdf));
+    }
+
+    @Test
+    public void testSubclass() throws IOException {
+        // Lines starting with '#' are comments for this preprocessor
+        GdxVDFParser parser = new GdxVDFParser(new GdxVDFPreprocessor() {
+            @Override
+            public String processLine(String line) {
+                return line.startsWith("#") ? null : super.processLine(line);
+            }
+        });
+        StringBuilder large = new StringBuilder("\"items\" {\n");
+        while (large.length() <= GdxVDFParser.SEQUENTIAL_CHARS) {
+            large.append("# \"hidden\" \"1\"\n\"key\" \"value\"\n");
+        }
+        String small = "\"items\" {\n# \"hidden\" \"1\"\n\"key\" \"value\"\n}";
+        for (String vdf : new String[] {small, large.append("}").toString()}) {
+            assertHidden(parser.parse(vdf));
+            assertHidden(parser.parse(vdf.split("\n")));
+            assertHidden(parser.parse(new StringReader(vdf)));
+        }
+    }
+
+    private void assertHidden(GdxVDFNode root) {
+        GdxVDFNode items = root.get("items");
+        Assert.assertFalse(items.has("#"));
+        Assert.assertEquals("value", items.getString("key"));
+    }
+
 }
@@ -0,0 +1,116 @@
+package it.aretesoftware.gdx.jvdf;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFReader.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestGdxVDFReader extends GdxBaseTest {
+
+    @Test
+    public void testTokens() {
+        GdxVDFReader reader = new GdxVDFReader("// comment\n" +
+                "\"root\" // comment\n" +
+                "{\n" +
+                "    \"key\" \"value with spaces\"\n" +
+                "    unquoted 12 [$WIN32]\n" +
+                "    \"escaped\" \"a \\\"quote\\\" and a\\nline\"\n" +
+                "    \"empty\" \"\"\n" +
+                "    \"child\" [!$X360] { \"nested\" \"{}\" }\n" +
+                "}\n");
+        Assert.assertNull(reader.getToken());
+        assertToken(reader, Token.key, "root");
+        Assert.assertEquals(Token.nodeStart, reader.next());
+        Assert.assertEquals(1, reader.getDepth());
+        assertToken(reader, Token.key, "key");
+        assertToken(reader, Token.value, "value with spaces");
+        assertToken(reader, Token.key, "unquoted");
+        assertToken(reader, Token.value, "12");
+        assertToken(reader, Token.key, "escaped");
+        assertToken(reader, Token.value, "a \"quote\" and a\nline");
+        assertToken(reader, Token.key, "empty");
+        assertToken(reader, Token.value, "");
+        assertToken(reader, Token.key, "child");
+        Assert.assertEquals(Token.nodeStart, reader.next());
+        assertToken(reader, Token.key, "nested");
+        assertToken(reader, Token.value, "{}");
+        Assert.assertEquals(Token.nodeEnd, reader.next());
+        Assert.assertEquals(Token.nodeEnd, reader.next());
+        Assert.assertEquals(0, reader.getDepth());
+        Assert.assertEquals(Token.end, reader.next());
+        Assert.assertEquals(Token.end, reader.next());
+    }
+
+    @Test
+    public void testSkip() {
+        GdxVDFReader reader = new GdxVDFReader("\"skipped\" { \"a\" { \"b\" \"}\" // }\n } \"c\" \"d\" }\n" +
+                "\"value\" \"skipped\"\n" +
+                "\"kept\" \"1\"\n");
+        assertToken(reader, Token.key, "skipped");
+        reader.skipValue();
+        Assert.assertEquals(Token.nodeEnd, reader.getToken());
+        assertToken(reader, Token.key, "value");
+        reader.skipValue();
+        assertToken(reader, Token.key, "kept");
+        assertToken(reader, Token.value, "1");
+        Assert.assertEquals(Token.end, reader.next());
+    }
+
+    @Test
+    public void testSameTreeAsParser() {
+        // A tiny buffer makes tokens and comments span several reads
+        String sample = getFileContents("resources/sample.txt");
+        GdxVDFNode expected = new GdxVDFParser().parse(sample);
+        GdxVDFNode actual = build(new GdxVDFReader(new StringReader(sample), 3));
+        Assert.assertEquals(new GdxVDFWriter().writeNode(expected.child).toVDF(), new GdxVDFWriter().writeNode(actual.child).toVDF());
+        Assert.assertEquals(expected.size, actual.size);
+    }
+
+    @Test(expected = GdxVDFParseException.class)
+    public void testUnmatchedStart() {
+        GdxVDFReader reader = new GdxVDFReader("\"a\" { \"b\" \"c\"");
+        while (reader.next() != Token.end);
+    }
+
+    @Test(expected = GdxVDFParseException.class)
+    public void testUnmatchedEnd() {
+        GdxVDFReader reader = new GdxVDFReader("\"a\" \"b\" }");
+        while (reader.next() != Token.end);
+    }
+
+    private static void assertToken(GdxVDFReader reader, Token token, String string) {
+        Assert.assertEquals(token, reader.next());
+        Assert.assertEquals(string, reader.getString());
+    }
+
+    private static GdxVDFNode build(GdxVDFReader reader) {
+        GdxVDFNode root = new GdxVDFNode();
+        List<GdxVDFNode> stack = new ArrayList<>();
+        stack.add(root);
+        String key = null;
+        for (Token token = reader.next(); token != Token.end; token = reader.next()) {
+            GdxVDFNode current = stack.get(stack.size() - 1);
+            switch (token) {
+                case key:
+                    key = reader.getString();
+                    break;
+                case value:
+                    current.addChild(key, new GdxVDFNode(reader.getString()));
+                    break;
+                case nodeStart:
+                    GdxVDFNode node = new GdxVDFNode();
+                    current.addChild(key, node);
+                    stack.add(node);
+                    break;
+                case nodeEnd:
+                    stack.remove(stack.size() - 1);
+                    break;
+            }
+        }
+        return root;
+    }
+
+}
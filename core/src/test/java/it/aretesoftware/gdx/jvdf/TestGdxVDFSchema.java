@@ -0,0 +1,175 @@
+package it.aretesoftware.gdx.jvdf;
+
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TestGdxVDFSchema extends GdxBaseTest {
+
+    private static final String SCHEMA = "\"keys\"\n" +
+            "{\n" +
+            "    \"items\"\n" +
+            "    {\n" +
+            "        \"required\" \"true\"\n" +
+            "        \"keys\"\n" +
+            "        {\n" +
+            "            \"*\"\n" +
+            "            {\n" +
+            "                \"keys\"\n" +
+            "                {\n" +
+            "                    \"name\" { \"required\" \"true\" }\n" +
+            "                    \"item_slot\" { \"type\" \"enum\" \"values\" \"primary secondary melee\" }\n" +
+            "                    \"weight\" { \"type\" \"float\" \"min\" \"0\" \"max\" \"100\" }\n" +
+            "                    \"color\" \"color\"\n" +
+            "                    \"tradable\" \"boolean\"\n" +
+            "                    \"tag\" { \"max_count\" \"2\" \"pattern\" \"[a-z]+\" }\n" +
+            "                    \"attributes\" { \"additional\" \"true\" }\n" +
+            "                }\n" +
+            "            }\n" +
+            "        }\n" +
+            "    }\n" +
+            "    \"version\" \"int\"\n" +
+            "}\n";
+
+    private static final String VALID = "\"version\" \"2\"\n" +
+            "\"items\"\n" +
+            "{\n" +
+            "    \"1\" { \"name\" \"Rifle\" \"item_slot\" \"primary\" \"weight\" \"3.5\" \"tag\" \"gun\" \"tag\" \"loud\" }\n" +
+            "    \"2\" { \"name\" \"Knife\" \"color\" \"1 1 1 1\" \"tradable\" \"TRUE\" \"attributes\" { \"anything\" \"goes\" } }\n" +
+            "}\n";
+
+    private static final String INVALID = "\"version\" \"two\"\n" +
+            "\"items\"\n" +
+            "{\n" +
+            "    \"1\" { \"name\" \"Rifle\" \"item_slot\" \"side\" \"weight\" \"300\" \"tag\" \"a\" \"tag\" \"b\" \"tag\" \"c\" }\n" +
+            "    \"2\" { \"color\" \"1 1 1\" \"tradable\" \"1\" \"extra\" { \"key\" \"value\" } }\n" +
+            "    \"3\" \"not a block\"\n" +
+            "    \"4\" { \"name\" { } \"tag\" \"UPPER\" }\n" +
+            "}\n";
+
+    private final GdxVDFSchema schema = GdxVDFSchema.compile(SCHEMA);
+
+    @Test
+    public void testValid() {
+        GdxVDFNode root = new GdxVDFParser().parse(VALID);
+        Assert.assertTrue(schema.validate(root).toString(), schema.isValid(root));
+        Assert.assertTrue(schema.validate(new GdxVDFReader(VALID)).isEmpty());
+    }
+
+    @Test
+    public void testViolations() {
+        List<GdxVDFSchema.Violation> violations = schema.validate(new GdxVDFParser().parse(INVALID));
+        List<String> expected = new ArrayList<>();
+        expected.add("version: Expected int: two");
+        expected.add("items/1/item_slot: Expected one of [primary, secondary, melee]: side");
+        expected.add("items/1/weight: Value out of range [0.0, 100.0]: 300");
+        expected.add("items/1/tag[2]: Expected at most 2 occurrences, found 3");
+        expected.add("items/2/color: Expected color: 1 1 1");
+        expected.add("items/2/tradable: Expected boolean: 1");
+        expected.add("items/2/extra: Unknown key");
+        expected.add("items/2/name: Missing required key");
+        expected.add("items/3: Expected a block, found a value");
+        expected.add("items/4/name: Expected a value of type string, found a block");
+        expected.add("items/4/tag: Expected a value matching [a-z]+: UPPER");
+        List<String> actual = new ArrayList<>();
+        for (GdxVDFSchema.Violation violation : violations) {
+            actual.add(violation.toString());
+        }
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(GdxVDFPath.parse("items/1/tag[2]"), violations.get(3).path());
+
+        // Streaming finds the same violations
+        Assert.assertEquals(violations, schema.validate(new GdxVDFReader(INVALID)));
+    }
+
+    @Test
+    public void testMissingRoot() {
+        List<GdxVDFSchema.Violation> violations = schema.validate(new GdxVDFParser().parse("\"version\" \"1\""));
+        Assert.assertEquals(1, violations.size());
+        Assert.assertEquals(GdxVDFPath.of("items"), violations.get(0).path());
+
+        violations = schema.validate(new GdxVDFReader("\"items\" { \"1\" { \"name\" \"Rifle\" }"));
+        Assert.assertEquals(GdxVDFPath.ROOT, violations.get(violations.size() - 1).path());
+    }
+
+    @Test
+    public void testMalformedSchema() {
+        String[] schemas = {
+                "\"keys\" { \"a\" \"integer\" }",
+                "\"keys\" { \"a\" { \"type\" \"enum\" } }",
+                "\"keys\" { \"a\" { \"required\" \"yes\" } }",
+                "\"keys\" { \"a\" { \"type\" \"int\" \"keys\" { } } }",
+                "\"keys\" { \"a\" { \"unknown\" \"1\" } }",
+                "\"keys\" { \"a\" \"int\" \"A\" \"int\" }"
+        };
+        for (String vdf : schemas) {
+            try {
+                GdxVDFSchema.compile(vdf);
+                Assert.fail(vdf);
+            }
+            catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void testDeep() throws IOException {
+        // A schema as deep as the document, both far deeper than any recursion would survive
+        int depth = 50000;
+        GdxVDFWriter writer = new GdxVDFWriter(false).writeNodeStart("keys");
+        for (int i = 0; i < depth; i++) {
+            writer.writeNodeStart("level_" + i).writeNodeStart("keys").writeValue("depth", "int");
+        }
+        for (int i = 0; i < depth; i++) {
+            writer.writeNodeEnd().writeNodeEnd();
+        }
+        writer.writeNodeEnd();
+        GdxVDFSchema deep = GdxVDFSchema.compile(writer.toVDF());
+        String vdf = new GdxVDFGenerator(42).generate(GdxVDFGenerator.Shape.deep, depth);
+        Assert.assertTrue(deep.validate(new GdxVDFParser().parse(vdf)).isEmpty());
+        Assert.assertTrue(deep.validate(new GdxVDFReader(vdf)).isEmpty());
+
+        String invalid = vdf.replace("\"" + (depth - 1) + "\"", "\"last\"");
+        List<GdxVDFSchema.Violation> violations = deep.validate(new GdxVDFReader(invalid));
+        Assert.assertEquals(1, violations.size());
+        Assert.assertEquals(depth + 1, violations.get(0).path().length());
+        Assert.assertEquals(violations, deep.validate(new GdxVDFParser().parse(invalid)));
+
+        // Files are validated without failing the others
+        File file = File.createTempFile("gdx-jvdf", ".txt");
+        file.deleteOnExit();
+        FileHandle handle = new FileHandle(file);
+        handle.writeString(invalid, false);
+        Assert.assertEquals(violations, deep.validateAll(Collections.singletonList(handle), true).get(handle));
+        Assert.assertFalse(schema.validateAll(Collections.singletonList(handle), false).get(handle).isEmpty());
+    }
+
+    @Test
+    public void testValidateAll() throws IOException {
+        List<FileHandle> files = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            File file = File.createTempFile("gdx-jvdf", ".txt");
+            file.deleteOnExit();
+            FileHandle handle = new FileHandle(file);
+            handle.writeString(i % 10 == 0 ? INVALID : VALID, false);
+            files.add(handle);
+        }
+        Map<FileHandle, List<GdxVDFSchema.Violation>> sequential = schema.validateAll(files, false);
+        Map<FileHandle, List<GdxVDFSchema.Violation>> parallel = schema.validateAll(files, true);
+        Assert.assertEquals(sequential, parallel);
+        Assert.assertEquals(new ArrayList<>(sequential.keySet()), files);
+        int invalid = 0;
+        for (List<GdxVDFSchema.Violation> violations : parallel.values()) {
+            if (!violations.isEmpty()) invalid++;
+        }
+        Assert.assertEquals(5, invalid);
+    }
+
+}
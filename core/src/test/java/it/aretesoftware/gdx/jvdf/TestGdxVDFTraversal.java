@@ -0,0 +1,88 @@
+package it.aretesoftware.gdx.jvdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestGdxVDFTraversal extends GdxBaseTest {
+
+    @Test
+    public void testOrder() {
+        GdxVDFNode root = createTree();
+        List<GdxVDFNode> expected = new ArrayList<>();
+        addDescendants(root, expected);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int threshold : new int[] {1, 4, 64, GdxVDFTraversal.DEFAULT_THRESHOLD}) {
+                GdxVDFTraversal traversal = new GdxVDFTraversal();
+                traversal.setPool(pool);
+                traversal.setThreshold(threshold);
+                Assert.assertEquals(expected, traversal.filter(root, node -> true));
+
+                AtomicInteger visited = new AtomicInteger();
+                traversal.visit(root, node -> visited.incrementAndGet());
+                Assert.assertEquals(expected.size(), visited.get());
+            }
+            GdxVDFTraversal sequential = new GdxVDFTraversal();
+            sequential.setPool(null);
+            Assert.assertEquals(expected, sequential.filter(root, node -> true));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMapAndCollect() {
+        GdxVDFNode root = createTree();
+        GdxVDFTraversal traversal = new GdxVDFTraversal();
+        traversal.setThreshold(8);
+        int mapped = traversal.map(root, "DAMAGE", damage -> Integer.toString(Integer.parseInt(damage) * 2));
+        Assert.assertEquals(1000, mapped);
+        Assert.assertEquals("20", root.get("items").get("10").getString("damage"));
+
+        List<Integer> damages = traversal.collect(root, node -> node.name.equals("damage") ? node.asInt() : null);
+        Assert.assertEquals(1000, damages.size());
+        for (int i = 0; i < damages.size(); i++) {
+            Assert.assertEquals(i * 2, damages.get(i).intValue());
+        }
+
+        // Nodes without a value are left alone
+        Assert.assertEquals(0, traversal.map(root, "items", value -> "replaced"));
+        Assert.assertTrue(traversal.collect(new GdxVDFNode(), node -> node).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThreshold() {
+        new GdxVDFTraversal().setThreshold(0);
+    }
+
+    /** A wide list of items next to a deep chain of nodes. */
+    private GdxVDFNode createTree() {
+        StringBuilder builder = new StringBuilder("\"items\" {\n");
+        for (int i = 0; i < 1000; i++) {
+            builder.append("\"").append(i).append("\" { \"damage\" \"").append(i).append("\" \"tags\" { \"tag\" \"a\" } }\n");
+        }
+        builder.append("}\n");
+        for (int i = 0; i < 200; i++) {
+            builder.append("\"level\" { \"value\" \"").append(i).append("\"\n");
+        }
+        for (int i = 0; i < 200; i++) {
+            builder.append("}\n");
+        }
+        return new GdxVDFParser().parse(builder.toString());
+    }
+
+    private void addDescendants(GdxVDFNode node, List<GdxVDFNode> nodes) {
+        for (GdxVDFNode child = node.child; child != null; child = child.next) {
+            nodes.add(child);
+            addDescendants(child, nodes);
+        }
+    }
+
+}
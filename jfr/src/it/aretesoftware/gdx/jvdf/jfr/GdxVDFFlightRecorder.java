@@ -0,0 +1,187 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package it.aretesoftware.gdx.jvdf.jfr;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFMonitor;
+import it.aretesoftware.gdx.jvdf.GdxVDFParseStats;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits Java Flight Recorder events for parsing, writing, cache lookups and include resolution, so VDF work can be
+ * correlated with garbage collections, I/O and the rest of a recording.
+ * <p>
+ * Install it once with {@link #install()}. Events are enabled like any other, for example with
+ * {@code -XX:StartFlightRecording} and the default settings, and are listed under the "VDF" category. While no
+ * recording is running, every operation returns from the monitor right away, without collecting parse statistics.
+ * </p>
+ * @author Arete */
+public class GdxVDFFlightRecorder extends GdxVDFMonitor {
+
+    /** Installs a new instance as the monitor of the application. */
+    public static void install() {
+        GdxVDFMonitor.install(new GdxVDFFlightRecorder());
+    }
+
+    @Override
+    public Object beginParse() {
+        ParseEvent event = new ParseEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endParse(Object context, GdxVDFParseStats stats) {
+        ParseEvent event = (ParseEvent) context;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.chars = stats.getChars();
+        event.processedChars = stats.getProcessedChars();
+        event.nodes = stats.getNodes();
+        event.values = stats.getValues();
+        event.maxDepth = stats.getMaxDepth();
+        event.widestNode = stats.getWidestNode();
+        event.duplicateKeys = stats.getDuplicateKeys();
+        event.preprocessDuration = stats.getPreprocessNanos();
+        event.retainedBytes = stats.getRetainedBytes();
+        event.commit();
+    }
+
+    @Override
+    public Object beginWrite() {
+        WriteEvent event = new WriteEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endWrite(Object context, int chars) {
+        WriteEvent event = (WriteEvent) context;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.chars = chars;
+        event.commit();
+    }
+
+    @Override
+    public void cacheLookup(String path, boolean hit) {
+        CacheLookupEvent event = new CacheLookupEvent();
+        if (!event.shouldCommit()) return;
+        event.path = path;
+        event.hit = hit;
+        event.commit();
+    }
+
+    @Override
+    public Object beginInclude(String path) {
+        IncludeEvent event = new IncludeEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endInclude(Object context, String path, int includes) {
+        IncludeEvent event = (IncludeEvent) context;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.path = path;
+        event.includes = includes;
+        event.commit();
+    }
+
+    @Name("it.aretesoftware.gdx.jvdf.Parse")
+    @Label("VDF Parse")
+    @Category("VDF")
+    @Description("A document parsed by a GdxVDFParser")
+    public static final class ParseEvent extends Event {
+        @Label("Characters")
+        public long chars;
+
+        @Label("Processed Characters")
+        @Description("Characters left after stripping comments and whitespaces")
+        public long processedChars;
+
+        @Label("Nodes")
+        public long nodes;
+
+        @Label("Values")
+        public long values;
+
+        @Label("Max Depth")
+        public int maxDepth;
+
+        @Label("Widest Node")
+        @Description("Largest number of children of a single node")
+        public int widestNode;
+
+        @Label("Duplicate Keys")
+        public long duplicateKeys;
+
+        @Label("Preprocess Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        public long preprocessDuration;
+
+        @Label("Retained Size")
+        @Description("Estimated size of the parsed tree")
+        @DataAmount(DataAmount.BYTES)
+        public long retainedBytes;
+    }
+
+    @Name("it.aretesoftware.gdx.jvdf.Write")
+    @Label("VDF Write")
+    @Category("VDF")
+    @Description("A tree written as a document by GdxVDFNode.toVDF() or GdxVDFWriter.writeNode()")
+    public static final class WriteEvent extends Event {
+        @Label("Characters")
+        public long chars;
+    }
+
+    @Name("it.aretesoftware.gdx.jvdf.CacheLookup")
+    @Label("VDF Cache Lookup")
+    @Category("VDF")
+    @Description("A document looked up by a GdxVDFCache, a miss is followed by its parse")
+    public static final class CacheLookupEvent extends Event {
+        @Label("Path")
+        @Description("Path of the file, missing for documents parsed from a String")
+        public String path;
+
+        @Label("Hit")
+        public boolean hit;
+    }
+
+    @Name("it.aretesoftware.gdx.jvdf.Include")
+    @Label("VDF Include Resolution")
+    @Category("VDF")
+    @Description("The directives of a file resolved by a GdxVDFIncludeLoader, nesting the files it includes")
+    public static final class IncludeEvent extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Directives")
+        public int includes;
+    }
+
+}
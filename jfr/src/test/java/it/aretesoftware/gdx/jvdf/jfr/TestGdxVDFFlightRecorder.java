@@ -0,0 +1,114 @@
+package it.aretesoftware.gdx.jvdf.jfr;
+
+import com.badlogic.gdx.files.FileHandle;
+import it.aretesoftware.gdx.jvdf.GdxVDFCache;
+import it.aretesoftware.gdx.jvdf.GdxVDFIncludeLoader;
+import it.aretesoftware.gdx.jvdf.GdxVDFMonitor;
+import it.aretesoftware.gdx.jvdf.GdxVDFNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import it.aretesoftware.gdx.jvdf.GdxVDFWriter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestGdxVDFFlightRecorder {
+
+    @Test
+    public void testRecording() throws IOException {
+        Path dir = Files.createTempDirectory("gdx-jvdf");
+        Path file = dir.resolve("recording.jfr");
+        Files.write(dir.resolve("main.txt"), "\"#include\" \"extra.txt\"\n\"main\" { \"key\" \"value\" }".getBytes());
+        Files.write(dir.resolve("extra.txt"), "\"extra\" { \"key\" \"extra\" \"key\" \"again\" }".getBytes());
+
+        List<RecordedEvent> events;
+        String vdf;
+        GdxVDFFlightRecorder.install();
+        try (Recording recording = new Recording()) {
+            recording.enable(GdxVDFFlightRecorder.ParseEvent.class).withoutThreshold();
+            recording.enable(GdxVDFFlightRecorder.WriteEvent.class).withoutThreshold();
+            recording.enable(GdxVDFFlightRecorder.CacheLookupEvent.class);
+            recording.enable(GdxVDFFlightRecorder.IncludeEvent.class).withoutThreshold();
+            recording.start();
+
+            GdxVDFNode root = new GdxVDFIncludeLoader().load(new FileHandle(dir.resolve("main.txt").toFile()));
+            vdf = root.toVDF();
+            root.toVDF(new StringWriter());
+            new GdxVDFWriter().writeNode(root.get("main"));
+            GdxVDFCache cache = new GdxVDFCache(new GdxVDFParser(), 0, 0);
+            cache.parse("\"a\" \"1\"");
+            cache.parse("\"a\" \"1\"");
+
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+        finally {
+            GdxVDFMonitor.install(null);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path path : files.collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(dir);
+        }
+
+        // Two files and a cache miss are parsed
+        List<RecordedEvent> parses = named(events, "it.aretesoftware.gdx.jvdf.Parse");
+        Assert.assertEquals(3, parses.size());
+        RecordedEvent extra = parses.stream().filter(event -> event.getLong("duplicateKeys") == 1).findFirst().get();
+        Assert.assertEquals(1, extra.getLong("nodes"));
+        Assert.assertEquals(2, extra.getLong("values"));
+        Assert.assertEquals(1, extra.getInt("maxDepth"));
+
+        // Writing to a String, to a Writer and with a GdxVDFWriter
+        List<RecordedEvent> writes = named(events, "it.aretesoftware.gdx.jvdf.Write");
+        Assert.assertEquals(3, writes.size());
+        Assert.assertEquals(vdf.length(), writes.get(0).getLong("chars"));
+        Assert.assertEquals(vdf.length(), writes.get(1).getLong("chars"));
+        Assert.assertTrue(writes.get(2).getLong("chars") > 0);
+
+        List<RecordedEvent> lookups = named(events, "it.aretesoftware.gdx.jvdf.CacheLookup");
+        Assert.assertEquals(2, lookups.size());
+        Assert.assertFalse(lookups.get(0).getBoolean("hit"));
+        Assert.assertTrue(lookups.get(1).getBoolean("hit"));
+        Assert.assertNull(lookups.get(1).getString("path"));
+
+        List<RecordedEvent> includes = named(events, "it.aretesoftware.gdx.jvdf.Include");
+        Assert.assertEquals(2, includes.size());
+        Assert.assertEquals(1, includes.stream().mapToInt(event -> event.getInt("includes")).sum());
+    }
+
+    @Test
+    public void testNotRecording() {
+        // Without a recording the monitor ignores every operation, so parsers skip their statistics
+        GdxVDFFlightRecorder recorder = new GdxVDFFlightRecorder();
+        Assert.assertNull(recorder.beginParse());
+        Assert.assertNull(recorder.beginWrite());
+        Assert.assertNull(recorder.beginInclude("main.txt"));
+
+        GdxVDFMonitor.install(recorder);
+        try {
+            Assert.assertEquals("1", new GdxVDFParser().parse("\"a\" \"1\"").getString("a"));
+        }
+        finally {
+            GdxVDFMonitor.install(null);
+        }
+    }
+
+    private List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+
+}
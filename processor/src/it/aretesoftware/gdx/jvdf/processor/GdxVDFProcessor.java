@@ -0,0 +1,489 @@
+/*
+Copyright 2023 Arete
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package it.aretesoftware.gdx.jvdf.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link it.aretesoftware.gdx.jvdf.GdxVDFBinding} for every class annotated with
+ * {@link it.aretesoftware.gdx.jvdf.GdxVDFType}.
+ * <p>
+ * The generated class is placed in the package of the annotated class, so it can access its fields directly, and binds
+ * them with the getters of {@link it.aretesoftware.gdx.jvdf.GdxVDFNode} and the methods of
+ * {@link it.aretesoftware.gdx.jvdf.GdxVDFWriter}. Nothing is looked up at runtime, which suits platforms where
+ * reflection is slow or restricted, such as Android, iOS and GWT. Fields follow the same rules as
+ * {@link it.aretesoftware.gdx.jvdf.GdxVDFMapper}: static and transient fields are skipped, keys come from
+ * {@link it.aretesoftware.gdx.jvdf.GdxVDFField} or the name of the field, falling back to its snake_case form.
+ * </p>
+ * <p>
+ * Classes which cannot be bound, because of a private field, an unsupported field type or a missing no-argument
+ * constructor, are reported as compilation errors rather than failing at runtime.
+ * </p>
+ * @author Arete */
+public class GdxVDFProcessor extends AbstractProcessor {
+
+    static final String TYPE = "it.aretesoftware.gdx.jvdf.GdxVDFType";
+    static final String FIELD = "it.aretesoftware.gdx.jvdf.GdxVDFField";
+    static final String SUFFIX = "GdxVDFBinding";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(TYPE);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(TYPE);
+        if (annotation == null) return false;
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GdxVDFType can only be applied to classes.");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                String source = generate(type);
+                if (source != null) write(type, source);
+            }
+            catch (IOException e) {
+                error(type, "Binding cannot be written: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /** Returns the source of the binding of a class.
+     * @return May be null, if the class cannot be bound. */
+    private String generate(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "@GdxVDFType classes cannot be abstract.");
+            return null;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "@GdxVDFType classes cannot be generic.");
+            return null;
+        }
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            error(type, "@GdxVDFType classes cannot be inner classes, make them static.");
+            return null;
+        }
+        if (!hasNoArgConstructor(type)) {
+            error(type, "@GdxVDFType classes require a no-argument constructor which is not private.");
+            return null;
+        }
+
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        StringBuilder read = new StringBuilder(), write = new StringBuilder();
+        boolean valid = true;
+        for (VariableElement field : fields(type)) {
+            Property property = property(field, packageName);
+            if (property == null) {
+                valid = false;
+                continue;
+            }
+            if (property.ignore) continue;
+            appendRead(read, property);
+            appendWrite(write, property);
+        }
+        if (!valid) return null;
+
+        String bindingName = bindingName(type);
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by ").append(GdxVDFProcessor.class.getSimpleName()).append(", do not edit.\n");
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+        source.append("import it.aretesoftware.gdx.jvdf.GdxVDFBinding;\n")
+                .append("import it.aretesoftware.gdx.jvdf.GdxVDFNode;\n")
+                .append("import it.aretesoftware.gdx.jvdf.GdxVDFWriter;\n\n")
+                .append("/** Binds {@link ").append(typeName).append("} without reflection. */\n")
+                .append("public final class ").append(bindingName).append(" implements GdxVDFBinding<").append(typeName).append("> {\n\n")
+                .append("    public static final ").append(bindingName).append(" INSTANCE = new ").append(bindingName).append("();\n\n")
+                .append("    private ").append(bindingName).append("() {\n    }\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(typeName).append(" read(GdxVDFNode node) {\n")
+                .append("        return read(node, new ").append(typeName).append("());\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(typeName).append(" read(GdxVDFNode node, ").append(typeName).append(" object) {\n")
+                .append("        GdxVDFNode child;\n")
+                .append(read)
+                .append("        return object;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public GdxVDFWriter write(GdxVDFWriter writer, ").append(typeName).append(" object) {\n")
+                .append(write)
+                .append("        return writer;\n")
+                .append("    }\n\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private void write(TypeElement type, String source) throws IOException {
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String name = (packageName.isEmpty() ? "" : packageName + ".") + bindingName(type);
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(name, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    /** Returns the fields of a class and of its superclasses, superclasses first, without static and transient fields. */
+    private List<VariableElement> fields(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement current = type; current != null; ) {
+            if (current.getQualifiedName().contentEquals("java.lang.Object")) break;
+            hierarchy.add(0, current);
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        List<VariableElement> fields = new ArrayList<>();
+        for (TypeElement current : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) continue;
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /** Returns how a field is bound.
+     * @return May be null, if the field cannot be bound, in which case an error was reported. */
+    private Property property(VariableElement field, String packageName) {
+        String name = field.getSimpleName().toString();
+        String key = null;
+        boolean required = false, ignore = false;
+        AnnotationMirror annotation = annotation(field, FIELD);
+        if (annotation != null) {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+                String attribute = entry.getKey().getSimpleName().toString();
+                Object value = entry.getValue().getValue();
+                if (attribute.equals("value") && !((String) value).isEmpty()) key = (String) value;
+                else if (attribute.equals("required")) required = (Boolean) value;
+                else if (attribute.equals("ignore")) ignore = (Boolean) value;
+            }
+        }
+        if (ignore) return new Property(name, null, null, false, true, null);
+
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            error(field, "Bound fields cannot be private: " + name);
+            return null;
+        }
+        if (modifiers.contains(Modifier.FINAL)) {
+            error(field, "Bound fields cannot be final: " + name);
+            return null;
+        }
+        // The binding is not a subclass, so protected fields of another package are out of its reach
+        boolean samePackage = packageOf(field).getQualifiedName().contentEquals(packageName);
+        if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+            error(field, "Bound fields declared in another package must be public: " + name);
+            return null;
+        }
+
+        TypeMirror type = field.asType();
+        String alternateKey = null;
+        if (key == null) {
+            key = name;
+            alternateKey = toSnakeCase(name);
+        }
+        Kind kind = kind(type);
+        if (kind == Kind.list) {
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            TypeMirror element = arguments.size() == 1 ? arguments.get(0) : null;
+            Kind elementKind = element == null ? null : kind(element);
+            if (elementKind == null || elementKind == Kind.list || elementKind.primitive) {
+                error(field, "Unsupported list element type: " + name);
+                return null;
+            }
+            return new Property(name, key, alternateKey, required, false, new Value(type, kind, new Value(element, elementKind, null)));
+        }
+        if (kind == null) {
+            error(field, "Unsupported field type, annotate " + type + " with @GdxVDFType or ignore the field: " + name);
+            return null;
+        }
+        return new Property(name, key, alternateKey, required, false, new Value(type, kind, null));
+    }
+
+    /** Returns how values of a type are bound.
+     * @return May be null, if the type is not supported. */
+    private Kind kind(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT: return Kind.intValue;
+            case FLOAT: return Kind.floatValue;
+            case LONG: return Kind.longValue;
+            case DOUBLE: return Kind.doubleValue;
+            case BOOLEAN: return Kind.booleanValue;
+            case SHORT: return Kind.shortValue;
+            case BYTE: return Kind.byteValue;
+            case CHAR: return Kind.charValue;
+            case DECLARED: break;
+            default: return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM) return Kind.enumValue;
+        switch (element.getQualifiedName().toString()) {
+            case "java.lang.String": return Kind.string;
+            case "java.lang.Integer": return Kind.integer;
+            case "java.lang.Float": return Kind.floatObject;
+            case "java.lang.Long": return Kind.longObject;
+            case "java.lang.Double": return Kind.doubleObject;
+            case "java.lang.Boolean": return Kind.booleanObject;
+            case "java.lang.Short": return Kind.shortObject;
+            case "java.lang.Byte": return Kind.byteObject;
+            case "java.lang.Character": return Kind.character;
+            case "com.badlogic.gdx.graphics.Color": return Kind.color;
+            case "com.badlogic.gdx.math.Vector2": return Kind.vector2;
+            case "com.badlogic.gdx.math.Vector3": return Kind.vector3;
+            case "java.util.List":
+            case "java.util.ArrayList": return Kind.list;
+        }
+        return annotation(element, TYPE) != null ? Kind.binding : null;
+    }
+
+    private void appendRead(StringBuilder read, Property property) {
+        read.append("        child = node.get(\"").append(escape(property.key)).append("\");\n");
+        if (property.alternateKey != null) {
+            read.append("        if (child == null) child = node.get(\"").append(escape(property.alternateKey)).append("\");\n");
+        }
+        read.append("        if (child != null) {\n");
+        Value value = property.value;
+        if (value.kind == Kind.list) {
+            String elementType = value.element.type.toString();
+            read.append("            java.util.ArrayList<").append(elementType).append("> list = new java.util.ArrayList<>();\n")
+                    .append("            for (GdxVDFNode next = child; next != null; next = next.next) {\n")
+                    .append("                if (next.name.equalsIgnoreCase(child.name)) list.add(")
+                    .append(readExpression(value.element, "next")).append(");\n")
+                    .append("            }\n")
+                    .append("            object.").append(property.name).append(" = list;\n");
+        }
+        else {
+            read.append("            object.").append(property.name).append(" = ").append(readExpression(value, "child")).append(";\n");
+        }
+        read.append("        }\n");
+        if (property.required) {
+            read.append("        else {\n")
+                    .append("            throw new IllegalArgumentException(\"Named value not found: ")
+                    .append(escape(property.key)).append("\");\n")
+                    .append("        }\n");
+        }
+    }
+
+    private String readExpression(Value value, String node) {
+        switch (value.kind) {
+            case string: return node + ".asString()";
+            case intValue: case integer: return node + ".asInt()";
+            case floatValue: case floatObject: return node + ".asFloat()";
+            case longValue: case longObject: return node + ".asLong()";
+            case doubleValue: case doubleObject: return node + ".asDouble()";
+            case booleanValue: case booleanObject: return node + ".asBoolean()";
+            case shortValue: case shortObject: return node + ".asShort()";
+            case byteValue: case byteObject: return node + ".asByte()";
+            case charValue: case character: return node + ".asChar()";
+            case color: return node + ".asColor()";
+            case vector2: return node + ".asVector2()";
+            case vector3: return node + ".asVector3()";
+            case enumValue: return node + ".asEnum(" + value.type + ".class)";
+            case binding: return bindingReference(value.type) + ".read(" + node + ")";
+            default: throw new IllegalStateException("Unexpected kind: " + value.kind);
+        }
+    }
+
+    private void appendWrite(StringBuilder write, Property property) {
+        String field = "object." + property.name;
+        Value value = property.value;
+        if (value.kind.primitive) {
+            write.append("        ").append(writeStatement(value, property.key, field)).append('\n');
+        }
+        else if (value.kind == Kind.list) {
+            write.append("        if (").append(field).append(" != null) {\n")
+                    .append("            for (").append(value.element.type).append(" element : ").append(field).append(") {\n")
+                    .append("                if (element != null) ").append(writeStatement(value.element, property.key, "element")).append('\n')
+                    .append("            }\n")
+                    .append("        }\n");
+        }
+        else {
+            write.append("        if (").append(field).append(" != null) ")
+                    .append(writeStatement(value, property.key, field)).append('\n');
+        }
+    }
+
+    private String writeStatement(Value value, String key, String expression) {
+        String quotedKey = "\"" + escape(key) + "\"";
+        if (value.kind == Kind.binding) {
+            return bindingReference(value.type) + ".write(writer.writeNodeStart(" + quotedKey + "), " + expression + ").writeNodeEnd();";
+        }
+        // Wrappers are unboxed explicitly, so the most specific overload of writeValue is always chosen
+        String unboxed;
+        switch (value.kind) {
+            case integer: unboxed = expression + ".intValue()"; break;
+            case floatObject: unboxed = expression + ".floatValue()"; break;
+            case longObject: unboxed = expression + ".longValue()"; break;
+            case doubleObject: unboxed = expression + ".doubleValue()"; break;
+            case booleanObject: unboxed = expression + ".booleanValue()"; break;
+            case shortObject: unboxed = expression + ".shortValue()"; break;
+            case byteObject: unboxed = expression + ".byteValue()"; break;
+            case character: unboxed = expression + ".charValue()"; break;
+            default: unboxed = expression;
+        }
+        return "writer.writeValue(" + quotedKey + ", " + unboxed + ");";
+    }
+
+    /** Returns the INSTANCE field of the binding of a type annotated with {@link it.aretesoftware.gdx.jvdf.GdxVDFType}. */
+    private String bindingReference(TypeMirror type) {
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String packageName = packageOf(element).getQualifiedName().toString();
+        return (packageName.isEmpty() ? "" : packageName + ".") + bindingName(element) + ".INSTANCE";
+    }
+
+    /** Returns the simple name of the binding of a class, such as Outer_InnerGdxVDFBinding for a nested class. */
+    static String bindingName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement;
+             enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, enclosing.getSimpleName());
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    private boolean hasNoArgConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private PackageElement packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    /** @return May be null, if the element is not annotated. */
+    private static AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotationName)) return mirror;
+        }
+        return null;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /** Returns the snake_case form of a camelCase name, like GdxVDFMapper does.
+     * @return May be null, if the name has no upper case letters. */
+    static String toSnakeCase(String name) {
+        StringBuilder builder = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                if (builder == null) builder = new StringBuilder(name.length() + 4).append(name, 0, i);
+                builder.append('_').append(Character.toLowerCase(c));
+            }
+            else if (builder != null) {
+                builder.append(c);
+            }
+        }
+        return builder == null ? null : builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /** Escapes a key to be written in a string literal. */
+    private static String escape(String key) {
+        return key.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /** How a value is read from a node and written. */
+    enum Kind {
+        intValue(true), floatValue(true), longValue(true), doubleValue(true), booleanValue(true), shortValue(true),
+        byteValue(true), charValue(true),
+        string, integer, floatObject, longObject, doubleObject, booleanObject, shortObject, byteObject, character,
+        color, vector2, vector3, enumValue, list, binding;
+
+        final boolean primitive;
+
+        Kind() {
+            this(false);
+        }
+
+        Kind(boolean primitive) {
+            this.primitive = primitive;
+        }
+    }
+
+    /** A bound type, and the type of its elements for lists. */
+    private static final class Value {
+        final TypeMirror type;
+        final Kind kind;
+        final Value element;
+
+        Value(TypeMirror type, Kind kind, Value element) {
+            this.type = type;
+            this.kind = kind;
+            this.element = element;
+        }
+    }
+
+    /** A bound field. */
+    private static final class Property {
+        final String name, key, alternateKey;
+        final boolean required, ignore;
+        final Value value;
+
+        Property(String name, String key, String alternateKey, boolean required, boolean ignore, Value value) {
+            this.name = name;
+            this.key = key;
+            this.alternateKey = alternateKey;
+            this.required = required;
+            this.ignore = ignore;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package it.aretesoftware.gdx.jvdf.processor;
+
+import it.aretesoftware.gdx.jvdf.GdxVDFBinding;
+import it.aretesoftware.gdx.jvdf.GdxVDFMapper;
+import it.aretesoftware.gdx.jvdf.GdxVDFNode;
+import it.aretesoftware.gdx.jvdf.GdxVDFParser;
+import it.aretesoftware.gdx.jvdf.GdxVDFWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestGdxVDFProcessor {
+
+    private final List<File> directories = new ArrayList<>();
+
+    private static final String ITEM = "package sample;\n" +
+            "\n" +
+            "import it.aretesoftware.gdx.jvdf.GdxVDFField;\n" +
+            "import it.aretesoftware.gdx.jvdf.GdxVDFType;\n" +
+            "import com.badlogic.gdx.graphics.Color;\n" +
+            "import java.util.List;\n" +
+            "\n" +
+            "@GdxVDFType\n" +
+            "public class Item {\n" +
+            "    public enum Quality { common, rare }\n" +
+            "\n" +
+            "    @GdxVDFType\n" +
+            "    public static class Attribute {\n" +
+            "        public String name;\n" +
+            "        public float value;\n" +
+            "    }\n" +
+            "\n" +
+            "    @GdxVDFField(required = true)\n" +
+            "    public String id;\n" +
+            "    public int itemSlot;\n" +
+            "    public Long serial;\n" +
+            "    public boolean tradable;\n" +
+            "    public Color color;\n" +
+            "    public Quality quality;\n" +
+            "    @GdxVDFField(\"tag\")\n" +
+            "    List<String> tags;\n" +
+            "    @GdxVDFField(\"attribute\")\n" +
+            "    public List<Attribute> attributes;\n" +
+            "    public Attribute main;\n" +
+            "    @GdxVDFField(ignore = true)\n" +
+            "    private String ignored;\n" +
+            "    public transient String skipped = \"default\";\n" +
+            "}\n";
+
+    private static final String VDF = "\"item\"\n" +
+            "{\n" +
+            "    \"id\" \"rifle\"\n" +
+            "    \"item_slot\" \"2\"\n" +
+            "    \"serial\" \"123456789012\"\n" +
+            "    \"tradable\" \"true\"\n" +
+            "    \"color\" \"0.0 0.0 1.0 1.0\"\n" +
+            "    \"quality\" \"rare\"\n" +
+            "    \"tag\" \"first\"\n" +
+            "    \"tag\" \"second\"\n" +
+            "    \"attribute\" { \"name\" \"damage\" \"value\" \"10\" }\n" +
+            "    \"attribute\" { \"name\" \"speed\" \"value\" \"1.5\" }\n" +
+            "    \"main\" { \"name\" \"accuracy\" \"value\" \"0.9\" }\n" +
+            "    \"skipped\" \"value\"\n" +
+            "}\n";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGeneratedBinding() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        File output = compile(ITEM, diagnostics);
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), errors(diagnostics).isEmpty());
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {output.toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> itemClass = loader.loadClass("sample.Item");
+            GdxVDFBinding<Object> binding = (GdxVDFBinding<Object>) loader.loadClass("sample.ItemGdxVDFBinding")
+                    .getField("INSTANCE").get(null);
+            Assert.assertNotNull(loader.loadClass("sample.Item_AttributeGdxVDFBinding"));
+
+            GdxVDFNode node = new GdxVDFParser().parse(VDF).get("item");
+            Object item = binding.read(node);
+            Assert.assertSame(itemClass, item.getClass());
+
+            // The generated binding gives the same result as the runtime mapper
+            Object mapped = new GdxVDFMapper().map(node, itemClass);
+            String written = binding.write(new GdxVDFWriter(), item).toVDF();
+            Assert.assertEquals(binding.write(new GdxVDFWriter(), mapped).toVDF(), written);
+
+            GdxVDFNode root = new GdxVDFParser().parse(written);
+            Assert.assertEquals("rifle", root.getString("id"));
+            Assert.assertEquals(2, root.getInt("itemSlot"));
+            Assert.assertEquals(123456789012L, root.getLong("serial"));
+            Assert.assertEquals("rare", root.getString("quality"));
+            Assert.assertEquals("second", root.getStringOfIndex("tag", 1));
+            Assert.assertEquals(1.5f, root.get("attribute", 1).getFloat("value"), 0f);
+            Assert.assertEquals("accuracy", root.get("main").getString("name"));
+            Assert.assertNull(root.get("skipped"));
+            Assert.assertNull(root.get("ignored"));
+
+            // Reading the written document back gives the same document
+            Assert.assertEquals(written, binding.write(new GdxVDFWriter(), binding.read(root)).toVDF());
+
+            try {
+                binding.read(new GdxVDFParser().parse("\"item_slot\" \"1\""));
+                Assert.fail();
+            }
+            catch (IllegalArgumentException e) {
+                Assert.assertEquals("Named value not found: id", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        String source = "package sample;\n" +
+                "\n" +
+                "@it.aretesoftware.gdx.jvdf.GdxVDFType\n" +
+                "public class Broken {\n" +
+                "    private String name;\n" +
+                "    public Thread thread;\n" +
+                "    public Broken(int value) {\n" +
+                "    }\n" +
+                "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        compile(source, diagnostics);
+        String errors = errors(diagnostics);
+        Assert.assertTrue(errors, errors.contains("no-argument constructor"));
+
+        diagnostics = new DiagnosticCollector<>();
+        compile(source.replace("    public Broken(int value) {\n    }\n", ""), diagnostics);
+        errors = errors(diagnostics);
+        Assert.assertTrue(errors, errors.contains("cannot be private: name"));
+        Assert.assertTrue(errors, errors.contains("Unsupported field type"));
+    }
+
+    @Test
+    public void testSuperclassInAnotherPackage() throws Exception {
+        String base = "package other;\n" +
+                "\n" +
+                "public class Base {\n" +
+                "    public String id;\n" +
+                "    protected String name;\n" +
+                "}\n";
+        String derived = "package sample;\n" +
+                "\n" +
+                "@it.aretesoftware.gdx.jvdf.GdxVDFType\n" +
+                "public class Derived extends other.Base {\n" +
+                "    protected int count;\n" +
+                "}\n";
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        compile(diagnostics, base, derived);
+        String errors = errors(diagnostics);
+        Assert.assertTrue(errors, errors.contains("must be public: name"));
+        Assert.assertFalse(errors, errors.contains(": id"));
+        Assert.assertFalse(errors, errors.contains(": count"));
+    }
+
+    @Test
+    public void testSnakeCase() {
+        Assert.assertEquals("item_slot", GdxVDFProcessor.toSnakeCase("itemSlot"));
+        Assert.assertEquals("max_hp_value", GdxVDFProcessor.toSnakeCase("maxHpValue"));
+        Assert.assertNull(GdxVDFProcessor.toSnakeCase("name"));
+    }
+
+    private String errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        StringBuilder errors = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.append(diagnostic.getMessage(null)).append('\n');
+        }
+        return errors.toString();
+    }
+
+    /** Compiles a source with the processor, and returns the directory of the classes. */
+    private File compile(String source, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        return compile(diagnostics, source);
+    }
+
+    /** Compiles sources together with the processor, and returns the directory of the classes. */
+    private File compile(DiagnosticCollector<JavaFileObject> diagnostics, String... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertNotNull("Tests require a JDK", compiler);
+        File directory = Files.createTempDirectory("gdx-jvdf-processor").toFile();
+        directories.add(directory);
+        File[] files = new File[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            String source = sources[i];
+            String name = source.substring(source.indexOf("public class ") + 13);
+            name = name.substring(0, name.indexOf(' '));
+            files[i] = new File(directory, name + ".java");
+            Files.write(files[i].toPath(), source.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                    "-d", directory.getPath(), "-s", directory.getPath());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(files));
+            task.setProcessors(Collections.singletonList(new GdxVDFProcessor()));
+            task.call();
+        }
+        return directory;
+    }
+
+    /** Deletes the sources and classes of every compilation, children first. */
+    @After
+    public void deleteDirectories() throws IOException {
+        for (File directory : directories) {
+            List<Path> paths;
+            try (Stream<Path> walk = Files.walk(directory.toPath())) {
+                paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            }
+            for (Path path : paths) {
+                Files.delete(path);
+            }
+        }
+        directories.clear();
+    }
+
+}